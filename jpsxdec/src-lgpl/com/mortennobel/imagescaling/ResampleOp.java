@@ -17,6 +17,7 @@
 package com.mortennobel.imagescaling;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -87,6 +88,15 @@ public class ResampleOp
 	private SubSamplingData horizontalSubsamplingData;
 	private SubSamplingData verticalSubsamplingData;
 
+	// The filter and source size the sub-sampling data and work rows were
+	// created for. Video frames are all the same size, so usually they
+	// can be reused.
+	private ResampleFilter planFilter;
+	private int planSrcWidth = -1;
+	private int planSrcHeight = -1;
+	private double[][] workPixels1;
+	private double[][] workPixels2;
+
 	private int processedItems;
 	private float totalItems;
 
@@ -117,39 +127,57 @@ public class ResampleOp
 	}
 
 	public void doFilter(final double[] srcImg, int srcWidth, int srcHeight, final double[] dest) {
-        
+		doFilter(srcImg, null, srcWidth, srcHeight, dest, null);
+	}
+
+	/**
+	 * Scales two images of the same size in one pass, such as the Cb and
+	 * Cr planes of a frame.
+	 * @param srcImg2 may be null to only scale srcImg1.
+	 * @param dest2 may be null if srcImg2 is null.
+	 */
+	public void doFilter(final double[] srcImg1, final double[] srcImg2,
+	                     int srcWidth, int srcHeight,
+	                     final double[] dest1, final double[] dest2) {
+
 		assert multipleInvocationLock.incrementAndGet()==1:"Multiple concurrent invocations detected";
 
 		this.dstWidth = srcWidth * SCALE;
 		this.dstHeight = srcHeight * SCALE;
 
-        if (dest.length < dstWidth * dstHeight)
+        if (dest1.length < dstWidth * dstHeight || (srcImg2 != null && dest2.length < dstWidth * dstHeight))
             throw new IllegalArgumentException("Output buffer not big enough");
 
 		this.srcWidth = srcWidth;
         this.srcHeight = srcHeight;
 
-        final double[][] workPixels = new double[srcHeight][dstWidth];
+		// Pre-calculate sub-sampling, unless it is the same as last time
+		if (filter != planFilter || srcWidth != planSrcWidth || srcHeight != planSrcHeight) {
+			horizontalSubsamplingData = createSubSampling(filter, srcWidth, dstWidth);
+			verticalSubsamplingData = createSubSampling(filter,srcHeight, dstHeight);
+			workPixels1 = new double[srcHeight][dstWidth];
+			workPixels2 = null;
+			planFilter = filter;
+			planSrcWidth = srcWidth;
+			planSrcHeight = srcHeight;
+		}
+		if (srcImg2 != null && workPixels2 == null)
+			workPixels2 = new double[srcHeight][dstWidth];
 
         this.processedItems = 0;
-		this.totalItems = srcHeight + dstWidth;
-
-		// Pre-calculate  sub-sampling
-		horizontalSubsamplingData = createSubSampling(filter, srcWidth, dstWidth);
-		verticalSubsamplingData = createSubSampling(filter,srcHeight, dstHeight);
-
+		this.totalItems = srcHeight + dstHeight;
 
         Thread[] threads = new Thread[numberOfThreads-1];
         for (int i=1;i<numberOfThreads;i++){
             final int finalI = i;
             threads[i-1] = new Thread(new Runnable(){
                 public void run(){
-                    horizontallyFromSrcToWork(srcImg, workPixels,finalI,numberOfThreads);
+                    horizontallyFromSrcToWork(srcImg1, srcImg2, finalI, numberOfThreads);
                 }
             });
             threads[i-1].start();
         }
-        horizontallyFromSrcToWork(srcImg, workPixels,0,numberOfThreads);
+        horizontallyFromSrcToWork(srcImg1, srcImg2, 0, numberOfThreads);
         waitForAllThreads(threads);
 
 
@@ -160,12 +188,12 @@ public class ResampleOp
             final int finalI = i;
             threads[i-1] = new Thread(new Runnable(){
                 public void run(){
-					verticalFromWorkToDst(workPixels, dest, finalI,numberOfThreads);
+					verticalFromWorkToDst(dest1, srcImg2 == null ? null : dest2, finalI, numberOfThreads);
                 }
             });
             threads[i-1].start();
         }
-        verticalFromWorkToDst(workPixels, dest, 0,numberOfThreads);
+        verticalFromWorkToDst(dest1, srcImg2 == null ? null : dest2, 0, numberOfThreads);
         waitForAllThreads(threads);
 
 		assert multipleInvocationLock.decrementAndGet()==0:"Multiple concurrent invocations detected";
@@ -236,34 +264,18 @@ public class ResampleOp
 		return new SubSamplingData(arrN, arrPixel, arrWeight, numContributors);
 	}
 
-	private void verticalFromWorkToDst(double[][] workPixels, double[] outPixels, int start, int delta) {
-		for (int x = start; x < dstWidth; x+=delta)
+	/**
+	 * Apply filter to sample vertically from Work to Dst, one destination
+	 * row at a time. Each pixel's contributions are still added in the
+	 * same order, but the rows are walked sequentially.
+	 * @param outPixels2 null if there is only one image.
+	 */
+	private void verticalFromWorkToDst(double[] outPixels1, double[] outPixels2, int start, int delta) {
+		for (int y = start; y < dstHeight; y+=delta)
         {
-			final int xLocation = x;
-			for (int y = dstHeight-1; y >=0 ; y--)
-			{
-				final int yTimesNumContributors = y * verticalSubsamplingData.numContributors;
-				final int max= verticalSubsamplingData.arrN[y];
-				final int sampleLocation = (y*dstWidth+x);
-
-
-				double sample0 = 0.0;
-				int index= yTimesNumContributors;
-				for (int j= max-1; j >=0 ; j--) {
-					int valueLocation = verticalSubsamplingData.arrPixel[index];
-					double arrWeight = verticalSubsamplingData.arrWeight[index];
-					sample0+= (workPixels[valueLocation][xLocation]) *arrWeight ;
-
-					index++;
-				}
-
-                if (sample0 < -128)
-                    outPixels[sampleLocation] = -128;
-                else if (sample0 > 127)
-                    outPixels[sampleLocation] = 127;
-                else
-                    outPixels[sampleLocation] = sample0;
-			}
+			verticalRow(workPixels1, outPixels1, y);
+			if (outPixels2 != null)
+				verticalRow(workPixels2, outPixels2, y);
 			processedItems++;
 			if (start==0){ // only update progress listener from main thread
             	setProgress();
@@ -271,35 +283,40 @@ public class ResampleOp
         }
     }
 
-	/**
-     * Apply filter to sample horizontally from Src to Work
-     * @param srcImg
-     * @param workPixels
-     */
-    private void horizontallyFromSrcToWork(double[] srcImg, double[][] workPixels, int start, int delta) {
-		final double[] srcPixels = new double[srcWidth]; // create reusable row to minimize memory overhead
+	private void verticalRow(double[][] workPixels, double[] outPixels, int y) {
+		final int max= verticalSubsamplingData.arrN[y];
+		final int rowStart = y*dstWidth;
+		final int rowEnd = rowStart + dstWidth;
+
+		Arrays.fill(outPixels, rowStart, rowEnd, 0.0);
+		int index= y * verticalSubsamplingData.numContributors;
+		for (int j= max-1; j >=0 ; j--) {
+			final double[] workRow = workPixels[verticalSubsamplingData.arrPixel[index]];
+			final double arrWeight = verticalSubsamplingData.arrWeight[index];
+			for (int x = 0, sampleLocation = rowStart; sampleLocation < rowEnd; x++, sampleLocation++)
+				outPixels[sampleLocation] += workRow[x] * arrWeight;
+			index++;
+		}
+
+		for (int sampleLocation = rowStart; sampleLocation < rowEnd; sampleLocation++) {
+			double sample0 = outPixels[sampleLocation];
+			if (sample0 < -128)
+				outPixels[sampleLocation] = -128;
+			else if (sample0 > 127)
+				outPixels[sampleLocation] = 127;
+		}
+	}
 
+	/**
+	 * Apply filter to sample horizontally from Src to Work
+	 * @param srcImg2 null if there is only one image.
+	 */
+    private void horizontallyFromSrcToWork(double[] srcImg1, double[] srcImg2, int start, int delta) {
 		for (int k = start; k < srcHeight; k=k+delta)
         {
-            System.arraycopy(srcImg, k * srcWidth, srcPixels, 0, srcWidth);
-
-			for (int i = dstWidth-1;i>=0 ; i--)
-			{
-				int sampleLocation = i;
-				final int max = horizontalSubsamplingData.arrN[i];
-
-				double sample0 = 0.0;
-				int index= i * horizontalSubsamplingData.numContributors;
-				for (int j= max-1; j >= 0; j--) {
-					double arrWeight = horizontalSubsamplingData.arrWeight[index];
-					int pixelIndex = horizontalSubsamplingData.arrPixel[index];
-
-					sample0 += (srcPixels[pixelIndex]) * arrWeight;
-					index++;
-				}
-
-				workPixels[k][sampleLocation] = sample0;
-			}
+			horizontalRow(srcImg1, k, workPixels1[k]);
+			if (srcImg2 != null)
+				horizontalRow(srcImg2, k, workPixels2[k]);
 			processedItems++;
 			if (start==0){ // only update progress listener from main thread
 				setProgress();
@@ -307,6 +324,26 @@ public class ResampleOp
 		}
     }
 
+	private void horizontalRow(double[] srcImg, int k, double[] workRow) {
+		final int srcRowStart = k * srcWidth;
+		for (int i = dstWidth-1;i>=0 ; i--)
+		{
+			final int max = horizontalSubsamplingData.arrN[i];
+
+			double sample0 = 0.0;
+			int index= i * horizontalSubsamplingData.numContributors;
+			for (int j= max-1; j >= 0; j--) {
+				double arrWeight = horizontalSubsamplingData.arrWeight[index];
+				int pixelIndex = horizontalSubsamplingData.arrPixel[index];
+
+				sample0 += (srcImg[srcRowStart + pixelIndex]) * arrWeight;
+				index++;
+			}
+
+			workRow[i] = sample0;
+		}
+	}
+
 	private void setProgress(){
         fireProgressChanged(processedItems/totalItems);
     }
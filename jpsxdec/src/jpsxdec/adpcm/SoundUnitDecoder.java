@@ -53,6 +53,9 @@ public class SoundUnitDecoder {
     @Nonnull
     private final K0K1Filter _filterTable;
 
+    /** Holds the samples of the {@link IAdpcmSoundUnit} being decoded. */
+    private final short[] _asiShiftedAdpcmSamples = new short[SAMPLES_PER_SOUND_UNIT];
+
     public SoundUnitDecoder(@Nonnull K0K1Filter filterTable) {
         _filterTable = filterTable;
     }
@@ -66,24 +69,48 @@ public class SoundUnitDecoder {
                          @Nonnull IAdpcmSoundUnit su,
                          @Nonnull short[] asiPcmOutBuffer,
                          @Nonnull IContextCopier loggingContext)
+    {
+        for (int i = 0; i < SAMPLES_PER_SOUND_UNIT; i++) {
+            _asiShiftedAdpcmSamples[i] = su.getShiftedAdpcmSample(i);
+        }
+        int iSoundParameter = (su.getUncorruptedFilterIndex() << 4) | su.getRange();
+        decodeSoundUnit(context, iSoundParameter, _asiShiftedAdpcmSamples, 0,
+                        asiPcmOutBuffer, 0, 1, loggingContext);
+    }
+
+    /** Does the work of {@link #decodeSoundUnit(AdpcmContext, IAdpcmSoundUnit, short[], IContextCopier)}
+     * (which copies the sound unit and calls this) directly on primitive
+     * arrays so nothing is allocated (unless telemetry is enabled).
+     * @param iSoundParameter The uncorrupted sound parameter (range and filter).
+     * @param asiShiftedAdpcmSamples Holds the 28 ADPCM samples starting at
+     *                               {@code iInOffset}, each shifted into the
+     *                               top of a short.
+     * @param iOutStride Distance between PCM samples written to
+     *                   {@code asiPcmOutBuffer}, 2 to interleave stereo. */
+    void decodeSoundUnit(@Nonnull AdpcmContext context, int iSoundParameter,
+                         @Nonnull short[] asiShiftedAdpcmSamples, int iInOffset,
+                         @Nonnull short[] asiPcmOutBuffer, int iOutOffset, int iOutStride,
+                         @Nonnull IContextCopier loggingContext)
     {
         Telemetry telemetry = null;
 
-        int iFilterIndex = su.getUncorruptedFilterIndex();
-        int iRange = su.getRange();
+        int iFilterIndex = (iSoundParameter >> 4) & 0xf;
+        int iRange = iSoundParameter & 0xf;
+        double dblK0 = _filterTable.getK0(iFilterIndex);
+        double dblK1 = _filterTable.getK1(iFilterIndex);
 
         if (TELEMETRY_LISTENER != null)
             telemetry = new Telemetry(loggingContext, iFilterIndex, iRange);
-        for (int i = 0; i < SAMPLES_PER_SOUND_UNIT; i++) {
-            short siAdpcmShortTopSample = su.getShiftedAdpcmSample(i);
+        for (int i = 0; i < SAMPLES_PER_SOUND_UNIT; i++, iOutOffset += iOutStride) {
+            short siAdpcmShortTopSample = asiShiftedAdpcmSamples[iInOffset + i];
 
             // shift sound data according to the range, extending the sign
             int iUnRanged = siAdpcmShortTopSample >> iRange;
 
             // adjust according to the filter
             double dblDecodedPcm =
-                iUnRanged + _filterTable.getK0(iFilterIndex) * context.getPreviousPCMSample1()
-                          + _filterTable.getK1(iFilterIndex) * context.getPreviousPCMSample2();
+                iUnRanged + dblK0 * context.getPreviousPCMSample1()
+                          + dblK1 * context.getPreviousPCMSample2();
 
             if (telemetry != null) {
                 telemetry.asiSourceAdpcmSamples[i] = siAdpcmShortTopSample;
@@ -92,11 +119,9 @@ public class SoundUnitDecoder {
                 telemetry.adblPrev2Samples[i] = context.getPreviousPCMSample2();
                 telemetry.adblDecodedPcmSamples[i] = dblDecodedPcm;
             }
-            
+
             // let the context scale, round, and clamp
-            short siPcmSample = context.saveScaleRoundClampPCMSample(dblDecodedPcm);
-            // finally return the polished sample
-            asiPcmOutBuffer[i] = siPcmSample;
+            asiPcmOutBuffer[iOutOffset] = context.saveScaleRoundClampPCMSample(dblDecodedPcm);
         }
 
         if (telemetry != null && TELEMETRY_LISTENER != null)
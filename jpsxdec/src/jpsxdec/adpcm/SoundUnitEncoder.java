@@ -115,6 +115,10 @@ public class SoundUnitEncoder {
     /** Running context for the life of this encoder. */
     private final AdpcmEncodingContext _context = new AdpcmEncodingContext();
 
+    /** Reused for trying sound parameters, one holding the best so far. */
+    private final FilterRangeEncoder _encoderA = new FilterRangeEncoder(),
+                                     _encoderB = new FilterRangeEncoder();
+
     /** Filters to use for encoding.
      * Allows this encoder to encode for both XA ADPCM and SPU ADPCM. */
     @Nonnull
@@ -152,6 +156,13 @@ public class SoundUnitEncoder {
 
     /** Encodes the PCM samples into an {@link EncodedUnit}.
      * Searches for the sound parameters with the best possible result.
+     * <p>
+     * Every range and filter combination is tried in order, and the first
+     * with the smallest maximum error (that doesn't have to clamp) wins.
+     * A try is abandoned as soon as it has to clamp, or its error reaches
+     * the best found so far, since it can no longer win. This picks exactly
+     * what trying every combination to the end would. When telemetry is
+     * being collected, every combination is fully encoded.
      * @param asiPcmSoundUnitSamples A {@link SoundUnitDecoder#SAMPLES_PER_SOUND_UNIT}
      *                               worth of 16-bit samples.
      * @param loggingContext  Object that will be used to give some context when logging.
@@ -163,23 +174,35 @@ public class SoundUnitEncoder {
         if (asiPcmSoundUnitSamples.length != SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT)
             throw new IllegalArgumentException();
 
+        boolean blnExhaustive = TELEMETRY_LISTENER != null;
+
         FilterRangeEncoder best = null;
+        FilterRangeEncoder encTry = _encoderA;
         FilterRangeEncoder zeroRangeFilter = null;
 
         for (int iRange = _iMaxRange; iRange >= 0; iRange--) {
             for (int iFilterIdx = 0; iFilterIdx < _filters.getCount(); iFilterIdx++) {
 
-                FilterRangeEncoder encTry = new FilterRangeEncoder(iFilterIdx, iRange,
-                                                                   _context.copy());
-
-                if (iRange == 0 && iFilterIdx == 0)
-                    zeroRangeFilter = encTry;
+                if (blnExhaustive) {
+                    // keep every try around for the telemetry
+                    encTry = new FilterRangeEncoder();
+                    if (iRange == 0 && iFilterIdx == 0)
+                        zeroRangeFilter = encTry;
+                }
 
-                if (encTry.encode(asiPcmSoundUnitSamples, loggingContext))
+                encTry.reset(iFilterIdx, iRange, _context);
+                double dblGiveUpDelta = (best == null || blnExhaustive) ?
+                                        Double.POSITIVE_INFINITY : best._dblMaxDelta;
+                if (encTry.encode(asiPcmSoundUnitSamples, loggingContext,
+                                  !blnExhaustive, dblGiveUpDelta))
                     continue;
 
                 if (best == null || encTry.isBetterThan(best)) {
+                    // swap the scratch encoders
+                    FilterRangeEncoder prevBest = best;
                     best = encTry;
+                    if (!blnExhaustive)
+                        encTry = prevBest != null ? prevBest : (best == _encoderA ? _encoderB : _encoderA);
                 }
             }
         }
@@ -189,6 +212,12 @@ public class SoundUnitEncoder {
         if (best == null) {
             LOG.log(Level.WARNING,
                     "Had to clamp encoded samples to encode {0}", loggingContext);
+            if (zeroRangeFilter == null) {
+                zeroRangeFilter = encTry;
+                zeroRangeFilter.reset(0, 0, _context);
+                zeroRangeFilter.encode(asiPcmSoundUnitSamples, loggingContext,
+                                       false, Double.POSITIVE_INFINITY);
+            }
             best = zeroRangeFilter;
         }
 
@@ -214,9 +243,9 @@ public class SoundUnitEncoder {
             iRange < 0 || iRange > _iMaxRange)
             throw new IllegalArgumentException();
 
-        FilterRangeEncoder encoder = new FilterRangeEncoder(iFilterIdx, iRange,
-                                                            _context.copy());
-        if (encoder.encode(asiPcmSoundUnitSamples, loggingContext))
+        FilterRangeEncoder encoder = new FilterRangeEncoder();
+        encoder.reset(iFilterIdx, iRange, _context);
+        if (encoder.encode(asiPcmSoundUnitSamples, loggingContext, false, Double.POSITIVE_INFINITY))
             LOG.log(Level.WARNING,
                     "{0}: Unable to encode with Filter Index {1} Range {2} without clamping",
                     new Object[]{loggingContext, iFilterIdx, iRange});
@@ -240,40 +269,41 @@ public class SoundUnitEncoder {
         return encodeSoundUnit(asiPcmSoundUnitSamples, iFilterIdx, iRange, loggingContext);
     }
 
-    /** Encodes PCM data for a particular filter and range combination.. */
+    /** Encodes PCM data for a particular filter and range combination.
+     * Can be reused for other combinations with {@link #reset}. */
     private class FilterRangeEncoder {
 
         /** Filter index to use for encoding. */
-        private final int _iFilterIndex;
+        private int _iFilterIndex;
         /** Range to use for encoding. */
-        private final int _iRange;
+        private int _iRange;
 
         /** Local copy of the encoding context, updated during encoding.
          * The running encoding context will be updated with this context
          * if this encoded sound unit is chosen.  */
-        @Nonnull
-        private final AdpcmEncodingContext _contextSnapshot;
+        private final AdpcmEncodingContext _contextSnapshot = new AdpcmEncodingContext();
 
         /** Encoded data goes here. */
         private final byte[] _abEncodedAdpcm = new byte[SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT];
 
         /** If at least 1 ADPCM sample had to be clamped to fit. 
          * Try to avoid this this {@link FilterRangeEncoder} if clamping occurred. */
-        private boolean _blnHadToClamp = false;
+        private boolean _blnHadToClamp;
 
         /** Maximum difference encountered between the source PCM sample
          * and the sample that will be decoded from the encoded data. */
-        private double _dblMaxDelta = 0;
-
+        private double _dblMaxDelta;
 
         /** Will use the supplied sound parameters and a snapshot of the
-         * running context for encoding. */
-        private FilterRangeEncoder(int iFilterIndex, int iRange,
-                                   @Nonnull AdpcmEncodingContext contextSnapshot)
+         * running context for the next encoding. */
+        public void reset(int iFilterIndex, int iRange,
+                          @Nonnull AdpcmEncodingContext context)
         {
             _iFilterIndex = iFilterIndex;
             _iRange = iRange;
-            _contextSnapshot = contextSnapshot;
+            _contextSnapshot.update(context);
+            _blnHadToClamp = false;
+            _dblMaxDelta = 0;
         }
 
         /** Checks if this sound unit provides better encoding than the supplied
@@ -290,31 +320,40 @@ public class SoundUnitEncoder {
         /** Make an {@link EncodedUnit} based of the encoding results
          * to be shared with the outside world */
         public @Nonnull EncodedUnit makeEncodedUnit() {
-            return new EncodedUnit(_iFilterIndex, _iRange, _blnHadToClamp, _abEncodedAdpcm);
+            return new EncodedUnit(_iFilterIndex, _iRange, _blnHadToClamp, _abEncodedAdpcm.clone());
         }
 
-        /** Returns if any samples were clamped. */
+        /** Encodes the samples, unless it's clear this can't be chosen.
+         * @param blnGiveUpOnClamp Stop as soon as a sample has to be clamped.
+         * @param dblGiveUpDelta Stop as soon as the maximum error reaches this.
+         * @return if any samples were clamped or the encoding was abandoned. */
         private boolean encode(@Nonnull short[] asiPcmSoundUnitSamples,
-                               @Nonnull IContextCopier loggingContext)
+                               @Nonnull IContextCopier loggingContext,
+                               boolean blnGiveUpOnClamp, double dblGiveUpDelta)
         {
             Telemetry telemetry = TELEMETRY_LISTENER == null ?
                     null
                     :
                     new Telemetry(loggingContext, _iFilterIndex, _iRange);
 
+            final double dblK0 = _filters.getK0(_iFilterIndex);
+            final double dblK1 = _filters.getK1(_iFilterIndex);
+            // do bit shifting via mult/div
+            final int iBitsToShift = _iRange - (16-_iAdpcmBitsPerSample);
+            final int iShiftScale = 1 << Math.abs(iBitsToShift);
+            final int iAdpcmShift = 16-_iAdpcmBitsPerSample;
+
             for (int i = 0; i < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT; i++) {
                 short siPcmSample = asiPcmSoundUnitSamples[i];
 
-                double dblFiltered = siPcmSample - _filters.getK0(_iFilterIndex) * _contextSnapshot.dblPrev1
-                                                 - _filters.getK1(_iFilterIndex) * _contextSnapshot.dblPrev2;
+                double dblFiltered = siPcmSample - dblK0 * _contextSnapshot.dblPrev1
+                                                 - dblK1 * _contextSnapshot.dblPrev2;
 
-                // do bit shifting via mult/div
-                int iBitsToShift = _iRange - (16-_iAdpcmBitsPerSample);
                 double dblRaned;
                 if (iBitsToShift < 0)
-                    dblRaned = dblFiltered / (1 << -iBitsToShift);
+                    dblRaned = dblFiltered / iShiftScale;
                 else if (iBitsToShift > 0)
-                    dblRaned = dblFiltered * (1 << iBitsToShift);
+                    dblRaned = dblFiltered * iShiftScale;
                 else
                     dblRaned = dblFiltered;
 
@@ -322,6 +361,9 @@ public class SoundUnitEncoder {
                 // check if the rounded value will fit in the bits available
                 // if not, clamp it and flag the encoding as a failure
                 if (lngRanged < _iEncodeMin || lngRanged > _iEncodeMax) {
+                    if (blnGiveUpOnClamp)
+                        return _blnHadToClamp = true;
+
                     if (lngRanged < _iEncodeMin)
                         lngRanged = _iEncodeMin;
                     else if (lngRanged > _iEncodeMax)
@@ -337,19 +379,23 @@ public class SoundUnitEncoder {
                 // now decode what was just encoded -------------------
 
                 // shift to the top of the short
-                short siAdpcmShortTopSample = (short) (bEncoded << (16-_iAdpcmBitsPerSample));
+                short siAdpcmShortTopSample = (short) (bEncoded << iAdpcmShift);
                 // shift sound data according to the range, keeping the sign
                 int iUnRanged = (siAdpcmShortTopSample >> _iRange);
 
                 // adjust according to the filter
-                double dblDecodedPcm = iUnRanged + _filters.getK0(_iFilterIndex) * _contextSnapshot.dblPrev1
-                                                 + _filters.getK1(_iFilterIndex) * _contextSnapshot.dblPrev2;
+                double dblDecodedPcm = iUnRanged + dblK0 * _contextSnapshot.dblPrev1
+                                                 + dblK1 * _contextSnapshot.dblPrev2;
 
                 _contextSnapshot.update(dblDecodedPcm);
 
                 double dblDelta = Math.abs(dblDecodedPcm - siPcmSample);
-                if (dblDelta > _dblMaxDelta)
+                if (dblDelta > _dblMaxDelta) {
                     _dblMaxDelta = dblDelta;
+                    // the maximum can only grow, so this can't be better
+                    if (_dblMaxDelta >= dblGiveUpDelta)
+                        return true;
+                }
 
                 if (telemetry != null) {
                     telemetry.ablnSampleClamped[i]       = _blnHadToClamp;
@@ -37,13 +37,14 @@
 
 package jpsxdec.adpcm;
 
-import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.sound.sampled.AudioFormat;
+import jpsxdec.cdreaders.CdSector;
 import jpsxdec.util.IO;
 
 /** The ultimate XA ADPCM decoder. Based on the code and documentation by
@@ -73,6 +74,8 @@ import jpsxdec.util.IO;
  *    implement TargetDataLine.
  *</ol>
  * This has been implemented using the 3rd method, in little-endian order.
+ * The 1st method is also available for callers that want to avoid the
+ * stream overhead, which decodes with no allocations at all.
  */
 public class XaAdpcmDecoder {
 
@@ -84,6 +87,9 @@ public class XaAdpcmDecoder {
 
     public static final int SIZEOF_SOUND_GROUP = 128;
 
+    /** Bytes of ADPCM data in a sector = 2304. */
+    public static final int SIZEOF_ADPCM_SECTOR = ADPCM_SOUND_GROUPS_PER_SECTOR * SIZEOF_SOUND_GROUP;
+
     /** When the audio is stored in 8 bits/sample, the audio is interleaved
      * between 4 sound units. For 8 bits/sample, there are only 4 sound units
      * that each produce 28 PCM samples. */
@@ -128,19 +134,31 @@ public class XaAdpcmDecoder {
     @CheckForNull
     private final AdpcmContext _rightContext;
 
-    /** Buffer decoded PCM audio for the left channel when stereo or only channel when mono. */
-    @Nonnull
-    private final short[] _asiLeftOrMonoPcmBuffer;
-    /** Buffer decoded PCM audio for the right channel when stereo. */
-    @CheckForNull
-    private final short[] _asiRightPcmBuffer;
-
-    /** Length will be the number of sound units per sound group. 
+    /** Number of sound units in each sound group.
      * @see #SOUND_UNITS_IN_4_BIT_SOUND_GROUP
      * @see #SOUND_UNITS_IN_8_BIT_SOUND_GROUP */
+    private final int _iSoundUnitsPerSoundGroup;
+
     @Nonnull
-    private final XaAdpcmSoundUnitDecoder[] _aoSoundUnitDecoders;
-    private final byte[] _abParameterBuffer = new byte[16];
+    private final SoundUnitDecoder _soundUnitDecoder = new SoundUnitDecoder(K0K1Filter.XA);
+
+    /** The de-interleaved ADPCM samples of every sound unit in the current
+     * sound group, each shifted into the top of a short.
+     * Sound unit n starts at n * {@link SoundUnitDecoder#SAMPLES_PER_SOUND_UNIT}. */
+    @Nonnull
+    private final short[] _asiShiftedAdpcmSamples;
+    /** The redundant sound parameters of the sound unit being decoded. */
+    private final int[] _aiRedundantParameters = new int[4];
+
+    /** Holds a copy of the ADPCM data being decoded when it doesn't come
+     * from an array. */
+    private final byte[] _abAdpcmSector = new byte[SIZEOF_ADPCM_SECTOR];
+    /** Holds the decoded PCM samples when writing bytes instead of shorts. */
+    @Nonnull
+    private final short[] _asiPcmSector;
+    /** Created on first use of the {@link OutputStream} decoding method. */
+    @CheckForNull
+    private byte[] _abPcmSector;
 
     /** Keeps track of the state of the decoding process so loggers can
      * more clearly report the state. */
@@ -219,25 +237,19 @@ public class XaAdpcmDecoder {
         else
             throw new IllegalArgumentException("Invalid bits per sample " + iAdpcmBitsPerSample);
 
-        _aoSoundUnitDecoders = new XaAdpcmSoundUnitDecoder[iSoundUnitsPerSoundGroup];
-        for (int iSoundUnitIndex = 0; iSoundUnitIndex < _aoSoundUnitDecoders.length; iSoundUnitIndex++) {
-            _aoSoundUnitDecoders[iSoundUnitIndex] = new XaAdpcmSoundUnitDecoder(iSoundUnitIndex);
-        }
-        
+        _iSoundUnitsPerSoundGroup = iSoundUnitsPerSoundGroup;
         _iAdpcmBitsPerSample = iAdpcmBitsPerSample;
         _blnIsStereo = blnIsStereo;
 
         // create a context for each channel (one for mono, two for stereo)
         _leftOrMonoContext = new AdpcmContext(dblVolume);
-        _asiLeftOrMonoPcmBuffer = new short[SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT];
-        if (_blnIsStereo) {
+        if (_blnIsStereo)
             _rightContext = new AdpcmContext(dblVolume);
-            _asiRightPcmBuffer = new short[SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT];
-        } else {
+        else
             _rightContext = null;
-            _asiRightPcmBuffer = null;
-        }
-        
+
+        _asiShiftedAdpcmSamples = new short[iSoundUnitsPerSoundGroup * SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT];
+        _asiPcmSector = new short[getPcmSamplesPerSector()];
     }
 
     /** Returns the volume scale that PCM samples are multiplied by before being clamped. */
@@ -259,6 +271,14 @@ public class XaAdpcmDecoder {
         return isStereo() ? 4 : 2;
     }
 
+    /** Returns the number of 16-bit PCM samples (not sample frames) generated
+     * from every sector of ADPCM data. Stereo samples are interleaved. */
+    public int getPcmSamplesPerSector() {
+        return ADPCM_SOUND_GROUPS_PER_SECTOR *
+               SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT *
+               _iSoundUnitsPerSoundGroup;
+    }
+
     /** Returns the number of PCM sample frames that have been written to the
      * output stream (i.e. a stereo sample frame is only 1 sample frame).
      * Reset when {@link #resetContext()} is called. */
@@ -288,6 +308,66 @@ public class XaAdpcmDecoder {
                        int iSourceSector)
             throws IOException
     {
+        IO.readByteArray(inStream, _abAdpcmSector);
+        decode(_abAdpcmSector, 0, _asiPcmSector, 0, iSourceSector);
+        if (_abPcmSector == null)
+            _abPcmSector = new byte[_asiPcmSector.length * 2];
+        for (int i = 0, j = 0; i < _asiPcmSector.length; i++, j+=2) {
+            short siSample = _asiPcmSector[i];
+            _abPcmSector[j  ] = (byte)siSample;
+            _abPcmSector[j+1] = (byte)(siSample >> 8);
+        }
+        out.write(_abPcmSector);
+    }
+
+    /** Decodes the sector's worth of ADPCM data found in the user data of
+     * a sector, writing the PCM samples as little-endian 16-bit values
+     * (matching {@link #getOutputFormat(int)}) at the buffer's position.
+     * @param iUserDataOffset Where the ADPCM data starts in the user data.
+     * @param iSourceSector Optional original sector the ADPCM data came from.
+     *                      Only used for logging.
+     * @throws java.nio.BufferOverflowException if there isn't room for
+     *         {@link #getPcmSamplesPerSector()} samples.
+     */
+    public void decode(@Nonnull CdSector cdSector, int iUserDataOffset,
+                       @Nonnull ByteBuffer out, int iSourceSector)
+    {
+        decode(cdSector, iUserDataOffset, _asiPcmSector, 0, iSourceSector);
+        for (int i = 0; i < _asiPcmSector.length; i++) {
+            short siSample = _asiPcmSector[i];
+            out.put((byte)siSample);
+            out.put((byte)(siSample >> 8));
+        }
+    }
+
+    /** Decodes the sector's worth of ADPCM data found in the user data of
+     * a sector.
+     * @param iUserDataOffset Where the ADPCM data starts in the user data.
+     * @see #decode(byte[], int, short[], int, int)
+     */
+    public void decode(@Nonnull CdSector cdSector, int iUserDataOffset,
+                       @Nonnull short[] asiOut, int iOutOffset, int iSourceSector)
+    {
+        cdSector.getCdUserDataCopy(iUserDataOffset, _abAdpcmSector, 0, SIZEOF_ADPCM_SECTOR);
+        decode(_abAdpcmSector, 0, asiOut, iOutOffset, iSourceSector);
+    }
+
+    /** Decodes a sector's worth of ADPCM data straight into an array of
+     * PCM samples without allocating anything.
+     * Reads 2304 bytes and writes {@link #getPcmSamplesPerSector()} samples
+     * (either 2016 or 4032), with stereo samples interleaved left, right.
+     * @param iSourceSector Optional original sector the ADPCM data came from.
+     *                      Only used for logging.
+     * @throws IndexOutOfBoundsException If the source or destination bounds are violated.
+     */
+    public void decode(@Nonnull byte[] abAdpcm, int iOffset,
+                       @Nonnull short[] asiOut, int iOutOffset, int iSourceSector)
+            throws IndexOutOfBoundsException
+    {
+        if (iOffset < 0 || iOffset + SIZEOF_ADPCM_SECTOR > abAdpcm.length ||
+            iOutOffset < 0 || iOutOffset + getPcmSamplesPerSector() > asiOut.length)
+            throw new IndexOutOfBoundsException();
+
         _logContext.decodeReset(iSourceSector);
         // There are 18 sound groups,
         // each having  16 bytes of interleaved sound parameters,
@@ -295,91 +375,100 @@ public class XaAdpcmDecoder {
         // ( 18*(16+112) = 2304 bytes will be read )
         for (_logContext.iSoundGroup = 0;
              _logContext.iSoundGroup < ADPCM_SOUND_GROUPS_PER_SECTOR;
-             _logContext.iSoundGroup++)
+             _logContext.iSoundGroup++, iOffset += SIZEOF_SOUND_GROUP)
         {
-            decodeSoundGroup(inStream, out);
+            iOutOffset = decodeSoundGroup(abAdpcm, iOffset, asiOut, iOutOffset);
         }
         _logContext.iSourceSector = -1;
         _logContext.iSoundGroup = -1;
     }
 
-    /** Reads 16 bytes of interleaved sound parameters, followed by
-     *  112 bytes of interleaved ADPCM sound units. */
-    private void decodeSoundGroup(@Nonnull InputStream inStream,
-                                  @Nonnull OutputStream out)
-            throws IOException
+    /** Decodes the 16 bytes of interleaved sound parameters, followed by
+     *  112 bytes of interleaved ADPCM sound units.
+     * @return The output offset after the decoded samples. */
+    private int decodeSoundGroup(@Nonnull byte[] abAdpcm, int iGroupOffset,
+                                 @Nonnull short[] asiOut, int iOutOffset)
     {
-        IO.readByteArray(inStream, _abParameterBuffer);
-        
         if (_iAdpcmBitsPerSample == 4)
-            deinterleave4BitsPerSampleSoundGroup(inStream);
+            deinterleave4BitsPerSampleSoundGroup(abAdpcm, iGroupOffset + 16);
         else // == 8
-            deinterleave8BitsPerSampleSoundGroup(inStream);
+            deinterleave8BitsPerSampleSoundGroup(abAdpcm, iGroupOffset + 16);
 
-        // read decoded samples and write them to the output stream
+        final int SAMPLES = SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
         if (_blnIsStereo) {
-            for (int iSoundUnit = 0; iSoundUnit < _aoSoundUnitDecoders.length; iSoundUnit+=2) {
+            for (int iSoundUnit = 0; iSoundUnit < _iSoundUnitsPerSoundGroup; iSoundUnit+=2) {
                 _logContext.iSoundUnit = iSoundUnit;
-                XaAdpcmSoundUnitDecoder leftSoundUnit  = _aoSoundUnitDecoders[iSoundUnit];
-                leftSoundUnit.decodeSoundUnit(_leftOrMonoContext, _asiLeftOrMonoPcmBuffer, _logContext);
+                _soundUnitDecoder.decodeSoundUnit(_leftOrMonoContext,
+                        soundParameter(abAdpcm, iGroupOffset, iSoundUnit),
+                        _asiShiftedAdpcmSamples, iSoundUnit * SAMPLES,
+                        asiOut, iOutOffset, 2, _logContext);
 
                 _logContext.iSoundUnit = iSoundUnit+1;
-                XaAdpcmSoundUnitDecoder rightSoundUnit = _aoSoundUnitDecoders[iSoundUnit+1];
-                rightSoundUnit.decodeSoundUnit(_rightContext, _asiRightPcmBuffer, _logContext);
+                _soundUnitDecoder.decodeSoundUnit(_rightContext,
+                        soundParameter(abAdpcm, iGroupOffset, iSoundUnit+1),
+                        _asiShiftedAdpcmSamples, (iSoundUnit+1) * SAMPLES,
+                        asiOut, iOutOffset+1, 2, _logContext);
 
                 _logContext.iSoundUnit = -1;
-                
-                for (int iSample = 0;
-                     iSample < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
-                     iSample++, _logContext.lngSampleFramesWritten++)
-                {
-                    IO.writeInt16LE(out, _asiLeftOrMonoPcmBuffer[iSample]);
-                    IO.writeInt16LE(out, _asiRightPcmBuffer[iSample]);
-                }
-
+                _logContext.lngSampleFramesWritten += SAMPLES;
+                iOutOffset += SAMPLES * 2;
             }
         } else {
-            for (int iSoundUnit = 0; iSoundUnit < _aoSoundUnitDecoders.length; iSoundUnit++) {
+            for (int iSoundUnit = 0; iSoundUnit < _iSoundUnitsPerSoundGroup; iSoundUnit++) {
                 _logContext.iSoundUnit = iSoundUnit;
-                XaAdpcmSoundUnitDecoder soundUnit = _aoSoundUnitDecoders[iSoundUnit];
-                soundUnit.decodeSoundUnit(_leftOrMonoContext, _asiLeftOrMonoPcmBuffer, _logContext);
-                
-                _logContext.iSoundUnit = -1;
+                _soundUnitDecoder.decodeSoundUnit(_leftOrMonoContext,
+                        soundParameter(abAdpcm, iGroupOffset, iSoundUnit),
+                        _asiShiftedAdpcmSamples, iSoundUnit * SAMPLES,
+                        asiOut, iOutOffset, 1, _logContext);
 
-                for (int iSample = 0; 
-                     iSample < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
-                     iSample++, _logContext.lngSampleFramesWritten++)
-                {
-                    IO.writeInt16LE(out, _asiLeftOrMonoPcmBuffer[iSample]);
-                }
+                _logContext.iSoundUnit = -1;
+                _logContext.lngSampleFramesWritten += SAMPLES;
+                iOutOffset += SAMPLES;
             }
         }
+        return iOutOffset;
     }
 
-    /** Reads the sound parameters and ADPCM data for sound groups with
-     * 4 bits per sample and stores the result in the {@link #_aoSoundUnitDecoders}
-     * array. */
-    private void deinterleave4BitsPerSampleSoundGroup(@Nonnull InputStream inStream)
-            throws EOFException, IOException
-    {
-        // Process the 16 byte sound parameters at the
-        // start of each sound group
-        // the 8 sound parameters (one for each sound unit)
-        // are repeated twice, and are ordered like this:
-        // 0,1,2,3, 0,1,2,3, 4,5,6,7, 4,5,6,7
-        for (int iSoundUnit = 0; iSoundUnit < 4; iSoundUnit++) {
-            _logContext.iSoundUnit = iSoundUnit;
-            _aoSoundUnitDecoders[iSoundUnit].addSoundParamter(_abParameterBuffer[iSoundUnit] & 0xff);
-            _aoSoundUnitDecoders[iSoundUnit].addSoundParamter(_abParameterBuffer[iSoundUnit+4] & 0xff);
-
-            _logContext.iSoundUnit = iSoundUnit + 4;
-            _aoSoundUnitDecoders[iSoundUnit+4].addSoundParamter(_abParameterBuffer[iSoundUnit+8] & 0xff);
-            _aoSoundUnitDecoders[iSoundUnit+4].addSoundParamter(_abParameterBuffer[iSoundUnit+12] & 0xff);
+    /** Returns the sound parameter of a sound unit from the 16 bytes of
+     * sound parameters at the start of the sound group.
+     * The redundant copies are nearly always identical and valid, so only
+     * when they aren't is the best one picked and the corruption logged. */
+    private int soundParameter(@Nonnull byte[] abAdpcm, int iGroupOffset, int iSoundUnit) {
+        int iCount;
+        if (_iAdpcmBitsPerSample == 4) {
+            // the 8 sound parameters (one for each sound unit)
+            // are repeated twice, and are ordered like this:
+            // 0,1,2,3, 0,1,2,3, 4,5,6,7, 4,5,6,7
+            int iFirst = iGroupOffset + (iSoundUnit < 4 ? iSoundUnit : iSoundUnit + 4);
+            _aiRedundantParameters[0] = abAdpcm[iFirst    ] & 0xff;
+            _aiRedundantParameters[1] = abAdpcm[iFirst + 4] & 0xff;
+            iCount = 2;
+        } else {
+            // the 4 sound parameters (one for each sound unit)
+            // are repeated four times and are ordered like this:
+            // 0,1,2,3, 0,1,2,3, 0,1,2,3, 0,1,2,3
+            for (int i = 0; i < 4; i++) {
+                _aiRedundantParameters[i] = abAdpcm[iGroupOffset + iSoundUnit + i*4] & 0xff;
+            }
+            iCount = 4;
+        }
+
+        int iParameter = _aiRedundantParameters[0];
+        if ((iParameter & 0xC0) == 0) {
+            int i = 1;
+            while (i < iCount && _aiRedundantParameters[i] == iParameter)
+                i++;
+            if (i == iCount)
+                return iParameter;
         }
-        _logContext.iSoundUnit = -1;
-        
-        // de-interleave the sound units
-        for (int iSampleIdx = 0; iSampleIdx < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT; iSampleIdx++)
+        return XaAdpcmSoundUnit.getBestParameter(_aiRedundantParameters, iCount, _logContext);
+    }
+
+    /** De-interleaves the 112 bytes of ADPCM data for sound groups with
+     * 4 bits per sample into {@link #_asiShiftedAdpcmSamples}. */
+    private void deinterleave4BitsPerSampleSoundGroup(@Nonnull byte[] abAdpcm, int iDataOffset) {
+        final int SAMPLES = SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
+        for (int iSampleIdx = 0; iSampleIdx < SAMPLES; iSampleIdx++)
         {
             // read a sample for each of the 8 sound units
             // 1 byte produces 2 samples, but for different sound units
@@ -390,47 +479,21 @@ public class XaAdpcmDecoder {
             // high nibble: sound unit 7, low nibble: sound unit 6
             // high nibble: sound unit 1, low nibble: sound unit 0
             // ...
-            for (_logContext.iSoundUnit = 0; _logContext.iSoundUnit < 8;)
+            for (int iSoundUnit = 0; iSoundUnit < 8; iSoundUnit+=2, iDataOffset++)
             {
-                int iByte = inStream.read();
-                if (iByte < 0)
-                    throw new EOFException();
-
-                short siADPCMSample;
-                // shift the nibble into the top of a short
-                siADPCMSample = (short)((iByte & 0x0F) << 12);
-                _aoSoundUnitDecoders[_logContext.iSoundUnit].addShiftedAdpcmSample(siADPCMSample);
-                _logContext.iSoundUnit++;
-                // shift the nibble into the top of a short
-                siADPCMSample = (short)((iByte & 0xF0) << 8);
-                _aoSoundUnitDecoders[_logContext.iSoundUnit].addShiftedAdpcmSample(siADPCMSample);
-                _logContext.iSoundUnit++;
+                int iByte = abAdpcm[iDataOffset];
+                // shift the nibbles into the top of a short
+                _asiShiftedAdpcmSamples[ iSoundUnit    * SAMPLES + iSampleIdx] = (short)((iByte & 0x0F) << 12);
+                _asiShiftedAdpcmSamples[(iSoundUnit+1) * SAMPLES + iSampleIdx] = (short)((iByte & 0xF0) << 8);
             }
-            _logContext.iSoundUnit = -1;
         }
     }
 
-    /** Reads the sound parameters and ADPCM data for sound groups with
-     * 8 bits per sample and stores the result in the {@link #_aoSoundUnitDecoders}
-     * array. */
-    private void deinterleave8BitsPerSampleSoundGroup(@Nonnull InputStream inStream)
-            throws EOFException, IOException
-    {
-        // Process the 16 byte sound parameters at the
-        // start of each sound group
-        // the 4 sound parameters (one for each sound unit)
-        // are repeated four times and are ordered like this:
-        // 0,1,2,3, 0,1,2,3, 0,1,2,3, 0,1,2,3
-        for (_logContext.iSoundUnit = 0; _logContext.iSoundUnit < 4; _logContext.iSoundUnit++) {
-            XaAdpcmSoundUnitDecoder soundUnit = _aoSoundUnitDecoders[_logContext.iSoundUnit];
-            for (int iRepeat = _logContext.iSoundUnit; iRepeat < 16; iRepeat+=4) {
-                soundUnit.addSoundParamter(_abParameterBuffer[iRepeat] & 0xff);
-            }
-        }
-        _logContext.iSoundUnit = -1;
-        
-        // de-interleave the sound units
-        for (int iSampleIdx = 0; iSampleIdx < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT; iSampleIdx++)
+    /** De-interleaves the 112 bytes of ADPCM data for sound groups with
+     * 8 bits per sample into {@link #_asiShiftedAdpcmSamples}. */
+    private void deinterleave8BitsPerSampleSoundGroup(@Nonnull byte[] abAdpcm, int iDataOffset) {
+        final int SAMPLES = SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
+        for (int iSampleIdx = 0; iSampleIdx < SAMPLES; iSampleIdx++)
         {
             // read a sample for each of the 4 sound units
             // 1 byte produces 1 sample
@@ -438,56 +501,12 @@ public class XaAdpcmDecoder {
             // sound unit 0, sound unit 1, sound unit 2, sound unit 3,
             // sound unit 0, sound unit 1, sound unit 2, sound unit 3,
             // ...
-            for (_logContext.iSoundUnit = 0; _logContext.iSoundUnit < 4; _logContext.iSoundUnit++)
+            for (int iSoundUnit = 0; iSoundUnit < 4; iSoundUnit++, iDataOffset++)
             {
-                int iByte = inStream.read();
-                if (iByte < 0)
-                    throw new EOFException();
-
-                _aoSoundUnitDecoders[_logContext.iSoundUnit].addShiftedAdpcmSample(
-                        (short)(iByte << 8)); // shift the byte into the top of a short
+                // shift the byte into the top of a short
+                _asiShiftedAdpcmSamples[iSoundUnit * SAMPLES + iSampleIdx] = (short)(abAdpcm[iDataOffset] << 8);
             }
-            _logContext.iSoundUnit = -1;
-        }
-    }
-
-
-    /** Sound unit found in a sound group.
-     * Feed it parameters and ADPCM samples then decode the result. */
-    private static class XaAdpcmSoundUnitDecoder {
-
-        /** Not used, but useful when debugging. */
-        private final int _iSoundUnitIndex;
-        private final SoundUnitDecoder _soundUnitDecoder = new SoundUnitDecoder(K0K1Filter.XA);
-        
-        private XaAdpcmSoundUnit.Builder _soundUnitBuilder = new XaAdpcmSoundUnit.Builder();
-
-        /** @param iSoundUnitIndex Sound unit number. */
-        public XaAdpcmSoundUnitDecoder(int iSoundUnitIndex) {
-            _iSoundUnitIndex = iSoundUnitIndex;
         }
-
-        /** @param iSoundParameter  An unsigned byte value as read from the
-         *                          source stream, holding the range and
-         *                          filter parameters for this sound unit. */
-        public void addSoundParamter(int iSoundParameter) {
-            _soundUnitBuilder.addRedundantParameter(iSoundParameter);
-        }
-
-        private void addShiftedAdpcmSample(short s) {
-            _soundUnitBuilder.addShiftedAdpcmSample(s);
-        }
-
-        private void decodeSoundUnit(@Nonnull AdpcmContext context,
-                                     @Nonnull short[] asiOutPcmBuffer,
-                                     @Nonnull LogContext logContext)
-        {
-            XaAdpcmSoundUnit su = _soundUnitBuilder.build(logContext);
-            _soundUnitDecoder.decodeSoundUnit(context, su, asiOutPcmBuffer, logContext);
-            // reset the builder
-            _soundUnitBuilder = new XaAdpcmSoundUnit.Builder();
-        }
-
     }
 
 }
@@ -41,10 +41,16 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
+import jpsxdec.util.DaemonThreadFactory;
+import jpsxdec.util.Futures;
 import jpsxdec.util.IO;
 import jpsxdec.util.IncompatibleException;
 
@@ -57,7 +63,11 @@ import jpsxdec.util.IncompatibleException;
  * <p>
  * Will encode audio as long as source data is available. If there is no
  * more source data, silence is encoded. Check for EOF condition with
- * {@link #isEof()}. */
+ * {@link #isEof()}.
+ * <p>
+ * The two channels of stereo audio are encoded independently, so with more
+ * than one thread the right channel of each sector is encoded on another
+ * thread while the left channel is encoded on the calling thread. */
 public class XaAdpcmEncoder implements Closeable {
 
     /** Source audio stream. */
@@ -73,6 +83,10 @@ public class XaAdpcmEncoder implements Closeable {
     @Nonnull
     private final SoundUnitEncoder[] _aoEncoders;
 
+    /** Encodes the right channel when stereo and using more than 1 thread. */
+    @CheckForNull
+    private final ExecutorService _executor;
+
     /** Keeps track of the state of the decoding process so loggers can
      * more clearly report the state. */
     private final LogContext _logContext = new LogContext();
@@ -130,6 +144,19 @@ public class XaAdpcmEncoder implements Closeable {
     public XaAdpcmEncoder(@Nonnull AudioInputStream ais, int iEncodeToAdpcmBitsPerSample) 
             throws IncompatibleException
     {
+        this(ais, iEncodeToAdpcmBitsPerSample, 1);
+    }
+
+    /** @param iThreads With stereo audio and more than 1 thread, the
+     *                  channels are encoded at the same time.
+     *                  The encoded audio is the same either way.
+     * @see #XaAdpcmEncoder(AudioInputStream, int) */
+    public XaAdpcmEncoder(@Nonnull AudioInputStream ais, int iEncodeToAdpcmBitsPerSample,
+                          int iThreads)
+            throws IncompatibleException
+    {
+        if (iThreads < 1)
+            throw new IllegalArgumentException("Invalid thread count " + iThreads);
         if (iEncodeToAdpcmBitsPerSample == 4)
             _blnEncode4BitsElse8Bits = true;
         else if (iEncodeToAdpcmBitsPerSample == 8)
@@ -154,6 +181,11 @@ public class XaAdpcmEncoder implements Closeable {
             _aoEncoders[i] = new SoundUnitEncoder(iEncodeToAdpcmBitsPerSample,
                                                   K0K1Filter.XA);
         }
+        if (iChannels == 2 && iThreads > 1)
+            _executor = Executors.newSingleThreadExecutor(
+                    new DaemonThreadFactory(XaAdpcmEncoder.class.getSimpleName()));
+        else
+            _executor = null;
     }
 
     public boolean isStereo() {
@@ -169,6 +201,8 @@ public class XaAdpcmEncoder implements Closeable {
     }
 
     public void close() throws IOException {
+        if (_executor != null)
+            _executor.shutdownNow();
         _audioShortReader.close();
     }
 
@@ -185,6 +219,10 @@ public class XaAdpcmEncoder implements Closeable {
      * If the end of the audio stream is reached, silence will be written
      * for the remainder to the output. */
     public void encode1Sector(@Nonnull OutputStream os) throws IOException {
+        if (_executor != null && _presetPrameters == null) {
+            encode1SectorChannelsInParallel(os);
+            return;
+        }
         for (_logContext.iSoundGroup = 0;
              _logContext.iSoundGroup < XaAdpcmDecoder.ADPCM_SOUND_GROUPS_PER_SECTOR;
              _logContext.iSoundGroup++)
@@ -224,7 +262,14 @@ public class XaAdpcmEncoder implements Closeable {
         }
         _logContext.iSoundUnit = -1;
 
-        // write the sound parameters and the encoded samples
+        writeSoundGroup(aoEncoded, os);
+    }
+
+    /** Writes the sound parameters and the encoded samples of a sound group. */
+    private void writeSoundGroup(@Nonnull SoundUnitEncoder.EncodedUnit[] aoEncoded,
+                                 @Nonnull OutputStream os)
+            throws IOException
+    {
         if (_blnEncode4BitsElse8Bits) {
             // aoEncoded.length == AdpcmSoundGroup.SOUND_UNITS_IN_4_BIT_SOUND_GROUP == 8
         
@@ -269,5 +314,61 @@ public class XaAdpcmEncoder implements Closeable {
 
         }
     }
-        
+
+    /** Same as {@link #encode1Sector(OutputStream)}, but reads the whole
+     * sector of audio first, then encodes the right channel on another
+     * thread while the left is encoded on this one. */
+    private void encode1SectorChannelsInParallel(@Nonnull OutputStream os) throws IOException {
+        final int iUnitsPerGroup = _blnEncode4BitsElse8Bits ?
+                                   XaAdpcmDecoder.SOUND_UNITS_IN_4_BIT_SOUND_GROUP :
+                                   XaAdpcmDecoder.SOUND_UNITS_IN_8_BIT_SOUND_GROUP;
+        // each read fills 1 sound unit of both channels
+        final int iReadsPerGroup = iUnitsPerGroup / 2;
+        final short[][][] aaasiSamples =
+                new short[XaAdpcmDecoder.ADPCM_SOUND_GROUPS_PER_SECTOR * iReadsPerGroup][][];
+        for (int i = 0; i < aaasiSamples.length; i++) {
+            aaasiSamples[i] = _audioShortReader.readSoundUnitSamples(SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT);
+        }
+
+        final SoundUnitEncoder.EncodedUnit[][] aaoEncoded =
+                new SoundUnitEncoder.EncodedUnit[XaAdpcmDecoder.ADPCM_SOUND_GROUPS_PER_SECTOR][iUnitsPerGroup];
+        final LogContext rightContext = _logContext.copy();
+        Future<Void> right = _executor.submit(new Callable<Void>() {
+            public Void call() throws IOException {
+                encodeChannel(1, aaasiSamples, iReadsPerGroup, aaoEncoded, rightContext);
+                return null;
+            }
+        });
+        try {
+            encodeChannel(0, aaasiSamples, iReadsPerGroup, aaoEncoded, _logContext.copy());
+        } finally {
+            Futures.waitFor(right, IOException.class);
+        }
+
+        for (SoundUnitEncoder.EncodedUnit[] aoEncoded : aaoEncoded) {
+            writeSoundGroup(aoEncoded, os);
+        }
+        _logContext.lngSamplesFramesRead += aaasiSamples.length * SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
+        _logContext.iEncodedSectorCount++;
+    }
+
+    /** Encodes 1 channel of a sector of audio, filling the log context
+     * the same as {@link #encodeSoundGroup(OutputStream)}. */
+    private void encodeChannel(int iChannel, @Nonnull short[][][] aaasiSamples, int iReadsPerGroup,
+                               @Nonnull SoundUnitEncoder.EncodedUnit[][] aaoEncoded,
+                               @Nonnull LogContext logContext)
+            throws IOException
+    {
+        long lngSamplesFramesRead = logContext.lngSamplesFramesRead;
+        logContext.iChannel = iChannel;
+        for (int iRead = 0; iRead < aaasiSamples.length; iRead++) {
+            logContext.iSoundGroup = iRead / iReadsPerGroup;
+            logContext.iSoundUnit = (iRead % iReadsPerGroup) * 2 + iChannel;
+            logContext.lngSamplesFramesRead = lngSamplesFramesRead +
+                    iRead * SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
+            aaoEncoded[logContext.iSoundGroup][logContext.iSoundUnit] =
+                    _aoEncoders[iChannel].encodeSoundUnit(aaasiSamples[iRead][iChannel], logContext);
+        }
+    }
+
 }
\ No newline at end of file
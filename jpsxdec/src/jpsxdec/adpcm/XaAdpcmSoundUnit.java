@@ -76,6 +76,20 @@ public class XaAdpcmSoundUnit implements IAdpcmSoundUnit {
 
     }
 
+    /** Picks the best of the redundant sound parameters, logging any
+     * corruption.
+     * @param aiRedundantParameters Unsigned byte values in the order they were read.
+     * @see SoundParameterBuilder */
+    static int getBestParameter(@Nonnull int[] aiRedundantParameters, int iCount,
+                                @Nonnull XaAdpcmDecoder.LogContext logContext)
+    {
+        SoundParameterBuilder spb = new SoundParameterBuilder();
+        for (int i = 0; i < iCount; i++) {
+            spb.add(i, aiRedundantParameters[i]);
+        }
+        return spb.getBestParameter(logContext);
+    }
+
     private final int _iBestSoundUnitParameter;
     private final short[] _asiShiftedAdpcmSamples;
 
@@ -39,9 +39,12 @@ package jpsxdec.cdreaders;
 
 import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -70,7 +73,30 @@ public class CdFileSectorReader implements Closeable {
 
     private static final Logger LOG = Logger.getLogger(CdFileSectorReader.class.getName());
 
-    private static final int DEFAULT_SECTOR_BUFFER_COUNT   = 16;
+    /** Number of sectors to read at a time.
+     * Can be changed by starting Java with {@code -Djpsxdec.cdreader.buffersectors=#}. */
+    private static final int DEFAULT_SECTOR_BUFFER_COUNT   =
+            Math.max(1, Integer.getInteger("jpsxdec.cdreader.buffersectors", 16).intValue());
+    /** When memory mapping, the number of sectors to map at a time
+     * (about 19MB of a 2352 disc image). */
+    private static final int DEFAULT_MAPPED_SECTOR_COUNT   = 8192;
+
+    /** Memory map disc images instead of reading them into arrays.
+     * Note that on Windows the disc image stays locked until the mapped
+     * windows are garbage collected, even after it is closed.
+     * Enable by starting Java with {@code -Djpsxdec.cdreader.mmap=true}. */
+    private static final boolean MEMORY_MAP_BY_DEFAULT =
+            Boolean.getBoolean("jpsxdec.cdreader.mmap");
+
+    /** Read the next buffer of sectors on a background thread while the
+     * current buffer is being used (does not apply to memory mapping).
+     * Enable by starting Java with {@code -Djpsxdec.cdreader.readahead=true}. */
+    private static final boolean READ_AHEAD =
+            Boolean.getBoolean("jpsxdec.cdreader.readahead");
+
+    private static int defaultSectorsToBuffer(boolean blnMemoryMap) {
+        return blnMemoryMap ? DEFAULT_MAPPED_SECTOR_COUNT : DEFAULT_SECTOR_BUFFER_COUNT;
+    }
 
     /** Exception if a CD file is not found or cannot be opened. */
     public static class CdFileNotFoundException extends FileNotFoundException {
@@ -166,11 +192,24 @@ public class CdFileSectorReader implements Closeable {
     /** Number of full sectors in the disc image. */
     private final int _iSectorCount;
 
+    /** If the sectors are read from memory mapped windows of the file
+     * instead of being copied into an array. */
+    private final boolean _blnMemoryMap;
     private int _iCachedSectorStart;
     private int _iSectorsToCache;
+    /** Either a heap buffer of the read sectors, or a memory mapped window
+     * of the file. Sectors are views into this buffer. */
     @CheckForNull
-    private byte[] _abBulkReadCache;
+    private ByteBuffer _bulkReadCache;
     private long _lngCacheFileOffset;
+    /** Read-only channel only used for memory mapping, opened on first
+     * read. It is separate from {@link #_inputFile} because mapping can be
+     * interrupted, which closes the channel. */
+    @CheckForNull
+    private FileChannel _mapChannel;
+    /** Created on first read if {@link #READ_AHEAD}. */
+    @CheckForNull
+    private SectorReadAhead _readAhead;
 
     @CheckForNull
     private DiscPatcher _patcher;
@@ -182,24 +221,35 @@ public class CdFileSectorReader implements Closeable {
     public CdFileSectorReader(@Nonnull File inputFile)
             throws CdFileNotFoundException, FileTooSmallToIdentifyException, CdReadException
     {
-        this(inputFile, false, DEFAULT_SECTOR_BUFFER_COUNT);
+        this(inputFile, false, defaultSectorsToBuffer(MEMORY_MAP_BY_DEFAULT), MEMORY_MAP_BY_DEFAULT);
     }
 
     public CdFileSectorReader(@Nonnull File inputFile, boolean blnAllowWrites)
             throws CdFileNotFoundException, FileTooSmallToIdentifyException, CdReadException
     {
-        this(inputFile, blnAllowWrites, DEFAULT_SECTOR_BUFFER_COUNT);
+        this(inputFile, blnAllowWrites, defaultSectorsToBuffer(MEMORY_MAP_BY_DEFAULT), MEMORY_MAP_BY_DEFAULT);
     }
 
-    /** Opens a CD file for reading. Tries to guess the CD size. */
     public CdFileSectorReader(@Nonnull File sourceFile,
                               boolean blnAllowWrites, int iSectorsToBuffer)
             throws CdFileNotFoundException, FileTooSmallToIdentifyException, CdReadException
+    {
+        this(sourceFile, blnAllowWrites, iSectorsToBuffer, false);
+    }
+
+    /** Opens a CD file for reading. Tries to guess the CD size.
+     * @param iSectorsToBuffer Number of sectors to read, or map, at a time.
+     * @param blnMemoryMap Memory map the file instead of reading it. */
+    public CdFileSectorReader(@Nonnull File sourceFile,
+                              boolean blnAllowWrites, int iSectorsToBuffer,
+                              boolean blnMemoryMap)
+            throws CdFileNotFoundException, FileTooSmallToIdentifyException, CdReadException
     {
         LOG.info(sourceFile.getPath());
 
         _sourceFile = sourceFile;
         _iSectorsToCache = iSectorsToBuffer;
+        _blnMemoryMap = blnMemoryMap;
 
         try {
             _inputFile = new RandomAccessFile(sourceFile, blnAllowWrites ? "rw" : "r");
@@ -255,20 +305,29 @@ public class CdFileSectorReader implements Closeable {
     public CdFileSectorReader(@Nonnull File inputFile, int iSectorSize)
             throws CdFileNotFoundException, FileTooSmallToIdentifyException, CdReadException
     {
-        this(inputFile, iSectorSize, false, DEFAULT_SECTOR_BUFFER_COUNT);
+        this(inputFile, iSectorSize, false, defaultSectorsToBuffer(MEMORY_MAP_BY_DEFAULT), MEMORY_MAP_BY_DEFAULT);
+    }
+
+    public CdFileSectorReader(@Nonnull File sourceFile,
+            int iSectorSize, boolean blnAllowWrites, int iSectorsToBuffer)
+            throws CdFileNotFoundException, FileTooSmallToIdentifyException, CdReadException
+    {
+        this(sourceFile, iSectorSize, blnAllowWrites, iSectorsToBuffer, false);
     }
 
     /** Opens a CD file for reading using the provided sector size.
      * @throws FileTooSmallToIdentifyException If the disc image doesn't match the sector size.
      */
     public CdFileSectorReader(@Nonnull File sourceFile,
-            int iSectorSize, boolean blnAllowWrites, int iSectorsToBuffer)
+            int iSectorSize, boolean blnAllowWrites, int iSectorsToBuffer,
+            boolean blnMemoryMap)
             throws CdFileNotFoundException, FileTooSmallToIdentifyException, CdReadException
     {
         LOG.info(sourceFile.getPath());
 
         _sourceFile = sourceFile;
         _iSectorsToCache = iSectorsToBuffer;
+        _blnMemoryMap = blnMemoryMap;
 
         try {
             _inputFile = new RandomAccessFile(sourceFile, blnAllowWrites ? "rw" : "r");
@@ -312,11 +371,18 @@ public class CdFileSectorReader implements Closeable {
     public CdFileSectorReader(@Nonnull String sSerialization, boolean blnAllowWrites)
             throws LocalizedDeserializationFail, CdFileNotFoundException, CdReadException
     {
-        this(sSerialization, blnAllowWrites, DEFAULT_SECTOR_BUFFER_COUNT);
+        this(sSerialization, blnAllowWrites, defaultSectorsToBuffer(MEMORY_MAP_BY_DEFAULT), MEMORY_MAP_BY_DEFAULT);
     }
 
     public CdFileSectorReader(@Nonnull String sSerialization, boolean blnAllowWrites, int iSectorsToBuffer)
             throws LocalizedDeserializationFail, CdFileNotFoundException, CdReadException
+    {
+        this(sSerialization, blnAllowWrites, iSectorsToBuffer, false);
+    }
+
+    public CdFileSectorReader(@Nonnull String sSerialization, boolean blnAllowWrites,
+                              int iSectorsToBuffer, boolean blnMemoryMap)
+            throws LocalizedDeserializationFail, CdFileNotFoundException, CdReadException
     {
         String[] asValues = Misc.regex(DESERIALIZATION, sSerialization);
         if (asValues == null || asValues.length != 5)
@@ -356,6 +422,7 @@ public class CdFileSectorReader implements Closeable {
         }
 
         _iSectorsToCache = iSectorsToBuffer;
+        _blnMemoryMap = blnMemoryMap;
 
         int iActualSectorCount = calculateSectorCount();
 
@@ -413,9 +480,19 @@ public class CdFileSectorReader implements Closeable {
     }
 
     public void close() throws IOException {
+        stopReadAhead();
+        closeMapChannel();
+        _bulkReadCache = null;
         _inputFile.close();
     }
 
+    private void stopReadAhead() {
+        if (_readAhead != null) {
+            _readAhead.shutdown();
+            _readAhead = null;
+        }
+    }
+
     //..........................................................................
 
     /** Size of the raw sectors of the source disc image. */
@@ -454,29 +531,66 @@ public class CdFileSectorReader implements Closeable {
         if (iSector < 0 || iSector >= _iSectorCount)
             throw new IndexOutOfBoundsException("Sector "+iSector+" not in bounds of CD");
 
-        if (iSector >= _iCachedSectorStart + _iSectorsToCache || iSector < _iCachedSectorStart || _abBulkReadCache == null) {
-            _abBulkReadCache = null; // in case of failure, make sure we aren't left with some invalid cache
+        if (iSector >= _iCachedSectorStart + _iSectorsToCache || iSector < _iCachedSectorStart || _bulkReadCache == null) {
+            _bulkReadCache = null; // in case of failure, make sure we aren't left with some invalid cache
 
             _iCachedSectorStart = iSector;
             _lngCacheFileOffset = getFilePointer(iSector);
 
-            byte[] abBulkReadCache = new byte[_sectorFactory.getRawSectorSize() * _iSectorsToCache];
+            ByteBuffer bulkReadCache;
             try {
-                _inputFile.seek(_lngCacheFileOffset);
-                int iBytesRead = IO.readByteArrayMax(_inputFile, abBulkReadCache, 0, abBulkReadCache.length);
-                if (iBytesRead < _sectorFactory.getRawSectorSize())
-                    throw new RuntimeException("Should have already verified this should not happen");
+                if (_blnMemoryMap) {
+                    // only map whole sectors that exist
+                    int iSectorsToMap = Math.min(_iSectorsToCache, _iSectorCount - iSector);
+                    bulkReadCache = map(_lngCacheFileOffset,
+                            (long)iSectorsToMap * _sectorFactory.getRawSectorSize());
+                } else if (READ_AHEAD) {
+                    if (_readAhead == null)
+                        _readAhead = new SectorReadAhead(_inputFile,
+                                _sectorFactory.getRawSectorSize() * _iSectorsToCache);
+                    int iNextSector = iSector + _iSectorsToCache;
+                    SectorReadAhead.Block block = _readAhead.read(_lngCacheFileOffset,
+                            iNextSector < _iSectorCount ? getFilePointer(iNextSector) : -1);
+                    if (block.iSize < _sectorFactory.getRawSectorSize())
+                        throw new RuntimeException("Should have already verified this should not happen");
+                    bulkReadCache = ByteBuffer.wrap(block.abData, 0, block.iSize);
+                } else {
+                    byte[] abBulkReadCache = new byte[_sectorFactory.getRawSectorSize() * _iSectorsToCache];
+                    int iBytesRead;
+                    // the read-ahead thread may be using the file too
+                    synchronized (_inputFile) {
+                        _inputFile.seek(_lngCacheFileOffset);
+                        iBytesRead = IO.readByteArrayMax(_inputFile, abBulkReadCache, 0, abBulkReadCache.length);
+                    }
+                    if (iBytesRead < _sectorFactory.getRawSectorSize())
+                        throw new RuntimeException("Should have already verified this should not happen");
+                    bulkReadCache = ByteBuffer.wrap(abBulkReadCache, 0, iBytesRead);
+                }
             } catch (IOException ex) {
                 throw new CdReadException(_sourceFile, ex);
             }
 
             // made sure everything is good before we save the cache
-            _abBulkReadCache = abBulkReadCache;
+            _bulkReadCache = bulkReadCache;
         }
 
         int iOffset = _sectorFactory.getRawSectorSize() * (iSector - _iCachedSectorStart);
 
-        return _sectorFactory.createSector(iSector, _abBulkReadCache, iOffset, _lngCacheFileOffset + iOffset);
+        return _sectorFactory.createSector(iSector, _bulkReadCache, iOffset, _lngCacheFileOffset + iOffset);
+    }
+
+    private @Nonnull ByteBuffer map(long lngOffset, long lngSize) throws IOException {
+        // an interrupt while mapping closes the channel, so open it again
+        if (_mapChannel == null || !_mapChannel.isOpen())
+            _mapChannel = new FileInputStream(_sourceFile).getChannel();
+        return _mapChannel.map(FileChannel.MapMode.READ_ONLY, lngOffset, lngSize);
+    }
+
+    private void closeMapChannel() {
+        if (_mapChannel != null) {
+            IO.closeSilently(_mapChannel, LOG);
+            _mapChannel = null;
+        }
     }
 
     //..........................................................................
@@ -495,11 +609,17 @@ public class CdFileSectorReader implements Closeable {
         long lngOffset = (long)_sectorFactory.get1stSectorOffset() + 
                          (long)_sectorFactory.getRawSectorSize() * iSector;
 
+        if (_readAhead != null)
+            _readAhead.discard(); // may have read the old sector data
+
         try {
-            _inputFile.seek(lngOffset);
-            _inputFile.write(abRawData);
+            synchronized (_inputFile) {
+                _inputFile.seek(lngOffset);
+                _inputFile.write(abRawData);
+            }
             // clearing the cache could be done here, but it wouldn't
             // affect anything that has already been read (which is most things)
+            // (memory mapped windows will already see the change)
         } catch (IOException ex) {
             throw new CdWriteException(_sourceFile, ex);
         }
@@ -553,9 +673,12 @@ public class CdFileSectorReader implements Closeable {
     }
 
     void reopenForWriting() throws CdReopenException {
+        stopReadAhead();
+        closeMapChannel();
         try {
             _inputFile.close(); // expose close exception
             _inputFile = new RandomAccessFile(_sourceFile, "rw");
+            _bulkReadCache = null;
         } catch (IOException ex) {
             throw new CdReopenException(_sourceFile, ex);
         }
@@ -573,7 +696,7 @@ public class CdFileSectorReader implements Closeable {
     /* ---------------------------------------------------------------------- */
     
     private interface SectorFactory {
-        @Nonnull CdSector createSector(int iSector, @Nonnull byte[] abSectorBuff, int iOffset, long lngFilePointer);
+        @Nonnull CdSector createSector(int iSector, @Nonnull ByteBuffer sectorBuff, int iOffset, long lngFilePointer);
         @Nonnull ILocalizedMessage getTypeDescription();
         boolean hasSectorHeader();
         long get1stSectorOffset();
@@ -592,8 +715,8 @@ public class CdFileSectorReader implements Closeable {
             _lng1stSectorOffset = lngStartOffset;
         }
 
-        public @Nonnull CdSector createSector(int iSector, @Nonnull byte[] abSectorBuff, int iOffset, long lngFilePointer) {
-            return new CdSector2048(iSector, abSectorBuff, iOffset, lngFilePointer);
+        public @Nonnull CdSector createSector(int iSector, @Nonnull ByteBuffer sectorBuff, int iOffset, long lngFilePointer) {
+            return new CdSector2048(iSector, sectorBuff, iOffset, lngFilePointer);
         }
 
 
@@ -686,8 +809,8 @@ public class CdFileSectorReader implements Closeable {
             _lng1stSectorOffset = lngStartOffset;
         }
 
-        public @Nonnull CdSector createSector(int iSector, @Nonnull byte[] abSectorBuff, int iOffset, long lngFilePointer) {
-            return new CdSector2336(iSector, abSectorBuff, iOffset, lngFilePointer);
+        public @Nonnull CdSector createSector(int iSector, @Nonnull ByteBuffer sectorBuff, int iOffset, long lngFilePointer) {
+            return new CdSector2336(iSector, sectorBuff, iOffset, lngFilePointer);
         }
 
         public @Nonnull ILocalizedMessage getTypeDescription() {
@@ -775,8 +898,8 @@ public class CdFileSectorReader implements Closeable {
             _lng1stSectorOffset = lngStartOffset;
         }
 
-        public @Nonnull CdSector createSector(int iSector, @Nonnull byte[] abSectorBuff, int iOffset, long lngFilePointer) {
-            return new CdSector2352(iSector, abSectorBuff, iOffset, lngFilePointer);
+        public @Nonnull CdSector createSector(int iSector, @Nonnull ByteBuffer sectorBuff, int iOffset, long lngFilePointer) {
+            return new CdSector2352(iSector, sectorBuff, iOffset, lngFilePointer);
         }
 
         public @Nonnull ILocalizedMessage getTypeDescription() {
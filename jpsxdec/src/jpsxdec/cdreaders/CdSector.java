@@ -37,7 +37,9 @@
 
 package jpsxdec.cdreaders;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.zip.CRC32;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import jpsxdec.util.ByteArrayFPIS;
@@ -84,17 +86,27 @@ public abstract class CdSector {
     // =========================================================================
 
     private final int _iSectorIndex;
+    /** Buffer holding the sector data. May be a heap buffer wrapping an array
+     * or a view of a memory mapped portion of the disc image.
+     * Only absolute reads are used so the position/limit are never changed. */
     @Nonnull
-    private final byte[] _abSectorBytes;
-    /** Offset in {@link #_abSectorBytes} where this sector begins. */
+    private final ByteBuffer _sectorBytes;
+    /** Offset in {@link #_sectorBytes} where this sector begins. */
     private final int _iByteStartOffset;
     /** Byte offset of this sector in the source file. */
     private final long _lngFilePointer;
 
-    public CdSector(int iSectorIndex, byte[] abSectorBytes, int iByteStartOffset,
-                    long lngFilePointer) {
+    public CdSector(int iSectorIndex, @Nonnull byte[] abSectorBytes,
+                    int iByteStartOffset, long lngFilePointer)
+    {
+        this(iSectorIndex, ByteBuffer.wrap(abSectorBytes), iByteStartOffset, lngFilePointer);
+    }
+
+    public CdSector(int iSectorIndex, @Nonnull ByteBuffer sectorBytes,
+                    int iByteStartOffset, long lngFilePointer)
+    {
         _iSectorIndex = iSectorIndex;
-        _abSectorBytes = abSectorBytes;
+        _sectorBytes = sectorBytes;
         _iByteStartOffset = iByteStartOffset;
         _lngFilePointer = lngFilePointer;
     }
@@ -135,9 +147,9 @@ public abstract class CdSector {
 
     /** Returns copy of the 'user data' portion of the sector. */
     final public @Nonnull byte[] getCdUserDataCopy() {
-        int iStart = _iByteStartOffset + getHeaderDataSize();
-        return Arrays.copyOfRange(_abSectorBytes,
-                                  iStart, iStart + getCdUserDataSize());
+        byte[] abUserData = new byte[getCdUserDataSize()];
+        copyBytes(_iByteStartOffset + getHeaderDataSize(), abUserData, 0, abUserData.length);
+        return abUserData;
     }
 
     /** Copies a block of bytes out of the user data portion of this CD sector to the supplied array.
@@ -148,22 +160,51 @@ public abstract class CdSector {
         if (iSourcePos < 0 || iSourcePos+iLength > getCdUserDataSize() ||
             iLength    < 0 || iOutPos   +iLength > abOut.length)
             throw new IndexOutOfBoundsException();
-        int iStart = _iByteStartOffset + getHeaderDataSize() + iSourcePos;
-        System.arraycopy(_abSectorBytes, iStart, abOut, iOutPos, iLength);
+        copyBytes(_iByteStartOffset + getHeaderDataSize() + iSourcePos, abOut, iOutPos, iLength);
     }
 
     /** Returns a copy of the underlying sector data, with raw
      * header/footer and everything it has. */
     final public @Nonnull byte[] getRawSectorDataCopy() {
-        return Arrays.copyOfRange(_abSectorBytes,
-                                  _iByteStartOffset,
-                                  _iByteStartOffset+getRawCdSectorSize());
+        byte[] abRaw = new byte[getRawCdSectorSize()];
+        copyBytes(_iByteStartOffset, abRaw, 0, abRaw.length);
+        return abRaw;
     }
 
-    /** Returns an InputStream of the 'user data' portion of the sector. */
+    /** Returns an InputStream of the 'user data' portion of the sector.
+     * If the sector is backed by an array, no data is copied. */
     final public @Nonnull ByteArrayFPIS getCdUserDataStream() {
-        int iStart = _iByteStartOffset + getHeaderDataSize();
-        return new ByteArrayFPIS(_abSectorBytes, iStart, getCdUserDataSize(), getUserDataFilePointer());
+        if (_sectorBytes.hasArray()) {
+            int iStart = _sectorBytes.arrayOffset() + _iByteStartOffset + getHeaderDataSize();
+            return new ByteArrayFPIS(_sectorBytes.array(), iStart, getCdUserDataSize(), getUserDataFilePointer());
+        } else {
+            return new ByteArrayFPIS(getCdUserDataCopy(), getUserDataFilePointer());
+        }
+    }
+
+    /** Returns the CRC32 of the raw sector data. */
+    final public int getRawSectorCrc32() {
+        CRC32 crc = new CRC32();
+        if (_sectorBytes.hasArray()) {
+            crc.update(_sectorBytes.array(), _sectorBytes.arrayOffset() + _iByteStartOffset,
+                       getRawCdSectorSize());
+        } else {
+            crc.update(getRawSectorDataCopy());
+        }
+        return (int) crc.getValue();
+    }
+
+    /** Copies bytes from an absolute position in the sector buffer. */
+    private void copyBytes(int iBufferPos, @Nonnull byte[] abOut, int iOutPos, int iLength) {
+        if (_sectorBytes.hasArray()) {
+            System.arraycopy(_sectorBytes.array(), _sectorBytes.arrayOffset() + iBufferPos,
+                             abOut, iOutPos, iLength);
+        } else {
+            // duplicate so the shared buffer position is never touched
+            ByteBuffer dup = _sectorBytes.duplicate();
+            dup.position(iBufferPos);
+            dup.get(abOut, iOutPos, iLength);
+        }
     }
 
     // .........................................................................
@@ -171,47 +212,65 @@ public abstract class CdSector {
     
     final public byte readUserDataByte(int i) {
         checkIndex(i);
-        return _abSectorBytes[_iByteStartOffset + getHeaderDataSize() + i];
+        return _sectorBytes.get(_iByteStartOffset + getHeaderDataSize() + i);
     }
 
     final public short readSInt16LE(int i) {
         checkIndex(i);
-        return IO.readSInt16LE(_abSectorBytes, _iByteStartOffset + getHeaderDataSize() + i);
+        int iPos = _iByteStartOffset + getHeaderDataSize() + i;
+        return IO.SInt16LE(ub(iPos), ub(iPos+1));
     }
 
     final public short readSInt16BE(int i) {
         checkIndex(i);
-        return IO.readSInt16BE(_abSectorBytes, _iByteStartOffset + getHeaderDataSize() + i);
+        int iPos = _iByteStartOffset + getHeaderDataSize() + i;
+        return IO.SInt16BE(ub(iPos), ub(iPos+1));
     }
 
     final public int readUInt16LE(int i) {
         checkIndex(i);
-        return IO.readUInt16LE(_abSectorBytes, _iByteStartOffset + getHeaderDataSize() + i);
+        int iPos = _iByteStartOffset + getHeaderDataSize() + i;
+        return IO.UInt16LE(ub(iPos), ub(iPos+1));
     }
 
     final public long readUInt32LE(int i) {
         checkIndex(i);
-        return IO.readUInt32LE(_abSectorBytes, _iByteStartOffset + getHeaderDataSize() + i);
+        int iPos = _iByteStartOffset + getHeaderDataSize() + i;
+        return IO.UInt32LE(ub(iPos), ub(iPos+1), ub(iPos+2), ub(iPos+3));
     }
 
     final public long readUInt32BE(int i) {
         checkIndex(i);
-        return IO.readUInt32BE(_abSectorBytes, _iByteStartOffset + getHeaderDataSize() + i);
+        int iPos = _iByteStartOffset + getHeaderDataSize() + i;
+        return IO.UInt32LE(ub(iPos+3), ub(iPos+2), ub(iPos+1), ub(iPos));
     }
 
     final public int readSInt32LE(int i) {
         checkIndex(i);
-        return IO.readSInt32LE(_abSectorBytes, _iByteStartOffset + getHeaderDataSize() + i);
+        int iPos = _iByteStartOffset + getHeaderDataSize() + i;
+        return IO.SInt32LE(ub(iPos), ub(iPos+1), ub(iPos+2), ub(iPos+3));
     }
 
     final public int readSInt32BE(int i) {
         checkIndex(i);
-        return IO.readSInt32BE(_abSectorBytes, _iByteStartOffset + getHeaderDataSize() + i);
+        int iPos = _iByteStartOffset + getHeaderDataSize() + i;
+        return IO.SInt32BE(ub(iPos), ub(iPos+1), ub(iPos+2), ub(iPos+3));
     }
     
     final public long readSInt64BE(int i) {
         checkIndex(i);
-        return IO.readSInt64BE(_abSectorBytes, _iByteStartOffset + getHeaderDataSize() + i);
+        int iPos = _iByteStartOffset + getHeaderDataSize() + i;
+        long lngRet = 0;
+        for (int j = 0; j < 8; j++) {
+            byte iByte = _sectorBytes.get(iPos+j);
+            lngRet = (lngRet << 8) | iByte;
+        }
+        return lngRet;
+    }
+
+    /** Unsigned byte at the absolute position in the sector buffer. */
+    private int ub(int iBufferPos) {
+        return _sectorBytes.get(iBufferPos) & 0xff;
     }
 
     /** Helper function to ensure index is within the size of the sector data. 
@@ -37,6 +37,7 @@
 
 package jpsxdec.cdreaders;
 
+import java.nio.ByteBuffer;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
@@ -47,8 +48,14 @@ public class CdSector2048 extends CdSector {
     public CdSector2048(int iSectorIndex, @Nonnull byte[] abSectorBytes,
                         int iByteStartOffset, long lngFilePointer)
     {
-        super(iSectorIndex, abSectorBytes, iByteStartOffset, lngFilePointer);
-        if (iByteStartOffset + SECTOR_SIZE_2048_ISO > abSectorBytes.length)
+        this(iSectorIndex, ByteBuffer.wrap(abSectorBytes), iByteStartOffset, lngFilePointer);
+    }
+
+    public CdSector2048(int iSectorIndex, @Nonnull ByteBuffer sectorBytes,
+                        int iByteStartOffset, long lngFilePointer)
+    {
+        super(iSectorIndex, sectorBytes, iByteStartOffset, lngFilePointer);
+        if (iByteStartOffset + SECTOR_SIZE_2048_ISO > sectorBytes.limit())
             throw new IllegalArgumentException();
     }
 
@@ -37,6 +37,7 @@
 
 package jpsxdec.cdreaders;
 
+import java.nio.ByteBuffer;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -59,10 +60,16 @@ public class CdSector2336 extends CdSector {
     public CdSector2336(int iSectorIndex, @Nonnull byte[] abSectorBytes,
                         int iByteStartOffset, long lngFilePointer)
     {
-        super(iSectorIndex, abSectorBytes, iByteStartOffset, lngFilePointer);
-        if (iByteStartOffset + SECTOR_SIZE_2336_BIN_NOSYNC > abSectorBytes.length)
+        this(iSectorIndex, ByteBuffer.wrap(abSectorBytes), iByteStartOffset, lngFilePointer);
+    }
+
+    public CdSector2336(int iSectorIndex, @Nonnull ByteBuffer sectorBytes,
+                        int iByteStartOffset, long lngFilePointer)
+    {
+        super(iSectorIndex, sectorBytes, iByteStartOffset, lngFilePointer);
+        if (iByteStartOffset + SECTOR_SIZE_2336_BIN_NOSYNC > sectorBytes.limit())
             throw new IllegalArgumentException();
-        _subHeader = new CdSectorXaSubHeader(iSectorIndex, abSectorBytes, iByteStartOffset);
+        _subHeader = new CdSectorXaSubHeader(iSectorIndex, sectorBytes, iByteStartOffset);
         if (_subHeader.getSubMode().getForm() == 1) {
             _iUserDataSize = SECTOR_USER_DATA_SIZE_MODE1_MODE2FORM1;
             _type = Type.MODE2FORM1;
@@ -37,6 +37,7 @@
 
 package jpsxdec.cdreaders;
 
+import java.nio.ByteBuffer;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
@@ -69,10 +70,16 @@ public class CdSector2352 extends CdSector {
     public CdSector2352(int iSectorIndex, @Nonnull byte[] abSectorBytes,
                         int iByteStartOffset, long lngFilePointer)
     {
-        super(iSectorIndex, abSectorBytes, iByteStartOffset, lngFilePointer);
-        if (iByteStartOffset + SECTOR_SIZE_2352_BIN > abSectorBytes.length)
+        this(iSectorIndex, ByteBuffer.wrap(abSectorBytes), iByteStartOffset, lngFilePointer);
+    }
+
+    public CdSector2352(int iSectorIndex, @Nonnull ByteBuffer sectorBytes,
+                        int iByteStartOffset, long lngFilePointer)
+    {
+        super(iSectorIndex, sectorBytes, iByteStartOffset, lngFilePointer);
+        if (iByteStartOffset + SECTOR_SIZE_2352_BIN > sectorBytes.limit())
             throw new IllegalArgumentException();
-        CdSectorHeader header = new CdSectorHeader(iSectorIndex, abSectorBytes, iByteStartOffset);
+        CdSectorHeader header = new CdSectorHeader(iSectorIndex, sectorBytes, iByteStartOffset);
         // TODO: if the sync header is imperfect (but passable), but the subheader is all errors -> it's cd audio
         switch (header.getType()) {
             case CD_AUDIO:
@@ -92,7 +99,7 @@ public class CdSector2352 extends CdSector {
                 break;
             default: assert header.getType() == CdSectorHeader.Type.MODE2;
                 _header = header;
-                _subHeader = new CdSectorXaSubHeader(iSectorIndex, abSectorBytes,
+                _subHeader = new CdSectorXaSubHeader(iSectorIndex, sectorBytes,
                                                      iByteStartOffset + CdSectorHeader.SIZEOF);
                 _iHeaderSize = CdSectorHeader.SIZEOF + CdSectorXaSubHeader.SIZEOF;
                 if (_subHeader.getSubMode().getForm() == 1) {
@@ -37,6 +37,7 @@
 
 package jpsxdec.cdreaders;
 
+import java.nio.ByteBuffer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nonnull;
@@ -84,18 +85,18 @@ public class CdSectorHeader {
     @Nonnull
     private final Type _eType;
 
-    public CdSectorHeader(int iSectorIndex, @Nonnull byte[] abSectorData, int iStartOffset) {
+    public CdSectorHeader(int iSectorIndex, @Nonnull ByteBuffer sectorData, int iStartOffset) {
         int iByteErrorCount = 0;
         for (int i = 0; i < SECTOR_SYNC_HEADER.length; i++) {
-            if (abSectorData[iStartOffset + i] != SECTOR_SYNC_HEADER[i])
+            if (sectorData.get(iStartOffset + i) != SECTOR_SYNC_HEADER[i])
                 iByteErrorCount++;
         }
         _iSyncHeaderErrorCount = iByteErrorCount;
         
-        _iMinutesBCD = abSectorData[iStartOffset + SECTOR_SYNC_HEADER.length + 0] & 0xff;
-        _iSecondsBCD = abSectorData[iStartOffset + SECTOR_SYNC_HEADER.length + 1] & 0xff;
-        _iSectorsBCD = abSectorData[iStartOffset + SECTOR_SYNC_HEADER.length + 2] & 0xff;
-        _iMode       = abSectorData[iStartOffset + SECTOR_SYNC_HEADER.length + 3] & 0xff;
+        _iMinutesBCD = sectorData.get(iStartOffset + SECTOR_SYNC_HEADER.length + 0) & 0xff;
+        _iSecondsBCD = sectorData.get(iStartOffset + SECTOR_SYNC_HEADER.length + 1) & 0xff;
+        _iSectorsBCD = sectorData.get(iStartOffset + SECTOR_SYNC_HEADER.length + 2) & 0xff;
+        _iMode       = sectorData.get(iStartOffset + SECTOR_SYNC_HEADER.length + 3) & 0xff;
 
         if (!(_blnMinutesBCD_ok = isValidBinaryCodedDecimal(_iMinutesBCD)))
             iByteErrorCount++;
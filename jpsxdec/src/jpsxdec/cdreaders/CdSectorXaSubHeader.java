@@ -37,6 +37,7 @@
 
 package jpsxdec.cdreaders;
 
+import java.nio.ByteBuffer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nonnull;
@@ -173,16 +174,16 @@ public class CdSectorXaSubHeader {
     private final int _iConfidenceBalance;
 
 
-    public CdSectorXaSubHeader(int iSector, @Nonnull byte[] abSectorData, int iStartOffset) {
+    public CdSectorXaSubHeader(int iSector, @Nonnull ByteBuffer sectorData, int iStartOffset) {
 
-        _iFileNum1 = abSectorData[iStartOffset+0] & 0xff;
-        _iFileNum2 = abSectorData[iStartOffset+0+4] & 0xff;
-        _iChannel1 = abSectorData[iStartOffset+1] & 0xff;
-        _iChannel2 = abSectorData[iStartOffset+1+4] & 0xff;
-        _submode1 = new SubMode(abSectorData[iStartOffset+2] & 0xff);
-        _submode2 = new SubMode(abSectorData[iStartOffset+2+4] & 0xff);
-        _codingInfo1 = new CodingInfo(abSectorData[iStartOffset+3] & 0xff);
-        _codingInfo2 = new CodingInfo(abSectorData[iStartOffset+3+4] & 0xff);
+        _iFileNum1 = sectorData.get(iStartOffset+0) & 0xff;
+        _iFileNum2 = sectorData.get(iStartOffset+0+4) & 0xff;
+        _iChannel1 = sectorData.get(iStartOffset+1) & 0xff;
+        _iChannel2 = sectorData.get(iStartOffset+1+4) & 0xff;
+        _submode1 = new SubMode(sectorData.get(iStartOffset+2) & 0xff);
+        _submode2 = new SubMode(sectorData.get(iStartOffset+2+4) & 0xff);
+        _codingInfo1 = new CodingInfo(sectorData.get(iStartOffset+3) & 0xff);
+        _codingInfo2 = new CodingInfo(sectorData.get(iStartOffset+3+4) & 0xff);
 
         int iConfidenceBalance = 0;
 
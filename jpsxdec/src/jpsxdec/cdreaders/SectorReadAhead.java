@@ -0,0 +1,193 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.cdreaders;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.util.DaemonThreadFactory;
+import jpsxdec.util.Futures;
+import jpsxdec.util.IO;
+
+/** Reads blocks of a disc image, and while the caller is busy with the
+ * current block, reads the following block on a background thread.
+ * <p>
+ * Blocks that are returned are never reused because {@link CdSector}s are
+ * views into them, and they can live for a long time. Only blocks that were
+ * read ahead but never requested (because of a jump to another part of the
+ * disc) are recycled.
+ * <p>
+ * Reads seek and read the {@link RandomAccessFile} while holding its lock,
+ * so they don't interfere with other reads or writes of the same file.
+ * {@link RandomAccessFile} is used instead of its {@link java.nio.channels.FileChannel}
+ * because an interrupt during a channel read closes the channel, and with
+ * it the file, for everyone else using it. For the same reason, a read
+ * that has started is never interrupted. */
+class SectorReadAhead {
+
+    /** A block read from the file. */
+    static class Block {
+        @Nonnull
+        public final byte[] abData;
+        /** Number of valid bytes in {@link #abData}. */
+        public final int iSize;
+
+        public Block(@Nonnull byte[] abData, int iSize) {
+            this.abData = abData;
+            this.iSize = iSize;
+        }
+    }
+
+    private class ReadTask implements Callable<Block> {
+        private final long __lngFileOffset;
+        @Nonnull
+        private final byte[] __abBlock;
+
+        public ReadTask(long lngFileOffset, @Nonnull byte[] abBlock) {
+            __lngFileOffset = lngFileOffset;
+            __abBlock = abBlock;
+        }
+
+        public @Nonnull Block call() throws IOException {
+            int iBytesRead;
+            synchronized (_file) {
+                _file.seek(__lngFileOffset);
+                iBytesRead = IO.readByteArrayMax(_file, __abBlock, 0, __abBlock.length);
+            }
+            return new Block(__abBlock, iBytesRead);
+        }
+    }
+
+    @Nonnull
+    private final RandomAccessFile _file;
+    private final int _iBlockSize;
+    @Nonnull
+    private final ExecutorService _executor = Executors.newSingleThreadExecutor(
+            new DaemonThreadFactory(SectorReadAhead.class.getSimpleName()));
+
+    @CheckForNull
+    private Future<Block> _pendingRead;
+    private long _lngPendingFileOffset;
+    /** A block that was read ahead but never used, ready to be reused. */
+    @CheckForNull
+    private byte[] _abSpareBlock;
+
+    /** @param file Also used as the lock when reading it. */
+    public SectorReadAhead(@Nonnull RandomAccessFile file, int iBlockSize) {
+        _file = file;
+        _iBlockSize = iBlockSize;
+    }
+
+    /** Returns the block starting at the file offset, then starts reading
+     * the block that follows it in the background.
+     * @param lngFileOffset Offset in the file to read.
+     * @param lngNextFileOffset Offset of the next block to read ahead,
+     *                          or -1 if there is nothing more to read. */
+    public @Nonnull Block read(long lngFileOffset, long lngNextFileOffset) throws IOException {
+        Block block = null;
+        if (_pendingRead != null) {
+            boolean blnMatches = _lngPendingFileOffset == lngFileOffset;
+            Block pending = waitForPending();
+            if (blnMatches)
+                block = pending;
+            else
+                _abSpareBlock = pending.abData;
+        }
+
+        if (block == null)
+            block = new ReadTask(lngFileOffset, takeBlock()).call();
+
+        if (lngNextFileOffset >= 0) {
+            _lngPendingFileOffset = lngNextFileOffset;
+            _pendingRead = _executor.submit(new ReadTask(lngNextFileOffset, takeBlock()));
+        }
+
+        return block;
+    }
+
+    private @Nonnull byte[] takeBlock() {
+        byte[] abBlock = _abSpareBlock;
+        _abSpareBlock = null;
+        if (abBlock == null)
+            abBlock = new byte[_iBlockSize];
+        return abBlock;
+    }
+
+    private @Nonnull Block waitForPending() throws IOException {
+        Future<Block> pending = _pendingRead;
+        try {
+            Block block = pending.get();
+            _pendingRead = null;
+            return block;
+        } catch (InterruptedException ex) {
+            // leave the read running and still pending
+            InterruptedIOException iioe = new InterruptedIOException();
+            iioe.initCause(ex);
+            throw iioe;
+        } catch (ExecutionException ex) {
+            _pendingRead = null;
+            throw Futures.unwrap(ex, IOException.class);
+        }
+    }
+
+    /** Throws away anything read ahead, for example after the file was changed. */
+    public void discard() {
+        if (_pendingRead != null) {
+            try {
+                _abSpareBlock = waitForPending().abData;
+            } catch (IOException ex) {
+                // it's being thrown away anyway
+            }
+        }
+    }
+
+    /** Stops the background thread. Does not close the file. */
+    public void shutdown() {
+        discard();
+        _executor.shutdown();
+    }
+
+}
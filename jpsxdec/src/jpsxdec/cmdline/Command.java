@@ -186,6 +186,12 @@ public abstract class Command {
         return index;
     }
 
+    protected @Nonnull File getIndexFile() throws CommandLineException {
+        if (indexFileArg.value == null)
+            throw new CommandLineException(I.CMD_INDEX_FILE_REQUIRED());
+        return new File(indexFileArg.value);
+    }
+
     protected @Nonnull File getInFile() throws CommandLineException {
         if (inputFileArg.value == null)
             throw new CommandLineException(I.CMD_INPUT_FILE_REQUIRED());
@@ -40,6 +40,7 @@ package jpsxdec.cmdline;
 import argparser.StringHolder;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -67,6 +68,7 @@ public class CommandLine {
         FeedbackStream Feedback = new FeedbackStream(System.out, FeedbackStream.NORM);
 
         checkVerbosity(ap, Feedback);
+        checkThreads(ap, Feedback);
 
         Feedback.println(I.JPSXDEC_VERSION_NON_COMMERCIAL(Version.Version));
 
@@ -78,6 +80,7 @@ public class CommandLine {
             new Command_SectorDump(),
             new Command_Static(),
             new Command_Visualize(),
+            new Command_ConvertIndex(),
             new Command_Items.Command_Item(),
             new Command_Items.Command_All(),
         };
@@ -158,6 +161,32 @@ public class CommandLine {
         }
     }
     
+    /** Number of threads to use for work that can be split up. */
+    private static int _iThreads = 1;
+
+    static int getThreadCount() {
+        return _iThreads;
+    }
+
+    private static void checkThreads(@Nonnull ArgParser ap,
+                                     @Nonnull FeedbackStream fbs)
+    {
+        StringHolder threads = ap.addStringOption("-threads");
+        ap.match();
+
+        if (threads.value != null) {
+            try {
+                int iValue = Integer.parseInt(threads.value);
+                if (iValue >= 1)
+                    _iThreads = iValue;
+                else
+                    fbs.printlnWarn(I.CMD_INVALID_VALUE_FOR_CMD(threads.value, "-threads"));
+            } catch (NumberFormatException ex) {
+                fbs.printlnWarn(I.CMD_INVALID_VALUE_FOR_CMD(threads.value, "-threads"));
+            }
+        }
+    }
+    
     private static void printMainHelp(@Nonnull FeedbackStream fbs) {
         Iterator<ILocalizedMessage> helpLines = MiscResources.main_cmdline_help();
         while (helpLines.hasNext()) {
@@ -210,7 +239,7 @@ public class CommandLine {
                 I.INDEX_LOG_FILE_BASE_NAME().getLocalizedMessage(), fbs.getUnderlyingStream());
         try {
             cpl.log(Level.INFO, I.CMD_GUI_INDEXING(cd.toString()));
-            index = new DiscIndex(cd, cpl);
+            index = new DiscIndex(cd, _iThreads, cpl);
         } catch (TaskCanceledException ex) {
             throw new RuntimeException("Impossible TaskCanceledException during commandline indexing", ex);
         } finally {
@@ -233,6 +262,8 @@ public class CommandLine {
                 index.serializeIndex(new File(sIndexFile));
             } catch (FileNotFoundException ex) {
                 throw new CommandLineException(I.IO_OPENING_FILE_NOT_FOUND_NAME(sIndexFile), ex);
+            } catch (IOException ex) {
+                throw new CommandLineException(I.IO_WRITING_TO_FILE_ERROR_NAME(sIndexFile), ex);
             }
         }
     }
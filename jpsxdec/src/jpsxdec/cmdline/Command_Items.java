@@ -39,12 +39,22 @@ package jpsxdec.cmdline;
 
 import argparser.BooleanHolder;
 import argparser.StringHolder;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import jpsxdec.cdreaders.CdFileSectorReader;
 import jpsxdec.discitems.DiscItem;
 import jpsxdec.discitems.DiscItemSaverBuilder;
 import jpsxdec.i18n.FeedbackStream;
@@ -52,14 +62,19 @@ import jpsxdec.i18n.I;
 import jpsxdec.i18n.ILocalizedMessage;
 import jpsxdec.i18n.UnlocalizedMessage;
 import jpsxdec.i18n.exception.ILocalizedException;
+import jpsxdec.i18n.exception.LocalizedDeserializationFail;
 import jpsxdec.i18n.exception.LoggedFailure;
 import jpsxdec.i18n.log.ConsoleProgressLogger;
+import jpsxdec.i18n.log.ILocalizedLogger;
 import jpsxdec.indexing.DiscIndex;
 import jpsxdec.modules.tim.DiscItemTim;
 import jpsxdec.modules.video.DiscItemVideoStream;
 import jpsxdec.modules.video.sectorbased.DiscItemSectorBasedVideoStream;
 import jpsxdec.modules.xa.DiscItemXaAudioStream;
 import jpsxdec.util.ArgParser;
+import jpsxdec.util.DaemonThreadFactory;
+import jpsxdec.util.Futures;
+import jpsxdec.util.IO;
 import jpsxdec.util.TaskCanceledException;
 
 
@@ -109,7 +124,7 @@ class Command_Items {
             ConsoleProgressLogger replaceLog = new ConsoleProgressLogger(
                     I.REPLACE_LOG_FILE_BASE_NAME().getLocalizedMessage(), _fbs.getUnderlyingStream());
             try {
-                handleItem(item, ap, _fbs, saveLog, replaceLog);
+                handleItem(item, ap, _fbs, saveLog, replaceLog, CommandLine.getThreadCount());
             } finally {
                 saveLog.close();
                 replaceLog.close();
@@ -132,17 +147,24 @@ class Command_Items {
         public void execute(@Nonnull ArgParser ap) throws CommandLineException {
             DiscIndex discIndex = getIndex();
 
-            boolean blnFound = false;
+            ArrayList<DiscItem> items = new ArrayList<DiscItem>();
+            for (DiscItem item : discIndex) {
+                if (item.getType().getName().equalsIgnoreCase(_sType))
+                    items.add(item);
+            }
+
             ConsoleProgressLogger saveLog = new ConsoleProgressLogger(
                     I.SAVE_LOG_FILE_BASE_NAME().getLocalizedMessage(), _fbs.getUnderlyingStream());
             ConsoleProgressLogger replaceLog = new ConsoleProgressLogger(
                     I.REPLACE_LOG_FILE_BASE_NAME().getLocalizedMessage(), _fbs.getUnderlyingStream());
 
             try {
-                for (DiscItem item : discIndex) {
-                    if (item.getType().getName().equalsIgnoreCase(_sType)) {
-                        blnFound = true;
-                        handleItem(item, ap.copy(), _fbs, saveLog, replaceLog);
+                int iThreads = Math.min(CommandLine.getThreadCount(), items.size());
+                if (iThreads > 1 && isOnlySaving(ap)) {
+                    saveInParallel(discIndex, items, iThreads, ap, saveLog);
+                } else {
+                    for (DiscItem item : items) {
+                        handleItem(item, ap.copy(), _fbs, saveLog, replaceLog, CommandLine.getThreadCount());
                         _fbs.println(I.CMD_ITEM_COMPLETE());
                         _fbs.println();
                     }
@@ -152,19 +174,211 @@ class Command_Items {
                 replaceLog.close();
             }
 
-            if (!blnFound) {
+            if (items.isEmpty()) {
                 _fbs.println(I.CMD_NO_ITEMS_OF_TYPE(_sType));
             } else {
                 _fbs.println(I.CMD_ALL_ITEMS_COMPLETE());
             }
         }
+
+        /** Saves the items on several threads at once, one item per thread.
+         * A {@link CdFileSectorReader} can only be used by one thread, so
+         * every thread gets its own reader of the source file and its own
+         * copy of the index. Everything an item prints or logs is held until
+         * the items before it are done, so the output is the same as saving
+         * the items one after another. */
+        private void saveInParallel(@Nonnull DiscIndex discIndex,
+                                    @Nonnull List<DiscItem> items, int iThreads,
+                                    @Nonnull ArgParser ap,
+                                    @Nonnull ConsoleProgressLogger saveLog)
+                throws CommandLineException
+        {
+            BlockingQueue<DiscIndex> idleIndexes = new LinkedBlockingQueue<DiscIndex>();
+            idleIndexes.add(discIndex);
+            ArrayList<CdFileSectorReader> openedCds = new ArrayList<CdFileSectorReader>();
+            ExecutorService executor = null;
+            try {
+                for (int i = 1; i < iThreads; i++) {
+                    CdFileSectorReader cd = reopenCd(discIndex.getSourceCd());
+                    openedCds.add(cd);
+                    idleIndexes.add(new DiscIndex(discIndex, cd, saveLog));
+                }
+
+                executor = Executors.newFixedThreadPool(iThreads,
+                        new DaemonThreadFactory(Command_All.class.getSimpleName()));
+                ArrayList<Future<SavedItem>> saving = new ArrayList<Future<SavedItem>>(items.size());
+                for (DiscItem item : items) {
+                    saving.add(executor.submit(new SaveItem(item.getIndex(), ap.copy(),
+                                                            _fbs.getLevel(), idleIndexes)));
+                }
+
+                for (Future<SavedItem> future : saving) {
+                    SavedItem saved = Futures.waitFor(future);
+                    saved.writeTo(_fbs.getUnderlyingStream(), saveLog);
+                    if (saved.failure != null)
+                        throw saved.failure;
+                    _fbs.println(I.CMD_ITEM_COMPLETE());
+                    _fbs.println();
+                }
+            } finally {
+                if (executor != null)
+                    executor.shutdownNow();
+                for (CdFileSectorReader cd : openedCds) {
+                    IO.closeSilently(cd, LOG);
+                }
+            }
+        }
+
+        private static @Nonnull CdFileSectorReader reopenCd(@Nonnull CdFileSectorReader cd)
+                throws CommandLineException
+        {
+            try {
+                return new CdFileSectorReader(cd.serialize(), false);
+            } catch (LocalizedDeserializationFail ex) {
+                throw new CommandLineException(ex.getSourceMessage(), ex);
+            } catch (CdFileSectorReader.CdFileNotFoundException ex) {
+                throw new CommandLineException(I.IO_OPENING_FILE_NOT_FOUND_NAME(ex.getFile().toString()), ex);
+            } catch (CdFileSectorReader.CdReadException ex) {
+                throw new CommandLineException(I.IO_READING_FROM_FILE_ERROR_NAME(ex.getFile().toString()), ex);
+            }
+        }
+    }
+
+    /** Items can only be saved in parallel if nothing is being replaced or
+     * dumped, which have to happen one item at a time. */
+    private static boolean isOnlySaving(@Nonnull ArgParser ap) {
+        ArgParser check = ap.copy();
+        BooleanHolder fpsDumpArg = check.addBoolOption("-fpsdump");
+        BooleanHolder itemHelpArg = check.addHelp();
+        BooleanHolder frameInfoArg = check.addBoolOption("-frameinfodump");
+        StringHolder replaceFrames = check.addStringOption("-replaceframes");
+        StringHolder replaceTim = check.addStringOption("-replacetim");
+        StringHolder replaceXa = check.addStringOption("-replacexa");
+        check.match();
+        return !fpsDumpArg.value && !itemHelpArg.value && !frameInfoArg.value &&
+               replaceFrames.value == null && replaceTim.value == null && replaceXa.value == null;
+    }
+
+    /** Saves one item of {@link Command_All} on a worker thread. */
+    private static class SaveItem implements Callable<SavedItem> {
+        private final int _iItemIndex;
+        @Nonnull
+        private final ArgParser _ap;
+        private final int _iVerboseLevel;
+        @Nonnull
+        private final BlockingQueue<DiscIndex> _idleIndexes;
+
+        public SaveItem(int iItemIndex, @Nonnull ArgParser ap, int iVerboseLevel,
+                        @Nonnull BlockingQueue<DiscIndex> idleIndexes)
+        {
+            _iItemIndex = iItemIndex;
+            _ap = ap;
+            _iVerboseLevel = iVerboseLevel;
+            _idleIndexes = idleIndexes;
+        }
+
+        public @Nonnull SavedItem call() throws InterruptedException {
+            // there are as many indexes as threads so this never waits
+            DiscIndex index = _idleIndexes.take();
+            try {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                PrintStream ps = new PrintStream(output, true);
+                DeferredSaveLog log = new DeferredSaveLog(ps);
+                CommandLineException failure = null;
+                try {
+                    DiscItem item = index.getByIndex(_iItemIndex);
+                    if (item == null)
+                        throw new CommandLineException(I.CMD_DISC_ITEM_NOT_FOUND_NUM(_iItemIndex));
+                    // nothing is replaced when saving in parallel,
+                    // so the replace log will never be used
+                    handleItem(item, _ap, new FeedbackStream(ps, _iVerboseLevel), log, log, 1);
+                } catch (CommandLineException ex) {
+                    failure = ex;
+                }
+                ps.flush();
+                return new SavedItem(output.toByteArray(), log, failure);
+            } finally {
+                _idleIndexes.add(index);
+            }
+        }
+    }
+
+    /** What was printed and logged while saving an item on a worker thread. */
+    private static class SavedItem {
+        @Nonnull
+        private final byte[] _abOutput;
+        @Nonnull
+        private final DeferredSaveLog _log;
+        @CheckForNull
+        public final CommandLineException failure;
+
+        public SavedItem(@Nonnull byte[] abOutput, @Nonnull DeferredSaveLog log,
+                         @CheckForNull CommandLineException failure)
+        {
+            _abOutput = abOutput;
+            _log = log;
+            this.failure = failure;
+        }
+
+        public void writeTo(@Nonnull PrintStream console, @Nonnull ILocalizedLogger saveLog) {
+            console.write(_abOutput, 0, _abOutput.length);
+            console.flush();
+            _log.writeTo(saveLog);
+        }
+    }
+
+    /** Save log for an item being saved on a worker thread. Progress goes to
+     * the item's output, but the log messages are held so they can be
+     * written to the real save log in the same order as saving the items
+     * one after another. */
+    private static class DeferredSaveLog extends ConsoleProgressLogger {
+
+        private static class Entry {
+            @Nonnull
+            public final Level level;
+            @Nonnull
+            public final ILocalizedMessage msg;
+            @CheckForNull
+            public final Throwable debugException;
+
+            public Entry(@Nonnull Level level, @Nonnull ILocalizedMessage msg,
+                         @CheckForNull Throwable debugException)
+            {
+                this.level = level;
+                this.msg = msg;
+                this.debugException = debugException;
+            }
+        }
+
+        private final ArrayList<Entry> _entries = new ArrayList<Entry>();
+
+        public DeferredSaveLog(@Nonnull PrintStream progressStream) {
+            super(I.SAVE_LOG_FILE_BASE_NAME().getLocalizedMessage(), progressStream);
+        }
+
+        @Override
+        public void log(Level level, @Nonnull ILocalizedMessage msg, @CheckForNull Throwable debugException) {
+            _entries.add(new Entry(level, msg, debugException));
+            // still count the warnings and errors for the progress display
+            if (level == Level.WARNING)
+                onWarn(msg);
+            else if (level == Level.SEVERE)
+                onErr(msg);
+        }
+
+        public void writeTo(@Nonnull ILocalizedLogger log) {
+            for (Entry entry : _entries) {
+                log.log(entry.level, entry.msg, entry.debugException);
+            }
+        }
     }
 
     private static void handleItem(@Nonnull DiscItem item,
                                    @Nonnull ArgParser ap,
                                    @Nonnull FeedbackStream fbs,
                                    @Nonnull ConsoleProgressLogger saveLog,
-                                   @Nonnull ConsoleProgressLogger replaceLog)
+                                   @Nonnull ConsoleProgressLogger replaceLog,
+                                   int iThreads)
             throws CommandLineException
     {
         BooleanHolder fpsDumpArg = ap.addBoolOption("-fpsdump");
@@ -209,7 +423,7 @@ class Command_Items {
                     throw new CommandLineException(I.CMD_DISC_ITEM_NOT_VIDEO());
                 } else {
                     item.getSourceCd().beginPatching();
-                    ((DiscItemVideoStream)item).replaceFrames(replaceLog, replaceFrames.value);
+                    ((DiscItemVideoStream)item).replaceFrames(replaceLog, replaceFrames.value, iThreads);
                     fbs.printlnWarn(I.CMD_BACKUP_DISC_IMAGE_WARNING());
                     fbs.printlnWarn(I.CMD_REOPENING_DISC_WRITE_ACCESS());
                     item.getSourceCd().applyPatches(replaceLog);
@@ -245,7 +459,8 @@ class Command_Items {
                         xaItem.getSourceCd().beginPatching();
                         xaItem.replaceXa(replaceLog, patchXa);
                     } else {
-                        xaItem.replaceXa(replaceLog, new File(replaceXa.value));
+                        xaItem.getSourceCd().beginPatching();
+                        xaItem.replaceXa(replaceLog, new File(replaceXa.value), iThreads);
                     }
                     fbs.printlnWarn(I.CMD_BACKUP_DISC_IMAGE_WARNING());
                     fbs.printlnWarn(I.CMD_REOPENING_DISC_WRITE_ACCESS());
@@ -258,7 +473,7 @@ class Command_Items {
                 else
                     dir = null;
                 // decode/extract the desired disc item
-                decodeDiscItem(item, dir, ap, fbs, saveLog);
+                decodeDiscItem(item, dir, ap, fbs, saveLog, iThreads);
                 fbs.println(I.CMD_PROCESS_COMPLETE());
             }
 
@@ -274,11 +489,13 @@ class Command_Items {
     private static void decodeDiscItem(@Nonnull DiscItem item, @CheckForNull File dir,
                                        @Nonnull ArgParser ap,
                                        @Nonnull FeedbackStream fbs,
-                                       @Nonnull ConsoleProgressLogger cpl)
+                                       @Nonnull ConsoleProgressLogger cpl,
+                                       int iThreads)
             throws LoggedFailure
     {
 
         DiscItemSaverBuilder builder = item.makeSaverBuilder();
+        builder.setThreadCount(iThreads);
 
         fbs.println(I.CMD_SAVING(item.toString()));
 
@@ -182,7 +182,8 @@ public abstract class DiscItem implements Comparable<DiscItem> {
     }
     
     /** Returns how likely the supplied {@link DiscItem} 
-     * is a child of this item. */
+     * is a child of this item. Must be 0 if the items don't share any
+     * sectors. */
     public int getParentRating(@Nonnull DiscItem child) {
         return 0;
     }
@@ -69,6 +69,8 @@ public abstract class DiscItemSaverBuilder {
 
     private final List<File> _generatedFiles = new ArrayList<File>();
 
+    private int _iThreads = 1;
+
 
     final public void addChangeListener(@CheckForNull ChangeListener listener) {
         if (_changeListeners == null)
@@ -106,6 +108,17 @@ public abstract class DiscItemSaverBuilder {
         return _generatedFiles;
     }
 
+    /** Number of threads the saving process may use for work that can be
+     * split up. Savers that can't make use of it ignore it. */
+    final public void setThreadCount(int iThreads) {
+        if (iThreads < 1)
+            throw new IllegalArgumentException("Invalid thread count " + iThreads);
+        _iThreads = iThreads;
+    }
+    final public int getThreadCount() {
+        return _iThreads;
+    }
+
     /** Get the disc item that generated this saver builder. */
     abstract public @Nonnull DiscItem getDiscItem();
     /** The description of the source (input) that the generated files
@@ -37,6 +37,7 @@
 
 package jpsxdec.discitems;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -106,6 +107,15 @@ public class SerializedDiscItem {
             throw new LocalizedDeserializationFail(I.SERIALIZATION_MISSING_REQUIRED_FIELDS(sSerialized));
     }
 
+    /** Uses already separated fields (like from a binary index) in the
+     *  same order as they would appear in a serialization string. */
+    public SerializedDiscItem(@Nonnull Map<String, String> fields) throws LocalizedDeserializationFail {
+        _fields.putAll(fields);
+        if (!_fields.containsKey(INDEX_KEY) || !_fields.containsKey(ID_KEY) ||
+            !_fields.containsKey(TYPE_KEY)  || !_fields.containsKey(SECTOR_RANGE_KEY))
+            throw new LocalizedDeserializationFail(I.SERIALIZATION_MISSING_REQUIRED_FIELDS(serializeInFieldOrder()));
+    }
+
     /** Converts the data into a string. No additional data may be added to the
      *  object without throwing an exception. */
     public @Nonnull String serialize() {
@@ -149,6 +159,24 @@ public class SerializedDiscItem {
         
         return sb.toString();
     }
+
+    /** Converts the data into a string with the fields in the order they
+     *  were added or parsed. Unlike {@link #serialize()}, the required
+     *  fields are not moved to the front, so a parsed string is
+     *  reproduced exactly. */
+    public @Nonnull String serializeInFieldOrder() {
+        StringBuilder sb = new StringBuilder();
+        boolean blnFirst = true;
+        for (Map.Entry<String, String> entry : _fields.entrySet()) {
+            if (!blnFirst)
+                sb.append(FIELD_DELIMITER);
+            blnFirst = false;
+            sb.append(entry.getKey());
+            sb.append(KEY_VALUE_DELIMITER);
+            sb.append(entry.getValue());
+        }
+        return sb.toString();
+    }
     
     // =========================================================================
 
@@ -241,6 +269,11 @@ public class SerializedDiscItem {
         return _fields.containsKey(sFieldName);
     }
 
+    /** All the fields, in the order they were added or parsed. */
+    public @Nonnull Map<String, String> getFields() {
+        return Collections.unmodifiableMap(_fields);
+    }
+
     public @Nonnull String getString(@Nonnull String sFieldName) throws LocalizedDeserializationFail {
         String sValue = _fields.get(sFieldName);
         if (sValue == null) throw new LocalizedDeserializationFail(I.SERIALIZATION_FIELD_NOT_FOUND(sFieldName));
@@ -334,6 +334,7 @@ public class Gui extends javax.swing.JFrame {
         fc.setAcceptAllFileFilterUsed(true);
         fc.setDialogTitle(I.GUI_SAVE_INDEX_FILE_DIALOG_TITLE().getLocalizedMessage());
         fc.addChoosableFileFilter(GuiFileFilters.INDEX_FILE_FILTER);
+        fc.addChoosableFileFilter(GuiFileFilters.BINARY_INDEX_FILE_FILTER);
         fc.setFileFilter(GuiFileFilters.INDEX_FILE_FILTER);
         int iResult = fc.showSaveDialog(this);
         if (iResult != BetterFileChooser.APPROVE_OPTION)
@@ -676,6 +677,7 @@ public class Gui extends javax.swing.JFrame {
         fc.setAcceptAllFileFilterUsed(true);
         fc.setDialogTitle(I.GUI_LOAD_INDEX_FILE_DIALOG_TITLE().getLocalizedMessage());
         fc.addChoosableFileFilter(GuiFileFilters.INDEX_FILE_FILTER);
+        fc.addChoosableFileFilter(GuiFileFilters.BINARY_INDEX_FILE_FILTER);
         fc.setFileFilter(GuiFileFilters.INDEX_FILE_FILTER);
         int iResult = fc.showOpenDialog(this);
         if (iResult != BetterFileChooser.APPROVE_OPTION)
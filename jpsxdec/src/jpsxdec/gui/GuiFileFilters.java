@@ -42,6 +42,7 @@ import javax.annotation.Nonnull;
 import javax.swing.filechooser.FileFilter;
 import jpsxdec.gui.BetterFileChooser.SaveFileFilter;
 import jpsxdec.i18n.I;
+import jpsxdec.indexing.DiscIndex;
 
 
 public class GuiFileFilters {
@@ -58,6 +59,18 @@ public class GuiFileFilters {
         }
     };
 
+    public static final SaveFileFilter BINARY_INDEX_FILE_FILTER = new SaveFileFilter() {
+        public boolean accept(@Nonnull File f) {
+            return f.isFile() ? f.getName().toLowerCase().endsWith(getExtension().toLowerCase()) : true;
+        }
+        public @Nonnull String getDescription() {
+            return I.GUI_BINARY_INDEX_EXTENSION().getLocalizedMessage();
+        }
+        public @Nonnull String getExtension() {
+            return DiscIndex.BINARY_INDEX_EXTENSION;
+        }
+    };
+
 
     static final FileFilter[] DISC_OPEN_FILTERS = {
         new FileFilter() {
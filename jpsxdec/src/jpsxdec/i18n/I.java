@@ -98,6 +98,19 @@ public class I {
         return msg("CMD_INPUT_FILE_REQUIRED", "Input file is required for this command.");
     }
 
+    /**
+    <table border="1"><tr><td>
+    <pre>Index file is required for this command.</pre>
+    </td></tr></table>
+    <p>-x command is required</p>
+    <ul>
+       <li>Command.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage CMD_INDEX_FILE_REQUIRED() {
+        return msg("CMD_INDEX_FILE_REQUIRED", "Index file is required for this command.");
+    }
+
     /**
     <table border="1"><tr><td>
     <pre>{0,number,#} items loaded.</pre>
@@ -1369,6 +1382,19 @@ public class I {
         return msg("GUI_INDEX_EXTENSION", "Index files (*.idx)");
     }
 
+    /**
+    <table border="1"><tr><td>
+    <pre>Binary index files (*.idxb)</pre>
+    </td></tr></table>
+    <p>File dialog format</p>
+    <ul>
+       <li>GuiFileFilters.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage GUI_BINARY_INDEX_EXTENSION() {
+        return msg("GUI_BINARY_INDEX_EXTENSION", "Binary index files (*.idxb)");
+    }
+
     /**
     <table border="1"><tr><td>
     <pre>PlayStation video (*.str, *.mov, *.iki, *.ik2)</pre>
@@ -4363,6 +4389,56 @@ Do you want to replace it?</pre>
         return msg("VID_AVI_YUV_COMMAND", "avi:yuv");
     }
 
+    /**
+    <table border="1"><tr><td>
+    <pre>AVI 2.0 (OpenDML): Uncompressed RGB</pre>
+    </td></tr></table>
+    <ul>
+       <li>VideoFormat.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage VID_AVI_RGB_ODML_DESCRIPTION() {
+        return msg("VID_AVI_RGB_ODML_DESCRIPTION", "AVI 2.0 (OpenDML): Uncompressed RGB");
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>avi2:rgb</pre>
+    </td></tr></table>
+    <p>1 word (no spaces) user can type on command-line. Not case sensitive</p>
+    <ul>
+       <li>VideoFormat.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage VID_AVI_RGB_ODML_COMMAND() {
+        return msg("VID_AVI_RGB_ODML_COMMAND", "avi2:rgb");
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>AVI 2.0 (OpenDML): YUV</pre>
+    </td></tr></table>
+    <ul>
+       <li>VideoFormat.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage VID_AVI_YUV_ODML_DESCRIPTION() {
+        return msg("VID_AVI_YUV_ODML_DESCRIPTION", "AVI 2.0 (OpenDML): YUV");
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>avi2:yuv</pre>
+    </td></tr></table>
+    <p>1 word (no spaces) user can type on command-line. Not case sensitive</p>
+    <ul>
+       <li>VideoFormat.java</li>
+    </ul>
+    */
+    public static @Nonnull ILocalizedMessage VID_AVI_YUV_ODML_COMMAND() {
+        return msg("VID_AVI_YUV_ODML_COMMAND", "avi2:yuv");
+    }
+
     /**
     <table border="1"><tr><td>
     <pre>{0}-{1}</pre>
@@ -0,0 +1,466 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.indexing;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.Version;
+import jpsxdec.discitems.SerializedDiscItem;
+import jpsxdec.i18n.I;
+import jpsxdec.i18n.exception.LocalizedDeserializationFail;
+import jpsxdec.util.ExposedBAOS;
+import jpsxdec.util.IO;
+
+/** Compact binary version of the text index file. It holds the same
+ * index header, source disc line, and item lines, but the item fields are
+ * already split up, numbers are stored as numbers, and every key, type,
+ * and other text value is only stored once in a string table.
+ * <p>
+ * The whole file is read into memory when opened (it is not memory mapped
+ * so the file isn't left locked), but strings and items are only
+ * decoded when asked for.
+ * <pre>
+ * "jPSXdecIDX" + format version byte
+ * int  string count
+ * int  item count
+ * int[string count + 1]  string offsets (into the string data)
+ * int[item count + 1]    item offsets (into the item data)
+ * string data (UTF-8)
+ * item data
+ * </pre>
+ * String 0 is the index header, and string 1 is the source disc line.
+ * An item is either its fields: field count, then each field's key string,
+ * value kind, and value. Or it is the item line as text, for lines that
+ * can't be split into fields and then joined back exactly the same.
+ * All counts, string numbers and values are variable-length
+ * (7 bits per byte) numbers. */
+class BinaryIndex {
+
+    private static final Logger LOG = Logger.getLogger(BinaryIndex.class.getName());
+
+    private static final byte[] MAGIC = {'j','P','S','X','d','e','c','I','D','X', 1};
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int HEADER_STRING = 0;
+    private static final int SOURCE_CD_STRING = 1;
+
+    private static final int ITEM_FIELDS = 0;
+    private static final int ITEM_LINE = 1;
+
+    private static final int VALUE_STRING = 0;
+    private static final int VALUE_NUMBER = 1;
+    private static final int VALUE_RANGE = 2;
+    private static final int VALUE_FRACTION = 3;
+    private static final int VALUE_DIMENSIONS = 4;
+    /** Character between the 2 numbers of each value kind. */
+    private static final char[] PAIR_SEPARATORS = {0, 0, '-', '/', 'x'};
+
+    // =========================================================================
+    // Writing
+
+    /** Writes a binary index file.
+     * @param itemLines The item serialization strings. */
+    public static void write(@Nonnull File file, @Nonnull String sSourceCdLine,
+                             @Nonnull List<String> itemLines)
+            throws FileNotFoundException, IOException
+    {
+        LinkedHashMap<String, Integer> strings = new LinkedHashMap<String, Integer>();
+        stringIndex(strings, Version.IndexHeader);
+        stringIndex(strings, sSourceCdLine);
+
+        ExposedBAOS itemData = new ExposedBAOS();
+        int[] aiItemOffsets = new int[itemLines.size() + 1];
+        for (int i = 0; i < itemLines.size(); i++) {
+            aiItemOffsets[i] = itemData.size();
+            writeItem(itemLines.get(i), strings, itemData);
+        }
+        aiItemOffsets[itemLines.size()] = itemData.size();
+
+        ArrayList<byte[]> stringBytes = new ArrayList<byte[]>(strings.size());
+        for (String s : strings.keySet()) {
+            stringBytes.add(s.getBytes(UTF8));
+        }
+
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            dos.write(MAGIC);
+            dos.writeInt(stringBytes.size());
+            dos.writeInt(itemLines.size());
+            int iStringOffset = 0;
+            for (byte[] ab : stringBytes) {
+                dos.writeInt(iStringOffset);
+                iStringOffset += ab.length;
+            }
+            dos.writeInt(iStringOffset);
+            for (int iItemOffset : aiItemOffsets) {
+                dos.writeInt(iItemOffset);
+            }
+            for (byte[] ab : stringBytes) {
+                dos.write(ab);
+            }
+            dos.write(itemData.getBuffer(), 0, itemData.size());
+            dos.close(); // expose close exception
+        } finally {
+            IO.closeSilently(dos, LOG);
+        }
+    }
+
+    private static void writeItem(@Nonnull String sItemLine,
+                                  @Nonnull LinkedHashMap<String, Integer> strings,
+                                  @Nonnull ExposedBAOS out)
+    {
+        SerializedDiscItem fields = null;
+        try {
+            fields = new SerializedDiscItem(sItemLine);
+        } catch (LocalizedDeserializationFail ex) {
+            // keep it as text so it fails the same way when loaded
+        }
+        if (fields == null || !sItemLine.equals(fields.serializeInFieldOrder())) {
+            out.write(ITEM_LINE);
+            writeVarLong(out, stringIndex(strings, sItemLine));
+            return;
+        }
+
+        Map<String, String> fieldMap = fields.getFields();
+        out.write(ITEM_FIELDS);
+        writeVarLong(out, fieldMap.size());
+        for (Map.Entry<String, String> field : fieldMap.entrySet()) {
+            writeVarLong(out, stringIndex(strings, field.getKey()));
+            writeValue(out, field.getValue(), strings);
+        }
+    }
+
+    private static void writeValue(@Nonnull ExposedBAOS out, @Nonnull String sValue,
+                                   @Nonnull LinkedHashMap<String, Integer> strings)
+    {
+        if (isNumber(sValue, 0, sValue.length(), true)) {
+            long lng = Long.parseLong(sValue);
+            out.write(VALUE_NUMBER);
+            writeVarLong(out, (lng << 1) ^ (lng >> 63));
+            return;
+        }
+        for (int iKind = VALUE_RANGE; iKind <= VALUE_DIMENSIONS; iKind++) {
+            int iSeparator = sValue.indexOf(PAIR_SEPARATORS[iKind]);
+            if (iSeparator > 0 &&
+                isNumber(sValue, 0, iSeparator, false) &&
+                isNumber(sValue, iSeparator + 1, sValue.length(), false))
+            {
+                out.write(iKind);
+                writeVarLong(out, Long.parseLong(sValue.substring(0, iSeparator)));
+                writeVarLong(out, Long.parseLong(sValue.substring(iSeparator + 1)));
+                return;
+            }
+        }
+        out.write(VALUE_STRING);
+        writeVarLong(out, stringIndex(strings, sValue));
+    }
+
+    /** If the characters are a number exactly as {@link Long#toString(long)}
+     * would write it (so it can be written back the same). Limited to 18
+     * digits so it always fits in a long. */
+    private static boolean isNumber(@Nonnull String s, int iStart, int iEnd, boolean blnAllowNegative) {
+        if (blnAllowNegative && iStart < iEnd && s.charAt(iStart) == '-') {
+            iStart++;
+            // no "-0"
+            if (iStart < iEnd && s.charAt(iStart) == '0')
+                return false;
+        }
+        int iDigits = iEnd - iStart;
+        if (iDigits < 1 || iDigits > 18)
+            return false;
+        // no leading zeros
+        if (iDigits > 1 && s.charAt(iStart) == '0')
+            return false;
+        for (int i = iStart; i < iEnd; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9')
+                return false;
+        }
+        return true;
+    }
+
+    private static int stringIndex(@Nonnull LinkedHashMap<String, Integer> strings, @Nonnull String s) {
+        Integer index = strings.get(s);
+        if (index == null) {
+            index = Integer.valueOf(strings.size());
+            strings.put(s, index);
+        }
+        return index.intValue();
+    }
+
+    private static void writeVarLong(@Nonnull ExposedBAOS out, long lng) {
+        while ((lng & ~0x7fL) != 0) {
+            out.write((int)(lng & 0x7f) | 0x80);
+            lng >>>= 7;
+        }
+        out.write((int)lng);
+    }
+
+    // =========================================================================
+    // Reading
+
+    /** Reads the file into memory if it is a binary index.
+     * @return null if the file is not a binary index. */
+    public static @CheckForNull BinaryIndex open(@Nonnull File file)
+            throws FileNotFoundException, IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            long lngLength = raf.length();
+            if (lngLength < MAGIC.length)
+                return null;
+            byte[] abMagic = new byte[MAGIC.length];
+            raf.readFully(abMagic);
+            if (!Arrays.equals(abMagic, MAGIC))
+                return null;
+            if (lngLength > Integer.MAX_VALUE)
+                throw new IOException("Binary index is too large " + file);
+            byte[] abFile = new byte[(int)lngLength];
+            System.arraycopy(abMagic, 0, abFile, 0, abMagic.length);
+            raf.readFully(abFile, abMagic.length, abFile.length - abMagic.length);
+            return new BinaryIndex(ByteBuffer.wrap(abFile), file);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /** The whole file. Only read with absolute positions, or through
+     * duplicates, so it is never changed. */
+    @Nonnull
+    private final ByteBuffer _buffer;
+    private final int _iStringCount, _iItemCount;
+    private final int _iStringOffsetsStart, _iItemOffsetsStart;
+    private final int _iStringDataStart, _iItemDataStart;
+    /** Strings already decoded. */
+    @Nonnull
+    private final String[] _asStrings;
+
+    /** Checks that the offsets all lie inside the file, but doesn't decode
+     * anything. */
+    private BinaryIndex(@Nonnull ByteBuffer buffer, @Nonnull File file) throws IOException {
+        _buffer = buffer;
+        try {
+            _iStringCount = buffer.getInt(MAGIC.length);
+            _iItemCount = buffer.getInt(MAGIC.length + 4);
+            if (_iStringCount < 2 || _iItemCount < 0)
+                throw new IndexOutOfBoundsException();
+            _iStringOffsetsStart = MAGIC.length + 8;
+            _iItemOffsetsStart = checkedAdd(_iStringOffsetsStart, (_iStringCount + 1L) * 4);
+            _iStringDataStart = checkedAdd(_iItemOffsetsStart, (_iItemCount + 1L) * 4);
+            _iItemDataStart = checkedAdd(_iStringDataStart, checkOffsets(_iStringOffsetsStart, _iStringCount));
+            int iEnd = checkedAdd(_iItemDataStart, checkOffsets(_iItemOffsetsStart, _iItemCount));
+            if (iEnd != buffer.limit())
+                throw new IndexOutOfBoundsException();
+        } catch (IndexOutOfBoundsException ex) {
+            throw new IOException("Binary index is corrupted " + file, ex);
+        }
+        _asStrings = new String[_iStringCount];
+    }
+
+    private int checkedAdd(int iPosition, long lngSize) {
+        long lngEnd = iPosition + lngSize;
+        if (lngEnd > _buffer.limit())
+            throw new IndexOutOfBoundsException();
+        return (int)lngEnd;
+    }
+
+    /** Checks the offsets start at 0 and never decrease.
+     * @return the last offset (the size of the data). */
+    private int checkOffsets(int iTableStart, int iCount) {
+        int iPrevOffset = 0;
+        if (_buffer.getInt(iTableStart) != 0)
+            throw new IndexOutOfBoundsException();
+        for (int i = 1; i <= iCount; i++) {
+            int iOffset = _buffer.getInt(iTableStart + i * 4);
+            if (iOffset < iPrevOffset)
+                throw new IndexOutOfBoundsException();
+            iPrevOffset = iOffset;
+        }
+        return iPrevOffset;
+    }
+
+    public @Nonnull String getHeader() {
+        return getString(HEADER_STRING);
+    }
+
+    public @Nonnull String getSourceCdLine() {
+        return getString(SOURCE_CD_STRING);
+    }
+
+    public int getItemCount() {
+        return _iItemCount;
+    }
+
+    /** Decodes an item. Items kept as text are parsed like in a text index. */
+    public @Nonnull SerializedDiscItem getItem(int iItem) throws LocalizedDeserializationFail {
+        ByteBuffer item = itemData(iItem);
+        String sItemLine;
+        Map<String, String> fields;
+        try {
+            if (readItemKind(item) == ITEM_LINE) {
+                sItemLine = getString(readVarInt(item));
+                fields = null;
+            } else {
+                sItemLine = null;
+                fields = readFields(item);
+            }
+        } catch (RuntimeException ex) {
+            throw corrupted(iItem, ex);
+        }
+        if (sItemLine != null)
+            return new SerializedDiscItem(sItemLine);
+        else
+            return new SerializedDiscItem(fields);
+    }
+
+    /** Recreates the exact line of the item as it would be in a text index. */
+    public @Nonnull String getItemLine(int iItem) throws LocalizedDeserializationFail {
+        ByteBuffer item = itemData(iItem);
+        try {
+            if (readItemKind(item) == ITEM_LINE)
+                return getString(readVarInt(item));
+            else
+                return new SerializedDiscItem(readFields(item)).serializeInFieldOrder();
+        } catch (RuntimeException ex) {
+            throw corrupted(iItem, ex);
+        }
+    }
+
+    private @Nonnull ByteBuffer itemData(int iItem) {
+        if (iItem < 0 || iItem >= _iItemCount)
+            throw new IndexOutOfBoundsException(String.valueOf(iItem));
+        ByteBuffer item = _buffer.duplicate();
+        item.limit(_iItemDataStart + _buffer.getInt(_iItemOffsetsStart + (iItem + 1) * 4));
+        item.position(_iItemDataStart + _buffer.getInt(_iItemOffsetsStart + iItem * 4));
+        return item;
+    }
+
+    private static int readItemKind(@Nonnull ByteBuffer item) {
+        int iKind = item.get();
+        if (iKind != ITEM_FIELDS && iKind != ITEM_LINE)
+            throw new IllegalArgumentException("Unknown item kind " + iKind);
+        return iKind;
+    }
+
+    private @Nonnull LinkedHashMap<String, String> readFields(@Nonnull ByteBuffer item) {
+        int iFieldCount = readVarInt(item);
+        LinkedHashMap<String, String> fields = new LinkedHashMap<String, String>();
+        for (int i = 0; i < iFieldCount; i++) {
+            String sKey = getString(readVarInt(item));
+            fields.put(sKey, readValue(item));
+        }
+        if (item.hasRemaining())
+            throw new IllegalArgumentException("Extra item data");
+        return fields;
+    }
+
+    private @Nonnull String readValue(@Nonnull ByteBuffer item) {
+        int iKind = item.get();
+        switch (iKind) {
+            case VALUE_STRING:
+                return getString(readVarInt(item));
+            case VALUE_NUMBER:
+                long lng = readVarLong(item);
+                return Long.toString((lng >>> 1) ^ -(lng & 1));
+            case VALUE_RANGE:
+            case VALUE_FRACTION:
+            case VALUE_DIMENSIONS:
+                long lngFirst = readVarLong(item);
+                return Long.toString(lngFirst) + PAIR_SEPARATORS[iKind] + Long.toString(readVarLong(item));
+            default:
+                throw new IllegalArgumentException("Unknown value kind " + iKind);
+        }
+    }
+
+    private @Nonnull String getString(int iString) {
+        if (iString < 0 || iString >= _iStringCount)
+            throw new IndexOutOfBoundsException("Bad string number " + iString);
+        String s = _asStrings[iString];
+        if (s == null) {
+            int iStart = _buffer.getInt(_iStringOffsetsStart + iString * 4);
+            int iEnd = _buffer.getInt(_iStringOffsetsStart + (iString + 1) * 4);
+            byte[] ab = new byte[iEnd - iStart];
+            ByteBuffer string = _buffer.duplicate();
+            string.position(_iStringDataStart + iStart);
+            string.get(ab);
+            s = new String(ab, UTF8);
+            _asStrings[iString] = s;
+        }
+        return s;
+    }
+
+    private static int readVarInt(@Nonnull ByteBuffer bb) {
+        long lng = readVarLong(bb);
+        if (lng > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Number too large " + lng);
+        return (int)lng;
+    }
+
+    private static long readVarLong(@Nonnull ByteBuffer bb) {
+        long lng = 0;
+        for (int iShift = 0; iShift < 64; iShift += 7) {
+            int b = bb.get();
+            lng |= (long)(b & 0x7f) << iShift;
+            if ((b & 0x80) == 0)
+                return lng;
+        }
+        throw new IllegalArgumentException("Number too long");
+    }
+
+    private static @Nonnull LocalizedDeserializationFail corrupted(int iItem, @Nonnull RuntimeException ex) {
+        return new LocalizedDeserializationFail(
+                I.SERIALIZATION_FIELD_IMPROPERLY_FORMATTED("#" + iItem), ex);
+    }
+
+}
@@ -69,6 +69,7 @@ import jpsxdec.i18n.exception.LocalizedDeserializationFail;
 import jpsxdec.i18n.log.ILocalizedLogger;
 import jpsxdec.i18n.log.ProgressLogger;
 import jpsxdec.modules.SectorClaimSystem;
+import jpsxdec.modules.SectorIdentityCache;
 import jpsxdec.modules.iso9660.DiscItemISO9660File;
 import jpsxdec.modules.sharedaudio.DiscItemAudioStream;
 import jpsxdec.modules.strvideo.DiscItemStrVideoStream;
@@ -116,6 +117,9 @@ public class DiscIndex implements Iterable<DiscItem> {
     }
 
     private static final String COMMENT_LINE_START = ";";
+
+    /** Index files with this extension are saved in the binary format. */
+    public static final String BINARY_INDEX_EXTENSION = ".idxb";
     
     @Nonnull
     private final CdFileSectorReader _sourceCD;
@@ -128,48 +132,38 @@ public class DiscIndex implements Iterable<DiscItem> {
     private final LinkedHashMap<Object, DiscItem> _lookup = new LinkedHashMap<Object, DiscItem>();
 
     /** Finds all the interesting items on the CD. */
-    public DiscIndex(@Nonnull CdFileSectorReader cdReader, @Nonnull final ProgressLogger pl) 
+    public DiscIndex(@Nonnull CdFileSectorReader cdReader, @Nonnull ProgressLogger pl) 
             throws TaskCanceledException
     {
-        _sourceCD = cdReader;
-        
-        final List<DiscIndexer> indexers = DiscIndexer.createIndexers(pl);
-
-        for (DiscIndexer indexer : indexers) {
-            indexer.indexInit(_iterate, _sourceCD);
-        }
+        this(cdReader, 1, pl);
+    }
 
-        SectorHeaderChecker checker = new SectorHeaderChecker(pl);
+    /** Finds all the interesting items on the CD, possibly indexing
+     * separate portions of the disc at the same time.
+     * The resulting index is the same regardless of the number of threads.
+     * @param iThreads Number of threads to use. 1 indexes the disc
+     *                 start to finish on the calling thread. */
+    public DiscIndex(@Nonnull CdFileSectorReader cdReader, int iThreads,
+                     @Nonnull ProgressLogger pl) 
+            throws TaskCanceledException
+    {
+        _sourceCD = cdReader;
 
         int iEndSector = cdReader.getSectorCount() - 1;
         pl.progressStart(iEndSector);
 
-        @Nonnull
-        SectorClaimSystem sectorIter = SectorClaimSystem.create(cdReader);
-        for (DiscIndexer indexer : indexers) {
-            indexer.attachToSectorClaimer(sectorIter);
-        }
-
         long lngStart, lngEnd;
         lngStart = System.currentTimeMillis();
 
+        List<DiscIndexer> indexers = null;
+        if (iThreads > 1)
+            indexers = ParallelDiscIndexing.index(cdReader, iThreads, _iterate, pl);
+        if (indexers == null)
+            indexers = indexSequentially(pl);
 
-        try {
-            while (sectorIter.hasNext()) {
-                SectorClaimSystem.ClaimedSector cs = sectorIter.next(pl);
-                checker.indexingSectorRead(cs.getSector());
-                int iSector = cs.getSector().getSectorIndexFromStart();
-                pl.progressUpdate(iSector);
-
-                if (pl.isSeekingEvent())
-                    pl.event(I.INDEX_SECTOR_ITEM_PROGRESS(iSector, iEndSector, _iterate.size()));
-            }
-            
-            sectorIter.close(pl);
-        } catch (CdFileSectorReader.CdReadException ex) {
-            pl.log(Level.SEVERE, I.IO_READING_FROM_FILE_ERROR_NAME(ex.getFile().toString()), ex);
-        }
-
+        SectorIdentityCache idCache = SectorIdentityCache.forDisc(cdReader);
+        if (idCache != null)
+            idCache.save();
 
         for (DiscIndexer indexer : indexers) {
             indexer.listPostProcessing(_iterate);
@@ -178,7 +172,7 @@ public class DiscIndex implements Iterable<DiscItem> {
         // sort the numbered index list according to the start sector & hierarchy level
         Collections.sort(_iterate, SORT_BY_SECTOR_HIERARHCY);
 
-        _root = buildTree(_iterate);
+        _root = DiscItemTree.build(_iterate);
 
         // copy the items to the hash
         int iIndex = 0;
@@ -205,37 +199,47 @@ public class DiscIndex implements Iterable<DiscItem> {
     }
 
 
-    private @Nonnull ArrayList<DiscItem> buildTree(@Nonnull Collection<DiscItem> allItems) {
+    private @Nonnull List<DiscIndexer> indexSequentially(@Nonnull ProgressLogger pl)
+            throws TaskCanceledException
+    {
+        List<DiscIndexer> indexers = DiscIndexer.createIndexers(pl);
 
-        ArrayList<DiscItem> rootItems = new ArrayList<DiscItem>();
+        for (DiscIndexer indexer : indexers) {
+            indexer.indexInit(_iterate, _sourceCD);
+        }
 
-        for (DiscItem child : allItems) {
-            DiscItem bestParent = null;
-            int iBestParentRating = 0;
-            for (DiscItem parent : allItems) {
-                int iRating = parent.getParentRating(child);
-                if (iRating > iBestParentRating) {
-                    bestParent = parent;
-                    iBestParentRating = iRating;
-                }
-            }
-            if (bestParent == null)
-                rootItems.add(child);
-            else
-                if (!bestParent.addChild(child))
-                    throw new RuntimeException(bestParent + " should have accepted " + child);
+        SectorHeaderChecker checker = new SectorHeaderChecker(pl);
+
+        int iEndSector = _sourceCD.getSectorCount() - 1;
+
+        @Nonnull
+        SectorClaimSystem sectorIter = SectorClaimSystem.create(_sourceCD);
+        for (DiscIndexer indexer : indexers) {
+            indexer.attachToSectorClaimer(sectorIter);
         }
 
-        IndexId id = new IndexId(0);
-        for (DiscItem item : rootItems) {
-            if (item.setIndexId(id))
-                id = id.createNext();
+        sectorIter.startPipeline();
+        try {
+            while (sectorIter.hasNext()) {
+                SectorClaimSystem.ClaimedSector cs = sectorIter.next(pl);
+                checker.indexingSectorRead(cs.getSector());
+                int iSector = cs.getSector().getSectorIndexFromStart();
+                pl.progressUpdate(iSector);
+
+                if (pl.isSeekingEvent())
+                    pl.event(I.INDEX_SECTOR_ITEM_PROGRESS(iSector, iEndSector, _iterate.size()));
+            }
+            
+            sectorIter.close(pl);
+        } catch (CdFileSectorReader.CdReadException ex) {
+            pl.log(Level.SEVERE, I.IO_READING_FROM_FILE_ERROR_NAME(ex.getFile().toString()), ex);
+        } finally {
+            sectorIter.stopPipeline();
         }
 
-        return rootItems;
+        return indexers;
     }
 
-
     /** The level in the hierarchy is determined by the type of item it is.
      * At the top is files, next is videos, under that audio, then everything else.
      * I don't want to include this prioritization in the disc items because
@@ -314,6 +318,79 @@ public class DiscIndex implements Iterable<DiscItem> {
     {
         File indexFile = new File(sIndexFile);
 
+        BinaryIndex binaryIndex = openBinaryIndex(indexFile);
+        String sSourceCdLine;
+        ArrayList<String> serializedLines = null;
+        if (binaryIndex != null) {
+            sSourceCdLine = binaryIndex.getSourceCdLine();
+        } else {
+            serializedLines = new ArrayList<String>();
+            sSourceCdLine = readTextIndex(indexFile, serializedLines);
+        }
+
+        // ..........................................................
+        // open or compare the serialized CD
+        if (cdReader != null) {
+            // verify that the source file matches
+            if (!cdReader.matchesSerialization(sSourceCdLine)) {
+                errLog.log(Level.WARNING, I.CD_FORMAT_MISMATCH(cdReader.serialize(), sSourceCdLine));
+            }
+            _sourceCD = cdReader;
+        } else {
+            _sourceCD = new CdFileSectorReader(sSourceCdLine, blnAllowWrites);
+        }
+
+        boolean blnExceptionThrown = true;
+        try {
+            List<DiscIndexer> indexers;
+            if (binaryIndex != null)
+                indexers = deserializeItems(binaryIndex, errLog);
+            else
+                indexers = deserializeItems(serializedLines, errLog);
+            _root = recreateTree(_iterate, errLog);
+            itemsDeserialized(indexers);
+
+            // no exception thrown, don't close the CD in finally block
+            blnExceptionThrown = false;
+        } finally {
+            if (blnExceptionThrown) {
+                // something bad happened? close CD reader only if we opened it
+                if (cdReader == null)
+                    IO.closeSilently(_sourceCD, LOG);
+            }
+        }
+    }
+
+    /** Reads the index file into memory if it is in the binary format.
+     * @return null if the file is a text index. */
+    private static @CheckForNull BinaryIndex openBinaryIndex(@Nonnull File indexFile)
+            throws IndexNotFoundException, IndexReadException, LocalizedDeserializationFail
+    {
+        BinaryIndex binaryIndex;
+        try {
+            binaryIndex = BinaryIndex.open(indexFile);
+        } catch (FileNotFoundException ex) {
+            throw new IndexNotFoundException(indexFile, ex);
+        } catch (IOException ex) {
+            throw new IndexReadException(indexFile, ex);
+        }
+        if (binaryIndex != null && !Version.IndexHeader.equals(binaryIndex.getHeader()))
+            throw new LocalizedDeserializationFail(I.INDEX_HEADER_MISSING());
+        return binaryIndex;
+    }
+
+    /** Reads all the lines of a text index, ignoring comments and empty lines.
+     * Only checks that:
+     * <ul>
+     * <li>header is correct
+     * <li>there is 1 and only 1 serialized CD line
+     * </ul>
+     * @param serializedLines Receives the item lines.
+     * @return the serialized CD line. */
+    private static @Nonnull String readTextIndex(@Nonnull File indexFile,
+                                                 @Nonnull List<String> serializedLines)
+            throws IndexNotFoundException, IndexReadException, LocalizedDeserializationFail
+    {
         FileInputStream fis;
         try {
             fis = new FileInputStream(indexFile);
@@ -329,13 +406,7 @@ public class DiscIndex implements Iterable<DiscItem> {
         }
 
         String sSourceCdLine = null;
-        ArrayList<String> serializedLines = new ArrayList<String>();
 
-        // ..........................................................
-        // read all lines first, ignoring commemts and empty lines
-        // Only check that:
-        // * header is correct
-        // * there is 1 and only 1 serialized CD line
         try {
             // make sure the first line matches the current version
             String sLine;
@@ -383,94 +454,153 @@ public class DiscIndex implements Iterable<DiscItem> {
             IO.closeSilently(reader, LOG);
         }
 
-        // ..........................................................
-        // open or compare the serialized CD
-        if (sSourceCdLine == null) {
+        if (sSourceCdLine == null)
             throw new LocalizedDeserializationFail(I.INDEX_NO_CD(CdFileSectorReader.SERIALIZATION_START));
-        } else {
-            if (cdReader != null) {
-                // verify that the source file matches
-                if (!cdReader.matchesSerialization(sSourceCdLine)) {
-                    errLog.log(Level.WARNING, I.CD_FORMAT_MISMATCH(cdReader.serialize(), sSourceCdLine));
-                }
-                _sourceCD = cdReader;
-            } else {
-                _sourceCD = new CdFileSectorReader(sSourceCdLine, blnAllowWrites);
-            }
+        return sSourceCdLine;
+    }
+
+    /** Creates a copy of an existing index whose items read from a
+     * different reader of the same source file. A {@link CdFileSectorReader}
+     * can only be used by one thread at a time, so this lets items be saved
+     * on several threads at once. */
+    public DiscIndex(@Nonnull DiscIndex index, @Nonnull CdFileSectorReader cdReader,
+                     @Nonnull ILocalizedLogger errLog)
+    {
+        _sourceCD = cdReader;
+        _sDiscName = index._sDiscName;
+        ArrayList<String> serializedLines = new ArrayList<String>(index.size());
+        for (DiscItem item : index) {
+            serializedLines.add(item.serialize().serialize());
         }
+        List<DiscIndexer> indexers = deserializeItems(serializedLines, errLog);
+        _root = recreateTree(_iterate, errLog);
+        itemsDeserialized(indexers);
+    }
 
-        boolean blnExceptionThrown = true;
-        try {
-            // setup indexers
-            List<DiscIndexer> indexers = DiscIndexer.createIndexers(errLog);
-            for (DiscIndexer indexer : indexers) {
-                indexer.indexInit(_iterate, _sourceCD);
+    /** Creates the disc items from their serialized lines.
+     * @return the indexers that created the items. */
+    private @Nonnull List<DiscIndexer> deserializeItems(@Nonnull List<String> serializedLines,
+                                                        @Nonnull ILocalizedLogger errLog)
+    {
+        // setup indexers
+        List<DiscIndexer> indexers = DiscIndexer.createIndexers(errLog);
+        for (DiscIndexer indexer : indexers) {
+            indexer.indexInit(_iterate, _sourceCD);
+        }
+
+        // ..........................................................
+        // now create the disc items
+        for (String sItemLine : serializedLines) {
+
+            SerializedDiscItem deserializedLine;
+            // malformed line?
+            try {
+                deserializedLine = new SerializedDiscItem(sItemLine);
+            } catch (LocalizedDeserializationFail ex) {
+                errLog.log(Level.WARNING, I.INDEX_PARSE_LINE_FAIL(sItemLine, ex.getSourceMessage()), ex);
+                continue;
             }
 
-            // ..........................................................
-            // now create the disc items
-            for (String sItemLine : serializedLines) {
+            deserializeItem(deserializedLine, sItemLine, indexers, errLog);
+        }
+
+        return indexers;
+    }
 
-                SerializedDiscItem deserializedLine;
-                // malformed line?
+    /** Creates the disc items from a binary index.
+     * The item fields are already split up so there is no text to parse.
+     * @return the indexers that created the items. */
+    private @Nonnull List<DiscIndexer> deserializeItems(@Nonnull BinaryIndex binaryIndex,
+                                                        @Nonnull ILocalizedLogger errLog)
+    {
+        // setup indexers
+        List<DiscIndexer> indexers = DiscIndexer.createIndexers(errLog);
+        for (DiscIndexer indexer : indexers) {
+            indexer.indexInit(_iterate, _sourceCD);
+        }
+
+        // ..........................................................
+        // now create the disc items
+        for (int i = 0; i < binaryIndex.getItemCount(); i++) {
+
+            SerializedDiscItem deserializedLine;
+            // malformed item?
+            try {
+                deserializedLine = binaryIndex.getItem(i);
+            } catch (LocalizedDeserializationFail ex) {
+                String sItemLine;
                 try {
-                    deserializedLine = new SerializedDiscItem(sItemLine);
-                } catch (LocalizedDeserializationFail ex) {
-                    errLog.log(Level.WARNING, I.INDEX_PARSE_LINE_FAIL(sItemLine, ex.getSourceMessage()), ex);
-                    continue;
+                    sItemLine = binaryIndex.getItemLine(i);
+                } catch (LocalizedDeserializationFail ex2) {
+                    sItemLine = "#" + i;
                 }
+                errLog.log(Level.WARNING, I.INDEX_PARSE_LINE_FAIL(sItemLine, ex.getSourceMessage()), ex);
+                continue;
+            }
 
-                // try to find an indexer that recognises the line
-                boolean blnLineHandled = false;
-                for (DiscIndexer indexer : indexers) {
-                    try {
-                        DiscItem item = indexer.deserializeLineRead(deserializedLine);
-                        if (item != null) {
-                            blnLineHandled = true;
+            deserializeItem(deserializedLine, null, indexers, errLog);
+        }
 
-                            if (item.notEntirelyInCd()) {
-                                errLog.log(Level.SEVERE, I.NOT_CONTAINED_IN_DISC(item.getIndexId().toString()));
-                            }
+        return indexers;
+    }
 
-                            _iterate.add(item);
-                        }
-                    } catch (LocalizedDeserializationFail ex) {
-                        errLog.log(Level.WARNING, I.INDEX_PARSE_LINE_FAIL(sItemLine, ex.getSourceMessage()), ex);
-                        blnLineHandled = true;
+    /** Finds an indexer that recognises the item and adds the item it creates.
+     * @param sItemLine The original line, or null to use the serialization
+     *                  of the item in any messages (only built if there
+     *                  is a message). */
+    private void deserializeItem(@Nonnull SerializedDiscItem deserializedLine,
+                                 @CheckForNull String sItemLine,
+                                 @Nonnull List<DiscIndexer> indexers,
+                                 @Nonnull ILocalizedLogger errLog)
+    {
+        // try to find an indexer that recognises the line
+        boolean blnLineHandled = false;
+        for (DiscIndexer indexer : indexers) {
+            try {
+                DiscItem item = indexer.deserializeLineRead(deserializedLine);
+                if (item != null) {
+                    blnLineHandled = true;
+
+                    if (item.notEntirelyInCd()) {
+                        errLog.log(Level.SEVERE, I.NOT_CONTAINED_IN_DISC(item.getIndexId().toString()));
                     }
+
+                    _iterate.add(item);
                 }
-                if (!blnLineHandled)
-                    errLog.log(Level.WARNING, I.INDEX_UNHANDLED_LINE(sItemLine));
+            } catch (LocalizedDeserializationFail ex) {
+                errLog.log(Level.WARNING, I.INDEX_PARSE_LINE_FAIL(
+                        itemLine(sItemLine, deserializedLine), ex.getSourceMessage()), ex);
+                blnLineHandled = true;
             }
+        }
+        if (!blnLineHandled)
+            errLog.log(Level.WARNING, I.INDEX_UNHANDLED_LINE(itemLine(sItemLine, deserializedLine)));
+    }
 
-            _root = recreateTree(_iterate, errLog);
-
-            // ..........................................................
-            // copy the items to this class
-            for (DiscItem item : _iterate) {
-                addLookupItem(item);
-            }
+    private static @Nonnull String itemLine(@CheckForNull String sItemLine,
+                                            @Nonnull SerializedDiscItem deserializedLine)
+    {
+        return sItemLine != null ? sItemLine : deserializedLine.serializeInFieldOrder();
+    }
 
-            // ..........................................................
-            // notify the indexers that the list has been generated
-            for (DiscIndexer indexer : indexers) {
-                indexer.indexGenerated(this);
-            }
+    /** Finishes up after the items and their tree have been created. */
+    private void itemsDeserialized(@Nonnull List<DiscIndexer> indexers) {
+        // ..........................................................
+        // copy the items to this class
+        for (DiscItem item : _iterate) {
+            addLookupItem(item);
+        }
 
-            // ..........................................................
-            // debug print the list contents
-            if (LOG.isLoggable(Level.FINE)) {
-                for (DiscItem item : this) LOG.fine(item.toString());
-            }
+        // ..........................................................
+        // notify the indexers that the list has been generated
+        for (DiscIndexer indexer : indexers) {
+            indexer.indexGenerated(this);
+        }
 
-            // no exception thrown, don't close the CD in finally block
-            blnExceptionThrown = false;
-        } finally {
-            if (blnExceptionThrown) {
-                // something bad happened? close CD reader only if we opened it
-                if (cdReader == null)
-                    IO.closeSilently(_sourceCD, LOG);
-            }
+        // ..........................................................
+        // debug print the list contents
+        if (LOG.isLoggable(Level.FINE)) {
+            for (DiscItem item : this) LOG.fine(item.toString());
         }
     }
 
@@ -510,10 +640,57 @@ public class DiscIndex implements Iterable<DiscItem> {
     }
 
 
-    /** Serializes the list of disc items to a file. */
+    /** Serializes the list of disc items to a file.
+     * If the file name ends with {@link #BINARY_INDEX_EXTENSION} the index
+     * is saved in the compact binary format, otherwise as text. */
     public void serializeIndex(@Nonnull File file)
-            throws FileNotFoundException
+            throws FileNotFoundException, IOException
     {
+        ArrayList<String> itemLines = new ArrayList<String>(size());
+        for (DiscItem item : this) {
+            itemLines.add(item.serialize().serialize());
+        }
+        // TODO: Serialize the CD file location relative to where this index file is being saved
+        writeIndex(file, _sourceCD.serialize(), itemLines);
+    }
+
+    /** Converts an index file between the text and binary formats.
+     * The format of the source is detected, and the format of the
+     * destination is chosen by its file name like
+     * {@link #serializeIndex(java.io.File)}. The disc is not opened and the
+     * items are copied as they are, without being checked. */
+    public static void convertIndex(@Nonnull File sourceIndex, @Nonnull File destIndex)
+            throws IndexNotFoundException, IndexReadException,
+                   LocalizedDeserializationFail, FileNotFoundException, IOException
+    {
+        String sSourceCdLine;
+        ArrayList<String> itemLines = new ArrayList<String>();
+        BinaryIndex binaryIndex = openBinaryIndex(sourceIndex);
+        if (binaryIndex != null) {
+            sSourceCdLine = binaryIndex.getSourceCdLine();
+            for (int i = 0; i < binaryIndex.getItemCount(); i++) {
+                itemLines.add(binaryIndex.getItemLine(i));
+            }
+        } else {
+            sSourceCdLine = readTextIndex(sourceIndex, itemLines);
+        }
+        writeIndex(destIndex, sSourceCdLine, itemLines);
+    }
+
+    /** @return if the file name says it should hold a binary index. */
+    public static boolean isBinaryIndexName(@Nonnull File file) {
+        return file.getName().toLowerCase().endsWith(BINARY_INDEX_EXTENSION);
+    }
+
+    private static void writeIndex(@Nonnull File file, @Nonnull String sSourceCdLine,
+                                   @Nonnull List<String> itemLines)
+            throws FileNotFoundException, IOException
+    {
+        if (isBinaryIndexName(file)) {
+            BinaryIndex.write(file, sSourceCdLine, itemLines);
+            return;
+        }
+
         PrintStream ps;
         try {
             ps = new PrintStream(file, "UTF-8");
@@ -521,22 +698,16 @@ public class DiscIndex implements Iterable<DiscItem> {
             throw new RuntimeException("Every implementation of the Java platform is required to support UTF-8", ex);
         }
         try {
-            serializeIndex(ps);
+            ps.println(Version.IndexHeader);
+            ps.println(I.INDEX_COMMENT(COMMENT_LINE_START));
+            ps.println(sSourceCdLine);
+            for (String sItemLine : itemLines) {
+                ps.println(sItemLine);
+            }
         } finally {
             ps.close();
         }
     }
-    
-    /** Serializes the list of disc items to a stream. */
-    private void serializeIndex(@Nonnull PrintStream ps) {
-        ps.println(Version.IndexHeader);
-        ps.println(I.INDEX_COMMENT(COMMENT_LINE_START));
-        // TODO: Serialize the CD file location relative to where this index file is being saved
-        ps.println(_sourceCD.serialize());
-        for (DiscItem item : this) {
-            ps.println(item.serialize().serialize());
-        }
-    }
 
     public void setDiscName(@Nonnull String sName) {
         _sDiscName = sName;
@@ -577,16 +748,36 @@ public class DiscIndex implements Iterable<DiscItem> {
     }
 
     /** Partial indexer to monitor sector headers and warn if anything fishy is detected. */
-    private static class SectorHeaderChecker {
+    static class SectorHeaderChecker {
 
         @Nonnull
         private final ILocalizedLogger _log;
         private int _iCurrentHeaderSectorNumber = -1;
         private int _iMode1Count = 0;
         private int _iMode2Count = 0;
+        /** When only checking a portion of the disc, the Mode 1 check depends
+         * on the sectors before the portion, so it is done later. */
+        private final boolean _blnDeferMode1Check;
+        /** Deferred Mode 1 checks: {sector, Mode 1 count, Mode 2 count}. */
+        private final ArrayList<int[]> _deferredMode1 = new ArrayList<int[]>();
+
+        public SectorHeaderChecker(@Nonnull ILocalizedLogger log) {
+            this(log, false);
+        }
+
+        public SectorHeaderChecker(@Nonnull ILocalizedLogger log, boolean blnDeferMode1Check) {
+            _log = log;
+            _blnDeferMode1Check = blnDeferMode1Check;
+        }
 
-        public SectorHeaderChecker(@Nonnull ProgressLogger pl) {
-            _log = pl;
+        /** When starting in the middle of the disc, the sector before the
+         * start is needed to check that the header numbers are continuous. */
+        public void primeHeader(@Nonnull CdSector previousSector) {
+            CdSectorHeader h = previousSector.getHeader();
+            if (h != null)
+                _iCurrentHeaderSectorNumber = h.calculateSectorNumber();
+            else
+                _iCurrentHeaderSectorNumber = -1;
         }
 
         public void indexingSectorRead(@Nonnull CdSector cdSector) {
@@ -613,10 +804,10 @@ public class DiscIndex implements Iterable<DiscItem> {
 
             switch (cdSector.getType()) {
                 case MODE1:
-                    if (_iMode1Count < _iMode2Count) {
-                        _log.log(Level.WARNING, I.INDEX_SECTOR_CORRUPTED_AT(cdSector.getSectorIndexFromStart()));
-                        LOG.log(Level.WARNING, "Sector {0} is Mode 1 found among Mode 2 sectors", new Object[]{cdSector.getSectorIndexFromStart()});
-                    }
+                    if (_blnDeferMode1Check)
+                        _deferredMode1.add(new int[] {cdSector.getSectorIndexFromStart(), _iMode1Count, _iMode2Count});
+                    else if (_iMode1Count < _iMode2Count)
+                        warnMode1(_log, cdSector.getSectorIndexFromStart());
                     _iMode1Count++;
                     break;
                 case UNKNOWN2048:
@@ -630,5 +821,23 @@ public class DiscIndex implements Iterable<DiscItem> {
 
         }
 
+        /** Performs the deferred Mode 1 checks now that the number of
+         * Mode 1 and Mode 2 sectors before this portion of the disc are known.
+         * @param aiModeCounts {Mode 1 count, Mode 2 count} of the sectors
+         *                     before this portion. Updated to include this portion. */
+        public void finishDeferred(@Nonnull int[] aiModeCounts, @Nonnull ILocalizedLogger log) {
+            for (int[] aiMode1 : _deferredMode1) {
+                if (aiModeCounts[0] + aiMode1[1] < aiModeCounts[1] + aiMode1[2])
+                    warnMode1(log, aiMode1[0]);
+            }
+            aiModeCounts[0] += _iMode1Count;
+            aiModeCounts[1] += _iMode2Count;
+        }
+
+        private static void warnMode1(@Nonnull ILocalizedLogger log, int iSector) {
+            log.log(Level.WARNING, I.INDEX_SECTOR_CORRUPTED_AT(iSector));
+            LOG.log(Level.WARNING, "Sector {0} is Mode 1 found among Mode 2 sectors", new Object[]{iSector});
+        }
+
     }
 }
@@ -41,6 +41,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
@@ -125,6 +126,37 @@ public abstract class DiscIndexer {
 
     abstract public void listPostProcessing(@Nonnull Collection<DiscItem> allItems);
 
+    /** Parallel indexing: this indexer will only be fed the sectors
+     * {@code iStartSector} to {@code iEndSectorInclusive}, plus some
+     * sectors beyond that. Indexers that need to see the whole disc before
+     * they can create items should wait until
+     * {@link #mergeRanges(java.util.List, java.util.Set)}. */
+    public void indexingRange(@Nonnull SectorClaimSystem scs,
+                              int iStartSector, int iEndSectorInclusive)
+    {
+    }
+
+    /** Parallel indexing: after all the ranges of the disc have been indexed,
+     * the indexer of the first range is handed the indexers of the same type
+     * of every range (including itself) in sector order, along with the items
+     * that were kept. Any items added at this point go into the merged list. */
+    public void mergeRanges(@Nonnull List<? extends DiscIndexer> rangeIndexers,
+                            @Nonnull Set<DiscItem> keptItems)
+    {
+    }
+
+    /** Helper for {@link #mergeRanges(java.util.List, java.util.Set)} to
+     * collect the items an indexer tracked in one range that were kept. */
+    protected static <T extends DiscItem> void addKeptItems(@Nonnull Collection<T> rangeItems,
+                                                           @Nonnull Set<DiscItem> keptItems,
+                                                           @Nonnull Collection<T> merged)
+    {
+        for (T item : rangeItems) {
+            if (keptItems.contains(item))
+                merged.add(item);
+        }
+    }
+
     /** Called after the entire indexing process is complete. The DiscIndex
      * will not be changing any further, but indexers can tweak individual items
      * as necessary. */
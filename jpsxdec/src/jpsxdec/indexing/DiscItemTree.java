@@ -0,0 +1,172 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.indexing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import javax.annotation.Nonnull;
+import jpsxdec.discitems.DiscItem;
+import jpsxdec.discitems.IndexId;
+
+/** Builds the hierarchy of {@link DiscItem}s found by indexing a disc.
+ * Each item is added as a child of the item that gives it the best
+ * {@link DiscItem#getParentRating(DiscItem)}. */
+class DiscItemTree {
+
+    /** Finds the best parent of every item, and gives the root items their
+     * {@link IndexId}s (which also assigns them to their children).
+     * Only items that share sectors can be parent and child, so each item
+     * only needs to be compared to the items that overlap it.
+     * @return The root items. */
+    public static @Nonnull ArrayList<DiscItem> build(@Nonnull Collection<DiscItem> allItems) {
+
+        ArrayList<DiscItem> rootItems = new ArrayList<DiscItem>();
+
+        DiscItem[] aoItems = allItems.toArray(new DiscItem[allItems.size()]);
+        ItemsBySector itemsBySector = new ItemsBySector(aoItems);
+        int[] aiOverlapping = new int[aoItems.length];
+
+        for (DiscItem child : aoItems) {
+            // checked in the original order so ties go to the same parent
+            int iOverlappingCount = itemsBySector.findOverlapping(
+                    child.getStartSector(), child.getEndSector(), aiOverlapping);
+            Arrays.sort(aiOverlapping, 0, iOverlappingCount);
+
+            DiscItem bestParent = null;
+            int iBestParentRating = 0;
+            for (int i = 0; i < iOverlappingCount; i++) {
+                DiscItem parent = aoItems[aiOverlapping[i]];
+                int iRating = parent.getParentRating(child);
+                if (iRating > iBestParentRating) {
+                    bestParent = parent;
+                    iBestParentRating = iRating;
+                }
+            }
+            if (bestParent == null)
+                rootItems.add(child);
+            else
+                if (!bestParent.addChild(child))
+                    throw new RuntimeException(bestParent + " should have accepted " + child);
+        }
+
+        IndexId id = new IndexId(0);
+        for (DiscItem item : rootItems) {
+            if (item.setIndexId(id))
+                id = id.createNext();
+        }
+
+        return rootItems;
+    }
+
+    /** Finds which items overlap a range of sectors.
+     * The items are sorted by start sector, and treated as a balanced binary
+     * tree (the middle item of any range is the root of that range) where
+     * each node also holds the largest end sector in its subtree. */
+    private static class ItemsBySector {
+        /** Index of the item in the original array, sorted by start sector. */
+        @Nonnull
+        private final int[] _aiItemIndexes;
+        @Nonnull
+        private final int[] _aiStartSectors;
+        @Nonnull
+        private final int[] _aiEndSectors;
+        /** Largest end sector of the subtree rooted at each position. */
+        @Nonnull
+        private final int[] _aiMaxEndSectors;
+
+        public ItemsBySector(@Nonnull DiscItem[] aoItems) {
+            // sort start sector and item index packed together
+            long[] alngSorted = new long[aoItems.length];
+            for (int i = 0; i < aoItems.length; i++) {
+                alngSorted[i] = ((long)aoItems[i].getStartSector() << 32) | i;
+            }
+            Arrays.sort(alngSorted);
+
+            _aiItemIndexes = new int[aoItems.length];
+            _aiStartSectors = new int[aoItems.length];
+            _aiEndSectors = new int[aoItems.length];
+            for (int i = 0; i < alngSorted.length; i++) {
+                int iItem = (int)alngSorted[i];
+                _aiItemIndexes[i] = iItem;
+                _aiStartSectors[i] = aoItems[iItem].getStartSector();
+                _aiEndSectors[i] = aoItems[iItem].getEndSector();
+            }
+            _aiMaxEndSectors = new int[aoItems.length];
+            calcMaxEnd(0, aoItems.length);
+        }
+
+        private int calcMaxEnd(int iLow, int iHigh) {
+            if (iLow >= iHigh)
+                return -1;
+            int iMid = (iLow + iHigh) >>> 1;
+            int iMaxEnd = Math.max(_aiEndSectors[iMid],
+                                   Math.max(calcMaxEnd(iLow, iMid), calcMaxEnd(iMid + 1, iHigh)));
+            _aiMaxEndSectors[iMid] = iMaxEnd;
+            return iMaxEnd;
+        }
+
+        /** Puts the original indexes of all the items that share any
+         * sectors with the range into the array (in no particular order).
+         * @return number of items found. */
+        public int findOverlapping(int iStartSector, int iEndSector, @Nonnull int[] aiFound) {
+            return findOverlapping(0, _aiItemIndexes.length, iStartSector, iEndSector, aiFound, 0);
+        }
+
+        private int findOverlapping(int iLow, int iHigh, int iStartSector, int iEndSector,
+                                    @Nonnull int[] aiFound, int iFoundCount)
+        {
+            if (iLow >= iHigh)
+                return iFoundCount;
+            int iMid = (iLow + iHigh) >>> 1;
+            // nothing in this subtree reaches the range
+            if (_aiMaxEndSectors[iMid] < iStartSector)
+                return iFoundCount;
+            iFoundCount = findOverlapping(iLow, iMid, iStartSector, iEndSector, aiFound, iFoundCount);
+            // this and everything after starts after the range
+            if (_aiStartSectors[iMid] > iEndSector)
+                return iFoundCount;
+            if (_aiEndSectors[iMid] >= iStartSector) {
+                aiFound[iFoundCount] = _aiItemIndexes[iMid];
+                iFoundCount++;
+            }
+            return findOverlapping(iMid + 1, iHigh, iStartSector, iEndSector, aiFound, iFoundCount);
+        }
+    }
+
+}
@@ -0,0 +1,529 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.indexing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.discitems.DiscItem;
+import jpsxdec.i18n.I;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.i18n.log.ILocalizedLogger;
+import jpsxdec.i18n.log.ProgressLogger;
+import jpsxdec.modules.SectorClaimSystem;
+import jpsxdec.util.DaemonThreadFactory;
+import jpsxdec.util.IO;
+import jpsxdec.util.TaskCanceledException;
+
+/** Indexes separate portions of a disc at the same time, then stitches the
+ * results together so they are the same as indexing the disc from start
+ * to finish.
+ * <p>
+ * Each portion is indexed with its own {@link CdFileSectorReader},
+ * {@link SectorClaimSystem} and set of {@link DiscIndexer}s, and reads some
+ * sectors past the end of its portion. Items from one portion are used up to
+ * a "cut" sector where nothing is happening in either the portion or the next
+ * one (no item spans the cut) and both agree on what comes after it.
+ * If no such sector can be found, the portion is re-indexed reading further
+ * ahead, until in the worst case it reads to the end of the disc.
+ * <p>
+ * If anything goes wrong, nothing is added and the caller should just index
+ * the disc the normal way. */
+class ParallelDiscIndexing {
+
+    private static final Logger LOG = Logger.getLogger(ParallelDiscIndexing.class.getName());
+
+    /** Not worth splitting a disc into portions smaller than this. */
+    private static final int MIN_SECTORS_PER_RANGE = 16384;
+    /** How far past the end of its portion an indexer reads the first time. */
+    private static final int INITIAL_OVERLAP_SECTORS = 2048;
+    /** Items that end this close to where an indexer stopped reading may have
+     * been cut short, or changed by sector claimers peeking ahead. */
+    private static final int TRUST_MARGIN_SECTORS = 512;
+    /** How often progress is reported while waiting for the portions. */
+    private static final long PROGRESS_INTERVAL_MILLIS = 250;
+
+    /** Indexes the disc using multiple threads, adding the items found to
+     * {@code items}.
+     * @return The indexers that should finish the indexing process, or null if
+     *         the disc was not indexed (too small, or an error occurred),
+     *         in which case {@code items} was not changed. */
+    public static @CheckForNull List<DiscIndexer> index(@Nonnull CdFileSectorReader cd,
+                                                        int iThreads,
+                                                        @Nonnull Collection<DiscItem> items,
+                                                        @Nonnull ProgressLogger pl)
+            throws TaskCanceledException
+    {
+        int iRangeCount = Math.min(iThreads, cd.getSectorCount() / MIN_SECTORS_PER_RANGE);
+        if (iRangeCount < 2)
+            return null;
+
+        ParallelDiscIndexing indexing = new ParallelDiscIndexing(cd, iRangeCount, pl);
+        ExecutorService executor = Executors.newFixedThreadPool(iRangeCount,
+                new DaemonThreadFactory(ParallelDiscIndexing.class.getSimpleName()));
+        try {
+            return indexing.index(executor, items);
+        } finally {
+            indexing._canceled.set(true);
+            executor.shutdownNow();
+        }
+    }
+
+    // =========================================================================
+
+    /** Holds log messages of one portion until they can be logged in order.
+     * Messages are tagged with the sector being read at the time so messages
+     * about sectors outside of the portion can be dropped. */
+    private static class BufferedLog implements ILocalizedLogger {
+
+        private static class Entry {
+            public final int iSector;
+            @Nonnull
+            public final Level level;
+            @Nonnull
+            public final ILocalizedMessage msg;
+            @CheckForNull
+            public final Throwable debugException;
+
+            public Entry(int iSector, @Nonnull Level level, @Nonnull ILocalizedMessage msg,
+                         @CheckForNull Throwable debugException)
+            {
+                this.iSector = iSector;
+                this.level = level;
+                this.msg = msg;
+                this.debugException = debugException;
+            }
+        }
+
+        private final ArrayList<Entry> _entries = new ArrayList<Entry>();
+        private int _iCurrentSector;
+        /** Once set, messages are no longer held. */
+        @CheckForNull
+        private ILocalizedLogger _forwardTo;
+
+        public void setCurrentSector(int iSector) {
+            _iCurrentSector = iSector;
+        }
+
+        public void log(@Nonnull Level level, @Nonnull ILocalizedMessage msg) {
+            log(level, msg, null);
+        }
+
+        public void log(@Nonnull Level level, @Nonnull ILocalizedMessage msg,
+                        @CheckForNull Throwable debugException)
+        {
+            if (_forwardTo != null)
+                _forwardTo.log(level, msg, debugException);
+            else
+                _entries.add(new Entry(_iCurrentSector, level, msg, debugException));
+        }
+
+        /** Adds the held messages logged between the sectors to the list. */
+        public void collect(int iStartSector, int iEndSectorExclusive,
+                            @Nonnull List<Entry> entries)
+        {
+            for (Entry entry : _entries) {
+                if (entry.iSector >= iStartSector && entry.iSector < iEndSectorExclusive)
+                    entries.add(entry);
+            }
+        }
+
+        /** Logs the messages in sector order. Messages of the same sector
+         * keep the order they are in the list. */
+        public static void replay(@Nonnull ILocalizedLogger log, @Nonnull List<Entry> entries) {
+            // Collections.sort() is stable
+            Collections.sort(entries, new Comparator<Entry>() {
+                public int compare(Entry o1, Entry o2) {
+                    return o1.iSector < o2.iSector ? -1 : (o1.iSector == o2.iSector ? 0 : 1);
+                }
+            });
+            for (Entry entry : entries) {
+                log.log(entry.level, entry.msg, entry.debugException);
+            }
+        }
+
+        public void forwardTo(@Nonnull ILocalizedLogger log) {
+            _forwardTo = log;
+        }
+    }
+
+    // =========================================================================
+
+    /** One portion of the disc, and the results of the last time it was indexed. */
+    private class Range implements Callable<Void> {
+        /** First sector of the portion. */
+        public final int _iStartSector;
+        /** Last sector of the portion. */
+        public final int _iEndSector;
+        /** Last sector that is read, at or after {@link #_iEndSector}. */
+        public int _iReadEndSector;
+
+        // results of the last run
+        public ArrayList<DiscItem> _items;
+        public List<DiscIndexer> _indexers;
+        /** Messages from the indexers. */
+        public BufferedLog _log;
+        /** Messages from the {@link #_checker}, kept separate because
+         * the sectors it checks don't line up with the items that are used. */
+        public BufferedLog _checkerLog;
+        public DiscIndex.SectorHeaderChecker _checker;
+
+        // for progress reporting
+        public volatile int _iSectorsDone;
+        public volatile int _iItemCount;
+
+        public Range(int iStartSector, int iEndSector) {
+            _iStartSector = iStartSector;
+            _iEndSector = iEndSector;
+            _iReadEndSector = Math.min(iEndSector + INITIAL_OVERLAP_SECTORS, _iLastSector);
+        }
+
+        /** Items that end after this sector may not be the same as
+         * if the disc was indexed from start to finish. */
+        public int trustedEndSector() {
+            if (_iReadEndSector == _iLastSector)
+                return _iLastSector;
+            else
+                return _iReadEndSector - TRUST_MARGIN_SECTORS;
+        }
+
+        /** Read twice as far past the end of the portion next time. */
+        public void extendReadEnd() {
+            int iOverlap = _iReadEndSector - _iEndSector;
+            _iReadEndSector = (int)Math.min((long)_iEndSector + iOverlap * 2L, _iLastSector);
+        }
+
+        public Void call() throws Exception {
+            _items = new ArrayList<DiscItem>();
+            _log = new BufferedLog();
+            _indexers = DiscIndexer.createIndexers(_log);
+            _checkerLog = new BufferedLog();
+            _checker = new DiscIndex.SectorHeaderChecker(_checkerLog, true);
+            _iSectorsDone = 0;
+            _iItemCount = 0;
+
+            CdFileSectorReader cd = new CdFileSectorReader(_cd.serialize(), false);
+            try {
+                for (DiscIndexer indexer : _indexers) {
+                    // items should refer to the original disc, not this copy
+                    indexer.indexInit(_items, _cd);
+                }
+
+                SectorClaimSystem scs = SectorClaimSystem.create(cd, _iStartSector, _iReadEndSector);
+                for (DiscIndexer indexer : _indexers) {
+                    indexer.attachToSectorClaimer(scs);
+                    indexer.indexingRange(scs, _iStartSector, _iEndSector);
+                }
+
+                if (_iStartSector > 0)
+                    _checker.primeHeader(cd.getSector(_iStartSector - 1));
+
+                _log.setCurrentSector(_iStartSector);
+                while (scs.hasNext()) {
+                    if (_canceled.get())
+                        return null;
+                    SectorClaimSystem.ClaimedSector cs = scs.next(_log);
+                    int iSector = cs.getSector().getSectorIndexFromStart();
+                    if (iSector <= _iEndSector) {
+                        _checkerLog.setCurrentSector(iSector);
+                        _checker.indexingSectorRead(cs.getSector());
+                        _iSectorsDone = iSector - _iStartSector + 1;
+                    }
+                    _iItemCount = _items.size();
+                    _log.setCurrentSector(iSector + 1);
+                }
+                _log.setCurrentSector(_iReadEndSector);
+                scs.close(_log);
+                _iItemCount = _items.size();
+            } finally {
+                IO.closeSilently(cd, LOG);
+            }
+            return null;
+        }
+
+        /** If any item of this range starts before and ends on or after the sector. */
+        public boolean isAnythingSpanning(int iSector) {
+            for (DiscItem item : _items) {
+                if (item.getStartSector() < iSector && item.getEndSector() >= iSector)
+                    return true;
+            }
+            return false;
+        }
+
+        /** Serializations of the items that start and end between the sectors. */
+        public @Nonnull List<String> itemsBetween(int iStartSector, int iEndSectorInclusive) {
+            ArrayList<String> serialized = new ArrayList<String>();
+            for (DiscItem item : _items) {
+                if (item.getStartSector() >= iStartSector && item.getEndSector() <= iEndSectorInclusive)
+                    serialized.add(item.serialize().serialize());
+            }
+            Collections.sort(serialized);
+            return serialized;
+        }
+    }
+
+    /** Use the items of a {@link Range} that start within the sectors. */
+    private static class Segment {
+        @Nonnull
+        public final Range range;
+        public final int iStartSector;
+        public final int iEndSectorExclusive;
+
+        public Segment(@Nonnull Range range, int iStartSector, int iEndSectorExclusive) {
+            this.range = range;
+            this.iStartSector = iStartSector;
+            this.iEndSectorExclusive = iEndSectorExclusive;
+        }
+    }
+
+    // =========================================================================
+
+    @Nonnull
+    private final CdFileSectorReader _cd;
+    private final int _iLastSector;
+    @Nonnull
+    private final ProgressLogger _pl;
+    private final ArrayList<Range> _ranges = new ArrayList<Range>();
+    private final ArrayList<Segment> _segments = new ArrayList<Segment>();
+    private final AtomicBoolean _canceled = new AtomicBoolean(false);
+    private int _iLastProgress = 0;
+
+    private ParallelDiscIndexing(@Nonnull CdFileSectorReader cd, int iRangeCount,
+                                 @Nonnull ProgressLogger pl)
+    {
+        _cd = cd;
+        _iLastSector = cd.getSectorCount() - 1;
+        _pl = pl;
+        int iSectorCount = cd.getSectorCount();
+        for (int i = 0; i < iRangeCount; i++) {
+            int iStart = (int)((long)iSectorCount * i / iRangeCount);
+            int iEnd = (int)((long)iSectorCount * (i+1) / iRangeCount) - 1;
+            _ranges.add(new Range(iStart, iEnd));
+        }
+    }
+
+    private @CheckForNull List<DiscIndexer> index(@Nonnull ExecutorService executor,
+                                                  @Nonnull Collection<DiscItem> items)
+            throws TaskCanceledException
+    {
+        List<Range> toIndex = _ranges;
+        while (!toIndex.isEmpty()) {
+            if (!indexRanges(executor, toIndex))
+                return null;
+            toIndex = chooseCuts();
+            if (!toIndex.isEmpty())
+                LOG.log(Level.INFO, "Re-indexing {0} portions of the disc", toIndex.size());
+        }
+
+        // log the messages in the same order as indexing from start to finish:
+        // indexer messages from the range whose items are used for each segment,
+        // followed by the header messages of the range that checked the sector
+        int[] aiModeCounts = {0, 0};
+        for (int i = 0; i < _ranges.size(); i++) {
+            Range range = _ranges.get(i);
+            int iRangeEndExclusive = i == _ranges.size() - 1 ? Integer.MAX_VALUE
+                                                             : range._iEndSector + 1;
+            ArrayList<BufferedLog.Entry> entries = new ArrayList<BufferedLog.Entry>();
+            for (Segment segment : _segments) {
+                segment.range._log.collect(Math.max(segment.iStartSector, range._iStartSector),
+                                           Math.min(segment.iEndSectorExclusive, iRangeEndExclusive),
+                                           entries);
+            }
+            range._checkerLog.collect(range._iStartSector, iRangeEndExclusive, entries);
+            BufferedLog.replay(_pl, entries);
+            range._checker.finishDeferred(aiModeCounts, _pl);
+        }
+
+        Set<DiscItem> keptItems = Collections.newSetFromMap(new IdentityHashMap<DiscItem, Boolean>());
+        for (Segment segment : _segments) {
+            for (DiscItem item : segment.range._items) {
+                if (item.getStartSector() >= segment.iStartSector &&
+                    item.getStartSector() < segment.iEndSectorExclusive)
+                {
+                    items.add(item);
+                    keptItems.add(item);
+                }
+            }
+        }
+
+        // the indexers of the first range carry on as if they indexed the whole disc
+        Range first = _ranges.get(0);
+        first._log.forwardTo(_pl);
+        List<DiscIndexer> indexers = first._indexers;
+        for (DiscIndexer indexer : indexers) {
+            indexer.indexInit(items, _cd);
+        }
+        for (int i = 0; i < indexers.size(); i++) {
+            ArrayList<DiscIndexer> sameIndexers = new ArrayList<DiscIndexer>(_ranges.size());
+            for (Range range : _ranges) {
+                sameIndexers.add(range._indexers.get(i));
+            }
+            indexers.get(i).mergeRanges(sameIndexers, keptItems);
+        }
+
+        return indexers;
+    }
+
+    /** Indexes the ranges using the executor, reporting progress while waiting.
+     * @return false if indexing failed. */
+    private boolean indexRanges(@Nonnull ExecutorService executor, @Nonnull List<Range> ranges)
+            throws TaskCanceledException
+    {
+        ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>(ranges.size());
+        for (Range range : ranges) {
+            futures.add(executor.submit(range));
+        }
+
+        for (Future<Void> future : futures) {
+            while (true) {
+                try {
+                    future.get(PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException ex) {
+                    reportProgress();
+                } catch (ExecutionException ex) {
+                    LOG.log(Level.WARNING, "Indexing a portion of the disc failed", ex.getCause());
+                    return false;
+                } catch (InterruptedException ex) {
+                    LOG.log(Level.WARNING, "Interrupted while indexing portions of the disc", ex);
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        reportProgress();
+        return true;
+    }
+
+    private void reportProgress() throws TaskCanceledException {
+        int iSectorsDone = 0, iItemCount = 0;
+        for (Range range : _ranges) {
+            iSectorsDone += range._iSectorsDone;
+            iItemCount += range._iItemCount;
+        }
+        // re-indexing a range starts its count over, but progress shouldn't go backwards
+        _iLastProgress = Math.max(_iLastProgress, iSectorsDone - 1);
+        _pl.progressUpdate(_iLastProgress);
+        if (_pl.isSeekingEvent())
+            _pl.event(I.INDEX_SECTOR_ITEM_PROGRESS(_iLastProgress, _iLastSector, iItemCount));
+    }
+
+    /** Walks the ranges and finds where to switch from using the items of
+     * one range to the next.
+     * @return Ranges that need to read further to find a place to switch. */
+    private @Nonnull List<Range> chooseCuts() {
+        ArrayList<Range> toExtend = new ArrayList<Range>();
+        _segments.clear();
+        Range current = _ranges.get(0);
+        int iSegmentStart = 0;
+        for (int i = 1; i < _ranges.size(); i++) {
+            Range next = _ranges.get(i);
+            int iTrustedEnd = current.trustedEndSector();
+            int iCut = findCut(current, next, Math.min(iTrustedEnd, next._iEndSector));
+            if (iCut >= 0) {
+                _segments.add(new Segment(current, iSegmentStart, iCut));
+                current = next;
+                iSegmentStart = iCut;
+            } else if (iTrustedEnd < next._iEndSector) {
+                current.extendReadEnd();
+                toExtend.add(current);
+                // keep checking the rest as if it switched here
+                current = next;
+                iSegmentStart = next._iStartSector;
+            }
+            // otherwise the current range already covers all of the next
+        }
+        _segments.add(new Segment(current, iSegmentStart, Integer.MAX_VALUE));
+        return toExtend;
+    }
+
+    /** Finds the first sector at the start of the right range where nothing
+     * spans the sector in either range, and both ranges found the same
+     * items after it.
+     * @return The sector, or -1 if none was found. */
+    private static int findCut(@Nonnull Range left, @Nonnull Range right, int iLastCandidate) {
+        int iFirstCandidate = right._iStartSector;
+        if (iLastCandidate < iFirstCandidate)
+            return -1;
+
+        // the state of things only changes after an item ends
+        TreeSet<Integer> candidates = new TreeSet<Integer>();
+        candidates.add(iFirstCandidate);
+        addCandidates(left, iFirstCandidate, iLastCandidate, candidates);
+        addCandidates(right, iFirstCandidate, iLastCandidate, candidates);
+
+        int iCompareEnd = Math.min(left.trustedEndSector(), right.trustedEndSector());
+        for (int iCandidate : candidates) {
+            if (left.isAnythingSpanning(iCandidate) || right.isAnythingSpanning(iCandidate))
+                continue;
+            if (left.itemsBetween(iCandidate, iCompareEnd).equals(right.itemsBetween(iCandidate, iCompareEnd)))
+                return iCandidate;
+        }
+        return -1;
+    }
+
+    private static void addCandidates(@Nonnull Range range, int iFirstCandidate, int iLastCandidate,
+                                      @Nonnull TreeSet<Integer> candidates)
+    {
+        for (DiscItem item : range._items) {
+            int iAfter = item.getEndSector() + 1;
+            if (iAfter > iFirstCandidate && iAfter <= iLastCandidate)
+                candidates.add(iAfter);
+        }
+    }
+
+}
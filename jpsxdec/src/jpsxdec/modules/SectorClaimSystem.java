@@ -40,10 +40,19 @@ package jpsxdec.modules;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import jpsxdec.cdreaders.CdFileSectorReader;
 import jpsxdec.cdreaders.CdSector;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.i18n.exception.LoggedFailure;
 import jpsxdec.i18n.log.ILocalizedLogger;
 import jpsxdec.modules.ac3.SectorClaimToSectorAc3Video;
 import jpsxdec.modules.cdaudio.SectorClaimToSectorCdAudio;
@@ -55,7 +64,6 @@ import jpsxdec.modules.roadrash.SectorClaimToRoadRash;
 import jpsxdec.modules.square.SectorClaimToSquareAudioSector;
 import jpsxdec.modules.strvideo.SectorClaimToStrVideoSector;
 import jpsxdec.modules.xa.SectorClaimToSectorXaAudio;
-import jpsxdec.util.BufferedIOIterator;
 import jpsxdec.util.IOIterator;
 
 /** The final and universal way to identify and handle CD sectors.
@@ -72,9 +80,27 @@ import jpsxdec.util.IOIterator;
  * <p>
  * The "claimers" are prompted in the order they are added to this system.
  * Once a sector is claimed, later claimers will know and can respond accordingly.
+ * <p>
+ * The work is done in two stages. First every claimer identifies a sector.
+ * Anything the claimers want to send to their listeners is attached to
+ * the sector as a {@link Delivery} (along with anything they logged).
+ * Then when the sector is returned by {@link #next(jpsxdec.i18n.log.ILocalizedLogger)}
+ * the deliveries are made, so listeners always receive data in sector order.
+ * Since the identification stage doesn't touch the listeners, it can be
+ * run ahead on a separate thread with {@link #startPipeline()}.
  */
 public class SectorClaimSystem {
 
+    private static final Logger LOG = Logger.getLogger(SectorClaimSystem.class.getName());
+
+    /** How many sectors the identification thread can get ahead of the
+     * processing when pipelined. */
+    private static final int PIPELINE_QUEUE_SIZE = 256;
+    /** Set system property {@code jpsxdec.claimsystem.pipeline=false} to
+     * always identify and process sectors on the same thread. */
+    private static final boolean ALLOW_PIPELINE =
+            Boolean.parseBoolean(System.getProperty("jpsxdec.claimsystem.pipeline", "true"));
+
     public static @Nonnull SectorClaimSystem create(@Nonnull CdFileSectorReader cd) {
         return create(cd, 0);
     }
@@ -130,14 +156,53 @@ public class SectorClaimSystem {
         }
     }
 
+    /** Work a claimer wants done with an identified sector, usually sending
+     * something to its listener. Performed after every claimer has identified
+     * the sector, in the order the deliveries were added. */
+    public interface Delivery {
+        void deliver(@Nonnull ILocalizedLogger log) throws LoggedFailure;
+    }
+
+    /** A message logged by a claimer while identifying a sector. */
+    private static class LogEntry {
+        @Nonnull
+        public final Level level;
+        @Nonnull
+        public final ILocalizedMessage msg;
+        @CheckForNull
+        public final Throwable debugException;
+
+        public LogEntry(@Nonnull Level level, @Nonnull ILocalizedMessage msg,
+                        @CheckForNull Throwable debugException)
+        {
+            this.level = level;
+            this.msg = msg;
+            this.debugException = debugException;
+        }
+    }
+
     private static class InternalSector {
         @Nonnull
         public final CdSector sector;
         @CheckForNull
         public IIdentifiedSector claimer;
+        /** {@link Delivery}s and {@link LogEntry}s in the order they were added. */
+        @CheckForNull
+        public ArrayList<Object> pending;
+        /** How the sector was identified the last time, from the
+         * {@link SectorIdentityCache}, or null if unknown. */
+        @CheckForNull
+        public Class<?> cachedType;
+        /** CRC32 of the raw sector if there is a {@link SectorIdentityCache}. */
+        public int iCrc;
         public InternalSector(CdSector sector) {
             this.sector = sector;
         }
+        public void addPending(@Nonnull Object o) {
+            if (pending == null)
+                pending = new ArrayList<Object>(2);
+            pending.add(o);
+        }
     }
 
     /** A sector in the process of being claimed. */
@@ -159,6 +224,25 @@ public class SectorClaimSystem {
         public void claim(@Nonnull IIdentifiedSector claimer) {
             _inner.claimer = claimer;
         }
+        /** If this sector could be identified as any of the given types.
+         * Always true unless the {@link SectorIdentityCache} knows how the
+         * sector was identified before, so claimers can skip trying types
+         * that are known not to match. Only use this for types that are
+         * identified from the sector alone, without any context. */
+        public boolean couldBe(@Nonnull Class<?> ... types) {
+            Class<?> cachedType = _inner.cachedType;
+            if (cachedType == null)
+                return true;
+            for (Class<?> type : types) {
+                if (type == cachedType)
+                    return true;
+            }
+            return false;
+        }
+        /** Queues the delivery to be made once this sector is identified. */
+        public void deliver(@Nonnull Delivery delivery) {
+            _inner.addPending(delivery);
+        }
         @Override
         public String toString() {
             StringBuilder sb = new StringBuilder();
@@ -206,36 +290,36 @@ public class SectorClaimSystem {
     
     @Nonnull
     private final CdFileSectorReader _cd;
+    private final ArrayList<SectorClaimer> _claimers = new ArrayList<SectorClaimer>();
     @Nonnull
-    private final ArrayList<SectorClaimInception> _iterators = new ArrayList<SectorClaimInception>();
-    @Nonnull
-    private BufferedIOIterator<ClaimableSector> _outerMostIterator;
-    @Nonnull // only non-null when being used
-    private ILocalizedLogger _log;
-
-    SectorClaimSystem(@Nonnull CdFileSectorReader cd) {
-        this(cd, 0, cd.getSectorCount() - 1);
-    }
+    private final Identifier _identifier;
+    private final int _iEndSectorInclusive;
+    /** Next sector to be returned by {@link #next(jpsxdec.i18n.log.ILocalizedLogger)}. */
+    private int _iNextSector;
+    @CheckForNull
+    private Pipeline _pipeline;
+    @CheckForNull
+    private final SectorIdentityCache _idCache;
 
     private SectorClaimSystem(@Nonnull CdFileSectorReader cd, int iStartSector,
                               int iEndSectorInclusive)
     {
         _cd = cd;
-        CoreSectorIterator core = new CoreSectorIterator(cd, iStartSector, iEndSectorInclusive+1);
-        _outerMostIterator = new BufferedIOIterator<ClaimableSector>(core);
+        _iNextSector = iStartSector;
+        _iEndSectorInclusive = iEndSectorInclusive;
+        _identifier = new Identifier(iStartSector, iEndSectorInclusive);
+        _idCache = SectorIdentityCache.forDisc(cd);
     }
 
     void addClaimer(@Nonnull SectorClaimer claimer) {
-        SectorClaimInception wrapping = new SectorClaimInception(_outerMostIterator, claimer);
-        _outerMostIterator = new BufferedIOIterator<ClaimableSector>(wrapping);
-        _iterators.add(wrapping);
+        _claimers.add(claimer);
     }
 
     @SuppressWarnings("unchecked")
     public @Nonnull <T extends SectorClaimer> T getClaimer(@Nonnull Class<T> clazz) {
-        for (SectorClaimInception iterator : _iterators) {
-            if (iterator._claimer.getClass() == clazz) {
-                return (T) iterator._claimer;
+        for (SectorClaimer claimer : _claimers) {
+            if (claimer.getClass() == clazz) {
+                return (T) claimer;
             }
         }
         // TODO: any way to register claimers such that this is never the case
@@ -246,81 +330,361 @@ public class SectorClaimSystem {
         return _cd.getSourceFile();
     }
 
+    /** Identify sectors on a separate thread while the caller processes them.
+     * Listeners must be attached before calling this, and the caller must
+     * eventually call {@link #close(jpsxdec.i18n.log.ILocalizedLogger)}
+     * or {@link #stopPipeline()} to stop the thread.
+     * Does nothing if pipelining has been disabled. */
+    public void startPipeline() {
+        if (_pipeline != null || !ALLOW_PIPELINE)
+            return;
+        _pipeline = new Pipeline();
+        _pipeline.start();
+    }
+
+    /** Stops the identification thread, if any. Sectors that were identified
+     * but not yet returned are discarded. Safe to call more than once. */
+    public void stopPipeline() {
+        if (_pipeline != null) {
+            _pipeline.stop();
+            _pipeline = null;
+        }
+    }
+
     /** You can continue to call {@link #next(jpsxdec.util.ILocalizedLogger)} until this returns false. */
     public boolean hasNext() {
-        return _outerMostIterator.hasNext();
+        return _iNextSector <= _iEndSectorInclusive;
     }
     
     public @Nonnull ClaimedSector next(@Nonnull ILocalizedLogger log) 
             throws CdFileSectorReader.CdReadException, ClaimerFailure
     {
-        try {
-            _log = log;
-            ClaimableSector next;
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        InternalSector sector;
+        if (_pipeline != null) {
+            sector = _pipeline.take(log);
+        } else {
             try {
-                next = _outerMostIterator.next();
-            } catch (IOException ex) {
-                if (ex instanceof CdFileSectorReader.CdReadException)
-                    throw (CdFileSectorReader.CdReadException)ex;
-                throw new CdFileSectorReader.CdReadException(getSourceCdFile(), ex);
+                sector = _identifier.identifyNext();
+            } catch (Throwable ex) {
+                logPendingAndRethrow(ex, _identifier.getFailedSector(), log);
+                throw new AssertionError(); // rethrown above
             }
-            return new ClaimedSector(next._inner);
-        } finally {
-            _log = null;
         }
+        _iNextSector++;
+
+        deliverPending(sector, log);
+        return new ClaimedSector(sector);
     }
 
+    /** Notifies the claimers that there are no more sectors. Stops the
+     * identification thread first if pipelined. */
     public void close(@Nonnull ILocalizedLogger log) {
-        for (SectorClaimInception claimer : _iterators) {
-            claimer._claimer.endOfSectors(log);
+        stopPipeline();
+        for (SectorClaimer claimer : _claimers) {
+            claimer.endOfSectors(log);
+        }
+    }
+
+    private static void deliverPending(@Nonnull InternalSector sector, @Nonnull ILocalizedLogger log)
+            throws ClaimerFailure
+    {
+        ArrayList<Object> pending = sector.pending;
+        if (pending == null)
+            return;
+        sector.pending = null;
+        for (Object o : pending) {
+            if (o instanceof LogEntry) {
+                LogEntry entry = (LogEntry) o;
+                log.log(entry.level, entry.msg, entry.debugException);
+            } else {
+                try {
+                    ((Delivery)o).deliver(log);
+                } catch (LoggedFailure ex) {
+                    throw new ClaimerFailure(ex);
+                }
+            }
+        }
+    }
+
+    /** Logs any messages logged while identifying the sector that failed,
+     * then throws the failure. */
+    private void logPendingAndRethrow(@Nonnull Throwable failure,
+                                             @CheckForNull InternalSector failedSector,
+                                             @Nonnull ILocalizedLogger log)
+            throws CdFileSectorReader.CdReadException
+    {
+        if (failedSector != null && failedSector.pending != null) {
+            for (Object o : failedSector.pending) {
+                if (o instanceof LogEntry) {
+                    LogEntry entry = (LogEntry) o;
+                    log.log(entry.level, entry.msg, entry.debugException);
+                }
+            }
+            failedSector.pending = null;
         }
+        if (failure instanceof CdFileSectorReader.CdReadException)
+            throw (CdFileSectorReader.CdReadException)failure;
+        if (failure instanceof IOException)
+            throw new CdFileSectorReader.CdReadException(getSourceCdFile(), (IOException)failure);
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException)failure;
+        if (failure instanceof Error)
+            throw (Error)failure;
+        throw new RuntimeException(failure);
     }
 
     // =========================================================================
 
-    /** Core iterator that reads directly from the CD. */
-    private static class CoreSectorIterator implements IOIterator<ClaimableSector> {
+    /** The identification stage. Runs each claimer in order on each sector.
+     * Sectors are read from the disc once, and held until every claimer
+     * has identified them.
+     * <p>
+     * When a claimer peeks ahead, the peeked sectors are first identified by
+     * all the claimers before it, so it sees the same thing as if all the
+     * claimers saw each sector in order. That is the only time this recurses. */
+    private class Identifier {
+
+        private final int _iEndSectorInclusive;
+        /** For each claimer, the next sector it will identify. Earlier
+         * claimers are always at or ahead of later claimers. */
+        @CheckForNull
+        private int[] _aiClaimerNextSector;
+        /** Sectors read but not yet returned, indexed by sector number & mask. */
         @Nonnull
-        private final CdFileSectorReader _cd;
-        private int _iSector;
-        private final int _iEndSector;
+        private ClaimableSector[] _aoWindow = new ClaimableSector[32];
+        /** First sector in the window (the next sector to be returned). */
+        private int _iWindowStart;
+        /** One past the last sector read. */
+        private int _iWindowEnd;
+
+        /** Sector that claimers' log messages are attached to. */
+        @CheckForNull
+        private InternalSector _logTarget;
+        @CheckForNull
+        private InternalSector _failedSector;
+
+        private final ILocalizedLogger _identifyLog = new ILocalizedLogger() {
+            public void log(@Nonnull Level level, @Nonnull ILocalizedMessage msg) {
+                log(level, msg, null);
+            }
+            public void log(@Nonnull Level level, @Nonnull ILocalizedMessage msg,
+                            @CheckForNull Throwable debugException)
+            {
+                if (_logTarget != null)
+                    _logTarget.addPending(new LogEntry(level, msg, debugException));
+                else
+                    msg.logEnglish(LOG, level, debugException);
+            }
+        };
+
+        public Identifier(int iStartSector, int iEndSectorInclusive) {
+            _iWindowStart = _iWindowEnd = iStartSector;
+            _iEndSectorInclusive = iEndSectorInclusive;
+        }
 
-        public CoreSectorIterator(@Nonnull CdFileSectorReader cd, int iStartSector, int iEndSector) {
-            _cd = cd;
-            _iSector = iStartSector;
-            _iEndSector = iEndSector;
+        /** Has every claimer identify the next sector. */
+        public @Nonnull InternalSector identifyNext() throws IOException, ClaimerFailure {
+            if (_aiClaimerNextSector == null) {
+                _aiClaimerNextSector = new int[_claimers.size()];
+                Arrays.fill(_aiClaimerNextSector, _iWindowStart);
+            }
+            int iSector = _iWindowStart;
+            advance(_claimers.size(), iSector);
+            ClaimableSector cs = get(iSector);
+            _aoWindow[iSector & (_aoWindow.length - 1)] = null;
+            if (_idCache != null)
+                _idCache.record(iSector, cs._inner.iCrc, cs._inner.claimer);
+            _iWindowStart++;
+            return cs._inner;
         }
-        public boolean hasNext() {
-            return _iSector < _iEndSector;
+
+        /** The sector that was being identified when an exception was thrown. */
+        public @CheckForNull InternalSector getFailedSector() {
+            return _failedSector;
+        }
+
+        /** Makes sure the first {@code iClaimerCount} claimers have identified
+         * all the sectors up to and including {@code iSector}. Sectors are
+         * identified in order, each by the claimers in order. */
+        private void advance(int iClaimerCount, int iSector) throws IOException {
+            if (iClaimerCount == 0)
+                return;
+            for (int iNext = _aiClaimerNextSector[iClaimerCount - 1]; iNext <= iSector; iNext++) {
+                for (int iClaimer = 0; iClaimer < iClaimerCount; iClaimer++) {
+                    if (_aiClaimerNextSector[iClaimer] == iNext)
+                        runClaimer(iClaimer, iNext);
+                }
+            }
         }
-        public @Nonnull ClaimableSector next() throws IOException {
-            return new ClaimableSector(new InternalSector(_cd.getSector(_iSector++)));
+
+        private void runClaimer(int iClaimer, int iSector) throws IOException {
+            ClaimableSector cs = get(iSector);
+            InternalSector prevLogTarget = _logTarget;
+            _logTarget = cs._inner;
+            try {
+                _claimers.get(iClaimer).sectorRead(cs, new PeekIterator(iClaimer, iSector + 1), _identifyLog);
+            } catch (IOException ex) {
+                if (_failedSector == null)
+                    _failedSector = cs._inner;
+                throw ex;
+            } catch (RuntimeException ex) {
+                if (_failedSector == null)
+                    _failedSector = cs._inner;
+                throw ex;
+            } finally {
+                _logTarget = prevLogTarget;
+            }
+            _aiClaimerNextSector[iClaimer] = iSector + 1;
+        }
+
+        /** Gets the sector from the window, reading it from the disc if needed. */
+        private @Nonnull ClaimableSector get(int iSector) throws CdFileSectorReader.CdReadException {
+            while (_iWindowEnd <= iSector) {
+                if (_iWindowEnd - _iWindowStart >= _aoWindow.length)
+                    growWindow();
+                CdSector sector = _cd.getSector(_iWindowEnd);
+                InternalSector inner = new InternalSector(sector);
+                if (_idCache != null) {
+                    inner.iCrc = sector.getRawSectorCrc32();
+                    inner.cachedType = _idCache.lookup(_iWindowEnd, inner.iCrc);
+                }
+                _aoWindow[_iWindowEnd & (_aoWindow.length - 1)] = new ClaimableSector(inner);
+                _iWindowEnd++;
+            }
+            return _aoWindow[iSector & (_aoWindow.length - 1)];
+        }
+
+        private void growWindow() {
+            ClaimableSector[] aoNew = new ClaimableSector[_aoWindow.length * 2];
+            for (int i = _iWindowStart; i < _iWindowEnd; i++) {
+                aoNew[i & (aoNew.length - 1)] = _aoWindow[i & (_aoWindow.length - 1)];
+            }
+            _aoWindow = aoNew;
+        }
+
+        /** Lets a claimer peek at the sectors after the one it is identifying. */
+        private class PeekIterator implements IOIterator<ClaimableSector> {
+            private final int _iClaimer;
+            private int _iNextSector;
+
+            public PeekIterator(int iClaimer, int iNextSector) {
+                _iClaimer = iClaimer;
+                _iNextSector = iNextSector;
+            }
+
+            public boolean hasNext() {
+                return _iNextSector <= _iEndSectorInclusive;
+            }
+
+            public @Nonnull ClaimableSector next() throws IOException {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                advance(_iClaimer, _iNextSector);
+                return get(_iNextSector++);
+            }
         }
     }
 
-    /** Recursively wraps iterators around each other,
-     * each one feeding off the nested one, and each buffering as it goes. */
-    private class SectorClaimInception implements IOIterator<ClaimableSector> {
-        @Nonnull
-        private final BufferedIOIterator<ClaimableSector> _nestedIter;
+    // =========================================================================
+
+    /** Runs the {@link Identifier} on a separate thread, handing over
+     * identified sectors through a bounded queue. */
+    private class Pipeline implements Runnable {
+
+        /** An exception thrown while identifying. */
+        private class Failure {
+            @Nonnull
+            public final Throwable failure;
+            @CheckForNull
+            public final InternalSector failedSector;
+            public Failure(@Nonnull Throwable failure, @CheckForNull InternalSector failedSector) {
+                this.failure = failure;
+                this.failedSector = failedSector;
+            }
+        }
+
+        private final BlockingQueue<Object> _queue = new ArrayBlockingQueue<Object>(PIPELINE_QUEUE_SIZE);
         @Nonnull
-        private final SectorClaimer _claimer;
+        private final Thread _thread;
+        private final int _iFirstSector;
+        private volatile boolean _blnStop = false;
 
-        public SectorClaimInception(@Nonnull BufferedIOIterator<ClaimableSector> nested,
-                                    @Nonnull SectorClaimer claimer)
-        {
-            _nestedIter = nested;
-            _claimer = claimer;
+        public Pipeline() {
+            _iFirstSector = _iNextSector;
+            _thread = new Thread(this, SectorClaimSystem.class.getSimpleName());
+            // daemon so a forgotten pipeline won't keep the program running
+            _thread.setDaemon(true);
+        }
+
+        public void start() {
+            _thread.start();
+        }
+
+        public void run() {
+            try {
+                for (int i = _iFirstSector; i <= _iEndSectorInclusive; i++) {
+                    if (!handOver(_identifier.identifyNext()))
+                        return;
+                }
+            } catch (Throwable ex) {
+                handOver(new Failure(ex, _identifier.getFailedSector()));
+            }
+        }
+
+        /** @return false if stopped. */
+        private boolean handOver(@Nonnull Object o) {
+            try {
+                while (!_blnStop) {
+                    if (_queue.offer(o, 100, TimeUnit.MILLISECONDS))
+                        return true;
+                }
+            } catch (InterruptedException ex) {
+                LOG.log(Level.WARNING, "Sector identification interrupted", ex);
+            }
+            return false;
         }
 
-        public boolean hasNext() {
-            return _nestedIter.hasNext();
+        public @Nonnull InternalSector take(@Nonnull ILocalizedLogger log)
+                throws CdFileSectorReader.CdReadException
+        {
+            boolean blnInterrupted = false;
+            Object o;
+            while (true) {
+                try {
+                    o = _queue.take();
+                    break;
+                } catch (InterruptedException ex) {
+                    blnInterrupted = true;
+                }
+            }
+            if (blnInterrupted)
+                Thread.currentThread().interrupt();
+
+            if (o instanceof Failure) {
+                Failure f = (Failure) o;
+                logPendingAndRethrow(f.failure, f.failedSector, log);
+            }
+            return (InternalSector) o;
         }
-        public @Nonnull ClaimableSector next() throws IOException {
-            BufferedIOIterator<ClaimableSector> copy = _nestedIter.copy();
-            ClaimableSector cs = copy.next();
-            _claimer.sectorRead(cs, copy, _log);
-            return _nestedIter.next();
+
+        public void stop() {
+            _blnStop = true;
+            boolean blnInterrupted = false;
+            while (_thread.isAlive()) {
+                // make room in case it is waiting to hand over a sector
+                _queue.clear();
+                try {
+                    _thread.join(50);
+                } catch (InterruptedException ex) {
+                    blnInterrupted = true;
+                }
+            }
+            _queue.clear();
+            if (blnInterrupted)
+                Thread.currentThread().interrupt();
         }
     }
 
@@ -73,19 +73,27 @@ public class SectorClaimToUnidentifiedSector extends SectorClaimSystem.SectorCla
                            @Nonnull ILocalizedLogger log)
             throws IOException
     {
-        CdSector cdSector = cs.getSector();
+        final CdSector cdSector = cs.getSector();
         IIdentifiedSector idSector = cs.getClaimer();
 
         if (idSector != null || cdSector.isCdAudioSector() || !sectorIsInRange(cdSector.getSectorIndexFromStart())) {
             if (_blnInUnidentified) {
-                for (Listener listener : _listeners) {
-                    listener.endOfUnidentified();
-                }
+                cs.deliver(new SectorClaimSystem.Delivery() {
+                    public void deliver(@Nonnull ILocalizedLogger log) {
+                        for (Listener listener : _listeners) {
+                            listener.endOfUnidentified();
+                        }
+                    }
+                });
             }
         } else {
-            for (Listener listener : _listeners) {
-                listener.feedSector(cdSector);
-            }
+            cs.deliver(new SectorClaimSystem.Delivery() {
+                public void deliver(@Nonnull ILocalizedLogger log) {
+                    for (Listener listener : _listeners) {
+                        listener.feedSector(cdSector);
+                    }
+                }
+            });
             _blnInUnidentified = true;
         }
     }
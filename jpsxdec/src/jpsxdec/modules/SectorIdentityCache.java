@@ -0,0 +1,296 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.modules;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.cdreaders.CdSector;
+import jpsxdec.util.IO;
+
+/** Remembers how every sector of a disc image was identified, saved in a
+ * side-car file next to the disc image ({@code <image>.idcache}).
+ * <p>
+ * For each sector the cache holds the CRC32 of the raw sector and the type
+ * of {@link IIdentifiedSector} that ended up claiming it (or that nothing did).
+ * Since identification is deterministic, the next time the same sector is
+ * identified, the claimers can skip trying every sector type that
+ * it is known not to be (see {@link SectorClaimSystem.ClaimableSector#couldBe(java.lang.Class[])}).
+ * The matching type is still constructed from the sector so the claimers
+ * and listeners get the same objects as before.
+ * <p>
+ * The file is only used if the image is the same size and has the same
+ * sector size and count. Each sector's CRC is checked before its
+ * entry is used, so a changed (e.g. patched) sector is simply identified
+ * normally and the entry replaced.
+ * <p>
+ * The file is written once the whole disc has been indexed, and only if
+ * something new was recorded (see {@link #save()}).
+ * <p>
+ * Disabled unless the system property {@code jpsxdec.idcache=true}.
+ */
+public class SectorIdentityCache {
+
+    private static final Logger LOG = Logger.getLogger(SectorIdentityCache.class.getName());
+
+    private static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("jpsxdec.idcache", "false"));
+
+    private static final String FILE_EXTENSION = ".idcache";
+    private static final String MAGIC = "jPSXdec sector identity cache";
+    private static final int VERSION = 1;
+
+    /** Stand-in type returned by {@link #lookup(int, int)} for a sector
+     * that nothing claimed. */
+    public static final Class<?> UNCLAIMED = Void.class;
+
+    /** Entry type for a sector that has not been recorded. */
+    private static final short TYPE_UNKNOWN = 0;
+    /** Entry type for a sector that no claimer claimed. */
+    private static final short TYPE_UNCLAIMED = 1;
+    /** Entry types at and above this are indexes into {@link #_types}. */
+    private static final short TYPE_FIRST_CLASS = 2;
+
+    /** Only the cache of the last disc image used is kept loaded, so every
+     * {@link SectorClaimSystem} on that image shares (and updates) the same one
+     * without holding on to the caches of every image ever opened. */
+    @CheckForNull
+    private static SectorIdentityCache _lastLoaded;
+    private static final Object LOAD_LOCK = new Object();
+
+    /** Returns the cache for the disc image, loading it the first time.
+     * @return null if the cache is disabled. */
+    public static @CheckForNull SectorIdentityCache forDisc(@Nonnull CdFileSectorReader cd) {
+        if (!ENABLED)
+            return null;
+        File cacheFile = new File(cd.getSourceFile().getPath() + FILE_EXTENSION).getAbsoluteFile();
+        synchronized (LOAD_LOCK) {
+            SectorIdentityCache cache = _lastLoaded;
+            if (cache == null || !cache._cacheFile.equals(cacheFile) || !cache.matches(cd)) {
+                cache = new SectorIdentityCache(cacheFile, cd);
+                cache.load();
+                _lastLoaded = cache;
+            }
+            return cache;
+        }
+    }
+
+    // =========================================================================
+
+    @Nonnull
+    private final File _cacheFile;
+    private final long _lngImageSize;
+    private final int _iRawSectorSize;
+    /** CRC32 of each raw sector. */
+    @Nonnull
+    private final int[] _aiSectorCrc;
+    /** Type of each sector: one of the TYPE_ constants, or
+     * {@link #TYPE_FIRST_CLASS} + index into {@link #_types}. */
+    @Nonnull
+    private final short[] _asSectorType;
+    /** Sector types that have been recorded. An entry is null if the class
+     * in the file could not be found. */
+    private final List<Class<?>> _types = new ArrayList<Class<?>>();
+    private final HashMap<Class<?>, Short> _typeIndexes = new HashMap<Class<?>, Short>();
+    /** If there are recorded entries that haven't been saved. */
+    private boolean _blnChanged = false;
+
+    private SectorIdentityCache(@Nonnull File cacheFile, @Nonnull CdFileSectorReader cd) {
+        _cacheFile = cacheFile;
+        _lngImageSize = cd.getSourceFile().length();
+        _iRawSectorSize = cd.getRawSectorSize();
+        _aiSectorCrc = new int[cd.getSectorCount()];
+        _asSectorType = new short[cd.getSectorCount()];
+    }
+
+    private boolean matches(@Nonnull CdFileSectorReader cd) {
+        return _lngImageSize == cd.getSourceFile().length() &&
+               _iRawSectorSize == cd.getRawSectorSize() &&
+               _asSectorType.length == cd.getSectorCount();
+    }
+
+    /** Looks up how the sector was identified before.
+     * @param iSectorCrc from {@link CdSector#getRawSectorCrc32()}.
+     * @return null if unknown, otherwise the type that claimed the sector
+     *         ({@link #UNCLAIMED} if none did). */
+    public synchronized @CheckForNull Class<?> lookup(int iSector, int iSectorCrc) {
+        if (iSector < 0 || iSector >= _asSectorType.length)
+            return null;
+        short sType = _asSectorType[iSector];
+        if (sType == TYPE_UNKNOWN || _aiSectorCrc[iSector] != iSectorCrc)
+            return null;
+        if (sType == TYPE_UNCLAIMED)
+            return UNCLAIMED;
+        return _types.get(sType - TYPE_FIRST_CLASS);
+    }
+
+    /** Records how a sector was identified.
+     * @param claimer null if nothing claimed the sector. */
+    public synchronized void record(int iSector, int iSectorCrc, @CheckForNull IIdentifiedSector claimer) {
+        if (iSector < 0 || iSector >= _asSectorType.length)
+            return;
+        short sType;
+        if (claimer == null) {
+            sType = TYPE_UNCLAIMED;
+        } else {
+            Class<?> type = claimer.getClass();
+            Short index = _typeIndexes.get(type);
+            if (index == null) {
+                if (TYPE_FIRST_CLASS + _types.size() > Short.MAX_VALUE)
+                    return;
+                index = Short.valueOf((short) (TYPE_FIRST_CLASS + _types.size()));
+                _types.add(type);
+                _typeIndexes.put(type, index);
+            }
+            sType = index.shortValue();
+        }
+        if (_asSectorType[iSector] != sType || _aiSectorCrc[iSector] != iSectorCrc) {
+            _asSectorType[iSector] = sType;
+            _aiSectorCrc[iSector] = iSectorCrc;
+            _blnChanged = true;
+        }
+    }
+
+    /** Writes the cache file if anything new was recorded since it was
+     * loaded or last saved. Called after the whole disc has been indexed.
+     * Failure is logged but otherwise ignored since the cache is optional. */
+    public synchronized void save() {
+        if (!_blnChanged)
+            return;
+        File tempFile = new File(_cacheFile.getPath() + ".tmp");
+        DataOutputStream dos = null;
+        try {
+            dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            dos.writeUTF(MAGIC);
+            dos.writeInt(VERSION);
+            dos.writeLong(_lngImageSize);
+            dos.writeInt(_iRawSectorSize);
+            dos.writeInt(_asSectorType.length);
+            dos.writeShort(_types.size());
+            for (Class<?> type : _types) {
+                // classes that couldn't be found have their entries cleared
+                dos.writeUTF(type == null ? "" : type.getName());
+            }
+            for (int i = 0; i < _asSectorType.length; i++) {
+                short sType = _asSectorType[i];
+                if (sType >= TYPE_FIRST_CLASS && _types.get(sType - TYPE_FIRST_CLASS) == null)
+                    sType = TYPE_UNKNOWN;
+                dos.writeInt(_aiSectorCrc[i]);
+                dos.writeShort(sType);
+            }
+            dos.close();
+            dos = null;
+            if (_cacheFile.exists() && !_cacheFile.delete())
+                throw new IOException("Unable to replace " + _cacheFile);
+            if (!tempFile.renameTo(_cacheFile))
+                throw new IOException("Unable to rename " + tempFile + " to " + _cacheFile);
+            _blnChanged = false;
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Unable to save sector identity cache " + _cacheFile, ex);
+        } finally {
+            IO.closeSilently(dos, LOG);
+        }
+    }
+
+    /** Reads the cache file, if it exists and matches the disc image. */
+    private void load() {
+        DataInputStream dis;
+        try {
+            dis = new DataInputStream(new BufferedInputStream(new FileInputStream(_cacheFile)));
+        } catch (FileNotFoundException ex) {
+            return;
+        }
+        try {
+            if (!MAGIC.equals(dis.readUTF()) || dis.readInt() != VERSION ||
+                dis.readLong() != _lngImageSize || dis.readInt() != _iRawSectorSize ||
+                dis.readInt() != _asSectorType.length)
+            {
+                LOG.log(Level.INFO, "Sector identity cache {0} does not match the disc image", _cacheFile);
+                return;
+            }
+            int iTypeCount = dis.readUnsignedShort();
+            for (int i = 0; i < iTypeCount; i++) {
+                Class<?> type = null;
+                String sClassName = dis.readUTF();
+                try {
+                    type = Class.forName(sClassName);
+                    _typeIndexes.put(type, Short.valueOf((short) (TYPE_FIRST_CLASS + i)));
+                } catch (ClassNotFoundException ex) {
+                    LOG.log(Level.INFO, "Sector type {0} in cache no longer exists", sClassName);
+                }
+                _types.add(type);
+            }
+            for (int i = 0; i < _asSectorType.length; i++) {
+                _aiSectorCrc[i] = dis.readInt();
+                short sType = dis.readShort();
+                if (sType < TYPE_UNKNOWN || sType >= TYPE_FIRST_CLASS + iTypeCount ||
+                    (sType >= TYPE_FIRST_CLASS && _types.get(sType - TYPE_FIRST_CLASS) == null))
+                    sType = TYPE_UNKNOWN;
+                _asSectorType[i] = sType;
+            }
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Error reading sector identity cache " + _cacheFile, ex);
+            clear();
+        } finally {
+            IO.closeSilently(dis, LOG);
+        }
+    }
+
+    private void clear() {
+        Arrays.fill(_asSectorType, TYPE_UNKNOWN);
+        _types.clear();
+        _typeIndexes.clear();
+    }
+
+}
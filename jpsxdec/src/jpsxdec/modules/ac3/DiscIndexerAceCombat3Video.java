@@ -39,6 +39,8 @@ package jpsxdec.modules.ac3;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
@@ -204,6 +206,16 @@ public class DiscIndexerAceCombat3Video extends DiscIndexer implements SectorCla
         _activeStreams.clear();
     }
 
+    @Override
+    public void mergeRanges(@Nonnull List<? extends DiscIndexer> rangeIndexers,
+                            @Nonnull Set<DiscItem> keptItems)
+    {
+        _completedVideos.clear();
+        for (DiscIndexer indexer : rangeIndexers) {
+            addKeptItems(((DiscIndexerAceCombat3Video)indexer)._completedVideos, keptItems, _completedVideos);
+        }
+    }
+
     @Override
     public void listPostProcessing(@Nonnull Collection<DiscItem> allItems) {
         if (_completedVideos.size() > 0)
@@ -80,19 +80,20 @@ public class SectorClaimToSectorAc3Video extends SectorClaimSystem.SectorClaimer
                           @Nonnull ILocalizedLogger log)
             throws IOException, SectorClaimSystem.ClaimerFailure
     {
-        if (cs.isClaimed())
+        if (cs.isClaimed() || !cs.couldBe(SectorAceCombat3Video.class))
             return;
-        SectorAceCombat3Video vidSect = id(cs.getSector());
+        final SectorAceCombat3Video vidSect = id(cs.getSector());
         if (vidSect == null)
             return;
         cs.claim(vidSect);
 
         if (_listener != null && sectorIsInRange(cs.getSector().getSectorIndexFromStart())) {
-            try {
-                _listener.feedSector(vidSect, log);
-            } catch (LoggedFailure ex) {
-                throw new SectorClaimSystem.ClaimerFailure(ex);
-            }
+            final Listener listener = _listener;
+            cs.deliver(new SectorClaimSystem.Delivery() {
+                public void deliver(@Nonnull ILocalizedLogger log) throws LoggedFailure {
+                    listener.feedSector(vidSect, log);
+                }
+            });
         }
     }
 
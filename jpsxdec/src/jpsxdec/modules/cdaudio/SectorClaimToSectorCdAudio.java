@@ -76,18 +76,29 @@ public class SectorClaimToSectorCdAudio extends SectorClaimSystem.SectorClaimer
                            @Nonnull IOIterator<SectorClaimSystem.ClaimableSector> peekIt,
                            @Nonnull ILocalizedLogger log)
     {
+        final Listener listener = _listener;
         if (cs.getClaimer() != null) {
-            if (_blnInCdAudio && _listener != null)
-                _listener.endOfCdAudio();
+            if (_blnInCdAudio && listener != null) {
+                cs.deliver(new SectorClaimSystem.Delivery() {
+                    public void deliver(@Nonnull ILocalizedLogger log) {
+                        listener.endOfCdAudio();
+                    }
+                });
+            }
             _blnInCdAudio = false;
         }
 
-        SectorCdAudio cdAudio = id(cs.getSector());
+        final SectorCdAudio cdAudio = id(cs.getSector());
         if (cdAudio != null) {
             cs.claim(cdAudio);
             _blnInCdAudio = true;
-            if (_listener != null && sectorIsInRange(cs.getSector().getSectorIndexFromStart()))
-                _listener.feedSector(cdAudio);
+            if (listener != null && sectorIsInRange(cs.getSector().getSectorIndexFromStart())) {
+                cs.deliver(new SectorClaimSystem.Delivery() {
+                    public void deliver(@Nonnull ILocalizedLogger log) {
+                        listener.feedSector(cdAudio);
+                    }
+                });
+            }
         }
     }
 
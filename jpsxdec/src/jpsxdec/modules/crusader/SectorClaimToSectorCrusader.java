@@ -72,20 +72,21 @@ public class SectorClaimToSectorCrusader extends SectorClaimSystem.SectorClaimer
                            @Nonnull ILocalizedLogger log)
             throws IOException, SectorClaimSystem.ClaimerFailure
     {
-        if (cs.isClaimed())
+        if (cs.isClaimed() || !cs.couldBe(SectorCrusader.class))
             return;
-        SectorCrusader sector = new SectorCrusader(cs.getSector());
+        final SectorCrusader sector = new SectorCrusader(cs.getSector());
         if (sector.getProbability() == 0)
             return;
 
         cs.claim(sector);
 
         if (_listener != null && sectorIsInRange(cs.getSector().getSectorIndexFromStart())) {
-            try {
-                _listener.sectorRead(sector, log);
-            } catch (LoggedFailure ex) {
-                throw new SectorClaimSystem.ClaimerFailure(ex);
-            }
+            final Listener listener = _listener;
+            cs.deliver(new SectorClaimSystem.Delivery() {
+                public void deliver(@Nonnull ILocalizedLogger log) throws LoggedFailure {
+                    listener.sectorRead(sector, log);
+                }
+            });
         }
     }
 
@@ -39,6 +39,8 @@ package jpsxdec.modules.dredd;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import jpsxdec.cdreaders.CdFileSectorReader;
@@ -141,6 +143,16 @@ public class DiscIndexerDredd extends DiscIndexer implements SectorClaimToDreddF
         videoBreak(log);
     }
 
+    @Override
+    public void mergeRanges(@Nonnull List<? extends DiscIndexer> rangeIndexers,
+                            @Nonnull Set<DiscItem> keptItems)
+    {
+        _completedVideos.clear();
+        for (DiscIndexer indexer : rangeIndexers) {
+            addKeptItems(((DiscIndexerDredd)indexer)._completedVideos, keptItems, _completedVideos);
+        }
+    }
+
     @Override
     public void listPostProcessing(@Nonnull Collection<DiscItem> allItems) {
         if (_completedVideos.size() > 0)
@@ -122,19 +122,21 @@ public class SectorClaimToDreddFrame extends SectorClaimSystem.SectorClaimer {
                            @Nonnull ILocalizedLogger log)
             throws IOException, SectorClaimSystem.ClaimerFailure
     {
-        try {
-            beforeEofCheck(cs, peekIt, log);
-        } catch (LoggedFailure ex) {
-            throw new SectorClaimSystem.ClaimerFailure(ex);
-        }
+        beforeEofCheck(cs, peekIt, log);
         // after processing the current sector, always check the EOF flag
         // the only way to know a video ends is by the EOF marker
         CdSectorXaSubHeader sh = cs.getSector().getSubHeader();
         if (sh != null &&
             sh.getSubMode().mask(CdSectorXaSubHeader.SubMode.MASK_EOF_MARKER) != 0)
         {
-            if (_listener != null)
-                _listener.videoBreak(log);
+            if (_listener != null) {
+                final Listener listener = _listener;
+                cs.deliver(new SectorClaimSystem.Delivery() {
+                    public void deliver(@Nonnull ILocalizedLogger log) {
+                        listener.videoBreak(log);
+                    }
+                });
+            }
         }
     }
 
@@ -143,7 +145,7 @@ public class SectorClaimToDreddFrame extends SectorClaimSystem.SectorClaimer {
     private void beforeEofCheck(@Nonnull SectorClaimSystem.ClaimableSector cs,
                                 @Nonnull IOIterator<SectorClaimSystem.ClaimableSector> peekIt,
                                 @Nonnull ILocalizedLogger log)
-            throws IOException, LoggedFailure
+            throws IOException
     {
         // claimed? ignore
         if (cs.isClaimed())
@@ -162,7 +164,13 @@ public class SectorClaimToDreddFrame extends SectorClaimSystem.SectorClaimer {
             // all sectors claimed? finally send the frame
             if (_claimedSectors.allClaimed()) {
                 if (_listener != null && sectorIsInRange(cs.getSector().getSectorIndexFromStart())) {
-                    _listener.frameComplete(_claimedSectors.getFrame(), log);
+                    final Listener listener = _listener;
+                    final DemuxedDreddFrame frame = _claimedSectors.getFrame();
+                    cs.deliver(new SectorClaimSystem.Delivery() {
+                        public void deliver(@Nonnull ILocalizedLogger log) throws LoggedFailure {
+                            listener.frameComplete(frame, log);
+                        }
+                    });
                 }
                 _claimedSectors = null;
             }
@@ -41,6 +41,8 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
@@ -104,6 +106,35 @@ public class DiscIndexerISO9660 extends DiscIndexer implements SectorClaimToSect
         s2siso.setListener(this);
     }
 
+    /** Set when only a portion of the disc is being indexed. The file system
+     * can't be built until all the portions have been merged. */
+    private boolean _blnDeferFileSystem = false;
+
+    @Override
+    public void indexingRange(@Nonnull SectorClaimSystem scs,
+                              int iStartSector, int iEndSectorInclusive)
+    {
+        scs.getClaimer(SectorClaimToSectorISO9660.class).setRangeLimit(iStartSector, iEndSectorInclusive);
+        _blnDeferFileSystem = true;
+    }
+
+    @Override
+    public void mergeRanges(@Nonnull List<? extends DiscIndexer> rangeIndexers,
+                            @Nonnull Set<DiscItem> keptItems)
+    {
+        _dirRecords.clear();
+        _primaryDescriptors.clear();
+        _sectorTypes.clear();
+        for (DiscIndexer indexer : rangeIndexers) {
+            DiscIndexerISO9660 rangeIndexer = (DiscIndexerISO9660) indexer;
+            _dirRecords.addAll(rangeIndexer._dirRecords);
+            _primaryDescriptors.addAll(rangeIndexer._primaryDescriptors);
+            _sectorTypes.or(rangeIndexer._sectorTypes);
+        }
+        _blnDeferFileSystem = false;
+        endOfSectors(_errLog);
+    }
+
     public void isoSectorRead(CdSector cdSector, IdentifiedSector idSector) {
         int iSectorType;
         switch (cdSector.getType()) {
@@ -161,6 +192,8 @@ public class DiscIndexerISO9660 extends DiscIndexer implements SectorClaimToSect
     private int _iSectorNumberDiff = 0;
 
     public void endOfSectors(@Nonnull ILocalizedLogger log) {
+        if (_blnDeferFileSystem)
+            return;
 
         if (_primaryDescriptors.isEmpty()) {
             LOG.warning("Disc has no primary descriptor");
@@ -80,8 +80,10 @@ public class SectorClaimToSectorISO9660 extends SectorClaimSystem.SectorClaimer
                            @Nonnull ILocalizedLogger log)
             throws IOException
     {
-        IdentifiedSector idSector;
-        if (cs.isClaimed()) {
+        final IdentifiedSector idSector;
+        if (cs.isClaimed() || !cs.couldBe(SectorISO9660VolumePrimaryDescriptor.class,
+                                          SectorISO9660DirectoryRecords.class))
+        {
             idSector = null;
         } else {
             idSector = id(cs.getSector());
@@ -89,8 +91,15 @@ public class SectorClaimToSectorISO9660 extends SectorClaimSystem.SectorClaimer
                 cs.claim(idSector);
         }
 
-        if (_listener != null && sectorIsInRange(cs.getSector().getSectorIndexFromStart()))
-            _listener.isoSectorRead(cs.getSector(), idSector);
+        if (_listener != null && sectorIsInRange(cs.getSector().getSectorIndexFromStart())) {
+            final Listener listener = _listener;
+            final CdSector cdSector = cs.getSector();
+            cs.deliver(new SectorClaimSystem.Delivery() {
+                public void deliver(@Nonnull ILocalizedLogger log) {
+                    listener.isoSectorRead(cdSector, idSector);
+                }
+            });
+        }
     }
 
     public void endOfSectors(@Nonnull ILocalizedLogger log) {
@@ -125,12 +125,18 @@ public class SectorClaimToPolicenauts extends SectorClaimSystem.SectorClaimer  {
             return;
         }
 
-        SectorPN_VMNK vmnkSector = new SectorPN_VMNK(cs.getSector());
+        final SectorPN_VMNK vmnkSector = new SectorPN_VMNK(cs.getSector());
         if (vmnkSector.getProbability() == 100) {
             checkCorruptionIfExistingKlbs(log);
             cs.claim(vmnkSector);
-            if (_listener != null)
-                _listener.videoStart(vmnkSector.getWidth(), vmnkSector.getHeight(), log);
+            if (_listener != null) {
+                final Listener listener = _listener;
+                cs.deliver(new SectorClaimSystem.Delivery() {
+                    public void deliver(@Nonnull ILocalizedLogger log) {
+                        listener.videoStart(vmnkSector.getWidth(), vmnkSector.getHeight(), log);
+                    }
+                });
+            }
         } else {
             SectorPolicenauts pnSector = null;
 
@@ -153,18 +159,19 @@ public class SectorClaimToPolicenauts extends SectorClaimSystem.SectorClaimer  {
 
             // notify listeners
             if (_listener != null && pnSector != null) {
-                for (SPacketData sPacketData : pnSector) {
+                final Listener listener = _listener;
+                for (final SPacketData sPacketData : pnSector) {
 
                     // Only send packets that are fully in the active sector range
                     // (in practice there should never be a packet crossing the border)
                     if (sectorIsInRange(sPacketData.getStartSector()) &&
                         sectorIsInRange(sPacketData.getEndSectorInclusive()))
                     {
-                        try {
-                            _listener.feedPacket(sPacketData, log);
-                        } catch (LoggedFailure ex) {
-                            throw new SectorClaimSystem.ClaimerFailure(ex);
-                        }
+                        cs.deliver(new SectorClaimSystem.Delivery() {
+                            public void deliver(@Nonnull ILocalizedLogger log) throws LoggedFailure {
+                                listener.feedPacket(sPacketData, log);
+                            }
+                        });
                     }
                 }
             }
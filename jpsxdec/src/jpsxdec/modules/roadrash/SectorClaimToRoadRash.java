@@ -83,7 +83,7 @@ public class SectorClaimToRoadRash extends SectorClaimSystem.SectorClaimer {
         CdSector cdSector = cs.getSector();
         if (cs.getClaimer() != null || cdSector.isCdAudioSector()) {
             // close any existing stream
-            endVideo(log);
+            endVideo(cs);
             return;
         }
 
@@ -108,8 +108,14 @@ public class SectorClaimToRoadRash extends SectorClaimSystem.SectorClaimer {
                         _sectorStream = new RoadRashStreamReader();
                         rrSector = _sectorStream.readSectorPackets(cdSector, RoadRashPacket.VLC0.SIZEOF, vlc);
                         // tell listener to end any existing videos
-                        if (_listener != null)
-                            _listener.endVideo(log);
+                        if (_listener != null) {
+                            final Listener listener = _listener;
+                            cs.deliver(new SectorClaimSystem.Delivery() {
+                                public void deliver(@Nonnull ILocalizedLogger log) {
+                                    listener.endVideo(log);
+                                }
+                            });
+                        }
                     }
                 }
 
@@ -122,7 +128,7 @@ public class SectorClaimToRoadRash extends SectorClaimSystem.SectorClaimer {
 
                 cs.claim(rrSector);
 
-                for (RoadRashPacketSectors finishedPacket : rrSector) {
+                for (final RoadRashPacketSectors finishedPacket : rrSector) {
                     
 
                     if (_listener != null) {
@@ -131,11 +137,12 @@ public class SectorClaimToRoadRash extends SectorClaimSystem.SectorClaimer {
                         if (sectorIsInRange(finishedPacket.iStartSector) &&
                             sectorIsInRange(finishedPacket.iEndSector))
                         {
-                            try {
-                                _listener.feedPacket(finishedPacket, log);
-                            } catch (LoggedFailure ex) {
-                                throw new SectorClaimSystem.ClaimerFailure(ex);
-                            }
+                            final Listener listener = _listener;
+                            cs.deliver(new SectorClaimSystem.Delivery() {
+                                public void deliver(@Nonnull ILocalizedLogger log) throws LoggedFailure {
+                                    listener.feedPacket(finishedPacket, log);
+                                }
+                            });
                         }
                     }
 
@@ -144,7 +151,7 @@ public class SectorClaimToRoadRash extends SectorClaimSystem.SectorClaimer {
 
             if (_sectorStream != null && _sectorStream.isEnd()) {
                 _sectorStream = null;
-                endVideo(log);
+                endVideo(cs);
             }
         } catch (BinaryDataNotRecognized ex) {
             log.log(Level.SEVERE, I.ROADRASH_DATA_CORRUPTION(), ex);
@@ -152,15 +159,25 @@ public class SectorClaimToRoadRash extends SectorClaimSystem.SectorClaimer {
         }
     }
 
-    private void endVideo(@Nonnull ILocalizedLogger log) {
+    private void endVideo(@Nonnull SectorClaimSystem.ClaimableSector cs) {
         if (_sectorStream != null) {
             _sectorStream = null;
-            if (_listener != null)
-                _listener.endVideo(log);
+            if (_listener != null) {
+                final Listener listener = _listener;
+                cs.deliver(new SectorClaimSystem.Delivery() {
+                    public void deliver(@Nonnull ILocalizedLogger log) {
+                        listener.endVideo(log);
+                    }
+                });
+            }
         }
     }
 
     public void endOfSectors(@Nonnull ILocalizedLogger log) {
-        endVideo(log);
+        if (_sectorStream != null) {
+            _sectorStream = null;
+            if (_listener != null)
+                _listener.endVideo(log);
+        }
     }
 }
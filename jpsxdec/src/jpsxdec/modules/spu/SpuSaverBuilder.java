@@ -51,7 +51,7 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.sound.sampled.AudioFileFormat;
 import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
+import jpsxdec.adpcm.SoundUnitDecoder;
 import jpsxdec.adpcm.SpuAdpcmSoundUnit;
 import jpsxdec.adpcm.VagWriter;
 import jpsxdec.discitems.DiscItemSaverBuilder;
@@ -68,6 +68,7 @@ import jpsxdec.i18n.exception.LoggedFailure;
 import jpsxdec.i18n.log.ILocalizedLogger;
 import jpsxdec.i18n.log.ProgressLogger;
 import jpsxdec.util.ArgParser;
+import jpsxdec.util.AudioOutputFileWriter;
 import jpsxdec.util.IO;
 import jpsxdec.util.TaskCanceledException;
 
@@ -368,11 +369,22 @@ public class SpuSaverBuilder extends DiscItemSaverBuilder {
             throws LoggedFailure
     {
         AudioInputStream ais = _spuItem.getAudioStream(_dblVolume);
+        AudioOutputFileWriter writer = null;
         try {
+            writer = new AudioOutputFileWriter(outputFile, ais.getFormat(), audioFileType);
             addGeneratedFile(outputFile);
-            AudioSystem.write(ais, audioFileType, outputFile);
+            byte[] abBuffer = new byte[SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT * ais.getFormat().getFrameSize() * 64];
+            int iRead;
+            while ((iRead = ais.read(abBuffer)) > 0) {
+                writer.write(abBuffer, 0, iRead);
+            }
+            writer.close();
+            writer = null;
         } catch (IOException ex) {
             throw new LoggedFailure(pl, Level.SEVERE, I.IO_WRITING_FILE_ERROR_NAME(outputFile.toString()), ex);
+        } finally {
+            IO.closeSilently(writer, LOG);
+            IO.closeSilently(ais, LOG);
         }
     }
     private void startSaveSpu(@Nonnull ProgressLogger pl,
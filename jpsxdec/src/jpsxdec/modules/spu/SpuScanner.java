@@ -0,0 +1,224 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.modules.spu;
+
+import javax.annotation.Nonnull;
+import jpsxdec.cdreaders.CdSector;
+
+/** Searches runs of sectors for sequences of SPU ADPCM sound units.
+ * <p>
+ * A sound unit is 16 bytes and may start at any 4 byte boundary, so there
+ * are 4 possible sequences (phases) being followed at a time. Every 4 byte
+ * word is the header of a sound unit in one phase, and sound data in the
+ * other 3. While no phase is in a sequence, only the words that could
+ * start one need to be found, which is a quick check of 2 bytes per word
+ * and covers all 4 phases at once. The state of each phase is kept in
+ * primitive arrays and the sector data is read from a plain array.
+ * <p>
+ * http://problemkaputt.de/psx-spx.htm#soundprocessingunitspu
+ * <pre>
+ * Flag Bits (in 2nd byte of ADPCM Header)
+ *
+ * 0 Loop End (0=No change, 1=Set ENDX flag and Jump to [1F801C0Eh+N*10h])
+ * 1 Loop Repeat (0=Force Release and set ADSR Level to Zero; only if Bit0=1)
+ * 2 Loop Start (0=No change, 1=Copy current address to [1F801C0Eh+N*10h])
+ * 3-7 Unknown (usually 0)
+ *
+ * Possible combinations for Bit0-1 are:
+ *
+ * Code 0 = Normal (continue at next 16-byte block)
+ * Code 1 = End+Mute (jump to Loop-address, set ENDX flag, Release, Env=0000h)
+ * Code 2 = Ignored (same as Code 0)
+ * Code 3 = End+Repeat (jump to Loop-address, set ENDX flag)
+ * </pre>
+ * Looped and One-shot Samples
+ * The Loop Start/End flags in the ADPCM Header allow to play one or more
+ * sample block(s) in a loop, that can be either  all block(s) endless
+ * repeated, or only the last some block(s) of the sample.
+ * There's no way to stop the output, so a one-shot sample must be
+ * followed by dummy block (with Loop Start/End flags both set, and all data
+ * nibbles set to zero; so that the block gets endless repeated, but doesn't
+ * produce any sound).
+ */
+class SpuScanner {
+
+    public interface Listener {
+        void soundUnitsFound(int iStartSector, int iStartOffset,
+                             int iEndSector, int iEndOffset,
+                             int iSoundUnitCount);
+    }
+
+    private static final int MIN_SOUND_UNIT_COUNT = 16;
+
+    /** 4 byte words in a sound unit. */
+    private static final int PHASES = 4;
+
+    /** If the first header byte (filter and range) is valid for each
+     * value. */
+    private static final boolean[] VALID_FILTER_RANGE = new boolean[256];
+    static {
+        for (int i = 0; i < VALID_FILTER_RANGE.length; i++) {
+            int iFilter = (i >> 4) & 0xf;
+            int iRange = i & 0xf;
+            VALID_FILTER_RANGE[i] = iFilter <= 4 && iRange <= 12;
+        }
+    }
+
+    @Nonnull
+    private final Listener _listener;
+
+    // state of each phase
+    private final int[] _aiStartSector = new int[PHASES];
+    private final int[] _aiStartOffset = new int[PHASES];
+    private final int[] _aiEndSector = new int[PHASES];
+    private final int[] _aiEndOffset = new int[PHASES];
+    private final int[] _aiSoundUnitCount = new int[PHASES];
+    private final boolean[] _ablnLastSoundUnit = new boolean[PHASES];
+    private final boolean[] _ablnOnlyZeroes = new boolean[PHASES];
+    /** Bit set for each phase that is in a sequence. */
+    private int _iInRunMask = 0;
+
+    /** The phase that the next word is the header for.
+     * Carries on across sectors and runs. */
+    private int _iPhase = 0;
+
+    @Nonnull
+    private byte[] _abUserData = new byte[CdSector.SECTOR_USER_DATA_SIZE_CD_AUDIO];
+
+    public SpuScanner(@Nonnull Listener listener) {
+        _listener = listener;
+    }
+
+    public void addSector(@Nonnull CdSector cdSector) {
+        int iUserDataSize = cdSector.getCdUserDataSize();
+        if ((iUserDataSize & 3) != 0)
+            throw new RuntimeException("Sector user data size " + iUserDataSize + " is not a multiple of 4");
+        if (_abUserData.length < iUserDataSize)
+            _abUserData = new byte[iUserDataSize];
+        cdSector.getCdUserDataCopy(0, _abUserData, 0, iUserDataSize);
+        final byte[] ab = _abUserData;
+        int iSector = cdSector.getSectorIndexFromStart();
+
+        int iOfs = 0;
+        while (iOfs < iUserDataSize) {
+            if (_iInRunMask == 0) {
+                // skip to the next word that could start a sequence
+                int iStartOfs = iOfs;
+                while (iOfs < iUserDataSize && !couldStartRun(ab[iOfs], ab[iOfs+1]))
+                    iOfs += 4;
+                _iPhase = (_iPhase + ((iOfs - iStartOfs) >> 2)) & (PHASES - 1);
+                if (iOfs >= iUserDataSize)
+                    break;
+            }
+
+            int iWord = ((ab[iOfs  ] & 0xff) << 24) | ((ab[iOfs+1] & 0xff) << 16) |
+                        ((ab[iOfs+2] & 0xff) <<  8) |  (ab[iOfs+3] & 0xff);
+            int iPhase = _iPhase;
+            header(iPhase, iWord, iSector, iOfs);
+            if (_iInRunMask != 0) {
+                // the word is the last, 3rd, and 2nd word of the other phases
+                for (int iWordIndex = PHASES - 1; iWordIndex > 0; iWordIndex--) {
+                    iPhase = (iPhase + 1) & (PHASES - 1);
+                    if ((_iInRunMask & (1 << iPhase)) != 0)
+                        soundData(iPhase, iWordIndex, iWord, iSector, iOfs);
+                }
+            }
+
+            _iPhase = (_iPhase + 1) & (PHASES - 1);
+            iOfs += 4;
+        }
+    }
+
+    /** Ends any sequences without saving them. */
+    public void endOfRun() {
+        _iInRunMask = 0;
+    }
+
+    /** If a header starting with these 2 bytes would start a sequence:
+     * valid, not all zero, and not the end. */
+    private static boolean couldStartRun(byte bFilterRange, byte bFlagBits) {
+        // flag bits <= 7 and the end bit not set
+        return (bFlagBits & ~6) == 0 && bFilterRange != 0 &&
+               VALID_FILTER_RANGE[bFilterRange & 0xff];
+    }
+
+    private void header(int iPhase, int iWord, int iSector, int iOfs) {
+        int iFilterRange = (iWord >> 24) & 0xff;
+        int iFlagBits = (iWord >> 16) & 0xff;
+
+        boolean blnIsSpuHeader = VALID_FILTER_RANGE[iFilterRange] && iFlagBits <= 7;
+        boolean blnIsEnd = blnIsSpuHeader && (iFlagBits & 1) != 0;
+
+        int iPhaseBit = 1 << iPhase;
+        if ((_iInRunMask & iPhaseBit) != 0) {
+            if (!blnIsSpuHeader) {
+                _iInRunMask &= ~iPhaseBit;
+            } else if (blnIsEnd) {
+                _ablnLastSoundUnit[iPhase] = true;
+            }
+        } else if (blnIsSpuHeader && iFilterRange != 0 && !blnIsEnd) {
+            // not in a sequence and this is a non-zero SPU header
+            _aiStartSector[iPhase] = iSector;
+            _aiStartOffset[iPhase] = iOfs;
+            _aiSoundUnitCount[iPhase] = 0;
+            _ablnLastSoundUnit[iPhase] = false;
+            _ablnOnlyZeroes[iPhase] = (iWord & 0xffff) == 0;
+            _iInRunMask |= iPhaseBit;
+        }
+    }
+
+    /** @param iWordIndex 1 to 3 within the sound unit. */
+    private void soundData(int iPhase, int iWordIndex, int iWord, int iSector, int iOfs) {
+        _ablnOnlyZeroes[iPhase] = _ablnOnlyZeroes[iPhase] && iWord == 0;
+        if (iWordIndex == PHASES - 1) {
+            _aiEndSector[iPhase] = iSector;
+            _aiEndOffset[iPhase] = iOfs + 3;
+            _aiSoundUnitCount[iPhase]++;
+            if (_ablnLastSoundUnit[iPhase]) {
+                _iInRunMask &= ~(1 << iPhase);
+                if (_aiSoundUnitCount[iPhase] >= MIN_SOUND_UNIT_COUNT && !_ablnOnlyZeroes[iPhase]) {
+                    _listener.soundUnitsFound(_aiStartSector[iPhase], _aiStartOffset[iPhase],
+                                              _aiEndSector[iPhase], _aiEndOffset[iPhase],
+                                              _aiSoundUnitCount[iPhase]);
+                }
+            }
+        }
+    }
+
+}
@@ -80,18 +80,21 @@ public class SectorClaimToSquareAudioSector extends SectorClaimSystem.SectorClai
                            @Nonnull ILocalizedLogger log)
             throws IOException, SectorClaimSystem.ClaimerFailure
     {
-        if (cs.isClaimed())
+        if (cs.isClaimed() || !cs.couldBe(SectorFF8.SectorFF8Audio.class,
+                                          SectorFF9.SectorFF9Audio.class,
+                                          SectorChronoXAudio.class))
             return;
-        ISquareAudioSector audSector = id(cs.getSector());
+        final ISquareAudioSector audSector = id(cs.getSector());
         if (audSector == null)
             return;
         cs.claim(audSector);
         if (_listener != null && sectorIsInRange(cs.getSector().getSectorIndexFromStart())) {
-            try {
-                _listener.sectorRead(audSector, log);
-            } catch (LoggedFailure ex) {
-                throw new SectorClaimSystem.ClaimerFailure(ex);
-            }
+            final Listener listener = _listener;
+            cs.deliver(new SectorClaimSystem.Delivery() {
+                public void deliver(@Nonnull ILocalizedLogger log) throws LoggedFailure {
+                    listener.sectorRead(audSector, log);
+                }
+            });
         }
     }
 
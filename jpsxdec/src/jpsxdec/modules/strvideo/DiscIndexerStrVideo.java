@@ -42,6 +42,7 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import jpsxdec.cdreaders.CdFileSectorReader;
@@ -166,6 +167,16 @@ public class DiscIndexerStrVideo extends DiscIndexer implements DemuxedFrameWith
     }
 
 
+    @Override
+    public void mergeRanges(@Nonnull List<? extends DiscIndexer> rangeIndexers,
+                            @Nonnull Set<DiscItem> keptItems)
+    {
+        _completedVideos.clear();
+        for (DiscIndexer indexer : rangeIndexers) {
+            addKeptItems(((DiscIndexerStrVideo)indexer)._completedVideos, keptItems, _completedVideos);
+        }
+    }
+
     @Override
     public void listPostProcessing(@Nonnull Collection<DiscItem> allItems) {
         if (_completedVideos.size() > 0)
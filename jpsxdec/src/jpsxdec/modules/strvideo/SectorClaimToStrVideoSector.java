@@ -77,16 +77,17 @@ public class SectorClaimToStrVideoSector extends SectorClaimSystem.SectorClaimer
     {
         if (cs.isClaimed())
             return;
-        ISelfDemuxingVideoSector vidSector = VideoSectorIdentifier.idAndClaim(cs);
+        final ISelfDemuxingVideoSector vidSector = VideoSectorIdentifier.idAndClaim(cs);
 
         if (vidSector != null && _listener != null && 
             sectorIsInRange(cs.getSector().getSectorIndexFromStart()))
         {
-            try {
-                _listener.feedSector(vidSector, log);
-            } catch (LoggedFailure ex) {
-                throw new SectorClaimSystem.ClaimerFailure(ex);
-            }
+            final Listener listener = _listener;
+            cs.deliver(new SectorClaimSystem.Delivery() {
+                public void deliver(@Nonnull ILocalizedLogger log) throws LoggedFailure {
+                    listener.feedSector(vidSector, log);
+                }
+            });
         }
     }
 
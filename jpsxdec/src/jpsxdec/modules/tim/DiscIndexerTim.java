@@ -37,11 +37,7 @@
 
 package jpsxdec.modules.tim;
 
-import java.io.EOFException;
-import java.io.IOException;
 import java.util.Collection;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import jpsxdec.cdreaders.CdSector;
@@ -53,17 +49,12 @@ import jpsxdec.indexing.DiscIndexer;
 import jpsxdec.modules.CdSectorDemuxPiece;
 import jpsxdec.modules.SectorClaimSystem;
 import jpsxdec.modules.SectorClaimToUnidentifiedSector;
-import jpsxdec.tim.Tim;
 import jpsxdec.tim.TimInfo;
-import jpsxdec.util.DemuxPushInputStream;
 import jpsxdec.util.DemuxedData;
-import jpsxdec.util.IO;
 
 /** Searches for TIM images. */
 public class DiscIndexerTim extends DiscIndexer implements SectorClaimToUnidentifiedSector.Listener {
 
-    private static final Logger LOG = Logger.getLogger(DiscIndexerTim.class.getName());
-
     @Override
     public @CheckForNull DiscItem deserializeLineRead(@Nonnull SerializedDiscItem serial)
             throws LocalizedDeserializationFail
@@ -79,104 +70,21 @@ public class DiscIndexerTim extends DiscIndexer implements SectorClaimToUnidenti
         s2us.addListener(this);
     }
 
-    @CheckForNull
-    private DemuxPushInputStream<CdSectorDemuxPiece> _stream;
+    private final TimScanner _scanner = new TimScanner(new TimScanner.Listener() {
+        public void timFound(@Nonnull DemuxedData<CdSectorDemuxPiece> demux, @Nonnull TimInfo tim) {
+            addTim(demux, tim);
+        }
+    });
 
-    public void feedSector(CdSector sector) {
-        CdSectorDemuxPiece piece = new CdSectorDemuxPiece(sector);
-        if (_stream == null)
-            _stream = new DemuxPushInputStream<CdSectorDemuxPiece>(piece);
-        else
-            _stream.addPiece(piece);
-        findTims();
+    public void feedSector(@Nonnull CdSector sector) {
+        _scanner.addPiece(new CdSectorDemuxPiece(sector));
     }
 
     public void endOfUnidentified() {
-        exhaustStream();
-    }
-
-    private void findTims() {
-        if (_stream == null)
-            return;
-        // read loop
-        while (_stream.available() > Tim.MINIMUM_TIM_SIZE) {
-            // ^ no sense looking for Tims if there isn't enough left to contain one
-            _stream.mark(Integer.MAX_VALUE);
-            try {
-                TimInfo ti = Tim.isTim(_stream);
-                if (ti != null) {
-                    // found a tim: reset, skip, loop
-                    addTim(ti);
-                }
-                // else, if bin not rec: reset, skip, loop
-            } catch (DemuxPushInputStream.NeedsMoreData ex) {
-                // if need more: reset, break
-                _stream.reset();
-                break;
-            } catch (EOFException ex) {
-                // should not happen
-                throw new RuntimeException(ex);
-            } catch (IOException ex) {
-                // should not happen
-                throw new RuntimeException(ex);
-            }
-
-            _stream.reset();
-            _stream.mark(4); // in case we are unable to skip 4 full bytes
-            try {
-                IO.skip(_stream, 4);
-            } catch (DemuxPushInputStream.NeedsMoreData ex) {
-                // if need more: reset, break to try again later
-                _stream.reset();
-                break;
-            } catch (IOException ex) {
-                // should not happen
-                throw new RuntimeException(ex);
-            }
-        }
+        _scanner.endOfRun();
     }
 
-    private void exhaustStream() {
-        if (_stream == null)
-            return;
-        _stream.close();
-        // read skip loop until skip throws eof
-        while (_stream.available() > 2) {
-            // ^ if the first 2 bytes of a Tim are found at the very end of the stream,
-            //   it's stilly to assume we were in the middle of a possible Tim
-            _stream.mark(Integer.MAX_VALUE);
-            try {
-                TimInfo ti = Tim.isTim(_stream);
-                if (ti != null) {
-                    // found a tim: reset and skip
-                    addTim(ti);
-                }
-                // else, no problem: reset and skip again
-            } catch (EOFException ex) {
-                LOG.log(Level.INFO, "Stream ended in the middle of possible Tim", ex);
-                // no problem: reset and skip again
-            } catch (IOException ex) {
-                // should not happen
-                throw new RuntimeException(ex);
-            }
-
-            _stream.reset();
-            try {
-                IO.skip(_stream, 4);
-            } catch (EOFException ex) {
-                // end of stream when skipping: stream exhaused, all done
-                break;
-            } catch (IOException ex) {
-                // should not happen
-                throw new RuntimeException(ex);
-            }
-        }
-        _stream = null;
-    }
-
-
-    private void addTim(@Nonnull TimInfo tim) {
-        DemuxedData<CdSectorDemuxPiece> demux = _stream.getMarkToReadDemux();
+    private void addTim(@Nonnull DemuxedData<CdSectorDemuxPiece> demux, @Nonnull TimInfo tim) {
         addDiscItem(new DiscItemTim(getCd(),
                 demux.getStartSector(), demux.getEndSector(),
                 demux.getStartDataOffset(), tim.iPaletteCount, tim.iBitsPerPixel,
@@ -0,0 +1,189 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.modules.tim;
+
+import java.io.EOFException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nonnull;
+import jpsxdec.modules.CdSectorDemuxPiece;
+import jpsxdec.tim.Tim;
+import jpsxdec.tim.TimInfo;
+import jpsxdec.util.DemuxedData;
+
+/** Searches a run of demuxed sectors for Tim images, checking every 4th
+ * byte from the start of the run.
+ * <p>
+ * The sector data is copied into one contiguous array so every offset can
+ * be checked with {@link Tim#isTim(byte[], int, int)}, which rejects
+ * almost all of them after reading a couple ints. Tims are found at the
+ * same offsets, and as soon (sector-wise), as checking every offset of a
+ * {@link jpsxdec.util.DemuxPushInputStream} with
+ * {@link Tim#isTim(java.io.InputStream)}. */
+class TimScanner {
+
+    private static final Logger LOG = Logger.getLogger(TimScanner.class.getName());
+
+    public interface Listener {
+        void timFound(@Nonnull DemuxedData<CdSectorDemuxPiece> demux, @Nonnull TimInfo tim);
+    }
+
+    @Nonnull
+    private final Listener _listener;
+
+    /** Pieces whose data is in the buffer. */
+    private final ArrayList<CdSectorDemuxPiece> _pieces = new ArrayList<CdSectorDemuxPiece>();
+    /** Where each piece in {@link #_pieces} starts in the buffer. */
+    @Nonnull
+    private int[] _aiPieceStarts = new int[16];
+
+    @Nonnull
+    private byte[] _abBuffer = new byte[16 * 2352];
+    private int _iBufferSize = 0;
+    /** Next offset in the buffer to check for a Tim. */
+    private int _iScanPos = 0;
+
+    public TimScanner(@Nonnull Listener listener) {
+        _listener = listener;
+    }
+
+    /** Adds the next piece of the run and checks all the offsets that now
+     * have enough data. */
+    public void addPiece(@Nonnull CdSectorDemuxPiece piece) {
+        int iSize = piece.getDemuxPieceSize();
+        if (_iBufferSize + iSize > _abBuffer.length)
+            _abBuffer = Arrays.copyOf(_abBuffer, Math.max(_abBuffer.length * 2, _iBufferSize + iSize));
+        if (_pieces.size() == _aiPieceStarts.length)
+            _aiPieceStarts = Arrays.copyOf(_aiPieceStarts, _aiPieceStarts.length * 2);
+        piece.copyDemuxPieceData(_abBuffer, _iBufferSize);
+        _aiPieceStarts[_pieces.size()] = _iBufferSize;
+        _pieces.add(piece);
+        _iBufferSize += iSize;
+
+        scan(false);
+        discardScanned();
+    }
+
+    /** Checks the remaining offsets of the run, then starts a new run. */
+    public void endOfRun() {
+        scan(true);
+        _pieces.clear();
+        _iBufferSize = 0;
+        _iScanPos = 0;
+    }
+
+    /** @param blnEndOfRun If no more data will be added. Otherwise stops at
+     *                     the first offset that needs more data to know if
+     *                     it is a Tim. */
+    private void scan(boolean blnEndOfRun) {
+        // no sense looking for Tims if there isn't enough left to contain one
+        // (until the end, but even then if only the first 2 bytes of a Tim
+        //  are found, it's silly to assume we were in the middle of a possible Tim)
+        final int iMinAvailable = blnEndOfRun ? 3 : Tim.MINIMUM_TIM_SIZE + 1;
+        while (true) {
+            int iAvailable = _iBufferSize - _iScanPos;
+            if (iAvailable < iMinAvailable)
+                break;
+
+            // quickly skip offsets that can't be a Tim, as long as there is
+            // a whole Tim header start to check
+            int iEndOffset = _iBufferSize - Math.max(iMinAvailable, 8) + 1;
+            if (_iScanPos < iEndOffset) {
+                int iFound = Tim.findPossibleTim(_abBuffer, _iScanPos, iEndOffset);
+                if (iFound < 0) {
+                    // next offset after the ones checked
+                    _iScanPos += (iEndOffset - _iScanPos + 3) & ~3;
+                    continue;
+                }
+                _iScanPos = iFound;
+                iAvailable = _iBufferSize - _iScanPos;
+            }
+
+            try {
+                TimInfo tim = Tim.isTim(_abBuffer, _iScanPos, iAvailable);
+                if (tim != null)
+                    _listener.timFound(demux(_iScanPos, tim.iByteSize), tim);
+            } catch (EOFException ex) {
+                if (!blnEndOfRun)
+                    break; // try again when there is more data
+                LOG.log(Level.INFO, "Stream ended in the middle of possible Tim", ex);
+            }
+
+            _iScanPos += 4;
+        }
+    }
+
+    /** Sectors spanned by the data at {@code iStart} of {@code iSize} bytes. */
+    private @Nonnull DemuxedData<CdSectorDemuxPiece> demux(int iStart, int iSize) {
+        int iStartPiece = pieceContaining(iStart);
+        int iEndPiece = pieceContaining(iStart + iSize - 1);
+        ArrayList<CdSectorDemuxPiece> span =
+                new ArrayList<CdSectorDemuxPiece>(_pieces.subList(iStartPiece, iEndPiece + 1));
+        return new DemuxedData<CdSectorDemuxPiece>(span,
+                iStart - _aiPieceStarts[iStartPiece],
+                iStart + iSize - _aiPieceStarts[iEndPiece]);
+    }
+
+    private int pieceContaining(int iBufferOffset) {
+        int i = Arrays.binarySearch(_aiPieceStarts, 0, _pieces.size(), iBufferOffset);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /** Drops the pieces that are entirely before the scan position once
+     * they make up at least half the buffer. */
+    private void discardScanned() {
+        int iDiscardPieces = pieceContaining(Math.min(_iScanPos, _iBufferSize - 1));
+        if (iDiscardPieces == 0)
+            return;
+        int iDiscardBytes = _aiPieceStarts[iDiscardPieces];
+        if (iDiscardBytes < _iBufferSize / 2)
+            return;
+
+        System.arraycopy(_abBuffer, iDiscardBytes, _abBuffer, 0, _iBufferSize - iDiscardBytes);
+        _iBufferSize -= iDiscardBytes;
+        _iScanPos -= iDiscardBytes;
+        _pieces.subList(0, iDiscardPieces).clear();
+        for (int i = 0; i < _pieces.size(); i++) {
+            _aiPieceStarts[i] = _aiPieceStarts[i + iDiscardPieces] - iDiscardBytes;
+        }
+    }
+
+}
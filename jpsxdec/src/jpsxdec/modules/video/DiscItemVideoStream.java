@@ -205,7 +205,8 @@ public abstract class DiscItemVideoStream extends DiscItem {
         it.close(DebugLogger.Log);
     }
 
-    public void replaceFrames(@Nonnull ProgressLogger pl, @Nonnull String sXmlFile)
+    /** @param iThreads Number of threads to use to compress each frame. */
+    public void replaceFrames(@Nonnull ProgressLogger pl, @Nonnull String sXmlFile, int iThreads)
             throws LoggedFailure, TaskCanceledException
     {
         ReplaceFrames replacers;
@@ -221,6 +222,6 @@ public abstract class DiscItemVideoStream extends DiscItem {
             throw new LoggedFailure(pl, Level.SEVERE,
                                     ex.getSourceMessage(), ex);
         }
-        replacers.replaceFrames(this, getSourceCd(), pl);
+        replacers.replaceFrames(this, getSourceCd(), pl, iThreads);
     }
 }
@@ -56,6 +56,7 @@ import jpsxdec.modules.video.IDemuxedFrame;
 import jpsxdec.modules.video.framenumber.FrameLookup;
 import jpsxdec.psxvideo.bitstreams.BitStreamCompressor;
 import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor;
+import jpsxdec.psxvideo.bitstreams.QscaleSearch;
 import jpsxdec.psxvideo.encode.MdecEncoder;
 import jpsxdec.psxvideo.encode.PsxYCbCrImage;
 import jpsxdec.psxvideo.mdec.Calc;
@@ -142,7 +143,7 @@ public class ReplaceFrameFull {
     }
 
     public void replace(@Nonnull IDemuxedFrame frame, @Nonnull CdFileSectorReader cd,
-                        @Nonnull ILocalizedLogger log)
+                        @Nonnull QscaleSearch qscaleSearch, @Nonnull ILocalizedLogger log)
             throws LoggedFailure
     {
         // identify existing frame bs format
@@ -171,6 +172,7 @@ public class ReplaceFrameFull {
             abNewFrame = readBitstreamFile(_imageFile, log);
         } else {
             BitStreamCompressor compressor = bsu.makeCompressor();
+            compressor.setQscaleSearch(qscaleSearch);
             if (_format == ImageFormat.MDEC) {
                 abNewFrame = readMdecAndCompress(_imageFile, getFrameLookup(),
                                                  compressor, log);
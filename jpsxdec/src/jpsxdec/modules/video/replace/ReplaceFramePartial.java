@@ -60,6 +60,7 @@ import jpsxdec.modules.video.IDemuxedFrame;
 import jpsxdec.modules.video.framenumber.FrameLookup;
 import jpsxdec.psxvideo.bitstreams.BitStreamCompressor;
 import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor;
+import jpsxdec.psxvideo.bitstreams.QscaleSearch;
 import jpsxdec.psxvideo.encode.MdecEncoder;
 import jpsxdec.psxvideo.encode.ParsedMdecImage;
 import jpsxdec.psxvideo.encode.PsxYCbCrImage;
@@ -168,7 +169,7 @@ public class ReplaceFramePartial extends ReplaceFrameFull {
 
     @Override
     public void replace(@Nonnull IDemuxedFrame frame, @Nonnull CdFileSectorReader cd,
-                        @Nonnull ILocalizedLogger log)
+                        @Nonnull QscaleSearch qscaleSearch, @Nonnull ILocalizedLogger log)
             throws LoggedFailure
     {
         File newImgFile = getImageFile();
@@ -218,6 +219,7 @@ public class ReplaceFramePartial extends ReplaceFrameFull {
             PsxYCbCrImage newYuvImg = new PsxYCbCrImage(newImg);
             MdecEncoder encoder = new MdecEncoder(parsedOrig, newYuvImg, diffMacblks);
             BitStreamCompressor comp = bsu.makeCompressor();
+            comp.setQscaleSearch(qscaleSearch);
 
             byte[] abNewFrame;
             try {
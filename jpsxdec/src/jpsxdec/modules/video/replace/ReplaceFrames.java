@@ -68,6 +68,7 @@ import jpsxdec.modules.video.IDemuxedFrame;
 import jpsxdec.modules.video.ISectorClaimToDemuxedFrame;
 import jpsxdec.modules.video.framenumber.FrameCompareIs;
 import jpsxdec.modules.video.framenumber.FrameNumber;
+import jpsxdec.psxvideo.bitstreams.QscaleSearch;
 import jpsxdec.util.IO;
 import jpsxdec.util.TaskCanceledException;
 import org.w3c.dom.Document;
@@ -78,7 +79,7 @@ import org.xml.sax.SAXException;
 
 /*
 <?xml version="1.0"?>
-<str-replace version="0.2">
+<str-replace version="0.2" refine-macroblocks="true">
 
     <replace frame="14" format="bmp">newframe14.bmp</replace>
 
@@ -109,6 +110,10 @@ public class ReplaceFrames {
     private static final String VERSION = "0.2";
 
     private final ArrayList<ReplaceFrameFull> _replacers = new ArrayList<ReplaceFrameFull>();
+    /** For bitstreams that can have a different quantization scale for each
+     * macroblock, lower the scale of the busiest macroblocks while the frame
+     * still fits. Optional attribute, on by default. */
+    private boolean _blnRefineMacroBlocks = true;
 
     public ReplaceFrames() {}
 
@@ -155,6 +160,8 @@ public class ReplaceFrames {
             throw new LocalizedDeserializationFail(I.CMD_REPLACE_XML_INVALID_ROOT_NODE(root.getNodeName()));
         if (!VERSION.equals(root.getAttribute("version")))
             throw new LocalizedDeserializationFail(I.CMD_REPLACE_XML_INVALID_VERSION(root.getAttribute("version")));
+        if (root.hasAttribute("refine-macroblocks"))
+            _blnRefineMacroBlocks = Boolean.parseBoolean(root.getAttribute("refine-macroblocks").trim());
 
         NodeList nodeLst = root.getChildNodes();
 
@@ -184,6 +191,8 @@ public class ReplaceFrames {
             Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
             Element root = document.createElement("str-replace");
             root.setAttribute("version", VERSION);
+            if (!_blnRefineMacroBlocks)
+                root.setAttribute("refine-macroblocks", String.valueOf(_blnRefineMacroBlocks));
             document.appendChild(root);
             for (ReplaceFrameFull replacer : _replacers) {
                 root.appendChild(replacer.serialize(document));
@@ -214,13 +223,38 @@ public class ReplaceFrames {
         _replacers.add(replace);
     }
 
+    public boolean getRefineMacroBlocks() {
+        return _blnRefineMacroBlocks;
+    }
+
+    public void setRefineMacroBlocks(boolean blnRefineMacroBlocks) {
+        _blnRefineMacroBlocks = blnRefineMacroBlocks;
+    }
+
+    /** @param iThreads Number of threads to use when searching for the
+     *                  quantization scale that makes each frame fit. */
     public void replaceFrames(@Nonnull DiscItemVideoStream vidItem, 
                               final @Nonnull CdFileSectorReader cd,
-                              final @Nonnull ProgressLogger pl)
+                              final @Nonnull ProgressLogger pl,
+                              int iThreads)
+            throws LoggedFailure, TaskCanceledException
+    {
+        QscaleSearch qscaleSearch = new QscaleSearch(iThreads, _blnRefineMacroBlocks);
+        try {
+            replaceFrames(vidItem, cd, pl, qscaleSearch);
+        } finally {
+            qscaleSearch.close();
+        }
+    }
+
+    private void replaceFrames(@Nonnull DiscItemVideoStream vidItem,
+                               @Nonnull CdFileSectorReader cd,
+                               @Nonnull ProgressLogger pl,
+                               @Nonnull QscaleSearch qscaleSearch)
             throws LoggedFailure, TaskCanceledException
     {
         ISectorClaimToDemuxedFrame demuxer = vidItem.makeDemuxer();
-        ReplaceFrameListener replaceListener = new ReplaceFrameListener(pl, cd);
+        ReplaceFrameListener replaceListener = new ReplaceFrameListener(pl, cd, qscaleSearch);
         demuxer.setFrameListener(replaceListener);
 
         pl.progressStart(vidItem.getSectorLength());
@@ -250,6 +284,8 @@ public class ReplaceFrames {
         private final ProgressLogger _pl;
         @Nonnull
         private final CdFileSectorReader _cd;
+        @Nonnull
+        private final QscaleSearch _qscaleSearch;
 
         @CheckForNull
         public FrameNumber currentFrameNum;
@@ -257,9 +293,12 @@ public class ReplaceFrames {
         @CheckForNull
         public LoggedFailure exception;
 
-        public ReplaceFrameListener(ProgressLogger pl, CdFileSectorReader cd) {
+        public ReplaceFrameListener(ProgressLogger pl, CdFileSectorReader cd,
+                                    QscaleSearch qscaleSearch)
+        {
             _pl = pl;
             _cd = cd;
+            _qscaleSearch = qscaleSearch;
         }
 
         public void frameComplete(@Nonnull IDemuxedFrame frame) {
@@ -270,7 +309,7 @@ public class ReplaceFrames {
                 try {
                     _pl.log(Level.INFO, I.CMD_REPLACING_FRAME_WITH_FILE(replacer.getFrameLookup().toString(),
                                                                         replacer.getImageFile()));
-                    replacer.replace(frame, _cd, _pl);
+                    replacer.replace(frame, _cd, _qscaleSearch, _pl);
                 } catch (LoggedFailure ex) {
                     exception = ex;
                 }
@@ -73,7 +73,7 @@ public class AutowireVDP {
 
     public void autowire() throws IllegalStateException {
         _bitstreamListener = chooseOnlyOne(_bitstream2File, _bitstream2Mdec);
-        _mdecListener = chooseOnlyOne(_mdec2Decoded, _mdec2File, _mdec2Jpeg, _mdec2MjpegAvi);
+        _mdecListener = chooseOnlyOne(_mdec2Decoded, _parallelMdec2Decoded, _mdec2File, _mdec2Jpeg, _mdec2MjpegAvi);
 
         if (_frame2Bitstream != null) {
             _frame2Bitstream.setListener(_bitstreamListener);
@@ -110,7 +110,7 @@ public class AutowireVDP {
     }
 
     private void wireMdecIntoBitstream() {
-        VDP.IMdecListener mdecListener = chooseOnlyOne(_mdec2Decoded, _mdec2File, _mdec2Jpeg, _mdec2MjpegAvi);
+        VDP.IMdecListener mdecListener = chooseOnlyOne(_mdec2Decoded, _parallelMdec2Decoded, _mdec2File, _mdec2Jpeg, _mdec2MjpegAvi);
         if (_bitstream2Mdec == null)
             return;
         if (mdecListener != null)
@@ -124,6 +124,8 @@ public class AutowireVDP {
             return;
         if (_mdec2Decoded != null)
             _mdec2Decoded.setDecoded(_decodedListener);
+        if (_parallelMdec2Decoded != null)
+            _parallelMdec2Decoded.setDecoded(_decodedListener);
     }
 
     private static @CheckForNull <T> T chooseOnlyOne(T... elements) {
@@ -244,6 +246,13 @@ public class AutowireVDP {
         _mdec2Decoded = mdec2Decoded;
     }
 
+    @CheckForNull
+    private VDP.ParallelMdec2Decoded _parallelMdec2Decoded;
+    public void setMap(@Nonnull VDP.ParallelMdec2Decoded parallelMdec2Decoded) {
+        assertNull(_parallelMdec2Decoded);
+        _parallelMdec2Decoded = parallelMdec2Decoded;
+    }
+
     @CheckForNull
     private VDP.Mdec2File _mdec2File;
     public void setMap(@Nonnull VDP.Mdec2File mdec2File) {
@@ -44,9 +44,9 @@ import jpsxdec.i18n.ILocalizedMessage;
 import jpsxdec.psxvideo.mdec.MdecDecoder;
 import jpsxdec.psxvideo.mdec.MdecDecoder_double;
 import jpsxdec.psxvideo.mdec.MdecDecoder_int;
-import jpsxdec.psxvideo.mdec.idct.PsxMdecIDCT_double;
 import jpsxdec.psxvideo.mdec.idct.PsxMdecIDCT_int;
 import jpsxdec.psxvideo.mdec.idct.SimpleIDCT;
+import jpsxdec.psxvideo.mdec.idct.SparsePsxMdecIDCT_double;
 
 
 public enum MdecDecodeQuality {
@@ -57,7 +57,7 @@ public enum MdecDecodeQuality {
     },
     HIGH(I.QUALITY_HIGH_DESCRIPTION(), I.QUALITY_HIGH_COMMAND()) {
         public MdecDecoder makeDecoder(int iWidth, int iHeight) {
-            return new MdecDecoder_double(new PsxMdecIDCT_double(), iWidth, iHeight);
+            return new MdecDecoder_double(new SparsePsxMdecIDCT_double(), iWidth, iHeight);
         }
         public boolean canUpsample() { return true; }
     },
@@ -47,6 +47,12 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
@@ -71,8 +77,10 @@ import jpsxdec.psxvideo.mdec.MdecException;
 import jpsxdec.psxvideo.mdec.MdecInputStream;
 import jpsxdec.psxvideo.mdec.MdecInputStreamReader;
 import jpsxdec.util.BinaryDataNotRecognized;
+import jpsxdec.util.DaemonThreadFactory;
 import jpsxdec.util.ExposedBAOS;
 import jpsxdec.util.Fraction;
+import jpsxdec.util.Futures;
 import jpsxdec.util.IO;
 import jpsxdec.util.aviwriter.AviWriter;
 import jpsxdec.util.aviwriter.AviWriterDIB;
@@ -92,9 +100,12 @@ import jpsxdec.util.aviwriter.AviWriterYV12;
  *                                        +-> MjpegAvi (Mdec2MjpegAvi)
  *                                        |
  *                                        +-> Decoded (Mdec2Decoded) -+-> JavaImage (Decoded2JavaImage)
+ *                                            or ParallelMdec2Decoded |
  *                                                                    |
  *                                                                    +-> RgbAvi, YuvAvi, JYuvAvi (Decoded2...)
  *</pre>
+ * Jpeg and JavaImage can hand the actual file writing off to a
+ * {@link BackgroundFileWriter}.
  */
 public class VDP {
 
@@ -295,13 +306,27 @@ public class VDP {
         private final ILocalizedLogger _log;
         @CheckForNull
         private GeneratedFileListener _fileGenListener;
+        private final int _iWidth, _iHeight;
+        @CheckForNull
+        private BackgroundFileWriter _backgroundWriter;
+        /** Translators not being used by {@link #_backgroundWriter}. */
+        private final ArrayDeque<jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg> _idleTranslators =
+                new ArrayDeque<jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg>();
 
         public Mdec2Jpeg(@Nonnull VideoFileNameFormatter formatter, int iWidth, int iHeight, @Nonnull ILocalizedLogger log) {
             _formatter = formatter;
             _jpegTranslator = new jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg(iWidth, iHeight);
+            _idleTranslators.add(_jpegTranslator);
+            _iWidth = iWidth;
+            _iHeight = iHeight;
             _log = log;
         }
 
+        /** Encode and write the jpegs on background threads. */
+        public void setBackgroundWriter(@CheckForNull BackgroundFileWriter backgroundWriter) {
+            _backgroundWriter = backgroundWriter;
+        }
+
         public void mdec(@Nonnull MdecInputStream mdecIn, @CheckForNull FormattedFrameNumber frameNumber,
                          @Nonnull Fraction presentationSector)
                 throws LoggedFailure
@@ -314,6 +339,11 @@ public class VDP {
                 return; // just skip the file without failing
             }
 
+            if (_backgroundWriter != null) {
+                mdecInBackground(_backgroundWriter, mdecIn, frameNumber, f);
+                return;
+            }
+
             try {
                 _jpegTranslator.readMdec(mdecIn);
             } catch (MdecException.TooMuchEnergy ex) {
@@ -349,6 +379,61 @@ public class VDP {
             }
         }
 
+        /** The mdec is read here, the jpeg is encoded and written in the
+         * background. */
+        private void mdecInBackground(@Nonnull BackgroundFileWriter backgroundWriter,
+                                      @Nonnull MdecInputStream mdecIn,
+                                      final @CheckForNull FormattedFrameNumber frameNumber,
+                                      final @Nonnull File f)
+        {
+            backgroundWriter.waitForRoom();
+            final jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg translator;
+            if (_idleTranslators.isEmpty())
+                translator = new jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg(_iWidth, _iHeight);
+            else
+                translator = _idleTranslators.remove();
+
+            try {
+                translator.readMdec(mdecIn);
+            } catch (MdecException.TooMuchEnergy ex) {
+                _log.log(Level.WARNING, FrameMessage.JPEG_ENCODER_FRAME_FAIL(frameNumber), ex);
+                _idleTranslators.add(translator);
+                return; // just skip the file without failing
+            } catch (MdecException.ReadCorruption ex) {
+                _log.log(Level.WARNING, FrameMessage.FRAME_NUM_CORRUPTED(frameNumber), ex);
+                _idleTranslators.add(translator);
+                return; // just skip the file without failing
+            } catch (MdecException.EndOfStream ex) {
+                _log.log(Level.WARNING, FrameMessage.FRAME_NUM_INCOMPLETE(frameNumber), ex);
+                _idleTranslators.add(translator);
+                return; // just skip the file without failing
+            }
+
+            backgroundWriter.add(new BackgroundFileWriter.FileTask() {
+                private boolean _blnOpened = false;
+                void write() throws IOException {
+                    ExposedBAOS buffer = new ExposedBAOS();
+                    translator.writeJpeg(buffer);
+                    FileOutputStream fos = new FileOutputStream(f);
+                    _blnOpened = true;
+                    try {
+                        fos.write(buffer.getBuffer(), 0, buffer.size());
+                    } finally {
+                        IO.closeSilently(fos, LOG);
+                    }
+                }
+                void written(@CheckForNull IOException ex) {
+                    _idleTranslators.add(translator);
+                    if (_blnOpened && _fileGenListener != null)
+                        _fileGenListener.fileGenerated(f);
+                    if (ex instanceof FileNotFoundException)
+                        _log.log(Level.SEVERE, I.IO_OPENING_FILE_ERROR_NAME(f.toString()), ex);
+                    else if (ex != null)
+                        _log.log(Level.WARNING, FrameMessage.FRAME_WRITE_ERR(f, frameNumber), ex);
+                }
+            });
+        }
+
         public void error(@Nonnull ILocalizedMessage errMsg, @CheckForNull FormattedFrameNumber frameNumber,
                           @Nonnull Fraction presentationSector)
         {
@@ -415,6 +500,259 @@ public class VDP {
 
     }
 
+    /** A frame, error, or audio packet waiting for its turn to be passed
+     * along in the original order. */
+    private static abstract class Pending {
+        /** Frames are ready once they are processed, everything else right away. */
+        abstract boolean isReady();
+        abstract void deliver() throws LoggedFailure;
+    }
+
+    /** Parallel version of {@link Mdec2Decoded}.
+     * Frames are independent once they are demuxed, so several are decoded
+     * at the same time on a pool of threads, each with its own
+     * {@link MdecDecoder}. The {@link IDecodedListener} still receives the
+     * frames on the calling thread in the order they arrived, so the output
+     * is written exactly as it would be with {@link Mdec2Decoded}.
+     * Audio packets going to the same AVI are queued with the frames so
+     * they keep their place too.
+     *<p>
+     * Call {@link #finish()} after the last frame to deliver anything still
+     * being decoded, and always {@link #close()} to stop the threads. */
+    public static class ParallelMdec2Decoded implements IMdecListener, DecodedAudioPacket.Listener, Closeable {
+
+        @Nonnull
+        private final MdecDecoder _firstDecoder;
+        /** Decoders not being used by a frame in {@link #_pending}. */
+        private final ArrayDeque<MdecDecoder> _idleDecoders = new ArrayDeque<MdecDecoder>();
+        /** In the order received. */
+        private final ArrayDeque<Pending> _pending = new ArrayDeque<Pending>();
+        @Nonnull
+        private final ExecutorService _executor;
+        @Nonnull
+        private final ILocalizedLogger _log;
+        @CheckForNull
+        private IDecodedListener _listener;
+        @CheckForNull
+        private DecodedAudioPacket.Listener _audioListener;
+
+        /** @param decoders One decoder for every frame that may be decoded
+         *                  at the same time. All must be the same type. */
+        public ParallelMdec2Decoded(@Nonnull MdecDecoder[] decoders, @Nonnull ILocalizedLogger log) {
+            if (decoders.length < 1)
+                throw new IllegalArgumentException("Need at least 1 decoder");
+            _firstDecoder = decoders[0];
+            _idleDecoders.addAll(Arrays.asList(decoders));
+            _executor = Executors.newFixedThreadPool(decoders.length,
+                    new DaemonThreadFactory(ParallelMdec2Decoded.class.getSimpleName()));
+            _log = log;
+        }
+
+        public void mdec(final @Nonnull MdecInputStream mdecIn, final @CheckForNull FormattedFrameNumber frameNumber,
+                         final @Nonnull Fraction presentationSector)
+                throws LoggedFailure
+        {
+            while (_idleDecoders.isEmpty())
+                deliverNext();
+
+            final MdecDecoder decoder = _idleDecoders.remove();
+            final Future<Exception> decoding = _executor.submit(new Callable<Exception>() {
+                public Exception call() {
+                    try {
+                        decoder.decode(mdecIn);
+                        return null;
+                    } catch (MdecException.ReadCorruption ex) {
+                        return ex;
+                    } catch (MdecException.EndOfStream ex) {
+                        return ex;
+                    }
+                }
+            });
+
+            _pending.add(new Pending() {
+                boolean isReady() {
+                    return decoding.isDone();
+                }
+                void deliver() throws LoggedFailure {
+                    try {
+                        // logged here so the log is in the same order as the frames
+                        Exception ex = Futures.waitFor(decoding);
+                        if (ex instanceof MdecException.ReadCorruption)
+                            _log.log(Level.SEVERE, FrameMessage.FRAME_NUM_CORRUPTED(frameNumber), ex);
+                        else if (ex != null)
+                            _log.log(Level.SEVERE, FrameMessage.FRAME_NUM_INCOMPLETE(frameNumber), ex);
+                        if (_listener != null)
+                            _listener.decoded(decoder, frameNumber, presentationSector);
+                    } finally {
+                        _idleDecoders.add(decoder);
+                    }
+                }
+            });
+            deliverReady();
+        }
+
+        public void error(final @Nonnull ILocalizedMessage errMsg, final @CheckForNull FormattedFrameNumber frameNumber,
+                          final @Nonnull Fraction presentationSector)
+                throws LoggedFailure
+        {
+            _pending.add(new Pending() {
+                boolean isReady() {
+                    return true;
+                }
+                void deliver() throws LoggedFailure {
+                    if (_listener != null)
+                        _listener.error(errMsg, frameNumber, presentationSector);
+                }
+            });
+            deliverReady();
+        }
+
+        public void audioPacketComplete(final @Nonnull DecodedAudioPacket packet,
+                                        final @Nonnull ILocalizedLogger log)
+                throws LoggedFailure
+        {
+            _pending.add(new Pending() {
+                boolean isReady() {
+                    return true;
+                }
+                void deliver() throws LoggedFailure {
+                    if (_audioListener != null)
+                        _audioListener.audioPacketComplete(packet, log);
+                }
+            });
+            deliverReady();
+        }
+
+        /** Delivers everything at the front of the queue that is ready. */
+        private void deliverReady() throws LoggedFailure {
+            while (!_pending.isEmpty() && _pending.peek().isReady())
+                deliverNext();
+        }
+
+        /** Delivers the oldest pending item, waiting for it to decode if necessary. */
+        private void deliverNext() throws LoggedFailure {
+            _pending.remove().deliver();
+        }
+
+        /** Waits for all the frames still being decoded and delivers them. */
+        public void finish() throws LoggedFailure {
+            while (!_pending.isEmpty())
+                deliverNext();
+        }
+
+        /** Stops the decoding threads. Anything not delivered is thrown away. */
+        public void close() {
+            _pending.clear();
+            _executor.shutdownNow();
+        }
+
+        public void setDecoded(@CheckForNull IDecodedListener decoded) {
+            if (decoded == null)
+                return;
+            decoded.assertAcceptsDecoded(_firstDecoder);
+            _listener = decoded;
+        }
+
+        public void setAudioListener(@CheckForNull DecodedAudioPacket.Listener audioListener) {
+            _audioListener = audioListener;
+        }
+
+        public @Nonnull ILocalizedLogger getLog() {
+            return _log;
+        }
+
+    }
+
+    /** Writes image sequence files on background threads so the saving
+     * thread doesn't wait on image encoding or the disk.
+     * <p>
+     * Only a limited number of files can be waiting to be written. Adding
+     * one more first waits for the oldest to finish, which keeps memory use
+     * bounded when the disk can't keep up. {@link FileTask#written} is called
+     * on the saving thread in the same order the files were added, so the
+     * log and {@link GeneratedFileListener} see files in the same order as
+     * writing them directly. */
+    public static class BackgroundFileWriter implements Closeable {
+
+        public static abstract class FileTask {
+            /** Encodes and writes the file. Called on a background thread. */
+            abstract void write() throws IOException;
+            /** Called on the saving thread after {@link #write()} is done.
+             * @param ex The exception thrown by {@link #write()}, if any. */
+            abstract void written(@CheckForNull IOException ex);
+        }
+
+        private static class Pending {
+            @Nonnull
+            public final FileTask task;
+            @Nonnull
+            public final Future<IOException> writing;
+            public Pending(@Nonnull FileTask task, @Nonnull Future<IOException> writing) {
+                this.task = task;
+                this.writing = writing;
+            }
+        }
+
+        /** In the order added. */
+        private final ArrayDeque<Pending> _pending = new ArrayDeque<Pending>();
+        private final int _iMaxPending;
+        @Nonnull
+        private final ExecutorService _executor;
+
+        /** @param iThreads Number of files to write at the same time. */
+        public BackgroundFileWriter(int iThreads) {
+            if (iThreads < 1)
+                throw new IllegalArgumentException("Need at least 1 thread");
+            // enough to keep all the threads busy while the next ones wait
+            _iMaxPending = iThreads * 2;
+            _executor = Executors.newFixedThreadPool(iThreads,
+                    new DaemonThreadFactory(BackgroundFileWriter.class.getSimpleName()));
+        }
+
+        /** Waits until there is room for another file. Call this before
+         * grabbing any resources the next task will need so they can be
+         * released by the finished tasks. */
+        public void waitForRoom() {
+            while (_pending.size() >= _iMaxPending)
+                completeNext();
+        }
+
+        public void add(final @Nonnull FileTask task) {
+            waitForRoom();
+            Future<IOException> writing = _executor.submit(new Callable<IOException>() {
+                public IOException call() {
+                    try {
+                        task.write();
+                        return null;
+                    } catch (IOException ex) {
+                        return ex;
+                    }
+                }
+            });
+            _pending.add(new Pending(task, writing));
+            // report whatever has finished
+            while (!_pending.isEmpty() && _pending.peek().writing.isDone())
+                completeNext();
+        }
+
+        private void completeNext() {
+            Pending next = _pending.remove();
+            next.task.written(Futures.waitFor(next.writing));
+        }
+
+        /** Waits for all the files to be written. */
+        public void finish() {
+            while (!_pending.isEmpty())
+                completeNext();
+        }
+
+        /** Stops the writing threads. Anything not written is thrown away. */
+        public void close() {
+            _pending.clear();
+            _executor.shutdownNow();
+        }
+    }
+
     public interface IDecodedListener {
         void decoded(@Nonnull MdecDecoder decoder, @CheckForNull FormattedFrameNumber frameNumber,
                      @Nonnull Fraction presentationSector) throws LoggedFailure;
@@ -435,18 +773,33 @@ public class VDP {
         private final ILocalizedLogger _log;
         @CheckForNull
         private GeneratedFileListener _fileGenListener;
+        @CheckForNull
+        private BackgroundFileWriter _backgroundWriter;
+        /** Images not being written by {@link #_backgroundWriter}. */
+        private final ArrayDeque<BufferedImage> _idleImages = new ArrayDeque<BufferedImage>();
 
         public Decoded2JavaImage(@Nonnull VideoFileNameFormatter formatter, @Nonnull JavaImageFormat eFmt, int iWidth, int iHeight, @Nonnull ILocalizedLogger log) {
             _formatter = formatter;
             _sFmt = eFmt.getId();
             _rgbImg = new BufferedImage(iWidth, iHeight, BufferedImage.TYPE_INT_RGB);
+            _idleImages.add(_rgbImg);
             _log = log;
         }
+
+        /** Encode and write the images on background threads. */
+        public void setBackgroundWriter(@CheckForNull BackgroundFileWriter backgroundWriter) {
+            _backgroundWriter = backgroundWriter;
+        }
         
         public void decoded(@Nonnull MdecDecoder decoder, @CheckForNull FormattedFrameNumber frameNumber,
                             @Nonnull Fraction presentationSector)
                 throws LoggedFailure
         {
+            if (_backgroundWriter != null) {
+                decodedInBackground(_backgroundWriter, decoder, frameNumber);
+                return;
+            }
+
             decoder.readDecodedRgb(_rgbImg.getWidth(), _rgbImg.getHeight(),
                     ((DataBufferInt)_rgbImg.getRaster().getDataBuffer()).getData());
             
@@ -470,6 +823,48 @@ public class VDP {
             }
         }
 
+        private void decodedInBackground(@Nonnull BackgroundFileWriter backgroundWriter,
+                                         @Nonnull MdecDecoder decoder,
+                                         final @CheckForNull FormattedFrameNumber frameNumber)
+        {
+            backgroundWriter.waitForRoom();
+            final BufferedImage img;
+            if (_idleImages.isEmpty())
+                img = new BufferedImage(_rgbImg.getWidth(), _rgbImg.getHeight(), BufferedImage.TYPE_INT_RGB);
+            else
+                img = _idleImages.remove();
+
+            decoder.readDecodedRgb(img.getWidth(), img.getHeight(),
+                    ((DataBufferInt)img.getRaster().getDataBuffer()).getData());
+
+            final File f = _formatter.format(frameNumber, _log);
+            try {
+                IO.makeDirsForFile(f);
+            } catch (LocalizedFileNotFoundException ex) {
+                _log.log(Level.SEVERE, ex.getSourceMessage(), ex);
+                _idleImages.add(img);
+                return;
+            }
+
+            backgroundWriter.add(new BackgroundFileWriter.FileTask() {
+                private boolean _blnWritten;
+                void write() throws IOException {
+                    _blnWritten = ImageIO.write(img, _sFmt, f);
+                }
+                void written(@CheckForNull IOException ex) {
+                    _idleImages.add(img);
+                    if (ex != null) {
+                        _log.log(Level.WARNING, FrameMessage.FRAME_WRITE_ERR(f, frameNumber), ex);
+                    } else if (_blnWritten) {
+                        if (_fileGenListener != null)
+                            _fileGenListener.fileGenerated(f);
+                    } else {
+                        _log.log(Level.WARNING, FrameMessage.FRAME_FILE_WRITE_UNABLE(f, frameNumber));
+                    }
+                }
+            });
+        }
+
         public void error(@Nonnull ILocalizedMessage errMsg, @CheckForNull FormattedFrameNumber frameNumber,
                           @Nonnull Fraction presentationSector)
         {
@@ -506,6 +901,8 @@ public class VDP {
         protected AviWriter _writer;
         @CheckForNull
         protected GeneratedFileListener _fileGenListener;
+        /** Write an OpenDML (AVI 2.0) file. */
+        protected boolean _blnOpenDml = false;
 
         /** Video without audio. */
         public ToAvi(@Nonnull File outputFile, int iWidth, int iHeight, @Nonnull VideoSync vidSync, @Nonnull ILocalizedLogger log) {
@@ -535,6 +932,11 @@ public class VDP {
             return _writer;
         }
 
+        /** Must be set before {@link #open()}. */
+        public void setOpenDml(boolean blnOpenDml) {
+            _blnOpenDml = blnOpenDml;
+        }
+
         abstract public void open() 
                 throws LocalizedFileNotFoundException, FileNotFoundException, IOException;
 
@@ -588,8 +990,8 @@ public class VDP {
             }
         }
 
-        final public void audioPacketComplete(@Nonnull DecodedAudioPacket packet,
-                                              @Nonnull ILocalizedLogger log)
+        public void audioPacketComplete(@Nonnull DecodedAudioPacket packet,
+                                        @Nonnull ILocalizedLogger log)
                 throws LoggedFailure
         {
             if (_writer == null)
@@ -616,6 +1018,10 @@ public class VDP {
             }
         }
 
+        /** Writes anything still waiting to be written. */
+        public void finish() throws LoggedFailure {
+        }
+
         public void close() throws IOException {
             if (_writer != null) {
                 _writer.close();
@@ -652,7 +1058,7 @@ public class VDP {
                                                         _iWidth, _iHeight,
                                                         _vidSync.getFpsNum(),
                                                         _vidSync.getFpsDenom(),
-                                                        _af);
+                                                        _af, _blnOpenDml);
                 if (_fileGenListener != null)
                     _fileGenListener.fileGenerated(_outputFile);
                 _aiImageBuf = new int[_iWidth*_iHeight];
@@ -731,7 +1137,7 @@ public class VDP {
                                                          _iWidth, _iHeight,
                                                          _vidSync.getFpsNum(),
                                                          _vidSync.getFpsDenom(),
-                                                         _af);
+                                                         _af, _blnOpenDml);
                 if (_fileGenListener != null)
                     _fileGenListener.fileGenerated(_outputFile);
                 _yuvImgBuff = new YCbCrImage(_iWidth, _iHeight);
@@ -808,23 +1214,75 @@ public class VDP {
         
     }
 
-    /** This Avi output is unique in that it takes Mdec as input instead of Decoded. */
+    /** This Avi output is unique in that it takes Mdec as input instead of Decoded.
+     * With more than 1 thread, frames are translated to jpeg on a pool of
+     * threads, each with its own translator and buffer. The jpegs, error
+     * frames, and audio are still written to the AVI in the order received. */
     public static class Mdec2MjpegAvi extends ToAvi implements IMdecListener {
-        @Nonnull
-        private final jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg _jpegTranslator;
-        @Nonnull
-        private final ExposedBAOS _buffer = new ExposedBAOS();
+
+        /** Translates one frame at a time to jpeg. */
+        private static class JpegTranslator {
+            @Nonnull
+            public final jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg translator;
+            @Nonnull
+            public final ExposedBAOS buffer = new ExposedBAOS();
+
+            public JpegTranslator(int iWidth, int iHeight) {
+                translator = new jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg(iWidth, iHeight);
+            }
+
+            /** @return The failure, or null if the jpeg is in {@link #buffer}. */
+            public @CheckForNull Exception translate(@Nonnull MdecInputStream mdecIn) {
+                try {
+                    translator.readMdec(mdecIn);
+                } catch (MdecException.ReadCorruption ex) {
+                    return ex;
+                } catch (MdecException.EndOfStream ex) {
+                    return ex;
+                } catch (MdecException.TooMuchEnergy ex) {
+                    return ex;
+                }
+                buffer.reset();
+                try {
+                    translator.writeJpeg(buffer);
+                } catch (IOException ex) {
+                    throw new RuntimeException("Should not happen", ex);
+                }
+                return null;
+            }
+        }
+
+        /** Translators not being used by a frame in {@link #_pending}. */
+        private final ArrayDeque<JpegTranslator> _idleTranslators = new ArrayDeque<JpegTranslator>();
+        /** In the order received. */
+        private final ArrayDeque<Pending> _pending = new ArrayDeque<Pending>();
+        /** Only used with more than 1 thread. */
+        @CheckForNull
+        private ExecutorService _executor;
         @CheckForNull
         private AviWriterMJPG _mjpegWriter;
 
         public Mdec2MjpegAvi(@Nonnull File outputFile, int iWidth, int iHeight, @Nonnull VideoSync vidSync, @Nonnull ILocalizedLogger log) {
             super(outputFile, iWidth, iHeight, vidSync, log);
-            _jpegTranslator = new jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg(iWidth, iHeight);
+            _idleTranslators.add(new JpegTranslator(iWidth, iHeight));
         }
 
         public Mdec2MjpegAvi(@Nonnull File outputFile, int iWidth, int iHeight, @Nonnull AudioVideoSync avSync, @Nonnull AudioFormat af, @Nonnull ILocalizedLogger log) {
             super(outputFile, iWidth, iHeight, avSync, af, log);
-            _jpegTranslator = new jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg(iWidth, iHeight);
+            _idleTranslators.add(new JpegTranslator(iWidth, iHeight));
+        }
+
+        /** Number of frames to translate at the same time.
+         * Must be set before {@link #open()}. */
+        public void setThreadCount(int iThreads) {
+            if (_executor != null)
+                throw new IllegalStateException("Thread count already set");
+            if (iThreads > 1) {
+                while (_idleTranslators.size() < iThreads)
+                    _idleTranslators.add(new JpegTranslator(_iWidth, _iHeight));
+                _executor = Executors.newFixedThreadPool(iThreads,
+                        new DaemonThreadFactory(Mdec2MjpegAvi.class.getSimpleName()));
+            }
         }
 
         public void open()
@@ -832,56 +1290,99 @@ public class VDP {
         {
             if (_writer == null) {
                 IO.makeDirsForFile(_outputFile);
-                _writer = _mjpegWriter = new AviWriterMJPG(_outputFile, _iWidth, _iHeight, _vidSync.getFpsNum(), _vidSync.getFpsDenom(), _af);
+                _writer = _mjpegWriter = new AviWriterMJPG(_outputFile, _iWidth, _iHeight, _vidSync.getFpsNum(), _vidSync.getFpsDenom(), -1, _af, _blnOpenDml);
                 if (_fileGenListener != null)
                     _fileGenListener.fileGenerated(_outputFile);
             }
         }
 
-        public void mdec(@Nonnull MdecInputStream mdecIn, @CheckForNull FormattedFrameNumber frameNumber,
-                         @Nonnull Fraction presentationSector)
+        public void mdec(final @Nonnull MdecInputStream mdecIn, final @CheckForNull FormattedFrameNumber frameNumber,
+                         final @Nonnull Fraction presentationSector)
                 throws LoggedFailure
         {
             if (_mjpegWriter == null)
                 throw new IllegalStateException("AVI not open.");
-            ILocalizedMessage err;
-            Exception fail;
-            try {
-                _jpegTranslator.readMdec(mdecIn);
-                _buffer.reset();
-                try {
-                    _jpegTranslator.writeJpeg(_buffer);
-                } catch (IOException ex) {
-                    throw new RuntimeException("Should not happen", ex);
+
+            if (_executor == null) {
+                JpegTranslator jpeg = _idleTranslators.peek();
+                writeJpeg(jpeg, jpeg.translate(mdecIn), frameNumber, presentationSector);
+                return;
+            }
+
+            while (_idleTranslators.isEmpty())
+                deliverNext();
+
+            final JpegTranslator jpeg = _idleTranslators.remove();
+            final Future<Exception> translating = _executor.submit(new Callable<Exception>() {
+                public Exception call() {
+                    return jpeg.translate(mdecIn);
                 }
+            });
 
+            _pending.add(new Pending() {
+                boolean isReady() {
+                    return translating.isDone();
+                }
+                void deliver() throws LoggedFailure {
+                    try {
+                        writeJpeg(jpeg, Futures.waitFor(translating), frameNumber, presentationSector);
+                    } finally {
+                        _idleTranslators.add(jpeg);
+                    }
+                }
+            });
+            deliverReady();
+        }
+
+        /** Writes the translated jpeg, or an error frame if it failed. */
+        private void writeJpeg(@Nonnull JpegTranslator jpeg, @CheckForNull Exception translateFail,
+                               @CheckForNull FormattedFrameNumber frameNumber,
+                               @Nonnull Fraction presentationSector)
+                throws LoggedFailure
+        {
+            if (translateFail == null) {
                 try {
                     prepForFrame(frameNumber, presentationSector);
-                    _mjpegWriter.writeFrame(_buffer.getBuffer(), 0, _buffer.size());
+                    _mjpegWriter.writeFrame(jpeg.buffer.getBuffer(), 0, jpeg.buffer.size());
                 } catch (IOException ex) {
                     throw new LoggedFailure(_log, Level.SEVERE,
                             I.IO_WRITING_TO_FILE_ERROR_NAME(_writer.getFile().toString()), ex);
                 }
                 return;
-                // kinda icky way to do this
-            } catch (MdecException.ReadCorruption ex) {
+            }
+
+            ILocalizedMessage err;
+            if (translateFail instanceof MdecException.ReadCorruption)
                 err = FrameMessage.FRAME_NUM_CORRUPTED(frameNumber);
-                fail = ex;
-            } catch (MdecException.EndOfStream ex) {
+            else if (translateFail instanceof MdecException.EndOfStream)
                 err = FrameMessage.FRAME_NUM_INCOMPLETE(frameNumber);
-                fail = ex;
-            } catch (MdecException.TooMuchEnergy ex) {
+            else
                 err = FrameMessage.JPEG_ENCODER_FRAME_FAIL(frameNumber);
-                fail = ex;
-            }
-            _log.log(Level.WARNING, err, fail);
-            error(err, frameNumber, presentationSector);
+            _log.log(Level.WARNING, err, translateFail);
+            writeErrorFrame(err, frameNumber, presentationSector);
         }
 
-        public void error(@Nonnull ILocalizedMessage errMsg, @CheckForNull FormattedFrameNumber frameNumber,
-                          @Nonnull Fraction presentationSector) throws LoggedFailure {
+        public void error(final @Nonnull ILocalizedMessage errMsg, final @CheckForNull FormattedFrameNumber frameNumber,
+                          final @Nonnull Fraction presentationSector) throws LoggedFailure {
             if (_mjpegWriter == null)
                 throw new IllegalStateException("AVI not open.");
+            if (_executor == null) {
+                writeErrorFrame(errMsg, frameNumber, presentationSector);
+                return;
+            }
+            _pending.add(new Pending() {
+                boolean isReady() {
+                    return true;
+                }
+                void deliver() throws LoggedFailure {
+                    writeErrorFrame(errMsg, frameNumber, presentationSector);
+                }
+            });
+            deliverReady();
+        }
+
+        private void writeErrorFrame(@Nonnull ILocalizedMessage errMsg, @CheckForNull FormattedFrameNumber frameNumber,
+                                     @Nonnull Fraction presentationSector) throws LoggedFailure {
             try {
                 prepForFrame(frameNumber, presentationSector);
                 _mjpegWriter.writeFrame(makeErrorImage(errMsg, _iWidth, _iHeight));
@@ -891,6 +1392,53 @@ public class VDP {
             }
         }
 
+        @Override
+        public void audioPacketComplete(final @Nonnull DecodedAudioPacket packet,
+                                        final @Nonnull ILocalizedLogger log)
+                throws LoggedFailure
+        {
+            if (_executor == null) {
+                super.audioPacketComplete(packet, log);
+                return;
+            }
+            _pending.add(new Pending() {
+                boolean isReady() {
+                    return true;
+                }
+                void deliver() throws LoggedFailure {
+                    Mdec2MjpegAvi.super.audioPacketComplete(packet, log);
+                }
+            });
+            deliverReady();
+        }
+
+        /** Writes everything at the front of the queue that is ready. */
+        private void deliverReady() throws LoggedFailure {
+            while (!_pending.isEmpty() && _pending.peek().isReady())
+                deliverNext();
+        }
+
+        /** Writes the oldest pending item, waiting for it to translate if necessary. */
+        private void deliverNext() throws LoggedFailure {
+            _pending.remove().deliver();
+        }
+
+        @Override
+        public void finish() throws LoggedFailure {
+            while (!_pending.isEmpty())
+                deliverNext();
+        }
+
+        /** Stops the translating threads (anything not written is thrown
+         * away) and closes the AVI. */
+        @Override
+        public void close() throws IOException {
+            _pending.clear();
+            if (_executor != null)
+                _executor.shutdownNow();
+            super.close();
+        }
+
         public @Nonnull ILocalizedLogger getLog() {
             return _log;
         }
@@ -71,6 +71,19 @@ public enum VideoFormat {
         public MdecDecodeQuality getMdecDecodeQuality(int i) { return MdecDecodeQuality.HIGH; }
         public boolean mustHaveEvenDims()  { return true; };
     },
+    AVI_RGB_ODML(I.VID_AVI_RGB_ODML_DESCRIPTION(), I.VID_AVI_RGB_ODML_COMMAND()) {
+        public String getExtension() { return ".avi"; }
+        public boolean isAvi() { return true; }
+        public boolean isOpenDml() { return true; }
+    },
+    AVI_YUV_ODML(I.VID_AVI_YUV_ODML_DESCRIPTION(), I.VID_AVI_YUV_ODML_COMMAND()) {
+        public String getExtension() { return ".avi"; }
+        public boolean isAvi() { return true; }
+        public boolean isOpenDml() { return true; }
+        public int getDecodeQualityCount() { return 1; }
+        public MdecDecodeQuality getMdecDecodeQuality(int i) { return MdecDecodeQuality.HIGH; }
+        public boolean mustHaveEvenDims()  { return true; };
+    },
     IMGSEQ_PNG(I.VID_IMG_SEQ_PNG_DESCRIPTION(), I.VID_IMG_SEQ_PNG_COMMAND(),
                JavaImageFormat.PNG)
     {
@@ -141,6 +154,8 @@ public enum VideoFormat {
     /** If AVI, it means it can save audio, otherwise it is an image sequence. */
     public boolean isAvi() { return false; }
     public boolean isSequence() { return !isAvi(); }
+    /** If the AVI is OpenDML (AVI 2.0), which can be larger than 4GB. */
+    public boolean isOpenDml() { return false; }
 
     public @CheckForNull JavaImageFormat getImgFmt() { return _eImgFmt; }
 
@@ -92,6 +92,13 @@ public class VideoSaver {
     private final FrameToBitstreamFilter _frame2bitstream;
     @CheckForNull
     private final ISectorAudioDecoder _audioDecoder;
+    /** Only when decoding with more than 1 thread. */
+    @CheckForNull
+    private VDP.ParallelMdec2Decoded _parallelDecode;
+    /** Writes image sequence files in the background when using more than
+     * 1 thread, otherwise null. */
+    @CheckForNull
+    private VDP.BackgroundFileWriter _backgroundWriter;
 
     public VideoSaver(@Nonnull DiscItemVideoStream vidItem,
                       @Nonnull VideoSaverBuilder vsb,
@@ -132,12 +139,14 @@ public class VideoSaver {
                 JavaImageFormat javaImgFmt = _videoFormat.getImgFmt();
                 VDP.Decoded2JavaImage d2j = new VDP.Decoded2JavaImage(
                         makeFormatter(), javaImgFmt, _vsb.getWidth(), _vsb.getHeight(), log);
+                d2j.setBackgroundWriter(makeBackgroundWriter());
                 _pipeline.setMap(d2j);
             } break;
 
             case IMGSEQ_JPG: {
                 addBitstream2Mdec();
                 VDP.Mdec2Jpeg m2jpg = new VDP.Mdec2Jpeg(makeFormatter(), _vsb.getWidth(), _vsb.getHeight(), log);
+                m2jpg.setBackgroundWriter(makeBackgroundWriter());
                 _pipeline.setMap(m2jpg);
             } break;
 
@@ -148,6 +157,7 @@ public class VideoSaver {
                     m2mjpg = new VDP.Mdec2MjpegAvi(getAviFile(), _vsb.getWidth(), _vsb.getHeight(), makeVSync(), log);
                 else
                     m2mjpg = new VDP.Mdec2MjpegAvi(getAviFile(), _vsb.getWidth(), _vsb.getHeight(), makeAvSync(_audioDecoder), _audioDecoder.getOutputFormat(), log);
+                m2mjpg.setThreadCount(_vsb.getThreadCount());
                 _pipeline.setToAvi(m2mjpg);
                 toAvi = m2mjpg;
             } break;
@@ -164,7 +174,8 @@ public class VideoSaver {
                 toAvi = d2jyuv;
             } break;
 
-            case AVI_YUV: {
+            case AVI_YUV:
+            case AVI_YUV_ODML: {
                 addBitstream2Mdec();
                 addMdec2Decoded(log);
                 VDP.Decoded2YuvAvi d2yuv;
@@ -176,7 +187,8 @@ public class VideoSaver {
                 toAvi = d2yuv;
             } break;
 
-            case AVI_RGB: {
+            case AVI_RGB:
+            case AVI_RGB_ODML: {
                 addBitstream2Mdec();
                 addMdec2Decoded(log);
                 VDP.Decoded2RgbAvi d2rgb;
@@ -192,14 +204,24 @@ public class VideoSaver {
                 throw new RuntimeException();
         }
 
+        if (toAvi != null)
+            toAvi.setOpenDml(_videoFormat.isOpenDml());
+
         if (_audioDecoder == null) {
             _iStartSector = _vidItem.getStartSector();
             _iEndSector = _vidItem.getEndSector();
             _frame2bitstream = new FrameToBitstreamFilter(_vsb.getFileNumberType(), _vsb.getSaveStartFrame(), _vsb.getSaveEndFrame(), log);
         } else {
             _pipeline.setAudioDecoder(_audioDecoder);
-            if (toAvi != null)
-                _pipeline.setAudioPacketListener(toAvi);
+            if (toAvi != null) {
+                if (_parallelDecode != null) {
+                    // keep the audio in order with the frames being decoded
+                    _parallelDecode.setAudioListener(toAvi);
+                    _pipeline.setAudioPacketListener(_parallelDecode);
+                } else {
+                    _pipeline.setAudioPacketListener(toAvi);
+                }
+            }
 
             _iStartSector = Math.min(_vidItem.getStartSector(),
                                      _audioDecoder.getStartSector());
@@ -217,15 +239,35 @@ public class VideoSaver {
     }
 
     private void addMdec2Decoded(@Nonnull ILocalizedLogger log) {
+        int iThreads = _vsb.getThreadCount();
+        if (iThreads > 1) {
+            MdecDecoder[] decoders = new MdecDecoder[iThreads];
+            for (int i = 0; i < decoders.length; i++) {
+                decoders[i] = makeDecoder();
+            }
+            _parallelDecode = new VDP.ParallelMdec2Decoded(decoders, log);
+            _pipeline.setMap(_parallelDecode);
+        } else {
+            VDP.Mdec2Decoded mdec2decode = new VDP.Mdec2Decoded(makeDecoder(), log);
+            _pipeline.setMap(mdec2decode);
+        }
+    }
+
+    private @CheckForNull VDP.BackgroundFileWriter makeBackgroundWriter() {
+        int iThreads = _vsb.getThreadCount();
+        if (iThreads > 1)
+            _backgroundWriter = new VDP.BackgroundFileWriter(iThreads);
+        return _backgroundWriter;
+    }
+
+    private @Nonnull MdecDecoder makeDecoder() {
         MdecDecodeQuality quality = _vsb.getDecodeQuality();
         MdecDecoder vidDecoder = quality.makeDecoder(_vidItem.getWidth(), _vidItem.getHeight());
         if (vidDecoder instanceof MdecDecoder_double) {
             ChromaUpsample chroma = _vsb.getChromaInterpolation();
             ((MdecDecoder_double)vidDecoder).setUpsampler(chroma);
         }
-
-        VDP.Mdec2Decoded mdec2decode = new VDP.Mdec2Decoded(vidDecoder, log);
-        _pipeline.setMap(mdec2decode);
+        return vidDecoder;
     }
 
     private void startup(@Nonnull ILocalizedLogger log) throws LoggedFailure {
@@ -244,6 +286,10 @@ public class VideoSaver {
     }
 
     private void shutdown() {
+        if (_parallelDecode != null)
+            _parallelDecode.close();
+        if (_backgroundWriter != null)
+            _backgroundWriter.close();
         VDP.ToAvi avi = _pipeline.getAvi();
         if (avi != null)
             IO.closeSilently(avi, LOG);
@@ -259,6 +305,7 @@ public class VideoSaver {
 
         pl.progressStart(_iEndSector - _iStartSector + 1);
         startup(pl);
+        it.startPipeline();
         try {
 
 
@@ -280,9 +327,17 @@ public class VideoSaver {
             }
 
             it.close(pl);
+            if (_parallelDecode != null)
+                _parallelDecode.finish();
+            if (_backgroundWriter != null)
+                _backgroundWriter.finish();
+            VDP.ToAvi avi = _pipeline.getAvi();
+            if (avi != null)
+                avi.finish();
             sendLogEvent(pl, _frame2bitstream);
             pl.progressEnd();
         } finally {
+            it.stopPipeline();
             shutdown();
         }
 
@@ -70,29 +70,32 @@ public class VideoSectorIdentifier {
         CdSector cdSector = cs.getSector();
         ISelfDemuxingVideoSector vid;
 
-        if ((vid = isVideo(new SectorStrVideo(cdSector), cs)) != null) return vid;
-        if ((vid = isVideo(new SectorFF8.SectorFF8Video(cdSector), cs)) != null) return vid;
-        if ((vid = isVideo(new SectorFF9.SectorFF9Video(cdSector), cs)) != null) return vid;
-        if ((vid = isVideo(new SectorIkiVideo(cdSector), cs)) != null) return vid;
-        if ((vid = isVideo(new SectorGTVideo(cdSector), cs)) != null) return vid;
-        if ((vid = isVideo(new SectorChronoXVideo(cdSector), cs)) != null) return vid;
-        if ((vid = isVideo(new SectorAconcaguaVideo(cdSector), cs)) != null) return vid;
-        if (isMatch(new SectorChronoXVideoNull(cdSector), cs)) return null;
-        if ((vid = isVideo(new SectorLainVideo(cdSector), cs)) != null) return vid;
+        // if the sector was identified before, only the type it was is created
+        if (cs.couldBe(SectorStrVideo.class) && (vid = isVideo(new SectorStrVideo(cdSector), cs)) != null) return vid;
+        if (cs.couldBe(SectorFF8.SectorFF8Video.class) && (vid = isVideo(new SectorFF8.SectorFF8Video(cdSector), cs)) != null) return vid;
+        if (cs.couldBe(SectorFF9.SectorFF9Video.class) && (vid = isVideo(new SectorFF9.SectorFF9Video(cdSector), cs)) != null) return vid;
+        if (cs.couldBe(SectorIkiVideo.class) && (vid = isVideo(new SectorIkiVideo(cdSector), cs)) != null) return vid;
+        if (cs.couldBe(SectorGTVideo.class) && (vid = isVideo(new SectorGTVideo(cdSector), cs)) != null) return vid;
+        if (cs.couldBe(SectorChronoXVideo.class) && (vid = isVideo(new SectorChronoXVideo(cdSector), cs)) != null) return vid;
+        if (cs.couldBe(SectorAconcaguaVideo.class) && (vid = isVideo(new SectorAconcaguaVideo(cdSector), cs)) != null) return vid;
+        if (cs.couldBe(SectorChronoXVideoNull.class) && isMatch(new SectorChronoXVideoNull(cdSector), cs)) return null;
+        if (cs.couldBe(SectorLainVideo.class) && (vid = isVideo(new SectorLainVideo(cdSector), cs)) != null) return vid;
 
         // special handling for Alice
         SectorAliceNullVideo an;
-        if ((an = new SectorAliceNullVideo(cdSector)).getProbability() > 0) {
-            if ((vid = isVideo(new SectorAliceVideo(cdSector), cs)) != null) return vid;
+        if (cs.couldBe(SectorAliceNullVideo.class, SectorAliceVideo.class) &&
+            (an = new SectorAliceNullVideo(cdSector)).getProbability() > 0)
+        {
+            if (cs.couldBe(SectorAliceVideo.class) && (vid = isVideo(new SectorAliceVideo(cdSector), cs)) != null) return vid;
             cs.claim(an);
             return null;
         }
 
-        if ((vid = isVideo(new SectorReBoot(cdSector), cs)) != null) return vid;
+        if (cs.couldBe(SectorReBoot.class) && (vid = isVideo(new SectorReBoot(cdSector), cs)) != null) return vid;
 
         // FF7 has such a vague header, it can easily be falsely identified
         // when it should be one of the headers above
-        if ((vid = isVideo(new SectorFF7Video(cdSector), cs)) != null) return vid;
+        if (cs.couldBe(SectorFF7Video.class) && (vid = isVideo(new SectorFF7Video(cdSector), cs)) != null) return vid;
 
         return null;
     }
@@ -41,16 +41,21 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import jpsxdec.util.Fraction;
+import jpsxdec.util.IO;
 
 /** There are some unique frame rates that just don't make any sense.
  * These unique sequences of frame sectors just have to be manually
- * specified. */
+ * specified.
+ * <p>
+ * Each sequence resource is only parsed once into primitive arrays,
+ * then shared (read-only) by every {@link Matcher}. */
 public class InconsistentFrameSequence {
 
     private static final Logger LOG = Logger.getLogger(InconsistentFrameSequence.class.getName());
@@ -72,14 +77,20 @@ public class InconsistentFrameSequence {
         "DREDD15FPS.dat",
     };
 
-    public static @Nonnull LinkedList<InconsistentFrameSequence> generate(int iFirstFrameStartSector,
-                                                                          int iFirstFrameEndSector)
-    {
-        LinkedList<InconsistentFrameSequence> possibles = new LinkedList<InconsistentFrameSequence>();
-        for (String sResource : FPS_LISTS) {
-            possibles.add(new InconsistentFrameSequence(sResource));
+    /** Holds the parsed sequences, loaded the first time they're needed. */
+    private static class AllSequences {
+        public static final InconsistentFrameSequence[] SEQUENCES =
+                new InconsistentFrameSequence[FPS_LISTS.length];
+        static {
+            for (int i = 0; i < FPS_LISTS.length; i++) {
+                SEQUENCES[i] = new InconsistentFrameSequence(FPS_LISTS[i]);
+            }
         }
-        return possibles;
+    }
+
+    /** Creates a matcher that will follow all the known sequences. */
+    public static @Nonnull Matcher generate() {
+        return new Matcher(AllSequences.SEQUENCES);
     }
 
     /** Parses the header line in a sectors/frame sequence text file.
@@ -127,83 +138,151 @@ public class InconsistentFrameSequence {
        }
     }
 
+    /** Follows all the sequences together as frames of a video are added,
+     * dropping the sequences that stop matching. The position in each
+     * sequence is the only state kept per sequence. */
+    public static class Matcher {
+        /** Sequences still matching, in their original order. */
+        @Nonnull
+        private final InconsistentFrameSequence[] _aoSequences;
+        /** Index of the next frame to check in each sequence. */
+        @Nonnull
+        private final int[] _aiNextFrame;
+        /** Sector where the current loop of each sequence started. */
+        @Nonnull
+        private final int[] _aiLoopStartSector;
+        private int _iCount;
+
+        private Matcher(@Nonnull InconsistentFrameSequence[] aoSequences) {
+            _aoSequences = aoSequences.clone();
+            _aiNextFrame = new int[aoSequences.length];
+            _aiLoopStartSector = new int[aoSequences.length];
+            _iCount = aoSequences.length;
+        }
+
+        /** Checks the next frame against every remaining sequence, and drops
+         * the ones that don't match.
+         * @return if any sequences still match. */
+        public boolean matchesNextVideo(int iFrameStartSector, int iFrameEndSector) {
+            int iKeep = 0;
+            for (int i = 0; i < _iCount; i++) {
+                InconsistentFrameSequence seq = _aoSequences[i];
+                int iFrame = _aiNextFrame[i];
+                int iLoopStartSector = _aiLoopStartSector[i];
+                // skip over the frames that start before this frame
+                while (true) {
+                    iFrame = seq.findFrameStartingAtOrAfter(iFrame, iFrameStartSector - iLoopStartSector);
+                    if (iFrame < seq._aiFrameStartSectors.length)
+                        break;
+                    if (seq._iLoopSector < 0) {
+                        // darn, the movie is longer than we have defined in the sequence.
+                        // we can probably assume it's a match, but this code
+                        // TODO: should be changed to handle that and report.
+                        // as for now, we'll fail
+                        LOG.log(Level.WARNING, "Movie is longer than sequence {0}", seq);
+                        break;
+                    }
+                    iFrame = 0;
+                    iLoopStartSector += seq._iLoopSector;
+                }
+
+                // TODO: Check if frame lies between the previous and next frames (instead of just inside this frame)
+                // prevLineFrame.iFrameEndSector + _iLoopStartSector <= iFrameStartSector
+                // nextLineFrame.iFrameStartSector + _iLoopStartSector <= iFrameEndSector
+                if (iFrame < seq._aiFrameStartSectors.length &&
+                    seq._aiFrameStartSectors[iFrame] + iLoopStartSector <= iFrameStartSector &&
+                    seq._aiFrameEndSectors[iFrame]   + iLoopStartSector >= iFrameEndSector)
+                {
+                    _aoSequences[iKeep] = seq;
+                    _aiNextFrame[iKeep] = iFrame + 1;
+                    _aiLoopStartSector[iKeep] = iLoopStartSector;
+                    iKeep++;
+                }
+            }
+            Arrays.fill(_aoSequences, iKeep, _iCount, null);
+            _iCount = iKeep;
+            return _iCount > 0;
+        }
+
+        /** Sequences that have matched every frame so far. */
+        public @Nonnull List<InconsistentFrameSequence> getMatchingSequences() {
+            return new ArrayList<InconsistentFrameSequence>(Arrays.asList(_aoSequences).subList(0, _iCount));
+        }
+
+        @Override
+        public String toString() {
+            return getMatchingSequences().toString();
+        }
+    }
+
     // -------------------------------------------------------------------------
     // --  Instance stuff  -----------------------------------------------------
     // -------------------------------------------------------------------------
 
-    @Nonnull
-    private BufferedReader _reader;
     @Nonnull
     private final String _sSourceResource;
+    private final int _iSectors, _iPerFrame;
+    private final int _iLoopSector;
+    /** Frame start sectors, in increasing order. */
     @Nonnull
-    private final HeaderParse _header;
-    private int _iLoopStartSector;
+    private final int[] _aiFrameStartSectors;
+    @Nonnull
+    private final int[] _aiFrameEndSectors;
 
     private InconsistentFrameSequence(@Nonnull String sSourceResource) {
         _sSourceResource = sSourceResource;
+        InputStream is = InconsistentFrameSequence.class.getResourceAsStream(sSourceResource);
+        if (is == null)
+            throw new RuntimeException("Unable to find inconsistent frame resource " + sSourceResource);
         try {
-            InputStream is = InconsistentFrameSequence.class.getResourceAsStream(sSourceResource);
-            if (is == null)
-                throw new RuntimeException("Unable to find inconsistent frame resource " + sSourceResource);
-            _reader = new BufferedReader(new InputStreamReader(is));
-            String sLine = _reader.readLine(); // read header
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is));
             // resource file should have at least 1 line
-            _header = new HeaderParse(sLine);
+            HeaderParse header = new HeaderParse(reader.readLine());
+            _iSectors = header.iSectors;
+            _iPerFrame = header.iPerFrame;
+            _iLoopSector = header.iLoopSector;
+
+            int[] aiStarts = new int[1024], aiEnds = new int[1024];
+            int iFrameCount = 0;
+            String sLine;
+            while ((sLine = reader.readLine()) != null) {
+                LineParse frame = new LineParse(sLine);
+                if (iFrameCount == aiStarts.length) {
+                    aiStarts = Arrays.copyOf(aiStarts, iFrameCount * 2);
+                    aiEnds = Arrays.copyOf(aiEnds, iFrameCount * 2);
+                }
+                if (iFrameCount > 0 && frame.iFrameStartSector < aiStarts[iFrameCount - 1])
+                    throw new RuntimeException("Frames out of order in " + sSourceResource);
+                aiStarts[iFrameCount] = frame.iFrameStartSector;
+                aiEnds[iFrameCount] = frame.iFrameEndSector;
+                iFrameCount++;
+            }
+            _aiFrameStartSectors = Arrays.copyOf(aiStarts, iFrameCount);
+            _aiFrameEndSectors = Arrays.copyOf(aiEnds, iFrameCount);
         } catch (IOException ex) {
             throw new RuntimeException(ex);
+        } finally {
+            IO.closeSilently(is, LOG);
         }
     }
-    
-    private @CheckForNull String readNextLine() throws IOException {
-        String sLine = _reader.readLine();
-        if (sLine == null) { 
-            // if at the end of the resource, but we're looping
-            if (_header.iLoopSector >= 0) {
-                // close and reopen the text resource
-                _reader.close(); // expose close exception
-                InputStream is = InconsistentFrameSequence.class.getResourceAsStream(_sSourceResource);
-                _reader = new BufferedReader(new InputStreamReader(is));
-                _reader.readLine(); // skip header
-                sLine = _reader.readLine();
-                _iLoopStartSector += _header.iLoopSector;
-            } else {
-                // darn, the movie is longer than we have defined in the sequence.
-                // we can probably assume it's a match, but this code
-                // TODO: should be changed to handle that and report.
-                // as for now, we'll fail
-                LOG.log(Level.WARNING, "Movie is longer than sequence {0}", _sSourceResource);
-            }
-        }
-        return sLine;
-    }
 
-    public boolean matchesNextVideo(int iFrameStartSector, int iFrameEndSector) {
-        try {
-            LineParse currentLineFrame;
-            do {
-                String sLine = readNextLine();
-                if (sLine == null)
-                    return false;
-                currentLineFrame = new LineParse(sLine);
-            } while (currentLineFrame.iFrameStartSector + _iLoopStartSector < iFrameStartSector);
-
-            // TODO: Check if frame lies between the previous and next frames (instead of just inside this frame)
-            // prevLineFrame.iFrameEndSector + _iLoopStartSector <= iFrameStartSector
-            // nextLineFrame.iFrameStartSector + _iLoopStartSector <= iFrameEndSector
-            if (currentLineFrame.iFrameStartSector + _iLoopStartSector <= iFrameStartSector &&
-                currentLineFrame.iFrameEndSector   + _iLoopStartSector >= iFrameEndSector)
-            {
-                return true;
-            } else {
-                return false;
-            }
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
+    /** Binary search for the first frame, at or after {@code iFromFrame},
+     * that starts at or after the sector.
+     * @return the frame count if there is no such frame. */
+    private int findFrameStartingAtOrAfter(int iFromFrame, int iSector) {
+        int iLow = iFromFrame, iHigh = _aiFrameStartSectors.length;
+        while (iLow < iHigh) {
+            int iMid = (iLow + iHigh) >>> 1;
+            if (_aiFrameStartSectors[iMid] < iSector)
+                iLow = iMid + 1;
+            else
+                iHigh = iMid;
         }
+        return iLow;
     }
 
     public @Nonnull Fraction getSectorsPerFrame() {
-        return new Fraction(_header.iSectors, _header.iPerFrame);
+        return new Fraction(_iSectors, _iPerFrame);
     }
 
     @Override
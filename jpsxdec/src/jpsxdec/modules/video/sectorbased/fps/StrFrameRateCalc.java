@@ -38,8 +38,6 @@
 package jpsxdec.modules.video.sectorbased.fps;
 
 import java.util.Arrays;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
@@ -151,11 +149,11 @@ public class StrFrameRateCalc {
     @CheckForNull
     private WholeNumberSectorsPerFrame _wholeFrameRate;
     @CheckForNull
-    private LinkedList<InconsistentFrameSequence> _inconsistentFrameRate;
+    private InconsistentFrameSequence.Matcher _inconsistentFrameRate;
 
     public StrFrameRateCalc(int iFirstFrameStartSector, int iFirstFrameEndSector) {
         _wholeFrameRate = new WholeNumberSectorsPerFrame(iFirstFrameEndSector);
-        _inconsistentFrameRate = InconsistentFrameSequence.generate(iFirstFrameStartSector, iFirstFrameEndSector);
+        _inconsistentFrameRate = InconsistentFrameSequence.generate();
     }
 
     public void addFrame(int iNextFrameStartSector, int iNextFrameEndSector) {
@@ -164,11 +162,7 @@ public class StrFrameRateCalc {
                 _wholeFrameRate = null; // failed to match any whole number frame rates
         // TODO: Log when whole frame and inconsistent frame rate matching fails
         if (_inconsistentFrameRate != null) {
-            for (Iterator<InconsistentFrameSequence> it = _inconsistentFrameRate.iterator(); it.hasNext();) {
-                if (!it.next().matchesNextVideo(iNextFrameStartSector, iNextFrameEndSector))
-                    it.remove();
-            }
-            if (_inconsistentFrameRate.size() == 0)
+            if (!_inconsistentFrameRate.matchesNextVideo(iNextFrameStartSector, iNextFrameEndSector))
                 _inconsistentFrameRate = null; // failed to match any inconsistent frame rates
         }
     }
@@ -204,7 +198,7 @@ public class StrFrameRateCalc {
                 sectorsPerFrame = new Fraction(aiPossibleSectorsPerFrame[aiPossibleSectorsPerFrame.length-1]);
             }
         } else if (_inconsistentFrameRate != null) {
-            for (InconsistentFrameSequence frameSeq : _inconsistentFrameRate) {
+            for (InconsistentFrameSequence frameSeq : _inconsistentFrameRate.getMatchingSequences()) {
                 Fraction frmSeqSpf = frameSeq.getSectorsPerFrame();
                 if (sectorsPerFrame == null)
                     sectorsPerFrame = frmSeqSpf;
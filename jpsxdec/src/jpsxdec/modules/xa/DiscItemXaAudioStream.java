@@ -290,9 +290,10 @@ public class DiscItemXaAudioStream extends DiscItemAudioStream {
     }
 
     /**
+     * @param iThreads Number of threads to use to encode the audio.
      * @throws IOException opening or reading from audio file
      */
-    public void replaceXa(@Nonnull ProgressLogger pl, @Nonnull File audioFile)
+    public void replaceXa(@Nonnull ProgressLogger pl, @Nonnull File audioFile, int iThreads)
             throws IOException, UnsupportedAudioFileException,
                    LocalizedIncompatibleException,
                    CdFileSectorReader.CdReadException,
@@ -318,32 +319,37 @@ public class DiscItemXaAudioStream extends DiscItemAudioStream {
 
             XaAdpcmEncoder encoder;
             try {
-                encoder = new XaAdpcmEncoder(ais, _iBitsPerSample);
+                encoder = new XaAdpcmEncoder(ais, _iBitsPerSample, iThreads);
             } catch (IncompatibleException ex) {
                 throw new RuntimeException("This should have been checked above", ex);
             }
 
-            SectorClaimSystem it = createClaimSystem();
-            pl.progressStart(getSectorLength());
-            for (int iSector = 0; it.hasNext(); iSector++) {
-                IIdentifiedSector origIdSect = it.next(pl).getClaimer();
-                if (origIdSect instanceof SectorXaAudio && isPartOfStream((SectorXaAudio)origIdSect)) {
-                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                    long lngSampleFramesReadBefore = encoder.getSampleFramesRead();
-                    pl.log(Level.INFO, I.WRITING_SAMPLES_TO_SECTOR(lngSampleFramesReadBefore, origIdSect.toString()));
-                    // don't care if encoder is eof
-                    // if (encoder.isEof()) ...
-                    pl.log(Level.INFO, I.CMD_PATCHING_SECTOR_DESCRIPTION(origIdSect.toString()));
-                    if (pl.isSeekingEvent())
-                        pl.event(I.CMD_PATCHING_SECTOR_NUMBER(origIdSect.getSectorNumber()));
-                    CdSector origSect = origIdSect.getCdSector();
-                    getSourceCd().addPatch(origSect.getSectorIndexFromStart(), 0, baos.toByteArray());
-
-                    pl.progressUpdate(iSector);
+            try {
+                SectorClaimSystem it = createClaimSystem();
+                pl.progressStart(getSectorLength());
+                for (int iSector = 0; it.hasNext(); iSector++) {
+                    IIdentifiedSector origIdSect = it.next(pl).getClaimer();
+                    if (origIdSect instanceof SectorXaAudio && isPartOfStream((SectorXaAudio)origIdSect)) {
+                        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                        long lngSampleFramesReadBefore = encoder.getSampleFramesRead();
+                        pl.log(Level.INFO, I.WRITING_SAMPLES_TO_SECTOR(lngSampleFramesReadBefore, origIdSect.toString()));
+                        // don't care if encoder is eof
+                        // if (encoder.isEof()) ...
+                        encoder.encode1Sector(baos);
+                        pl.log(Level.INFO, I.CMD_PATCHING_SECTOR_DESCRIPTION(origIdSect.toString()));
+                        if (pl.isSeekingEvent())
+                            pl.event(I.CMD_PATCHING_SECTOR_NUMBER(origIdSect.getSectorNumber()));
+                        CdSector origSect = origIdSect.getCdSector();
+                        getSourceCd().addPatch(origSect.getSectorIndexFromStart(), 0, baos.toByteArray());
+
+                        pl.progressUpdate(iSector);
+                    }
                 }
+                it.close(pl);
+                pl.progressEnd();
+            } finally {
+                encoder.close();
             }
-            it.close(pl);
-            pl.progressEnd();
         } finally {
             IO.closeSilently(ais, Logger.getLogger(DiscItemXaAudioStream.class.getName()));
         }
@@ -75,13 +75,13 @@ public class SectorClaimToSectorXaAudio extends SectorClaimSystem.SectorClaimer
     {
         if (cs.isClaimed())
             return;
-        CdSector cdSector = cs.getSector();
+        final CdSector cdSector = cs.getSector();
         SectorXaAudio xaSect = null;
 
-        SectorXaNull nullSect = new SectorXaNull(cdSector);
-        if (nullSect.getProbability() > 0) {
+        SectorXaNull nullSect = cs.couldBe(SectorXaNull.class) ? new SectorXaNull(cdSector) : null;
+        if (nullSect != null && nullSect.getProbability() > 0) {
             cs.claim(nullSect);
-        } else {
+        } else if (cs.couldBe(SectorXaAudio.class)) {
             SectorXaAudio possibleXa = new SectorXaAudio(cdSector);
             if (possibleXa.getProbability() > 0) {
                 xaSect = possibleXa;
@@ -89,25 +89,26 @@ public class SectorClaimToSectorXaAudio extends SectorClaimSystem.SectorClaimer
             }
         }
 
-        if (sectorIsInRange(cs.getSector().getSectorIndexFromStart())) {
-            for (Listener listener : _listeners) {
-                try {
-                    listener.feedXaSector(cdSector, xaSect, log);
-                } catch (LoggedFailure ex) {
-                    throw new SectorClaimSystem.ClaimerFailure(ex);
-                }
-            }
+        if (sectorIsInRange(cs.getSector().getSectorIndexFromStart()) && !_listeners.isEmpty()) {
+            final SectorXaAudio finalXaSect = xaSect;
+            cs.deliver(new SectorClaimSystem.Delivery() {
+                public void deliver(@Nonnull ILocalizedLogger log) throws LoggedFailure {
+                    for (Listener listener : _listeners) {
+                        listener.feedXaSector(cdSector, finalXaSect, log);
+                    }
 
-            CdSectorXaSubHeader sh = cdSector.getSubHeader();
-            if (sh != null && sh.getSubMode().getEofMarker() &&
-                sh.getChannel() <= SectorXaAudio.MAX_VALID_CHANNEL)
-            {
-                // if the sector's EOF bit was set, this stream is closed
-                // this is important for many games
-                for (Listener listener : _listeners) {
-                    listener.xaEof(sh.getChannel());
+                    CdSectorXaSubHeader sh = cdSector.getSubHeader();
+                    if (sh != null && sh.getSubMode().getEofMarker() &&
+                        sh.getChannel() <= SectorXaAudio.MAX_VALID_CHANNEL)
+                    {
+                        // if the sector's EOF bit was set, this stream is closed
+                        // this is important for many games
+                        for (Listener listener : _listeners) {
+                            listener.xaEof(sh.getChannel());
+                        }
+                    }
                 }
-            }
+            });
         }
     }
 
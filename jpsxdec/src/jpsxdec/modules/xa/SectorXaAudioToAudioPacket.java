@@ -37,8 +37,7 @@
 
 package jpsxdec.modules.xa;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.logging.Level;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -49,7 +48,6 @@ import jpsxdec.i18n.I;
 import jpsxdec.i18n.exception.LoggedFailure;
 import jpsxdec.i18n.log.ILocalizedLogger;
 import jpsxdec.modules.sharedaudio.DecodedAudioPacket;
-import jpsxdec.util.ByteArrayFPIS;
 import jpsxdec.util.Fraction;
 
 /** Converts a XA audio sector to a single decoded audio packet.
@@ -58,7 +56,6 @@ public class SectorXaAudioToAudioPacket implements SectorClaimToSectorXaAudio.Li
 
     @Nonnull
     private final XaAdpcmDecoder _decoder;
-    private final ByteArrayOutputStream _tempBuffer = new ByteArrayOutputStream();
     private final int _iChannel;
     private final int _iSampleFramesPerSecond;
     @Nonnull
@@ -98,15 +95,11 @@ public class SectorXaAudioToAudioPacket implements SectorClaimToSectorXaAudio.Li
             xaSector.getSamplesPerSecond() != _iSampleFramesPerSecond)
             return;
 
-        _tempBuffer.reset();
         long lngSamplesWritten = _decoder.getSampleFramesWritten();
 
-        try {
-            ByteArrayFPIS inStream = xaSector.getIdentifiedUserDataStream();
-            _decoder.decode(inStream, _tempBuffer, xaSector.getSectorNumber());
-        } catch (IOException ex) {
-            throw new RuntimeException("Should not happen when reading/writing to/from byte stream", ex);
-        }
+        // the packet keeps the array, so a new one is needed each time
+        byte[] abPcm = new byte[_decoder.getPcmSamplesPerSector() * 2];
+        _decoder.decode(xaSector.getCdSector(), 0, ByteBuffer.wrap(abPcm), xaSector.getSectorNumber());
 
         if (_decoder.hadCorruption())
             log.log(Level.WARNING, I.XA_AUDIO_CORRUPTED(xaSector.getSectorNumber(), lngSamplesWritten));
@@ -114,7 +107,7 @@ public class SectorXaAudioToAudioPacket implements SectorClaimToSectorXaAudio.Li
         if (_listener != null) {
             DecodedAudioPacket packet = new DecodedAudioPacket(_iChannel, _audioFormat,
                                                                new Fraction(xaSector.getSectorNumber()),
-                                                               _tempBuffer.toByteArray());
+                                                               abPcm);
 
             _listener.audioPacketComplete(packet, log);
         }
@@ -143,6 +143,37 @@ public class PsxYCbCr {
         rgb.setB(dblYshift + dblChromBlue );
     }
 
+    /** Converts a row of full resolution (already upsampled) YCbCr pixels to
+     * clamped 0xAARRGGBB. Only primitive arrays and a simple loop so the JIT
+     * can optimize it, but produces the exact same RGB as
+     * {@link #toRgb(double, double, double, jpsxdec.formats.RGB)}. */
+    public static void toRgbRow(@Nonnull double[] adblY, @Nonnull double[] adblCb,
+                                @Nonnull double[] adblCr, int iSrcOfs,
+                                @Nonnull int[] aiDest, int iDestOfs, int iWidth)
+    {
+        for (int iX = 0; iX < iWidth; iX++) {
+            double y = adblY[iSrcOfs + iX], cb = adblCb[iSrcOfs + iX], cr = adblCr[iSrcOfs + iX];
+            double dblChromRed, dblChromGreen, dblChromBlue;
+            if (INCORRECTLY_SWAP_CB_CR_LIKE_PSXMC) {
+                dblChromRed   = ( 1.772  * cr)                 ;
+                dblChromGreen = (-0.3437 * cr) + (-0.7143 * cb);
+                dblChromBlue  =                  ( 1.402  * cb);
+            } else {
+                dblChromRed   =                  ( 1.402  * cr);
+                dblChromGreen = (-0.3437 * cb) + (-0.7143 * cr);
+                dblChromBlue  = ( 1.772  * cb)                 ;
+            }
+            double dblYshift = y + 128;
+            int r = (int)Math.round(dblYshift + dblChromRed  );
+            int g = (int)Math.round(dblYshift + dblChromGreen);
+            int b = (int)Math.round(dblYshift + dblChromBlue );
+            r = Math.min(Math.max(r, 0), 255);
+            g = Math.min(Math.max(g, 0), 255);
+            b = Math.min(Math.max(b, 0), 255);
+            aiDest[iDestOfs + iX] = 0xFF000000 | (r << 16) | (g << 8) | b;
+        }
+    }
+
     final public void toRgb(@Nonnull RGB rgb1, @Nonnull RGB rgb2, @Nonnull RGB rgb3, @Nonnull RGB rgb4) {
         double dblChromRed, dblChromGreen, dblChromBlue;
         if (INCORRECTLY_SWAP_CB_CR_LIKE_PSXMC) {
@@ -100,6 +100,57 @@ public class PsxYCbCr_int {
         rgb4.setB(iYshift + iChromBlue);
     }
 
+    // .........................................................................
+    // Row conversion
+    //
+    // Converts whole rows at a time with only primitive arrays and simple
+    // loops (no holder objects or method calls per pixel) so the JIT can
+    // unroll and vectorize them. Produces the exact same RGB as
+    // toRgb(RGB, RGB, RGB, RGB).
+
+    /** Calculates the red, green, and blue chroma offsets for a row of
+     * chroma samples. Every chroma sample covers 2 pixels of a row, so each
+     * offset is written twice to line up with the luma pixels.
+     * @param iWidth Number of pixels (not chroma samples) in the row.
+     *               If odd, the last chroma sample is only written once. */
+    public static void chromaRow(@Nonnull int[] aiCb, @Nonnull int[] aiCr, int iChromaOfs,
+                                 @Nonnull int[] aiChromRed, @Nonnull int[] aiChromGreen,
+                                 @Nonnull int[] aiChromBlue, int iWidth)
+    {
+        final int ROUND = 1 << (FIXED_BITS - 1);
+        for (int iX = 0, iC = iChromaOfs; iX < iWidth; iX += 2, iC++) {
+            long cb = aiCb[iC], cr = aiCr[iC];
+            // same as Maths.shrRound(x, FIXED_BITS)
+            int iRed   = (int)((                 _1_402  * cr + ROUND) >> FIXED_BITS);
+            int iGreen = (int)((-(_0_3437 * cb) - (_0_7143 * cr) + ROUND) >> FIXED_BITS);
+            int iBlue  = (int)((  _1_772  * cb                 + ROUND) >> FIXED_BITS);
+            aiChromRed[iX]   = iRed;
+            aiChromGreen[iX] = iGreen;
+            aiChromBlue[iX]  = iBlue;
+            if (iX + 1 < iWidth) {
+                aiChromRed[iX+1]   = iRed;
+                aiChromGreen[iX+1] = iGreen;
+                aiChromBlue[iX+1]  = iBlue;
+            }
+        }
+    }
+
+    /** Converts a row of luma pixels to clamped 0xAARRGGBB using the chroma
+     * offsets from {@link #chromaRow}. */
+    public static void toRgbRow(@Nonnull int[] aiLuma, int iLumaOfs,
+                                @Nonnull int[] aiChromRed, @Nonnull int[] aiChromGreen,
+                                @Nonnull int[] aiChromBlue,
+                                @Nonnull int[] aiDest, int iDestOfs, int iWidth)
+    {
+        for (int iX = 0; iX < iWidth; iX++) {
+            int iYshift = aiLuma[iLumaOfs + iX] + 128;
+            int r = Math.min(Math.max(iYshift + aiChromRed[iX],   0), 255);
+            int g = Math.min(Math.max(iYshift + aiChromGreen[iX], 0), 255);
+            int b = Math.min(Math.max(iYshift + aiChromBlue[iX],  0), 255);
+            aiDest[iDestOfs + iX] = 0xFF000000 | (r << 16) | (g << 8) | b;
+        }
+    }
+
     @Override
     public String toString() {
         return String.format( "([%d, %d, %d, %d] %d, %d)" , y1, y2, y3, y4, cb, cr);
@@ -188,18 +188,38 @@ public class ArrayBitReader {
         return (readUnsignedBits(iCount) << (32 - iCount)) >> (32 - iCount); // extend sign bit
     }    
     
-    /** @param iCount  expected to be from 1 to 31  */
+    /** Returns the same value as {@link #readUnsignedBits(int)} would,
+     * but without changing the read position. Since this is called for every
+     * variable length code, the bits are gathered into a local 64-bit buffer
+     * instead of saving and restoring the reader state.
+     * @param iCount  expected to be from 1 to 31  */
     public int peekUnsignedBits(int iCount) throws MdecException.EndOfStream {
-        int iSaveOffs = _iByteOffset;
-        int iSaveBitsLeft = _iBitsLeft;
-        short siSaveCurrentWord = _siCurrentWord;
-        try {
-            return readUnsignedBits(iCount);
-        } finally {
-            _iByteOffset = iSaveOffs;
-            _iBitsLeft = iSaveBitsLeft;
-            _siCurrentWord = siSaveCurrentWord;
+        if (iCount < 0 || iCount >= 32)
+            throw new IllegalArgumentException("Bits to peek are out of range " + iCount);
+        if (iCount == 0)
+            return 0;
+
+        int iOffset = _iByteOffset;
+        int iBitsInBuffer = _iBitsLeft;
+        long lngBuffer;
+        if (iBitsInBuffer == 0) {
+            lngBuffer = readWord(iOffset) & 0xFFFF;
+            iOffset += 2;
+            iBitsInBuffer = 16;
+        } else {
+            lngBuffer = _siCurrentWord & BIT_MASK[iBitsInBuffer];
+        }
+
+        while (iBitsInBuffer < iCount) {
+            if (iOffset + 1 >= _iDataSize) {
+                // end of the stream: remaining bits are 0, same as readUnsignedBits()
+                return (int)(lngBuffer << (iCount - iBitsInBuffer));
+            }
+            lngBuffer = (lngBuffer << 16) | (readWord(iOffset) & 0xFFFF);
+            iOffset += 2;
+            iBitsInBuffer += 16;
         }
+        return (int)(lngBuffer >>> (iBitsInBuffer - iCount)) & BIT_MASK[iCount];
     }
     
     /** @param iCount  expected to be from 0 to 31  */
@@ -70,6 +70,10 @@ public interface BitStreamCompressor {
                                          @Nonnull ILocalizedLogger log)
             throws LocalizedIncompatibleException, MdecException.EndOfStream, MdecException.ReadCorruption;
 
+    /** Sets how {@link #compressFull} and {@link #compressPartial} search
+     * for the quantization scale that makes the frame fit. */
+    void setQscaleSearch(@Nonnull QscaleSearch search);
+
     /**
      * @return count or -1 if n/a.
      */
@@ -44,6 +44,7 @@ import jpsxdec.psxvideo.mdec.MdecContext;
 import jpsxdec.psxvideo.mdec.MdecException;
 import jpsxdec.psxvideo.mdec.MdecInputStream;
 import jpsxdec.util.BinaryDataNotRecognized;
+import jpsxdec.util.Misc;
 
 /** Converts a (demuxed) video frame bitstream into an {@link MdecInputStream},
  * that can then be fed into an MDEC decoder to produce an image. */
@@ -160,22 +161,25 @@ public abstract class BitStreamUncompressor implements MdecInputStream {
             _context.nextCode();
         } else {
             int i17bits = _bitReader.peekUnsignedBits(BitStreamCode.LONGEST_BITSTREAM_CODE_17BITS);
-            ZeroRunLengthAc bitCode = _lookupTable.lookup(i17bits);
-            _bitReader.skipBits(bitCode.getBitLength());
+            int iPackedCode = _lookupTable.lookupPacked(i17bits);
+            int iBitLength = (iPackedCode >> ZeroRunLengthAcLookup.PACKED_BIT_LENGTH_SHIFT)
+                             & ZeroRunLengthAcLookup.PACKED_BIT_LENGTH_MASK;
+            _bitReader.skipBits(iBitLength);
 
-            assert !BitStreamDebugging.DEBUG || BitStreamDebugging.appendBits(bitCode.getBitString());
+            assert !BitStreamDebugging.DEBUG || BitStreamDebugging.appendBits(
+                    Misc.bitsToString(i17bits >> (BitStreamCode.LONGEST_BITSTREAM_CODE_17BITS - iBitLength), iBitLength));
 
-            if (bitCode.isIsEndOfBlock()) {
+            if ((iPackedCode & ZeroRunLengthAcLookup.PACKED_END_OF_BLOCK) != 0) {
                 // end of block
                 code.setToEndOfData();
                 _iCurrentBlockVectorPos = 0;
                 _context.nextCodeEndBlock();
             } else {
                 // block continues
-                if (bitCode.isIsEscapeCode()) {
+                if ((iPackedCode & ZeroRunLengthAcLookup.PACKED_ESCAPE_CODE) != 0) {
                     _escapeCodeReader.readAcEscapeCode(_bitReader, code);
                 } else {
-                    bitCode.getMdecCode(code);
+                    code.set(iPackedCode & ZeroRunLengthAcLookup.PACKED_MDEC_CODE_MASK);
                 }
 
                 _iCurrentBlockVectorPos += code.getTop6Bits() + 1;
@@ -39,7 +39,10 @@ package jpsxdec.psxvideo.bitstreams;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.TreeSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -432,6 +435,11 @@ public class BitStreamUncompressor_Iki extends BitStreamUncompressor {
         }
 
 
+        @Override
+        protected @Nonnull BitStreamCompressor_Iki copy() {
+            return new BitStreamCompressor_Iki(_iWidth, _iHeight);
+        }
+
         @Override
         public @CheckForNull byte[] compressFull(@Nonnull byte[] abOriginal,
                                                  @Nonnull String sFrameDescription,
@@ -442,39 +450,20 @@ public class BitStreamUncompressor_Iki extends BitStreamUncompressor {
             // TODO: verify original bitstream is iki?
             
             // STEP 1: Find the minimum Qscale for all blocks that will fit frame
-            byte[] abNewDemux = null;
-            int iQscale;
-            for (iQscale = 1; iQscale < 64; iQscale++) {
-                log.log(Level.INFO, I.TRYING_QSCALE(iQscale));
-
-                int[] aiNewQscale = { iQscale, iQscale, iQscale,
-                                      iQscale, iQscale, iQscale };
-
-                for (MacroBlockEncoder macblk : encoder) {
-                    macblk.setToFullEncode(aiNewQscale);
-                }
-
-                try {
-                    abNewDemux = compress(encoder.getStream());
-                } catch (IncompatibleException ex) {
-                    throw new RuntimeException("The encoder should be compatible here", ex);
-                }
-                int iNewDemuxSize = abNewDemux.length;
-                if (iNewDemuxSize <= abOriginal.length) {
-                    log.log(Level.INFO, I.NEW_FRAME_FITS(sFrameDescription, iNewDemuxSize, abOriginal.length));
-                    break;
-                } else {
-                    log.log(Level.INFO, I.NEW_FRAME_DOES_NOT_FIT(sFrameDescription, iNewDemuxSize, abOriginal.length));
-                    abNewDemux = null;
-                }
-            }
-
-            if (abNewDemux != null && abNewDemux.length < abOriginal.length && iQscale > 1) {
+            Attempt found = searchFullQscale(abOriginal, sFrameDescription, encoder, log);
+            if (found == null)
+                return null;
+            byte[] abNewDemux = accept(found);
+
+            int iQscale = found.iStep;
+            if (abNewDemux.length < abOriginal.length && iQscale > 1 &&
+                getQscaleSearch().refineMacroBlocks())
+            {
                 // STEP 2: decrease the qscale of blocks with high energy
                 //         until we run out of space
                 abNewDemux = reduceQscaleForHighEnergyMacroBlocks(
                              abNewDemux,
-                             abOriginal.length, sFrameDescription, iQscale-1, encoder, log);
+                             abOriginal.length, sFrameDescription, iQscale, encoder, log);
             }
 
             return abNewDemux;
@@ -483,14 +472,18 @@ public class BitStreamUncompressor_Iki extends BitStreamUncompressor {
         /** It is clear the original iki encoder did something like this.
          * While this doesn't produce identical results, it does appear to be
          * in the right direction. It should be quite sufficient for
-         * partially replacing frames, and pretty good for full frame replace. */
+         * partially replacing frames, and pretty good for full frame replace.
+         * <p>
+         * The macroblocks are sorted by how much they would benefit, then
+         * a {@link QscaleSearch} finds how many of the first macroblocks
+         * can have their qscale reduced while the frame still fits. */
         private @Nonnull byte[] reduceQscaleForHighEnergyMacroBlocks(
                                                 @Nonnull byte[] abLastGoodDemux,
-                                                int iOriginalLength,
-                                                @Nonnull String sFrameDescription,
-                                                int iNewQscale,
-                                                @Nonnull MdecEncoder encoder,
-                                                @Nonnull ILocalizedLogger log)
+                                                final int iOriginalLength,
+                                                final @Nonnull String sFrameDescription,
+                                                int iQscale,
+                                                final @Nonnull MdecEncoder encoder,
+                                                final @Nonnull ILocalizedLogger log)
                 throws MdecException.EndOfStream, MdecException.ReadCorruption
         {
             // sort the macroblocks by energy and distance from center of frame
@@ -518,30 +511,59 @@ public class BitStreamUncompressor_Iki extends BitStreamUncompressor {
             for (MacroBlockEncoder macblk : encoder) {
                 macblocks.add(macblk);
             }
-
-            // decrease the qscale of each macroblock until we run out of room
-            int[] aiNewQscale = { iNewQscale, iNewQscale, iNewQscale,
-                                  iNewQscale, iNewQscale, iNewQscale };
-            for (MacroBlockEncoder macblk : macblocks) {
-                log.log(Level.INFO, I.IKI_REDUCING_QSCALE_OF_MB_TO_VAL(macblk.X, macblk.Y, iNewQscale));
-                macblk.setToFullEncode(aiNewQscale);
-                byte[] abNewDemux;
-                try {
-                    abNewDemux = compress(encoder.getStream());
-                } catch (IncompatibleException ex) {
-                    throw new RuntimeException("The encoder should be compatible here", ex);
+            final ArrayList<MacroBlockEncoder> sortedMacblocks = new ArrayList<MacroBlockEncoder>(macblocks);
+            final IdentityHashMap<MacroBlockEncoder, Integer> sortedPositions =
+                    new IdentityHashMap<MacroBlockEncoder, Integer>();
+            for (int i = 0; i < sortedMacblocks.size(); i++) {
+                sortedPositions.put(sortedMacblocks.get(i), i);
+            }
+            final int iMacblockCount = sortedMacblocks.size();
+
+            final int iNewQscale = iQscale - 1;
+            final int[] aiQscale = { iQscale, iQscale, iQscale,
+                                     iQscale, iQscale, iQscale };
+            final int[] aiNewQscale = { iNewQscale, iNewQscale, iNewQscale,
+                                        iNewQscale, iNewQscale, iNewQscale };
+
+            // Step N of the search decreases the qscale of all but the last
+            // N sorted macroblocks, so the lowest step that fits decreases
+            // the most macroblocks. Start by trying only the first one.
+            Attempt found = getQscaleSearch().search(0, iMacblockCount - 1, iMacblockCount - 1,
+                    new QscaleSearch.Trial<Attempt>()
+            {
+                public @Nonnull Attempt attempt(int iStep)
+                        throws MdecException.EndOfStream, MdecException.ReadCorruption
+                {
+                    final int iReducedCount = iMacblockCount - iStep;
+                    return BitStreamCompressor_Iki.this.attempt(iStep, encoder.getStream(new MdecEncoder.MacroBlockQscales() {
+                        public @Nonnull Iterator<MdecCode> encode(@Nonnull MacroBlockEncoder macblk) {
+                            if (sortedPositions.get(macblk) < iReducedCount)
+                                return macblk.iterator(aiNewQscale, aiNewQscale);
+                            else
+                                return macblk.iterator(aiQscale, aiQscale);
+                        }
+                    }));
                 }
-                int iNewDemuxSize = abNewDemux.length;
-                if (iNewDemuxSize <= iOriginalLength) {
-                    log.log(Level.INFO, I.NEW_FRAME_FITS(sFrameDescription, iNewDemuxSize, iOriginalLength));
-                } else {
-                    log.log(Level.INFO, I.NEW_FRAME_DOES_NOT_FIT(sFrameDescription, iNewDemuxSize, iOriginalLength));
-                    break;
+
+                public boolean fits(int iStep, @Nonnull Attempt attempted) {
+                    int iNewDemuxSize = attempted.abCompressed.length;
+                    if (iNewDemuxSize <= iOriginalLength) {
+                        log.log(Level.INFO, I.NEW_FRAME_FITS(sFrameDescription, iNewDemuxSize, iOriginalLength));
+                        return true;
+                    } else {
+                        log.log(Level.INFO, I.NEW_FRAME_DOES_NOT_FIT(sFrameDescription, iNewDemuxSize, iOriginalLength));
+                        return false;
+                    }
                 }
-                abLastGoodDemux = abNewDemux;
-            }
+            });
 
-            return abLastGoodDemux;
+            if (found == null)
+                return abLastGoodDemux;
+
+            for (MacroBlockEncoder macblk : sortedMacblocks.subList(0, iMacblockCount - found.iStep)) {
+                log.log(Level.INFO, I.IKI_REDUCING_QSCALE_OF_MB_TO_VAL(macblk.X, macblk.Y, iNewQscale));
+            }
+            return accept(found);
         }
         
         @Override
@@ -37,6 +37,7 @@
 
 package jpsxdec.psxvideo.bitstreams;
 
+import java.util.ArrayList;
 import java.util.logging.Level;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -44,7 +45,6 @@ import jpsxdec.i18n.I;
 import jpsxdec.i18n.exception.LocalizedIncompatibleException;
 import jpsxdec.i18n.log.ILocalizedLogger;
 import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor_STRv2.BitStreamCompressor_STRv2;
-import jpsxdec.psxvideo.encode.MacroBlockEncoder;
 import jpsxdec.psxvideo.encode.MdecEncoder;
 import jpsxdec.psxvideo.mdec.MdecBlock;
 import jpsxdec.psxvideo.mdec.MdecCode;
@@ -419,49 +419,109 @@ public class BitStreamUncompressor_Lain extends BitStreamUncompressor {
         }
 
         @Override
-        public @CheckForNull byte[] compressFull(@Nonnull byte[] abOriginal,
-                                                 @Nonnull String sFrameDescription,
-                                                 @Nonnull MdecEncoder encoder,
-                                                 @Nonnull ILocalizedLogger log)
-                throws MdecException.EndOfStream, MdecException.ReadCorruption
-        {
-            int iLQscale = 1, iCQscale = 1;
+        protected @Nonnull BitStreamCompressor_Lain copy() {
+            return new BitStreamCompressor_Lain(getMacroBlockCount(), _iMagic3800orFrame);
+        }
+
+        /** The luma and chroma quantization scales to try, in order, starting
+         * with the given scales. Each step raises luma until it is
+         * {@link #LUMA_TO_CHROMA_RATIO} times chroma, then raises chroma. */
+        private static @Nonnull ArrayList<int[]> lumaChromaSteps(int iLQscale, int iCQscale) {
+            ArrayList<int[]> steps = new ArrayList<int[]>();
             while (iLQscale < 64 && iCQscale < 64) {
-                log.log(Level.INFO, I.TRYING_LUMA_CHROMA(iLQscale, iCQscale));
+                steps.add(new int[] { iLQscale, iCQscale });
 
+                if ((iLQscale / (double)iCQscale) < LUMA_TO_CHROMA_RATIO)
+                    iLQscale++;
+                else
+                    iCQscale++;
+            }
+            return steps;
+        }
+
+        /** Tries each of the {@link #lumaChromaSteps(int, int)}. */
+        private class LumaChromaTrial implements QscaleSearch.Trial<Attempt> {
+
+            @Nonnull
+            private final ArrayList<int[]> _steps;
+            private final int _iOriginalLength;
+            @Nonnull
+            private final String _sFrameDescription;
+            @Nonnull
+            private final MdecEncoder _encoder;
+            /** Null for full encode. */
+            @CheckForNull
+            private final int[] _aiOriginalQscale;
+            @Nonnull
+            private final ILocalizedLogger _log;
+
+            public LumaChromaTrial(@Nonnull ArrayList<int[]> steps,
+                                   int iOriginalLength, @Nonnull String sFrameDescription,
+                                   @Nonnull MdecEncoder encoder,
+                                   @CheckForNull int[] aiOriginalQscale,
+                                   @Nonnull ILocalizedLogger log)
+            {
+                _steps = steps;
+                _iOriginalLength = iOriginalLength;
+                _sFrameDescription = sFrameDescription;
+                _encoder = encoder;
+                _aiOriginalQscale = aiOriginalQscale;
+                _log = log;
+            }
+
+            public @Nonnull Attempt attempt(int iStep)
+                    throws MdecException.EndOfStream, MdecException.ReadCorruption
+            {
+                int iLQscale = _steps.get(iStep)[0], iCQscale = _steps.get(iStep)[1];
                 int[] aiNewQscale = { iCQscale, iCQscale,
                                       iLQscale, iLQscale, iLQscale, iLQscale };
+                if (_aiOriginalQscale == null)
+                    return BitStreamCompressor_Lain.this.attempt(iStep, _encoder.getStream(aiNewQscale, aiNewQscale));
+                else
+                    return BitStreamCompressor_Lain.this.attempt(iStep, _encoder.getStream(_aiOriginalQscale, aiNewQscale));
+            }
 
-                for (MacroBlockEncoder macblk : encoder) {
-                    macblk.setToFullEncode(aiNewQscale);
+            public boolean fits(int iStep, @Nonnull Attempt attempted) {
+                _log.log(Level.INFO, I.TRYING_LUMA_CHROMA(_steps.get(iStep)[0], _steps.get(iStep)[1]));
+                if (attempted.abCompressed == null) {
+                    _log.log(Level.INFO, I.COMPRESS_TOO_MUCH_ENERGY(_sFrameDescription), attempted.tooMuchEnergy);
+                    return false;
                 }
-
-                try {
-                    byte[] abNewDemux;
-                    try {
-                        abNewDemux = compress(encoder.getStream());
-                    } catch (IncompatibleException ex) {
-                        throw new RuntimeException("The encoder should be compatible here", ex);
-                    }
-
-                    int iNewDemuxSize = abNewDemux.length;
-                    if (iNewDemuxSize <= abOriginal.length) {
-                        log.log(Level.INFO, I.NEW_FRAME_FITS(sFrameDescription, iNewDemuxSize, abOriginal.length));
-                        return abNewDemux;
-                    } else {
-                        log.log(Level.INFO, I.NEW_FRAME_DOES_NOT_FIT(sFrameDescription, iNewDemuxSize, abOriginal.length));
-                    }
-                } catch (MdecException.TooMuchEnergy ex) {
-                    log.log(Level.INFO, I.COMPRESS_TOO_MUCH_ENERGY(sFrameDescription), ex);
+                int iNewDemuxSize = attempted.abCompressed.length;
+                if (iNewDemuxSize <= _iOriginalLength) {
+                    _log.log(Level.INFO, I.NEW_FRAME_FITS(_sFrameDescription, iNewDemuxSize, _iOriginalLength));
+                    return true;
+                } else {
+                    _log.log(Level.INFO, I.NEW_FRAME_DOES_NOT_FIT(_sFrameDescription, iNewDemuxSize, _iOriginalLength));
+                    return false;
                 }
+            }
+        }
 
-                if ((iLQscale / (double)iCQscale) < LUMA_TO_CHROMA_RATIO)
-                    iLQscale++;
-                else
-                    iCQscale++;
+        @Override
+        public @CheckForNull byte[] compressFull(@Nonnull byte[] abOriginal,
+                                                 @Nonnull String sFrameDescription,
+                                                 @Nonnull MdecEncoder encoder,
+                                                 @Nonnull ILocalizedLogger log)
+                throws MdecException.EndOfStream, MdecException.ReadCorruption
+        {
+            ArrayList<int[]> steps = lumaChromaSteps(1, 1);
+
+            // the new frame will probably need about the same qscales as the original
+            int iGuess = 0;
+            LainHeader header = new LainHeader(abOriginal, abOriginal.length);
+            if (header.isValid()) {
+                while (iGuess < steps.size() - 1 &&
+                       (steps.get(iGuess)[0] < header.getLumaQscale() ||
+                        steps.get(iGuess)[1] < header.getChromaQscale()))
+                {
+                    iGuess++;
+                }
             }
 
-            return null;
+            Attempt found = getQscaleSearch().search(0, steps.size() - 1, iGuess,
+                    new LumaChromaTrial(steps, abOriginal.length, sFrameDescription, encoder, null, log));
+            return found == null ? null : accept(found);
         }
 
         @Override
@@ -479,41 +539,11 @@ public class BitStreamUncompressor_Lain extends BitStreamUncompressor {
             final int iFrameCQscale = header.getChromaQscale();
             final int[] aiOriginalQscale = { iFrameCQscale, iFrameCQscale, iFrameLQscale,
                                              iFrameLQscale, iFrameLQscale, iFrameLQscale };
-            int iLQscale = iFrameLQscale, iCQscale = iFrameCQscale;
-            while (iLQscale < 64 && iCQscale < 64) {
-                log.log(Level.INFO, I.TRYING_LUMA_CHROMA(iLQscale, iCQscale));
+            ArrayList<int[]> steps = lumaChromaSteps(iFrameLQscale, iFrameCQscale);
 
-                int[] aiNewQscale = { iCQscale, iCQscale,
-                                      iLQscale, iLQscale, iLQscale, iLQscale };
-
-                for (MacroBlockEncoder macblk : encoder) {
-                    macblk.setToPartialEncode(aiOriginalQscale, aiNewQscale);
-                }
-
-                try {
-                    byte[] abNewDemux;
-                    try {
-                        abNewDemux = compress(encoder.getStream());
-                    } catch (IncompatibleException ex) {
-                        throw new RuntimeException("The encoder should be compatible here", ex);
-                    }
-
-                    if (abNewDemux.length <= abOriginal.length) {
-                        log.log(Level.INFO, I.NEW_FRAME_FITS(sFrameDescription, abNewDemux.length, abOriginal.length));
-                        return abNewDemux;
-                    } else {
-                        log.log(Level.INFO, I.NEW_FRAME_DOES_NOT_FIT(sFrameDescription, abNewDemux.length, abOriginal.length));
-                    }
-                } catch (MdecException.TooMuchEnergy ex) {
-                    log.log(Level.INFO, I.COMPRESS_TOO_MUCH_ENERGY(sFrameDescription), ex);
-                }
-
-                if ((iLQscale / (double)iCQscale) < LUMA_TO_CHROMA_RATIO)
-                    iLQscale++;
-                else
-                    iCQscale++;
-            }
-            return null;
+            Attempt found = getQscaleSearch().search(0, steps.size() - 1, 0,
+                    new LumaChromaTrial(steps, abOriginal.length, sFrameDescription, encoder, aiOriginalQscale, log));
+            return found == null ? null : accept(found);
         }
 
 
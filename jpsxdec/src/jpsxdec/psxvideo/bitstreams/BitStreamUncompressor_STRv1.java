@@ -119,6 +119,11 @@ public class BitStreamUncompressor_STRv1 extends BitStreamUncompressor {
             super(iMacroBlockCount);
         }
 
+        @Override
+        protected @Nonnull BitStreamCompressor_STRv1 copy() {
+            return new BitStreamCompressor_STRv1(getMacroBlockCount());
+        }
+
         @Override
         protected int getHeaderVersion() { return 1; }
 
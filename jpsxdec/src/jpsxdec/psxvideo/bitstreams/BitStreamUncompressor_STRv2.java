@@ -44,7 +44,6 @@ import javax.annotation.Nonnull;
 import jpsxdec.i18n.I;
 import jpsxdec.i18n.exception.LocalizedIncompatibleException;
 import jpsxdec.i18n.log.ILocalizedLogger;
-import jpsxdec.psxvideo.encode.MacroBlockEncoder;
 import jpsxdec.psxvideo.encode.MdecEncoder;
 import jpsxdec.psxvideo.mdec.Calc;
 import jpsxdec.psxvideo.mdec.MdecBlock;
@@ -187,43 +186,159 @@ public class BitStreamUncompressor_STRv2 extends BitStreamUncompressor {
         private final int _iMacroBlockCount;
         private int _iQscale;
         private int _iMdecCodeCount;
+        @Nonnull
+        private QscaleSearch _qscaleSearch = QscaleSearch.SINGLE_THREAD;
 
         public BitStreamCompressor_STRv2(int iMacroBlockCount) {
             _iMacroBlockCount = iMacroBlockCount;
         }
 
-        public @CheckForNull byte[] compressFull(@Nonnull byte[] abOriginal,
-                                                 @Nonnull String sFrameDescription,
-                                                 @Nonnull MdecEncoder encoder, 
-                                                 @Nonnull ILocalizedLogger log)
+        protected int getMacroBlockCount() {
+            return _iMacroBlockCount;
+        }
+
+        public void setQscaleSearch(@Nonnull QscaleSearch search) {
+            _qscaleSearch = search;
+        }
+
+        protected @Nonnull QscaleSearch getQscaleSearch() {
+            return _qscaleSearch;
+        }
+
+        /** Creates a new compressor for the same kind of frame so frames
+         * can be compressed on several threads at the same time. */
+        protected @Nonnull BitStreamCompressor_STRv2 copy() {
+            return new BitStreamCompressor_STRv2(_iMacroBlockCount);
+        }
+
+        /** A frame compressed during a {@link QscaleSearch}. */
+        protected static class Attempt {
+            /** The {@link QscaleSearch} step that was tried. */
+            public final int iStep;
+            /** The compressor that compressed the frame. */
+            @Nonnull
+            public final BitStreamCompressor_STRv2 compressor;
+            /** Null if the frame had too much energy to compress. */
+            @CheckForNull
+            public final byte[] abCompressed;
+            @CheckForNull
+            public final MdecException.TooMuchEnergy tooMuchEnergy;
+
+            private Attempt(int iStep, @Nonnull BitStreamCompressor_STRv2 compressor,
+                            @CheckForNull byte[] abCompressed,
+                            @CheckForNull MdecException.TooMuchEnergy tooMuchEnergy)
+            {
+                this.iStep = iStep;
+                this.compressor = compressor;
+                this.abCompressed = abCompressed;
+                this.tooMuchEnergy = tooMuchEnergy;
+            }
+        }
+
+        /** Compresses the stream on a {@link #copy()} of this compressor
+         * so it can be called from any thread. */
+        protected @Nonnull Attempt attempt(int iStep, @Nonnull MdecInputStream inStream)
                 throws MdecException.EndOfStream, MdecException.ReadCorruption
         {
-            for (int iQscale = 1; iQscale < 64; iQscale++) {
-                log.log(Level.INFO, I.TRYING_QSCALE(iQscale));
+            BitStreamCompressor_STRv2 compressor = copy();
+            try {
+                return new Attempt(iStep, compressor, compressor.compress(inStream), null);
+            } catch (IncompatibleException ex) {
+                throw new RuntimeException("The encoder should be compatible here", ex);
+            } catch (MdecException.TooMuchEnergy ex) {
+                return new Attempt(iStep, compressor, null, ex);
+            }
+        }
+
+        /** Takes the result of an {@link Attempt} as if this compressor
+         * had compressed it. */
+        protected @Nonnull byte[] accept(@Nonnull Attempt attempt) {
+            if (attempt.abCompressed == null)
+                throw new IllegalArgumentException();
+            _iMdecCodeCount = attempt.compressor._iMdecCodeCount;
+            return attempt.abCompressed;
+        }
+
+        /** Tries the same quantization scale for every block of the
+         * replaced macroblocks. */
+        private class SameQscaleTrial implements QscaleSearch.Trial<Attempt> {
+
+            private final int _iOriginalLength;
+            @Nonnull
+            private final String _sFrameDescription;
+            @Nonnull
+            private final MdecEncoder _encoder;
+            /** Null for full encode. */
+            @CheckForNull
+            private final int[] _aiOriginalQscale;
+            @Nonnull
+            private final ILocalizedLogger _log;
+
+            public SameQscaleTrial(int iOriginalLength, @Nonnull String sFrameDescription,
+                                   @Nonnull MdecEncoder encoder,
+                                   @CheckForNull int[] aiOriginalQscale,
+                                   @Nonnull ILocalizedLogger log)
+            {
+                _iOriginalLength = iOriginalLength;
+                _sFrameDescription = sFrameDescription;
+                _encoder = encoder;
+                _aiOriginalQscale = aiOriginalQscale;
+                _log = log;
+            }
 
+            public @Nonnull Attempt attempt(int iQscale)
+                    throws MdecException.EndOfStream, MdecException.ReadCorruption
+            {
                 int[] aiNewQscale = { iQscale, iQscale, iQscale,
                                       iQscale, iQscale, iQscale };
+                if (_aiOriginalQscale == null)
+                    return BitStreamCompressor_STRv2.this.attempt(iQscale, _encoder.getStream(aiNewQscale, aiNewQscale));
+                else
+                    return BitStreamCompressor_STRv2.this.attempt(iQscale, _encoder.getStream(_aiOriginalQscale, aiNewQscale));
+            }
 
-                for (MacroBlockEncoder macblk : encoder) {
-                    macblk.setToFullEncode(aiNewQscale);
-                }
-
-                byte[] abNewDemux;
-                try {
-                    abNewDemux = compress(encoder.getStream());
-                } catch (IncompatibleException ex) {
-                    throw new RuntimeException("The encoder should be compatible here", ex);
-                } catch (MdecException.TooMuchEnergy ex) {
-                    throw new RuntimeException("This should not happen with STRv2", ex);
-                }
-                if (abNewDemux.length <= abOriginal.length) {
-                    log.log(Level.INFO, I.NEW_FRAME_FITS(sFrameDescription, abNewDemux.length, abOriginal.length));
-                    return abNewDemux;
+            public boolean fits(int iQscale, @Nonnull Attempt attempted) {
+                _log.log(Level.INFO, I.TRYING_QSCALE(iQscale));
+                if (attempted.abCompressed == null)
+                    throw new RuntimeException("This should not happen with STRv2", attempted.tooMuchEnergy);
+                int iNewDemuxSize = attempted.abCompressed.length;
+                if (iNewDemuxSize <= _iOriginalLength) {
+                    _log.log(Level.INFO, I.NEW_FRAME_FITS(_sFrameDescription, iNewDemuxSize, _iOriginalLength));
+                    return true;
                 } else {
-                    log.log(Level.INFO, I.NEW_FRAME_DOES_NOT_FIT(sFrameDescription, abNewDemux.length, abOriginal.length));
+                    _log.log(Level.INFO, I.NEW_FRAME_DOES_NOT_FIT(_sFrameDescription, iNewDemuxSize, _iOriginalLength));
+                    return false;
                 }
             }
-            return null;
+        }
+
+        /** Finds the lowest quantization scale, the same for the entire frame,
+         * that fits. */
+        protected @CheckForNull Attempt searchFullQscale(@Nonnull byte[] abOriginal,
+                                                         @Nonnull String sFrameDescription,
+                                                         @Nonnull MdecEncoder encoder,
+                                                         @Nonnull ILocalizedLogger log)
+                throws MdecException.EndOfStream, MdecException.ReadCorruption
+        {
+            // the new frame will probably need about the same qscale as the original
+            int iGuess;
+            try {
+                iGuess = getFrameQscale(abOriginal);
+            } catch (LocalizedIncompatibleException ex) {
+                iGuess = 1;
+            }
+            return _qscaleSearch.search(1, 63, iGuess,
+                    new SameQscaleTrial(abOriginal.length, sFrameDescription, encoder, null, log));
+        }
+
+        public @CheckForNull byte[] compressFull(@Nonnull byte[] abOriginal,
+                                                 @Nonnull String sFrameDescription,
+                                                 @Nonnull MdecEncoder encoder, 
+                                                 @Nonnull ILocalizedLogger log)
+                throws MdecException.EndOfStream, MdecException.ReadCorruption
+        {
+            Attempt found = searchFullQscale(abOriginal, sFrameDescription, encoder, log);
+            return found == null ? null : accept(found);
         }
 
         public @CheckForNull byte[] compressPartial(@Nonnull byte[] abOriginal,
@@ -235,33 +350,10 @@ public class BitStreamUncompressor_STRv2 extends BitStreamUncompressor {
             final int iFrameQscale = getFrameQscale(abOriginal);
             int[] aiOriginalQscale = { iFrameQscale, iFrameQscale, iFrameQscale,
                                        iFrameQscale, iFrameQscale, iFrameQscale };
-            
-            for (int iNewQscale = iFrameQscale; iNewQscale < 64; iNewQscale++) {
-                log.log(Level.INFO, I.TRYING_QSCALE(iNewQscale));
-
-                int[] aiNewQscale = { iNewQscale, iNewQscale, iNewQscale,
-                                      iNewQscale, iNewQscale, iNewQscale };
-
-                for (MacroBlockEncoder macblk : encoder) {
-                    macblk.setToPartialEncode(aiOriginalQscale, aiNewQscale);
-                }
 
-                byte[] abNewDemux;
-                try {
-                    abNewDemux = compress(encoder.getStream());
-                } catch (IncompatibleException ex) {
-                    throw new RuntimeException("The encoder should be compatible here", ex);
-                } catch (MdecException.TooMuchEnergy ex) {
-                    throw new RuntimeException("This should not happen with STRv2", ex);
-                }
-                if (abNewDemux.length <= abOriginal.length) {
-                    log.log(Level.INFO, I.NEW_FRAME_FITS(sFrameDescription, abNewDemux.length, abOriginal.length));
-                    return abNewDemux;
-                } else {
-                    log.log(Level.INFO, I.NEW_FRAME_DOES_NOT_FIT(sFrameDescription, abNewDemux.length, abOriginal.length));
-                }
-            }
-            return null;
+            Attempt found = _qscaleSearch.search(iFrameQscale, 63, iFrameQscale,
+                    new SameQscaleTrial(abOriginal.length, sFrameDescription, encoder, aiOriginalQscale, log));
+            return found == null ? null : accept(found);
         }
 
         public @Nonnull byte[] compress(@Nonnull MdecInputStream inStream)
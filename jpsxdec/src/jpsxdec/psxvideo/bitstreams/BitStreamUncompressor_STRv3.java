@@ -417,6 +417,11 @@ public class BitStreamUncompressor_STRv3 extends BitStreamUncompressor {
             super(iMacroBlockCount);
         }
 
+        @Override
+        protected @Nonnull BitStreamCompressor_STRv3 copy() {
+            return new BitStreamCompressor_STRv3(getMacroBlockCount());
+        }
+
         @Override
         protected int getHeaderVersion() { return 3; }
 
@@ -0,0 +1,253 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.psxvideo.bitstreams;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.psxvideo.mdec.MdecException;
+import jpsxdec.util.DaemonThreadFactory;
+import jpsxdec.util.Futures;
+
+/** Finds the lowest quantization scale (or any other list of steps that
+ * make the frame smaller the higher they go) that compresses a replacement
+ * frame small enough to fit where the original frame was.
+ * <p>
+ * The frame gets smaller as the quantization scale goes up, so rather than
+ * compressing the frame with every step in order until it fits, the search
+ * starts at a guess (usually the original frame's quantization scale),
+ * moves away from it in growing jumps until the answer is surrounded,
+ * then splits the range in half until the lowest step that fits is found.
+ * That's only a handful of compress passes instead of up to 63.
+ * <p>
+ * With more than one thread, several steps are compressed at the same time
+ * and the range is split into that many more pieces each round.
+ * <p>
+ * Compressed frame size isn't perfectly smooth, so on rare frames a step
+ * a little lower than the one found might have also fit. */
+public class QscaleSearch implements Closeable {
+
+    /** Searches on only the calling thread. */
+    public static final QscaleSearch SINGLE_THREAD = new QscaleSearch(1, true);
+
+    /** One compress pass of the search. */
+    public interface Trial<T> {
+        /** Compresses the frame using the given step.
+         * May be called from several threads at the same time, so it must
+         * not change anything shared with other calls. */
+        @Nonnull T attempt(int iStep)
+                throws MdecException.EndOfStream, MdecException.ReadCorruption;
+
+        /** Returns if the result of {@link #attempt(int)} fits.
+         * Called on the searching thread in the order the steps were tried
+         * so results can be logged. */
+        boolean fits(int iStep, @Nonnull T attempted);
+    }
+
+    private final int _iThreads;
+    private final boolean _blnRefineMacroBlocks;
+    @CheckForNull
+    private final ExecutorService _executor;
+
+    /** @param iThreads Number of compress passes to run at the same time.
+     *  @param blnRefineMacroBlocks For bitstreams that can have a different
+     *                              quantization scale for every macroblock,
+     *                              if macroblocks should be given lower
+     *                              scales while there is space in the frame. */
+    public QscaleSearch(int iThreads, boolean blnRefineMacroBlocks) {
+        if (iThreads < 1)
+            throw new IllegalArgumentException("Invalid thread count " + iThreads);
+        _iThreads = iThreads;
+        _blnRefineMacroBlocks = blnRefineMacroBlocks;
+        if (iThreads > 1)
+            _executor = Executors.newFixedThreadPool(iThreads,
+                    new DaemonThreadFactory(QscaleSearch.class.getSimpleName()));
+        else
+            _executor = null;
+    }
+
+    public boolean refineMacroBlocks() {
+        return _blnRefineMacroBlocks;
+    }
+
+    /** Finds the lowest step between {@code iFirstStep} and
+     * {@code iLastStep} (inclusive) that fits.
+     * @param iGuess Where to start looking.
+     * @return the result of the lowest step that fits, or null if none fit. */
+    public @CheckForNull <T> T search(int iFirstStep, int iLastStep, int iGuess,
+                                      @Nonnull Trial<T> trial)
+            throws MdecException.EndOfStream, MdecException.ReadCorruption
+    {
+        iGuess = Math.max(iFirstStep, Math.min(iGuess, iLastStep));
+
+        // every step below iLow doesn't fit,
+        // and lowestFit (if any) is the result for the step just above iHigh
+        int iLow = iFirstStep, iHigh = iLastStep;
+        T lowestFit = null;
+        boolean blnMissed = false;
+        // number of jumps taken away from the guess
+        int iJump = 0;
+
+        while (iLow <= iHigh) {
+            int[] aiSteps;
+            if (lowestFit == null) {
+                // haven't found anything that fits yet, jump up from the guess
+                aiSteps = jumps(iGuess, 1, iJump, iLow, iHigh);
+                iJump += aiSteps.length;
+            } else if (!blnMissed) {
+                // the guess fits, jump down to find something that doesn't
+                aiSteps = jumps(iGuess, -1, iJump, iLow, iHigh);
+                iJump += aiSteps.length;
+            } else {
+                aiSteps = split(iLow, iHigh);
+            }
+
+            ArrayList<T> attempts = attemptAll(aiSteps, trial);
+
+            boolean[] ablnFits = new boolean[aiSteps.length];
+            for (int i = 0; i < aiSteps.length; i++) {
+                ablnFits[i] = trial.fits(aiSteps[i], attempts.get(i));
+            }
+
+            boolean blnFoundFirstFit = lowestFit == null;
+            int i = 0;
+            for (; i < aiSteps.length && !ablnFits[i]; i++) {
+                iLow = aiSteps[i] + 1;
+                blnMissed = true;
+            }
+            if (i < aiSteps.length) {
+                lowestFit = attempts.get(i);
+                iHigh = aiSteps[i] - 1;
+                if (blnFoundFirstFit && !blnMissed) {
+                    // the guess fit, start jumping down from it
+                    iJump = 1;
+                }
+            }
+        }
+
+        return lowestFit;
+    }
+
+    /** Steps that jump farther and farther from the guess in the given
+     * direction (0, 1, 3, 7, 15...), one step per thread, stopping at the
+     * end of the range. */
+    private @Nonnull int[] jumps(int iGuess, int iDirection, int iJump, int iLow, int iHigh) {
+        int[] aiSteps = new int[_iThreads];
+        int iCount = 0;
+        while (iCount < aiSteps.length) {
+            long lngStep = iGuess + iDirection * ((1L << Math.min(iJump + iCount, 32)) - 1);
+            if (iDirection > 0 && lngStep >= iHigh) {
+                aiSteps[iCount++] = iHigh;
+                break;
+            } else if (iDirection < 0 && lngStep <= iLow) {
+                aiSteps[iCount++] = iLow;
+                break;
+            }
+            aiSteps[iCount++] = (int)lngStep;
+        }
+        int[] ai = new int[iCount];
+        if (iDirection > 0) {
+            System.arraycopy(aiSteps, 0, ai, 0, iCount);
+        } else {
+            // always try the steps from lowest to highest
+            for (int i = 0; i < iCount; i++)
+                ai[i] = aiSteps[iCount - 1 - i];
+        }
+        return ai;
+    }
+
+    /** Steps that split the range into equal parts, one step per thread. */
+    private @Nonnull int[] split(int iLow, int iHigh) {
+        int iSize = iHigh - iLow + 1;
+        int[] aiSteps = new int[Math.min(_iThreads, iSize)];
+        if (aiSteps.length == iSize) {
+            for (int i = 0; i < aiSteps.length; i++)
+                aiSteps[i] = iLow + i;
+        } else {
+            for (int i = 0; i < aiSteps.length; i++)
+                aiSteps[i] = iLow + ((i + 1) * iSize - 1) / (aiSteps.length + 1);
+        }
+        return aiSteps;
+    }
+
+    private @Nonnull <T> ArrayList<T> attemptAll(@Nonnull int[] aiSteps,
+                                                 final @Nonnull Trial<T> trial)
+            throws MdecException.EndOfStream, MdecException.ReadCorruption
+    {
+        ArrayList<T> attempts = new ArrayList<T>(aiSteps.length);
+        if (_executor == null || aiSteps.length == 1) {
+            for (int iStep : aiSteps) {
+                attempts.add(trial.attempt(iStep));
+            }
+            return attempts;
+        }
+
+        ArrayList<Future<T>> running = new ArrayList<Future<T>>(aiSteps.length);
+        try {
+            for (final int iStep : aiSteps) {
+                running.add(_executor.submit(new Callable<T>() {
+                    public T call() throws Exception {
+                        return trial.attempt(iStep);
+                    }
+                }));
+            }
+            for (Future<T> future : running) {
+                attempts.add(Futures.waitFor(future,
+                        MdecException.EndOfStream.class, MdecException.ReadCorruption.class));
+            }
+        } finally {
+            // only does anything if one of the passes failed
+            for (Future<T> future : running) {
+                future.cancel(true);
+            }
+        }
+        return attempts;
+    }
+
+    /** Stops the threads. */
+    public void close() {
+        if (_executor != null)
+            _executor.shutdownNow();
+    }
+}
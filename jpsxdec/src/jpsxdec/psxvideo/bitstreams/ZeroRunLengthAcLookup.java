@@ -229,6 +229,35 @@ public class ZeroRunLengthAcLookup implements Iterable<ZeroRunLengthAc> {
      * index in this table to get the corresponding code. */
     private final ZeroRunLengthAc[] _aoTable_000000000xxxxxxxx = new ZeroRunLengthAc[256];
 
+    // .........................................................................
+    // Packed lookup: a single table lookup returns everything about the code
+    // as an int, see {@link #lookupPacked(int)}.
+
+    /** Bits 0-15 of a packed code: the MDEC code (if any). */
+    public static final int PACKED_MDEC_CODE_MASK = 0xFFFF;
+    /** Bits 16-20 of a packed code: the bit length of the code. */
+    public static final int PACKED_BIT_LENGTH_SHIFT = 16;
+    public static final int PACKED_BIT_LENGTH_MASK = 0x1F;
+    /** Bit 21 of a packed code: it is the escape code. */
+    public static final int PACKED_ESCAPE_CODE = 1 << 21;
+    /** Bit 22 of a packed code: it is the end of block code. */
+    public static final int PACKED_END_OF_BLOCK = 1 << 22;
+
+    /** Codes up to this length are found by their first 11 bits. */
+    private static final int PACKED_SHORT_CODE_BITS = 11;
+    /** All codes longer than {@link #PACKED_SHORT_CODE_BITS} start with
+     * this many zero bits, and are found by the 10 bits that follow. */
+    private static final int PACKED_LONG_CODE_ZEROS = 7;
+    private static final int PACKED_LONG_CODE_BITS =
+            BitStreamCode.LONGEST_BITSTREAM_CODE_17BITS - PACKED_LONG_CODE_ZEROS;
+    /** Bits of the 17 that must be zero for a long code. */
+    private static final int PACKED_LONG_CODE_ZEROS_MASK = 0x1FC00;
+
+    /** Packed codes indexed by the first 11 of the 17 bits. */
+    private final int[] _aiPackedShortCodes = new int[1 << PACKED_SHORT_CODE_BITS];
+    /** Packed codes that start with 7 zero bits, indexed by the last 10 of the 17 bits. */
+    private final int[] _aiPackedLongCodes = new int[1 << PACKED_LONG_CODE_BITS];
+
     private ZeroRunLengthAcLookup(@Nonnull ZeroRunLengthAc[] aoList) {
         _aoList = aoList;
         for (int i = 0; i < aoList.length; i++) {
@@ -237,6 +266,42 @@ public class ZeroRunLengthAcLookup implements Iterable<ZeroRunLengthAc> {
             if (zrlac == null)
                 throw new IllegalStateException("Table incomplete: missing " + bitStreamCode);
             setBits(bitStreamCode, zrlac);
+            setPacked(bitStreamCode, zrlac);
+        }
+    }
+
+    /** Fills the packed lookup table entries for the bit code. */
+    private void setPacked(@Nonnull BitStreamCode bsc, @Nonnull ZeroRunLengthAc zrlac) {
+        int iPacked = bsc.getLength() << PACKED_BIT_LENGTH_SHIFT;
+        MdecCode mdecCode = zrlac.getMdecCodeCopy();
+        if (mdecCode != null)
+            iPacked |= mdecCode.toMdecWord();
+        if (zrlac.isIsEscapeCode())
+            iPacked |= PACKED_ESCAPE_CODE;
+        if (zrlac.isIsEndOfBlock())
+            iPacked |= PACKED_END_OF_BLOCK;
+
+        final int[] aiTable;
+        final int iTableBits;
+        final String sBits;
+        if (bsc.getLength() <= PACKED_SHORT_CODE_BITS) {
+            aiTable = _aiPackedShortCodes;
+            iTableBits = PACKED_SHORT_CODE_BITS;
+            sBits = bsc.getString();
+        } else {
+            if (bsc.getString().indexOf('1') < PACKED_LONG_CODE_ZEROS)
+                throw new IllegalStateException("Long code doesn't start with enough zeros " + bsc);
+            aiTable = _aiPackedLongCodes;
+            iTableBits = PACKED_LONG_CODE_BITS;
+            sBits = bsc.getString().substring(PACKED_LONG_CODE_ZEROS);
+        }
+        int iBitsRemain = iTableBits - sBits.length();
+        int iTableStart = Integer.parseInt(sBits, 2) << iBitsRemain;
+        for (int i = 0; i < (1 << iBitsRemain); i++) {
+            if (aiTable[iTableStart + i] != 0)
+                throw new RuntimeException("Trying to replace packed code at " + (iTableStart + i) +
+                                           " with " + zrlac);
+            aiTable[iTableStart + i] = iPacked;
         }
     }
 
@@ -330,6 +395,24 @@ public class ZeroRunLengthAcLookup implements Iterable<ZeroRunLengthAc> {
         }
     }
 
+    /** Same as {@link #lookup(int)}, but with a single table lookup and
+     * returns the code packed into an int. Use the PACKED_ masks and
+     * constants to get the values out of it.
+     *
+     * @param i17bits  Integer containing 17 bits to decode.
+     */
+    public int lookupPacked(final int i17bits) throws MdecException.ReadCorruption {
+        final int iPacked;
+        if ((i17bits & PACKED_LONG_CODE_ZEROS_MASK) != 0)
+            iPacked = _aiPackedShortCodes[(i17bits >> (BitStreamCode.LONGEST_BITSTREAM_CODE_17BITS - PACKED_SHORT_CODE_BITS))
+                                          & ((1 << PACKED_SHORT_CODE_BITS) - 1)];
+        else
+            iPacked = _aiPackedLongCodes[i17bits & ((1 << PACKED_LONG_CODE_BITS) - 1)];
+        if (iPacked == 0)
+            throw new MdecException.ReadCorruption(UNMATCHED_AC_VLC(i17bits));
+        return iPacked;
+    }
+
     private static @Nonnull String UNMATCHED_AC_VLC(int i17bits) {
         return "Unmatched AC variable length code: " +
                Misc.bitsToString(i17bits, LONGEST_BITSTREAM_CODE_17BITS);
@@ -47,7 +47,7 @@ import static jpsxdec.psxvideo.mdec.MdecInputStream.REVERSE_ZIG_ZAG_LOOKUP_LIST;
 import jpsxdec.psxvideo.mdec.idct.StephensIDCT;
 
 /** Encodes a single macroblock into MDEC codes. */
-public class MacroBlockEncoder implements Iterable<MdecCode> {
+public class MacroBlockEncoder {
 
     private static final boolean DEBUG = false;
 
@@ -57,14 +57,11 @@ public class MacroBlockEncoder implements Iterable<MdecCode> {
     // TODO: Change to use a Forward DCT more closely resembling the PSX
     private final StephensIDCT _DCT = new StephensIDCT();
 
-    private final double[][] _aadblYBlockVectors = new double[4][];
+    private final PreQuantizedBlock[] _aYBlocks = new PreQuantizedBlock[4];
     @Nonnull
-    private final double[] _adblCbBlockVector;
+    private final PreQuantizedBlock _cbBlock;
     @Nonnull
-    private final double[] _adblCrBlockVector;
-
-    @Nonnull
-    private int[] _aiQscales, _aiSquashQscales;
+    private final PreQuantizedBlock _crBlock;
 
     public final int X, Y;
 
@@ -83,7 +80,7 @@ public class MacroBlockEncoder implements Iterable<MdecCode> {
             for (int iBlockX = 0; iBlockX < 16; iBlockX+=8) {
                 double[] adblBlock = ycbcr.get8x8blockY(iMacroBlockX*16+iBlockX,
                                                         iMacroBlockY*16+iBlockY);
-                _aadblYBlockVectors[iBlock] = preEncodeBlock(adblBlock, iBlock+2);
+                _aYBlocks[iBlock] = preEncodeBlock(adblBlock, iBlock+2);
                 iBlock++;
             }
         }
@@ -92,16 +89,16 @@ public class MacroBlockEncoder implements Iterable<MdecCode> {
         if (DEBUG)
             System.out.println("Encoding macroblock Cb");
         double[] adblBlock = ycbcr.get8x8blockCb(iMacroBlockX*8, iMacroBlockY*8);
-        _adblCbBlockVector = preEncodeBlock(adblBlock, 0);
+        _cbBlock = preEncodeBlock(adblBlock, 0);
         if (DEBUG)
             System.out.println("Encoding macroblock Cr");
         adblBlock = ycbcr.get8x8blockCr(iMacroBlockX*8, iMacroBlockY*8);
-        _adblCrBlockVector = preEncodeBlock(adblBlock, 1);
+        _crBlock = preEncodeBlock(adblBlock, 1);
         
 
     }
 
-    private @Nonnull double[] preEncodeBlock(@Nonnull double[] adblBlock, int iBlock) {
+    private @Nonnull PreQuantizedBlock preEncodeBlock(@Nonnull double[] adblBlock, int iBlock) {
         if (DEBUG) {
             System.out.println("Pre DCT");
             for (int y = 0; y < 8; y++) {
@@ -140,7 +137,7 @@ public class MacroBlockEncoder implements Iterable<MdecCode> {
             }
         }
 
-        return aiBlock;
+        return new PreQuantizedBlock(aiBlock);
     }
 
 
@@ -170,37 +167,66 @@ public class MacroBlockEncoder implements Iterable<MdecCode> {
         return _dblEnergy;
     }
     
-    public void setToFullEncode(@Nonnull int[] aiQscales) {
-        if (aiQscales.length != 6)
-            throw new IllegalArgumentException();
-        _aiSquashQscales = _aiQscales = aiQscales.clone();
-    }
-    public void setToPartialEncode(@Nonnull int[] aiQscales, @Nonnull int[] aiSquashQscales) {
-        if (aiQscales.length != 6)
+    /** Encodes the macroblock with the given quantization scales.
+     * Nothing about the macroblock is changed, so several threads can
+     * encode it at the same time. */
+    public @Nonnull Iterator<MdecCode> iterator(@Nonnull int[] aiQscales, @Nonnull int[] aiSquashQscales) {
+        if (aiQscales.length != 6 || aiSquashQscales.length != 6)
             throw new IllegalArgumentException();
-        _aiQscales = aiQscales.clone();
-        _aiSquashQscales = aiSquashQscales.clone();
-    }
-
-    public @Nonnull Iterator<MdecCode> iterator() {
-        if (_aiQscales == null || _aiSquashQscales == null)
-            throw new IllegalStateException();
         ArrayList<MdecCode> codes = new ArrayList<MdecCode>();
-        encodeBlock(_adblCrBlockVector, codes, _aiQscales[0], _aiSquashQscales[0]);
-        encodeBlock(_adblCbBlockVector, codes, _aiQscales[1], _aiSquashQscales[1]);
-        encodeBlock(_aadblYBlockVectors[0], codes, _aiQscales[2], _aiSquashQscales[2]);
-        encodeBlock(_aadblYBlockVectors[1], codes, _aiQscales[3], _aiSquashQscales[3]);
-        encodeBlock(_aadblYBlockVectors[2], codes, _aiQscales[4], _aiSquashQscales[4]);
-        encodeBlock(_aadblYBlockVectors[3], codes, _aiQscales[5], _aiSquashQscales[5]);
+        encodeBlock(_crBlock, codes, aiQscales[0], aiSquashQscales[0]);
+        encodeBlock(_cbBlock, codes, aiQscales[1], aiSquashQscales[1]);
+        encodeBlock(_aYBlocks[0], codes, aiQscales[2], aiSquashQscales[2]);
+        encodeBlock(_aYBlocks[1], codes, aiQscales[3], aiSquashQscales[3]);
+        encodeBlock(_aYBlocks[2], codes, aiQscales[4], aiSquashQscales[4]);
+        encodeBlock(_aYBlocks[3], codes, aiQscales[5], aiSquashQscales[5]);
         return codes.iterator();
     }
 
     // -------------------------------------------------------------------------
 
-    private void encodeBlock(@Nonnull double[] adblVector,
+    /** A block after the DCT, zig-zagged and partially quantized.
+     * Since the same block is quantized over and over while searching for
+     * the quantization scale that fits, it also keeps, for each AC
+     * coefficient, the smallest quantization scale that makes it 0.
+     * Then most coefficients can be quantized with a simple compare. */
+    private static class PreQuantizedBlock {
+        @Nonnull
+        public final double[] adblVector;
+        /** Quantization scale where each AC coefficient (and all larger
+         * scales) quantize to 0, or 64 if it never does. */
+        @Nonnull
+        public final int[] aiZeroAtQscale;
+
+        public PreQuantizedBlock(@Nonnull double[] adblVector) {
+            this.adblVector = adblVector;
+            aiZeroAtQscale = new int[adblVector.length];
+            for (int i = 1; i < adblVector.length; i++) {
+                aiZeroAtQscale[i] = zeroAtQscale(adblVector[i]);
+            }
+        }
+    }
+
+    /** Finds the smallest quantization scale where
+     * {@code Math.round(dblValue / iQscale) == 0}. That happens right
+     * around {@code 2 * |dblValue|}, and never below it, so start
+     * there and check with the same rounding used when encoding.
+     * @return 1 to 63, or 64 if no quantization scale quantizes it to 0. */
+    static int zeroAtQscale(double dblValue) {
+        int iQscale = (int)Math.min(Math.abs(dblValue) * 2, 64);
+        if (iQscale < 1)
+            iQscale = 1;
+        while (iQscale < 64 && Math.round(dblValue / iQscale) != 0)
+            iQscale++;
+        return iQscale;
+    }
+
+    private void encodeBlock(@Nonnull PreQuantizedBlock block,
                              @Nonnull ArrayList<MdecCode> out,
                              int iQscale, int iSquashQscale)
     {
+        final double[] adblVector = block.adblVector;
+        final int[] aiZeroAtQscale = block.aiZeroAtQscale;
         final MdecCode code = new MdecCode();
         code.setTop6Bits(iQscale);
         code.setBottom10Bits((int)Math.round(adblVector[0]));
@@ -213,7 +239,11 @@ public class MacroBlockEncoder implements Iterable<MdecCode> {
             int iZeroCount = 0;
             int iQuantVal = -1;
             while (iVectorPos < adblVector.length) {
-                if (iQscale == iSquashQscale)
+                // if it quantizes to 0 with the squash qscale,
+                // it stays 0 after scaling to the final qscale
+                if (iSquashQscale >= aiZeroAtQscale[iVectorPos])
+                    iQuantVal = 0;
+                else if (iQscale == iSquashQscale)
                     iQuantVal = (int)Math.round(adblVector[iVectorPos] / iQscale);
                 else
                     iQuantVal = (int)Math.round(
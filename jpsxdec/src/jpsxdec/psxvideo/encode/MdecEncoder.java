@@ -41,6 +41,7 @@ import java.awt.Point;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import jpsxdec.psxvideo.mdec.Calc;
 import jpsxdec.psxvideo.mdec.MdecCode;
@@ -52,7 +53,11 @@ import jpsxdec.psxvideo.mdec.MdecInputStream;
  * compressed as a bitstream.  */
 public class MdecEncoder implements Iterable<MacroBlockEncoder> {
 
+    /** Codes of the original macroblocks that are kept, null for the
+     * macroblocks being replaced. */
     private final Iterable<MdecCode>[] _aoMacroBlocks;
+    /** The macroblocks being replaced, null for the ones kept. */
+    private final MacroBlockEncoder[] _aoEncoders;
     private final ArrayList<MacroBlockEncoder> _replaceMbs = new ArrayList<MacroBlockEncoder>();
     private final int _iMacBlockWidth;
     private final int _iPixWidth, _iPixHeight;
@@ -71,11 +76,12 @@ public class MdecEncoder implements Iterable<MacroBlockEncoder> {
         _iMacBlockHeight = ycbcr.getLumaHeight() / 16;
 
         _aoMacroBlocks = new Iterable[_iMacBlockWidth * _iMacBlockHeight];
+        _aoEncoders = new MacroBlockEncoder[_aoMacroBlocks.length];
 
         for (int iMbX = 0; iMbX < _iMacBlockWidth; iMbX++) {
             for (int iMbY = 0; iMbY < _iMacBlockHeight; iMbY++) {
                 MacroBlockEncoder enc = new MacroBlockEncoder(ycbcr, iMbX, iMbY);
-                _aoMacroBlocks[iMbX * _iMacBlockHeight + iMbY] = enc;
+                _aoEncoders[iMbX * _iMacBlockHeight + iMbY] = enc;
                 _replaceMbs.add(enc);
             }
         }
@@ -98,20 +104,19 @@ public class MdecEncoder implements Iterable<MacroBlockEncoder> {
         _iMacBlockHeight = Calc.macroblockDim(newYcbcr.getLumaHeight());
 
         _aoMacroBlocks = new Iterable[_iMacBlockWidth * _iMacBlockHeight];
+        _aoEncoders = new MacroBlockEncoder[_aoMacroBlocks.length];
 
         Point p = new Point();
         for (int iMbX = 0; iMbX < _iMacBlockWidth; iMbX++) {
             for (int iMbY = 0; iMbY < _iMacBlockHeight; iMbY++) {
                 p.setLocation(iMbX, iMbY);
-                Iterable<MdecCode> enc;
                 if (macroBlocksToReplace.contains(p)) {
                     MacroBlockEncoder e = new MacroBlockEncoder(newYcbcr, iMbX, iMbY);
                     _replaceMbs.add(e);
-                    enc = e;
+                    _aoEncoders[iMbX * _iMacBlockHeight + iMbY] = e;
                 } else {
-                    enc = original.getMacroBlockCodes(iMbX, iMbY);
+                    _aoMacroBlocks[iMbX * _iMacBlockHeight + iMbY] = original.getMacroBlockCodes(iMbX, iMbY);
                 }
-                _aoMacroBlocks[iMbX * _iMacBlockHeight + iMbY] = enc;
             }
         }
 
@@ -122,8 +127,33 @@ public class MdecEncoder implements Iterable<MacroBlockEncoder> {
         return _replaceMbs.iterator();
     }
 
-    public @Nonnull MdecInputStream getStream() {
-        return new EncodedMdecInputStream();
+    /** Chooses the quantization scales for each macroblock being replaced. */
+    public interface MacroBlockQscales {
+        /** Encodes the macroblock, usually with
+         * {@link MacroBlockEncoder#iterator(int[], int[])}. */
+        @Nonnull Iterator<MdecCode> encode(@Nonnull MacroBlockEncoder macblk);
+    }
+
+    /** Stream where the macroblocks being replaced are encoded with the given
+     * quantization scales. Since the macroblocks aren't changed,
+     * several of these streams can be read at the same time on different
+     * threads. */
+    public @Nonnull MdecInputStream getStream(@Nonnull MacroBlockQscales qscales) {
+        return new EncodedMdecInputStream(qscales);
+    }
+
+    /** Stream where all the macroblocks being replaced are encoded with the
+     * same quantization scales.
+     * @see #getStream(MacroBlockQscales)
+     * @see MacroBlockEncoder#iterator(int[], int[]) */
+    public @Nonnull MdecInputStream getStream(final @Nonnull int[] aiQscales,
+                                              final @Nonnull int[] aiSquashQscales)
+    {
+        return getStream(new MacroBlockQscales() {
+            public @Nonnull Iterator<MdecCode> encode(@Nonnull MacroBlockEncoder macblk) {
+                return macblk.iterator(aiQscales, aiSquashQscales);
+            }
+        });
     }
 
     public int getMacroBlockCount() {
@@ -148,11 +178,21 @@ public class MdecEncoder implements Iterable<MacroBlockEncoder> {
 
     private class EncodedMdecInputStream implements MdecInputStream {
 
+        @Nonnull
+        private final MacroBlockQscales __qscales;
         private int __iCurMacBlk = 0;
         private Iterator<MdecCode> __curMb;
 
-        public EncodedMdecInputStream() {
-            __curMb = _aoMacroBlocks[__iCurMacBlk].iterator();
+        public EncodedMdecInputStream(@Nonnull MacroBlockQscales qscales) {
+            __qscales = qscales;
+            __curMb = macroBlockCodes(__iCurMacBlk);
+        }
+
+        private @Nonnull Iterator<MdecCode> macroBlockCodes(int iMacBlk) {
+            MacroBlockEncoder enc = _aoEncoders[iMacBlk];
+            if (enc != null)
+                return __qscales.encode(enc);
+            return _aoMacroBlocks[iMacBlk].iterator();
         }
 
         public boolean readMdecCode(@Nonnull MdecCode code) throws MdecException.EndOfStream {
@@ -161,7 +201,7 @@ public class MdecEncoder implements Iterable<MacroBlockEncoder> {
                 if (__iCurMacBlk >= _aoMacroBlocks.length)
                     throw new MdecException.EndOfStream("Read beyond EncodedMdecInputStream");
                 __iCurMacBlk++;
-                __curMb = _aoMacroBlocks[__iCurMacBlk].iterator();
+                __curMb = macroBlockCodes(__iCurMacBlk);
             }
             code.setFrom(__curMb.next());
             return code.isEOD(); // hopefully no bad EOD codes are part of the list
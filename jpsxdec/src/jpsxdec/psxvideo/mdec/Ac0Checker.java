@@ -73,8 +73,30 @@ public class Ac0Checker implements MdecInputStream {
     }
 
     final public void logIfAny0AcCoefficient() {
-        if (_iEscapeCodeAc0Count > 0) {
-            LOG.log(Level.INFO, "Frame had {0} codes 0 AC coefficient", _iEscapeCodeAc0Count);
+        logIfAny0AcCoefficient(_iEscapeCodeAc0Count);
+    }
+
+    // The checks are also used directly by the decoders, which read the
+    // codes themselves instead of through a wrapping Ac0Checker.
+
+    /** Checks the (qscale,DC) code at the start of a block. */
+    static void checkQscaleDC(boolean blnEod) {
+        if (blnEod) // there's something very strange going on if this happens
+            LOG.log(Level.WARNING, "(qscale,DC) code says it's EOD");
+    }
+
+    /** Checks an AC code that is not EOD.
+     * @return if the code's AC coefficient is 0. */
+    static boolean isAc0(@Nonnull MdecCode code) {
+        if (code.getBottom10Bits() != 0)
+            return false;
+        LOG.log(Level.FINE, "Found AC=0 code {0}", code);
+        return true;
+    }
+
+    static void logIfAny0AcCoefficient(int iAc0Count) {
+        if (iAc0Count > 0) {
+            LOG.log(Level.INFO, "Frame had {0} codes 0 AC coefficient", iAc0Count);
         }
     }
 
@@ -86,13 +108,11 @@ public class Ac0Checker implements MdecInputStream {
         
         if (_blnNextCodeIsQscaleDC) {
             _blnNextCodeIsQscaleDC = false;
-            if (blnEod) // there's something very strange going on if this happens
-                LOG.log(Level.WARNING, "(qscale,DC) code says it's EOD");
+            checkQscaleDC(blnEod);
         } else if (blnEod) {
             _blnNextCodeIsQscaleDC = true;
-        } else if (code.getBottom10Bits() == 0) {
+        } else if (isAc0(code)) {
             _iEscapeCodeAc0Count++;
-            LOG.log(Level.FINE, "Found AC=0 code {0}", code);
             if (_blnAlsoClean)
                 blnEod = filter0(code);
         }
@@ -97,15 +97,14 @@ public class MdecDecoder_double extends MdecDecoder {
         _upsampler = u;
     }
 
-    public void decode(@Nonnull MdecInputStream sourceMdecInStream)
+    public void decode(@Nonnull MdecInputStream mdecInStream)
             throws MdecException.EndOfStream, MdecException.ReadCorruption
     {
-        Ac0Checker mdecInStream = Ac0Checker.wrapWithChecker(sourceMdecInStream, false);
-
         int iCurrentBlockQscale;
         int iCurrentBlockVectorPosition;
         int iCurrentBlockNonZeroCount;
         int iCurrentBlockLastNonZeroPosition;
+        int iAc0Count = 0;
 
         MdecContext context = new MdecContext(_iMacBlockHeight);
 
@@ -122,7 +121,7 @@ public class MdecDecoder_double extends MdecDecoder {
                     assert !DEBUG || debugPrintln("=========== Decoding block "+context.getCurrentBlock()+" ===========");
 
                     Arrays.fill(_CurrentBlock, 0);
-                    mdecInStream.readMdecCode(_code);
+                    Ac0Checker.checkQscaleDC(mdecInStream.readMdecCode(_code));
 
                     assert !DEBUG || debugPrintln("Qscale & DC " + _code);
 
@@ -169,6 +168,8 @@ public class MdecDecoder_double extends MdecDecoder {
                             iCurrentBlockNonZeroCount++;
                             iCurrentBlockLastNonZeroPosition = iRevZigZagMatrixPos;
 
+                        } else if (Ac0Checker.isAc0(_code)) {
+                            iAc0Count++;
                         }
                         ////////////////////////////////////////////////////////
                         context.nextCode();
@@ -192,7 +193,7 @@ public class MdecDecoder_double extends MdecDecoder {
                 context.nextCodeEndBlock();
             }
 
-            mdecInStream.logIfAny0AcCoefficient();
+            Ac0Checker.logIfAny0AcCoefficient(iAc0Count);
         }
     }
 
@@ -266,34 +267,33 @@ public class MdecDecoder_double extends MdecDecoder {
                 bilinearUpsample(_dblDecodedCbBuffer, _adblTempUpsampledCb);
                 break;
             default:
+                // the resampler keeps its filter weights between frames
+                // as long as the filter doesn't change
                 _resampler.setFilter(_upsampler._filter);
-                _resampler.doFilter(_adblDecodedCrBuffer, CW, CH, _adblTempUpsampledCr);
-                _resampler.doFilter(_dblDecodedCbBuffer, CW, CH, _adblTempUpsampledCb);
+                _resampler.doFilter(_adblDecodedCrBuffer, _dblDecodedCbBuffer, CW, CH,
+                                    _adblTempUpsampledCr, _adblTempUpsampledCb);
         }
 
-        RGB rgb = new RGB();
-        double y, cb, cr;
-
         for (int iY = 0, iSrcLineOfsStart=0, iDestLineOfsStart=iOutStart;
              iY < iDestHeight;
              iY++, iSrcLineOfsStart+=W, iDestLineOfsStart+=iOutStride)
         {
-            for (int iX=0, iSrcOfs=iSrcLineOfsStart, iDestOfs=iDestLineOfsStart;
-                 iX < iDestWidth;
-                 iX++, iSrcOfs++, iDestOfs++)
-            {
-                y = _adblDecodedLumaBuffer[iSrcOfs];
-                cb = _adblTempUpsampledCb[iSrcOfs];
-                cr = _adblTempUpsampledCr[iSrcOfs];
-
-                if (YUV_TESTS) {
-                    System.err.println("###>>!! YUV_TEST CONVERTING TO Rec601 THEN TO RGB !!<<###");
-                    Rec601YCbCr.toRgb(y, cb, cr, rgb);
-                } else {
-                    PsxYCbCr.toRgb(y, cb, cr, rgb);
+            if (YUV_TESTS) {
+                System.err.println("###>>!! YUV_TEST CONVERTING TO Rec601 THEN TO RGB !!<<###");
+                RGB rgb = new RGB();
+                for (int iX=0, iSrcOfs=iSrcLineOfsStart, iDestOfs=iDestLineOfsStart;
+                     iX < iDestWidth;
+                     iX++, iSrcOfs++, iDestOfs++)
+                {
+                    Rec601YCbCr.toRgb(_adblDecodedLumaBuffer[iSrcOfs],
+                                      _adblTempUpsampledCb[iSrcOfs],
+                                      _adblTempUpsampledCr[iSrcOfs], rgb);
+                    aiDest[iDestOfs] = rgb.toInt();
                 }
-
-                aiDest[iDestOfs] = rgb.toInt();
+            } else {
+                PsxYCbCr.toRgbRow(_adblDecodedLumaBuffer, _adblTempUpsampledCb,
+                                  _adblTempUpsampledCr, iSrcLineOfsStart,
+                                  aiDest, iDestLineOfsStart, iDestWidth);
             }
         }
     }
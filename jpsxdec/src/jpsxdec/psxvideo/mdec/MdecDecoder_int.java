@@ -39,7 +39,6 @@ package jpsxdec.psxvideo.mdec;
 
 import java.util.Arrays;
 import javax.annotation.Nonnull;
-import jpsxdec.formats.RGB;
 import jpsxdec.psxvideo.PsxYCbCr_int;
 import jpsxdec.psxvideo.mdec.idct.IDCT_int;
 
@@ -54,8 +53,18 @@ public class MdecDecoder_int extends MdecDecoder {
     private final int[] _aiCbBuffer;
     private final int[] _aiLumaBuffer;
 
-    /** Matrix of 8x8 coefficient values. */
+    /** Red, green, and blue chroma offsets of the row being converted to RGB. */
+    private final int[] _aiChromRedRow;
+    private final int[] _aiChromGreenRow;
+    private final int[] _aiChromBlueRow;
+
+    /** Matrix of 8x8 coefficient values.
+     * Only the positions in {@link #_aiNonZeroPositions} are ever non-zero. */
     protected final int[] _CurrentBlock = new int[64];
+    /** Positions in {@link #_CurrentBlock} that were set by the current block
+     * so only those need to be cleared before the next block. */
+    private final int[] _aiNonZeroPositions = new int[64];
+    private int _iNonZeroCount = 0;
 
     public MdecDecoder_int(@Nonnull IDCT_int idct, int iWidth, int iHeight) {
         super(iWidth, iHeight);
@@ -64,40 +73,45 @@ public class MdecDecoder_int extends MdecDecoder {
         _aiCrBuffer = new int[CW*CH];
         _aiCbBuffer = new int[_aiCrBuffer.length];
         _aiLumaBuffer = new int[W*H];
+
+        _aiChromRedRow = new int[W];
+        _aiChromGreenRow = new int[W];
+        _aiChromBlueRow = new int[W];
     }
 
-    public void decode(@Nonnull MdecInputStream sourceMdecInStream)
+    public void decode(@Nonnull MdecInputStream mdecInStream)
             throws MdecException.EndOfStream, MdecException.ReadCorruption
     {
-        Ac0Checker mdecInStream = Ac0Checker.wrapWithChecker(sourceMdecInStream, false);
-
         int iCurrentBlockQscale;
         int iCurrentBlockVectorPosition;
         int iCurrentBlockNonZeroCount;
         int iCurrentBlockLastNonZeroPosition;
 
-        MdecContext context = new MdecContext(_iMacBlockHeight);
+        int iMacroBlock = 0;
+        int iBlock = 0;
+        int iAc0Count = 0;
 
         try {
 
             // decode all the macro blocks of the image
-            while (context.getTotalMacroBlocksRead() < _iTotalMacBlocks) {
+            for (; iMacroBlock < _iTotalMacBlocks; iMacroBlock++) {
                 // debug
-                assert !DEBUG || debugPrintln(String.format("############### Decoding macro block %d %s ###############",
-                                              context.getTotalMacroBlocksRead(), context.getMacroBlockPixel()));
+                assert !DEBUG || debugPrintln(String.format("############### Decoding macro block %d (%d, %d) ###############",
+                                              iMacroBlock, macroBlockX(iMacroBlock), macroBlockY(iMacroBlock)));
 
-                for (int iBlock = 0; iBlock < MdecBlock.count(); iBlock++) {
+                for (iBlock = 0; iBlock < MdecBlock.count(); iBlock++) {
 
-                    assert !DEBUG || debugPrintln("=========== Decoding block "+context.getCurrentBlock()+" ===========");
+                    assert !DEBUG || debugPrintln("=========== Decoding block "+MdecBlock.values()[iBlock]+" ===========");
 
-                    Arrays.fill(_CurrentBlock, 0);
-                    mdecInStream.readMdecCode(_code);
+                    clearCurrentBlock();
+                    Ac0Checker.checkQscaleDC(mdecInStream.readMdecCode(_code));
 
                     assert !DEBUG || debugPrintln("Qscale & DC " + _code);
 
                     if (_code.getBottom10Bits() != 0) {
                         _CurrentBlock[0] =
                                 _code.getBottom10Bits() * _aiQuantizationTable[0];
+                        _aiNonZeroPositions[0] = 0;
                         iCurrentBlockNonZeroCount = 1;
                         iCurrentBlockLastNonZeroPosition = 0;
                     } else {
@@ -120,10 +134,10 @@ public class MdecDecoder_int extends MdecDecoder {
                             // Reverse Zig-Zag
                             iRevZigZagMatrixPos = MdecInputStream.REVERSE_ZIG_ZAG_LOOKUP_LIST[iCurrentBlockVectorPosition];
                         } catch (ArrayIndexOutOfBoundsException ex) {
-                            MdecContext.MacroBlockPixel macBlkXY = context.getMacroBlockPixel();
                             throw new MdecException.ReadCorruption(MdecException.RLC_OOB_IN_BLOCK_NAME(
                                            iCurrentBlockVectorPosition,
-                                           context.getTotalMacroBlocksRead(), macBlkXY.x, macBlkXY.y, context.getCurrentBlock().ordinal(), context.getCurrentBlock().name()),
+                                           iMacroBlock, macroBlockX(iMacroBlock), macroBlockY(iMacroBlock),
+                                           iBlock, MdecBlock.values()[iBlock].name()),
                                            ex);
                         }
 
@@ -137,36 +151,57 @@ public class MdecDecoder_int extends MdecDecoder {
                                       * iCurrentBlockQscale + 4) >> 3;
                             //  i      >> 3  ==  (int)Math.floor(i / 8.0)
                             // (i + 4) >> 3  ==  (int)Math.round(i / 8.0)
+                            _aiNonZeroPositions[iCurrentBlockNonZeroCount] = iRevZigZagMatrixPos;
                             iCurrentBlockNonZeroCount++;
                             iCurrentBlockLastNonZeroPosition = iRevZigZagMatrixPos;
 
+                        } else if (Ac0Checker.isAc0(_code)) {
+                            iAc0Count++;
                         }
                         ////////////////////////////////////////////////////////
-                        context.nextCode();
                     }
+                    _iNonZeroCount = iCurrentBlockNonZeroCount;
 
                     assert !DEBUG || debugPrintln(_code.toString());
 
-                    writeEndOfBlock(context.getTotalMacroBlocksRead(), context.getCurrentBlock().ordinal(),
+                    writeEndOfBlock(iMacroBlock, iBlock,
                             iCurrentBlockNonZeroCount,
                             iCurrentBlockLastNonZeroPosition);
-
-                    context.nextCodeEndBlock();
                 }
             }
         } finally {
             // in case an exception occured
             // fill in any remaining data with zeros
             // pickup where decoding left off
-            while (context.getTotalMacroBlocksRead() < _iTotalMacBlocks) {
-                writeEndOfBlock(context.getTotalMacroBlocksRead(), context.getCurrentBlock().ordinal(), 0, 0);
-                context.nextCodeEndBlock();
+            if (iMacroBlock < _iTotalMacBlocks) {
+                // the failed block may have left coefficients that weren't tracked
+                Arrays.fill(_CurrentBlock, 0);
+                _iNonZeroCount = 0;
+            }
+            for (; iMacroBlock < _iTotalMacBlocks; iMacroBlock++, iBlock = 0) {
+                for (; iBlock < MdecBlock.count(); iBlock++)
+                    writeEndOfBlock(iMacroBlock, iBlock, 0, 0);
             }
 
-            mdecInStream.logIfAny0AcCoefficient();
+            Ac0Checker.logIfAny0AcCoefficient(iAc0Count);
         }
     }
 
+    /** Zeros only the coefficients that were set by the last block. */
+    private void clearCurrentBlock() {
+        for (int i = 0; i < _iNonZeroCount; i++)
+            _CurrentBlock[_aiNonZeroPositions[i]] = 0;
+        _iNonZeroCount = 0;
+    }
+
+    private int macroBlockX(int iMacroBlock) {
+        return (iMacroBlock / _iMacBlockHeight) * 16;
+    }
+
+    private int macroBlockY(int iMacroBlock) {
+        return (iMacroBlock % _iMacBlockHeight) * 16;
+    }
+
     private boolean debugPrintBlock(@Nonnull String sMsg) {
         System.out.println(sMsg);
         for (int i = 0; i < 8; i++) {
@@ -180,6 +215,21 @@ public class MdecDecoder_int extends MdecDecoder {
         return true;
     }
 
+    private boolean debugPrintOutputBlock(@Nonnull String sMsg, @Nonnull int[] aiOutput,
+                                          int iOutOffset, int iOutWidth)
+    {
+        System.out.println(sMsg);
+        for (int i = 0; i < 8; i++, iOutOffset += iOutWidth) {
+            System.out.print("[ ");
+            for (int j = 0; j < 8; j++) {
+                System.out.format( "%d, ", aiOutput[iOutOffset+j]);
+            }
+            System.out.print("]");
+            System.out.println();
+        }
+        return true;
+    }
+
     private void writeEndOfBlock(int iMacroBlock, int iBlock,
                                  int iNonZeroCount, int iNonZeroPos)
     {
@@ -205,124 +255,35 @@ public class MdecDecoder_int extends MdecDecoder {
                 iOutWidth = W;
         }
         if (iNonZeroCount == 0) {
-            for (int i=0; i < 8; i++, iOutOffset += iOutWidth)
-                Arrays.fill(outputBuffer, iOutOffset, iOutOffset + 8, 0);
+            for (int i=0, iOfs=iOutOffset; i < 8; i++, iOfs += iOutWidth)
+                Arrays.fill(outputBuffer, iOfs, iOfs + 8, 0);
+        } else if (iNonZeroCount == 1) {
+            _idct.IDCT_1NonZero(_CurrentBlock, iNonZeroPos, iOutOffset, iOutWidth, outputBuffer);
         } else {
-            if (iNonZeroCount == 1) {
-                _idct.IDCT_1NonZero(_CurrentBlock, iNonZeroPos, 0, _CurrentBlock);
-            } else {
-                _idct.IDCT(_CurrentBlock, 0, _CurrentBlock);
-            }
-            // TODO: have IDCT write to the destination location directly
-            for (int i=0, iSrcOfs=0; i < 8; i++, iSrcOfs+=8, iOutOffset += iOutWidth)
-                System.arraycopy(_CurrentBlock, iSrcOfs, outputBuffer, iOutOffset, 8);
+            _idct.IDCT(_CurrentBlock, iOutOffset, iOutWidth, outputBuffer);
         }
 
-        assert !DEBUG || debugPrintBlock("Post-IDCT block");
+        assert !DEBUG || debugPrintOutputBlock("Post-IDCT block", outputBuffer, iOutOffset, iOutWidth);
 
     }
 
     public void readDecodedRgb(int iDestWidth, int iDestHeight, @Nonnull int[] aiDest,
                                int iOutStart, int iOutStride)
     {
-        final PsxYCbCr_int psxycc = new PsxYCbCr_int();
-        final RGB rgb1 = new RGB(), rgb2 = new RGB(), rgb3 = new RGB(), rgb4 = new RGB();
-
-        final int W_x2 = W*2, iOutStride_x2 = iOutStride*2;
-        
-        final int iDestWidthSub1 = iDestWidth - 1;
-        final int iDestHeightSub1 = iDestHeight - 1;
-
-        int iLumaLineOfsStart = 0, iChromaLineOfsStart = 0,
-            iDestLineOfsStart = iOutStart;
-        int iY=0;
-        for (; iY < iDestHeightSub1; iY+=2,
-             iLumaLineOfsStart+=W_x2, iChromaLineOfsStart+=CW,
-             iDestLineOfsStart+=iOutStride_x2)
+        // every chroma row is shared by 2 luma rows
+        for (int iY = 0, iLumaOfs = 0, iChromaOfs = 0, iDestOfs = iOutStart;
+             iY < iDestHeight;
+             iY++, iLumaOfs += W, iDestOfs += iOutStride)
         {
-            // writes 2 lines at a time
-            int iSrcLumaOfs1 = iLumaLineOfsStart,
-                iSrcLumaOfs2 = iLumaLineOfsStart + W,
-                iSrcChromaOfs = iChromaLineOfsStart,
-                iDestOfs1 = iDestLineOfsStart,
-                iDestOfs2 = iDestLineOfsStart + iOutStride;
-
-            int iX=0;
-            for (; iX < iDestWidthSub1; iX+=2,
-                 iSrcChromaOfs++)
-            {
-                psxycc.cr = _aiCrBuffer[iSrcChromaOfs];
-                psxycc.cb = _aiCbBuffer[iSrcChromaOfs];
-
-                psxycc.y1 = _aiLumaBuffer[iSrcLumaOfs1++];
-                psxycc.y2 = _aiLumaBuffer[iSrcLumaOfs1++];
-                psxycc.y3 = _aiLumaBuffer[iSrcLumaOfs2++];
-                psxycc.y4 = _aiLumaBuffer[iSrcLumaOfs2++];
-
-                psxycc.toRgb(rgb1, rgb2, rgb3, rgb4);
-
-                aiDest[iDestOfs1++] = rgb1.toInt();
-                aiDest[iDestOfs1++] = rgb2.toInt();
-                aiDest[iDestOfs2++] = rgb3.toInt();
-                aiDest[iDestOfs2++] = rgb4.toInt();
-            }
-
-            if (iX < iDestWidth) {
-                // if the width is odd, add 2 pixels
-                psxycc.cr = _aiCrBuffer[iSrcChromaOfs];
-                psxycc.cb = _aiCbBuffer[iSrcChromaOfs];
-
-                psxycc.y1 = _aiLumaBuffer[iSrcLumaOfs1];
-                psxycc.y2 = _aiLumaBuffer[iSrcLumaOfs1];
-                psxycc.y3 = _aiLumaBuffer[iSrcLumaOfs2];
-                psxycc.y4 = _aiLumaBuffer[iSrcLumaOfs2];
-
-                psxycc.toRgb(rgb1, rgb2, rgb3, rgb4); // rgb2,4 ignored
-
-                aiDest[iDestOfs1] = rgb1.toInt();
-                aiDest[iDestOfs2] = rgb3.toInt();
-            }
-        }
-
-        if (iY < iDestHeight) {
-            // if the height is odd, write 1 line
-            int iSrcLumaOfs1 = iLumaLineOfsStart,
-                iSrcLumaOfs2 = iLumaLineOfsStart + W,
-                iSrcChromaOfs = iChromaLineOfsStart,
-                iDestOfs1 = iDestLineOfsStart;
-
-            int iX=0;
-            for (; iX < iDestWidthSub1; iX+=2,
-                 iSrcChromaOfs++)
-            {
-                psxycc.cr = _aiCrBuffer[iSrcChromaOfs];
-                psxycc.cb = _aiCbBuffer[iSrcChromaOfs];
-
-                psxycc.y1 = _aiLumaBuffer[iSrcLumaOfs1++];
-                psxycc.y2 = _aiLumaBuffer[iSrcLumaOfs1++];
-                psxycc.y3 = _aiLumaBuffer[iSrcLumaOfs2++];
-                psxycc.y4 = _aiLumaBuffer[iSrcLumaOfs2++];
-
-                psxycc.toRgb(rgb1, rgb2, rgb3, rgb4); // rgb3,4 ignored
-
-                aiDest[iDestOfs1++] = rgb1.toInt();
-                aiDest[iDestOfs1++] = rgb2.toInt();
-            }
-
-            if (iX < iDestWidth) {
-                // if the width is odd, add 1 pixel
-                psxycc.cr = _aiCrBuffer[iSrcChromaOfs];
-                psxycc.cb = _aiCbBuffer[iSrcChromaOfs];
-
-                psxycc.y1 = _aiLumaBuffer[iSrcLumaOfs1];
-                psxycc.y2 = _aiLumaBuffer[iSrcLumaOfs1];
-                psxycc.y3 = _aiLumaBuffer[iSrcLumaOfs2];
-                psxycc.y4 = _aiLumaBuffer[iSrcLumaOfs2];
-
-                psxycc.toRgb(rgb1, rgb2, rgb3, rgb4); // rgb2,3,4 ignored
-
-                aiDest[iDestOfs1] = rgb1.toInt();
+            if ((iY & 1) == 0) {
+                PsxYCbCr_int.chromaRow(_aiCbBuffer, _aiCrBuffer, iChromaOfs,
+                                       _aiChromRedRow, _aiChromGreenRow, _aiChromBlueRow,
+                                       iDestWidth);
+                iChromaOfs += CW;
             }
+            PsxYCbCr_int.toRgbRow(_aiLumaBuffer, iLumaOfs,
+                                  _aiChromRedRow, _aiChromGreenRow, _aiChromBlueRow,
+                                  aiDest, iDestOfs, iDestWidth);
         }
     }
 
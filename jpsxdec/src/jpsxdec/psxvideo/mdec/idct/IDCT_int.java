@@ -40,11 +40,16 @@ package jpsxdec.psxvideo.mdec.idct;
 /** Interface for all int-precision Inverse Discrete Cosine Transform classes. */
 public interface IDCT_int {
     
-    /** Standard Inverse Discrete Cosine Transform that processes all coefficients. */
+    /** Standard Inverse Discrete Cosine Transform that processes all coefficients.
+     * The 8x8 result is written starting at {@code iOutputOffset} with
+     * each row {@code iOutputStride} apart, so it can go directly into
+     * a larger image buffer. The input matrix is not modified
+     * (unless it is also the output). */
     void IDCT(int[] aiIdctMatrix,
-              int iOutputOffset, int[] aiOutput);
+              int iOutputOffset, int iOutputStride, int[] aiOutput);
 
-    /** Special optimization of the IDCT when there is only 1 non-zero coefficient. */
+    /** Special optimization of the IDCT when there is only 1 non-zero coefficient.
+     * Output is written the same as {@link #IDCT(int[], int, int, int[])}. */
     void IDCT_1NonZero(int[] aiIdctMatrix, int iNonZeroPos,
-                       int iOutputOffset, int[] aiOutput);
+                       int iOutputOffset, int iOutputStride, int[] aiOutput);
 }
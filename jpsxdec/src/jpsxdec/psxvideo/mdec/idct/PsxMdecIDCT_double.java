@@ -43,7 +43,8 @@ public class PsxMdecIDCT_double implements IDCT_double {
 
     private static final double F = 65536.0;
 
-    private static final double[] PSX_DEFAULT_COSINE_MATRIX = {
+    /** Also used by {@link SparsePsxMdecIDCT_double}. */
+    static final double[] PSX_DEFAULT_COSINE_MATRIX = {
         23170/F,  23170/F,  23170/F,  23170/F,  23170/F,  23170/F,  23170/F,  23170/F,
         32138/F,  27245/F,  18204/F,   6392/F,  -6393/F, -18205/F, -27246/F, -32139/F,
         30273/F,  12539/F, -12540/F, -30274/F, -30274/F, -12540/F,  12539/F,  30273/F,
@@ -63,7 +63,7 @@ public class PsxMdecIDCT_int implements IDCT_int {
 
     private final long[] _aTemp = new long[64];
 
-    public void IDCT(int[] idctMatrix, int iOutputOffset, int[] output) {
+    public void IDCT(int[] idctMatrix, int iOutputOffset, int iOutputStride, int[] output) {
         long tempSum;
         int x;
         int y;
@@ -89,7 +89,7 @@ public class PsxMdecIDCT_int implements IDCT_int {
                     tempSum += _aTemp[i + y*8] * PSX_DEFAULT_COSINE_MATRIX[x + i*8];
                 }
 
-                output[iOutputOffset + x + y*8] = (int)Maths.shrRound(tempSum, 32);
+                output[iOutputOffset + x + y*iOutputStride] = (int)Maths.shrRound(tempSum, 32);
             }
         }
     }
@@ -126,8 +126,8 @@ public class PsxMdecIDCT_int implements IDCT_int {
         }
     }
 
-    public void IDCT_1NonZero(int[] idctMatrix, int iNonZeroPos, int iOutputOffset, int[] output) {
-        IDCT(idctMatrix, iOutputOffset, output);
+    public void IDCT_1NonZero(int[] idctMatrix, int iNonZeroPos, int iOutputOffset, int iOutputStride, int[] output) {
+        IDCT(idctMatrix, iOutputOffset, iOutputStride, output);
     }
 
     
@@ -157,7 +157,7 @@ public class PsxMdecIDCT_int implements IDCT_int {
 
         PsxMdecIDCT_int idct = new PsxMdecIDCT_int();
 
-        idct.IDCT(matrix, 0, matrix);
+        idct.IDCT(matrix, 0, 8, matrix);
 
         for (int y = 0; y < 8; y++) {
             System.out.print("[ ");
@@ -37,13 +37,44 @@
 
 package jpsxdec.psxvideo.mdec.idct;
 
+import java.util.Arrays;
+
 /** Adapter for {@link simple_idct} to match jPSXdec interface. */
 public class SimpleIDCT extends simple_idct implements IDCT_int {
-    public void IDCT(int[] aiIdctMatrix, int iOutputOffset, int[] aiOutput) {
-        invers_dct(aiIdctMatrix, iOutputOffset, aiOutput);
+
+    /** Holds the result of the row pass so the input matrix isn't touched
+     * and the column pass can write directly to the output. */
+    private final int[] _aiRowPass = new int[64];
+
+    public void IDCT(int[] aiIdctMatrix, int iOutputOffset, int iOutputStride, int[] aiOutput) {
+        rowPass(aiIdctMatrix, 7);
+        columnPass(iOutputOffset, iOutputStride, aiOutput);
+    }
+
+    public void IDCT_1NonZero(int[] aiIdctMatrix, int iNonZeroPos, int iOutputOffset, int iOutputStride, int[] aiOutput) {
+        rowPass(aiIdctMatrix, iNonZeroPos >>> 3);
+        columnPass(iOutputOffset, iOutputStride, aiOutput);
+    }
+
+    /** @param iLastRow rows after this are known to be all zeros. */
+    private void rowPass(int[] aiIdctMatrix, int iLastRow) {
+        for (int iRow = 0, iOfs = 0; iRow < 8; iRow++, iOfs += 8) {
+            // a row of all zeros always comes out as all zeros
+            if (iRow > iLastRow ||
+                (aiIdctMatrix[iOfs  ] | aiIdctMatrix[iOfs+1] |
+                 aiIdctMatrix[iOfs+2] | aiIdctMatrix[iOfs+3] |
+                 aiIdctMatrix[iOfs+4] | aiIdctMatrix[iOfs+5] |
+                 aiIdctMatrix[iOfs+6] | aiIdctMatrix[iOfs+7]) == 0)
+            {
+                Arrays.fill(_aiRowPass, iOfs, iOfs + 8, 0);
+            } else {
+                idct1D(aiIdctMatrix, iOfs, 1, ROW_SHIFT, _aiRowPass, iOfs, 1);
+            }
+        }
     }
 
-    public void IDCT_1NonZero(int[] aiIdctMatrix, int iNonZeroPos, int iOutputOffset, int[] aiOutput) {
-        invers_dct_special(aiIdctMatrix, iNonZeroPos, iOutputOffset, aiOutput);
+    private void columnPass(int iOutputOffset, int iOutputStride, int[] aiOutput) {
+        for (int iCol = 0; iCol < 8; iCol++)
+            idct1D(_aiRowPass, iCol, 8, COL_SHIFT, aiOutput, iOutputOffset + iCol, iOutputStride);
     }
 }
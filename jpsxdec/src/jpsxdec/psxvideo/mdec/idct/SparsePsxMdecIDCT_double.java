@@ -0,0 +1,134 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.psxvideo.mdec.idct;
+
+import java.util.Arrays;
+
+/** Produces the same output as {@link PsxMdecIDCT_double}, but only works
+ * on the part of the block that can hold non-zero coefficients.
+ * <p>
+ * Most PlayStation blocks have only a handful of low frequency
+ * coefficients. A block with a single coefficient (often just DC) is the
+ * product of one row and one column of the cosine matrix. Otherwise only
+ * the rows and columns up to the last one holding a non-zero coefficient
+ * are multiplied, so a block with only a first row, only a first column,
+ * or only the top-left 4x4 takes a fraction of the work of a full block.
+ * <p>
+ * The sums are added in the same order as {@link PsxMdecIDCT_double},
+ * only leaving out terms that are always 0, so the output is the same. */
+public class SparsePsxMdecIDCT_double implements IDCT_double {
+
+    private static final double[] M = PsxMdecIDCT_double.PSX_DEFAULT_COSINE_MATRIX;
+
+    private final double[] _adblTemp = new double[64];
+
+    public void IDCT(double[] idctMatrix, int iOutputOffset, double[] output) {
+        int iLast = 63;
+        while (iLast >= 0 && idctMatrix[iLast] == 0)
+            iLast--;
+
+        if (iLast < 0) {
+            Arrays.fill(output, iOutputOffset, iOutputOffset + 64, 0);
+        } else if (iLast == 0) {
+            oneCoefficient(idctMatrix[0], 0, 0, iOutputOffset, output);
+        } else {
+            // find the last column holding a non-zero coefficient
+            int iLastRow = iLast >>> 3;
+            int iLastCol = iLast & 7;
+            for (int i = iLastRow * 8 - 1; i >= 0 && iLastCol < 7; i--) {
+                if ((i & 7) > iLastCol && idctMatrix[i] != 0)
+                    iLastCol = i & 7;
+            }
+            transform(idctMatrix, iLastRow, iLastCol, iOutputOffset, output);
+        }
+    }
+
+    public void IDCT_1NonZero(double[] idctMatrix, int iNonZeroPos, int iOutputOffset, double[] output) {
+        oneCoefficient(idctMatrix[iNonZeroPos], iNonZeroPos >>> 3, iNonZeroPos & 7,
+                       iOutputOffset, output);
+    }
+
+    /** The IDCT of a block with only one non-zero coefficient
+     * is the outer product of a cosine matrix row and column. */
+    private static void oneCoefficient(double dblCoefficient, int iRow, int iCol,
+                                       int iOutputOffset, double[] output)
+    {
+        for (int y = 0; y < 8; y++) {
+            double dblRowPass = dblCoefficient * M[iRow*8 + y];
+            for (int x = 0; x < 8; x++) {
+                output[iOutputOffset + x + y*8] = M[x + iCol*8] * dblRowPass;
+            }
+        }
+    }
+
+    /** Same as {@link PsxMdecIDCT_double#IDCT(double[], int, double[])}
+     * but skipping the rows after {@code iLastRow} and the columns after
+     * {@code iLastCol}, which are all zeros. Each sum is still added in the
+     * same order, but the loops are arranged so the innermost always runs
+     * over 8 neighboring values. */
+    private void transform(double[] idctMatrix, int iLastRow, int iLastCol,
+                           int iOutputOffset, double[] output)
+    {
+        double[] temp = _adblTemp;
+
+        for (int x = 0; x <= iLastCol; x++) {
+            double dblCoefficient = idctMatrix[x];
+            for (int y = 0; y < 8; y++)
+                temp[x*8 + y] = dblCoefficient * M[y];
+            for (int i = 1; i <= iLastRow; i++) {
+                dblCoefficient = idctMatrix[x + i*8];
+                for (int y = 0; y < 8; y++)
+                    temp[x*8 + y] += dblCoefficient * M[i*8 + y];
+            }
+        }
+
+        for (int y = 0; y < 8; y++) {
+            int iOut = iOutputOffset + y*8;
+            double dblRowPass = temp[y];
+            for (int x = 0; x < 8; x++)
+                output[iOut + x] = M[x] * dblRowPass;
+            for (int i = 1; i <= iLastCol; i++) {
+                dblRowPass = temp[i*8 + y];
+                for (int x = 0; x < 8; x++)
+                    output[iOut + x] += M[x + i*8] * dblRowPass;
+            }
+        }
+    }
+
+}
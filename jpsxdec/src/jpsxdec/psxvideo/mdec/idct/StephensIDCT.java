@@ -6,6 +6,7 @@
 
 package jpsxdec.psxvideo.mdec.idct;
 
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -144,40 +145,46 @@ public class StephensIDCT implements IDCT_double {
      * by the transposed cosine matrix and store the result in a temporary
      * N * N matrix. This N * N matrix is then multiplied by the cosine matrix
      * and the result is stored in the output matrix.
+     * <p>
+     * Each sum is added in the same order as a plain matrix multiplication,
+     * but the loops are arranged so the innermost always walks neighboring
+     * values, since the encoder runs this on every block of every frame.
      *
      * @param matrix The Input Pixel Matrix, overwritten with The DCT Result Matrix
      */
     public void forwardDCT(double matrix[])
     {
-        double temp1;
         int i;
         int j;
         int k;
 
-        for (i = 0; i < N; i++)
+        // temp[i + j*N] = sum of matrix[i + k*N] * cT[k][j]
+        Arrays.fill(temp, 0.0);
+        for (k = 0; k < N; k++)
         {
+            double[] cTk = cT[k];
             for (j = 0; j < N; j++)
             {
-                temp[i+j*N] = 0.0;
-                for (k = 0; k < N; k++)
+                double dblCos = cTk[j];
+                for (i = 0; i < N; i++)
                 {
-                    temp[i+j*N] += matrix[i + k*N] * cT[k][j];
+                    temp[i + j*N] += matrix[i + k*N] * dblCos;
                 }
             }
         }
 
-        for (i = 0; i < N; i++)
+        // matrix[i + j*N] = sum of c[i][k] * temp[k + j*N]
+        Arrays.fill(matrix, 0.0);
+        for (j = 0; j < N; j++)
         {
-            for (j = 0; j < N; j++)
+            for (k = 0; k < N; k++)
             {
-                temp1 = 0.0;
-
-                for (k = 0; k < N; k++)
+                double[] cTk = cT[k];
+                double dblTemp = temp[k + j*N];
+                for (i = 0; i < N; i++)
                 {
-                    temp1 += (c[i][k] * temp[k+j*N]);
+                    matrix[i + j*N] += cTk[i] * dblTemp;
                 }
-
-                matrix[i + j*N] = temp1;
             }
         }
 
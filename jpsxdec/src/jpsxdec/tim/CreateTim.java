@@ -40,6 +40,7 @@ package jpsxdec.tim;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
 import java.awt.image.IndexColorModel;
+import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -82,6 +83,7 @@ class CreateTim {
         //-------------------------------------------------
 
         int iBitsPerPixel = Tim.BITS_PER_PIX[iBpp_blnHasColorLookupTbl & 3];
+        int iByteSize = 8;
 
         final int iPaletteCount;
         // has CLUT
@@ -123,6 +125,7 @@ class CreateTim {
             iPaletteCount = (iClutWidth * iClutHeight) / (1 << iBitsPerPixel);
 
             IO.skip(inStream, iClutWidth * iClutHeight * 2);
+            iByteSize += (int)lngLength;
         } else {
             iPaletteCount = 1;
         }
@@ -146,17 +149,63 @@ class CreateTim {
             return null;
 
         IO.skip(inStream, (iImageWordWidth * iImageHeight) * 2);
+        iByteSize += (int)lngImageLength;
 
-        int iPixelWidth;
+        return new TimInfo(iPaletteCount, iBitsPerPixel,
+                           pixelWidth(iBitsPerPixel, iImageWordWidth), iImageHeight,
+                           iByteSize);
+    }
+
+    /** Tag, version, and 0, read as a little-endian int. */
+    private static final int TAG_WORD = Tim.TAG_MAGIC | (Tim.VERSION_0 << 8);
+    /** Bits that must be 0 in the int holding the bpp/CLUT flags and 0. */
+    private static final int FLAGS_WORD_ZERO_MASK = 0xFFFFFFF4;
+
+    /** Checks the header 4 bytes at a time, which is all that is needed
+     * to rule out almost every offset that isn't a Tim.
+     * @see Tim#findPossibleTim(byte[], int, int) */
+    public static int findPossibleTim(@Nonnull byte[] abData, int iOffset, int iEndOffset) {
+        for (; iOffset < iEndOffset; iOffset += 4) {
+            // tag, version, unkn 1
+            if (abData[iOffset] == Tim.TAG_MAGIC &&
+                IO.readSInt32LE(abData, iOffset) == TAG_WORD &&
+                // bpp, has CLUT, unkn 2
+                (IO.readSInt32LE(abData, iOffset + 4) & FLAGS_WORD_ZERO_MASK) == 0)
+            {
+                return iOffset;
+            }
+        }
+        return -1;
+    }
+
+    /** Same checks as {@link #isTim(java.io.InputStream)}, but on an array.
+     * Offsets that don't start like a Tim header are rejected by
+     * {@link #findPossibleTim(byte[], int, int)} before the header is parsed.
+     * @param iLength Number of bytes available starting at {@code iOffset}.
+     * @throws EOFException if the data ends before the Tim would. */
+    public static @CheckForNull TimInfo isTim(@Nonnull byte[] abData, int iOffset, int iLength)
+            throws EOFException
+    {
+        if (iLength >= 8 && findPossibleTim(abData, iOffset, iOffset + 1) < 0)
+            return null;
+
+        try {
+            return isTim(new ByteArrayInputStream(abData, iOffset, iLength));
+        } catch (EOFException ex) {
+            throw ex;
+        } catch (IOException ex) {
+            throw new RuntimeException("Should not happen", ex);
+        }
+    }
+
+    private static int pixelWidth(int iBitsPerPixel, int iImageWordWidth) {
         switch (iBitsPerPixel) {
-            case 4:  iPixelWidth = iImageWordWidth * 2 * 2; break;
-            case 8:  iPixelWidth = iImageWordWidth * 2    ; break;
-            case 16: iPixelWidth = iImageWordWidth        ; break;
-            case 24: iPixelWidth = iImageWordWidth * 2 / 3; break;
+            case 4:  return iImageWordWidth * 2 * 2;
+            case 8:  return iImageWordWidth * 2    ;
+            case 16: return iImageWordWidth        ;
+            case 24: return iImageWordWidth * 2 / 3;
             default: throw new RuntimeException("Impossible Tim BPP " + iBitsPerPixel);
         }
-
-        return new TimInfo(iPaletteCount, iBitsPerPixel, iPixelWidth, iImageHeight);
     }
 
     /** Parse and deserialize a TIM file from a stream. */
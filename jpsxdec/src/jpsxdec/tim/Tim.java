@@ -84,6 +84,27 @@ public class Tim {
         return CreateTim.isTim(inStream);
     }
 
+    /** Quickly finds the next offset that starts with the first 8 bytes
+     * of a Tim header, stepping 4 bytes at a time.
+     * The 8 bytes must be available for every offset checked.
+     * @param iEndOffset Stop checking at this offset (exclusive).
+     * @return the offset, or -1 if none was found. */
+    public static int findPossibleTim(@Nonnull byte[] abData, int iOffset, int iEndOffset) {
+        return CreateTim.findPossibleTim(abData, iOffset, iEndOffset);
+    }
+
+    /** Same as {@link #isTim(java.io.InputStream)} but checks the bytes
+     * of an array. Data that doesn't start like a Tim is rejected with just
+     * a couple of reads.
+     * @param iLength Number of bytes available starting at {@code iOffset}.
+     * @return info about the Tim image, otherwise null.
+     * @throws EOFException if the data ends before the Tim would. */
+    public static @CheckForNull TimInfo isTim(@Nonnull byte[] abData, int iOffset, int iLength)
+            throws EOFException
+    {
+        return CreateTim.isTim(abData, iOffset, iLength);
+    }
+
     /** Parse and deserialize a TIM file from a stream. */
     public static @Nonnull Tim read(@Nonnull InputStream inStream)
             throws EOFException, IOException, BinaryDataNotRecognized
@@ -50,12 +50,17 @@ public class TimInfo {
     public final int iBitsPerPixel;
     /** Dimensions in pixels. */
     public final int iPixelWidth, iPixelHeight;
+    /** Size of the whole Tim in bytes. */
+    public final int iByteSize;
 
-    TimInfo(int iPaletteCount, int iBitsPerPixel, int iPixelWidth, int iPixelHeight) {
+    TimInfo(int iPaletteCount, int iBitsPerPixel, int iPixelWidth, int iPixelHeight,
+            int iByteSize)
+    {
         this.iPaletteCount = iPaletteCount;
         this.iBitsPerPixel = iBitsPerPixel;
         this.iPixelWidth = iPixelWidth;
         this.iPixelHeight = iPixelHeight;
+        this.iByteSize = iByteSize;
     }
 
 }
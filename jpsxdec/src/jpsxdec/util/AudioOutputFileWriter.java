@@ -39,10 +39,9 @@ package jpsxdec.util;
 
 import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
-import java.util.logging.Level;
+import java.io.RandomAccessFile;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -51,31 +50,49 @@ import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 
-/** Inverts the file writing process from pulling data from an
- * {@link AudioInputStream} to pushing the data. */
-public class AudioOutputFileWriter implements Runnable, Closeable {
+/** Pushes PCM audio into a WAVE, AIFF, or AU file.
+ * <p>
+ * The Java sound system only pulls data from an {@link AudioInputStream},
+ * so instead this writes the file header itself, buffers the audio data
+ * straight to the file (swapping the byte order if the container needs it),
+ * then fills in the header sizes when closed. The files are identical to
+ * what {@link AudioSystem#write(AudioInputStream, AudioFileFormat.Type, File)}
+ * creates.
+ * <p>
+ * Any other container or audio format is saved to a temporary file and
+ * handed to the Java sound system when closed. */
+public class AudioOutputFileWriter implements Closeable {
 
     private static final Logger LOG = Logger.getLogger(AudioOutputFileWriter.class.getName());
 
-    /** {@link PipedInputStream} internally has {@link notify()} triggers
-     * so it can be relied on for synchronization purposes. */
-    @Nonnull
-    private final PipedInputStream _threadInputStream;
-    @Nonnull
-    private final AudioInputStream _threadAudioStream;
-    @Nonnull
-    private final Thread _writingThread;
+    private static final int BUFFER_SIZE = 64 * 1024;
 
     @Nonnull
     private final File _outFile;
     @Nonnull
-    private final PipedOutputStream _feedStream;
-    @Nonnull
     private final AudioFormat _format;
     @Nonnull
     private final AudioFileFormat.Type _eFileFormat;
+
+    /** The container header when it is written directly, otherwise null. */
+    @CheckForNull
+    private final Header _header;
+    /** Either the output file or the temporary file. */
+    @Nonnull
+    private final RandomAccessFile _file;
+    /** Temporary file holding the raw audio when the Java sound system
+     * has to write the actual file. */
     @CheckForNull
-    private Throwable _writingError;
+    private final File _tempFile;
+
+    private final byte[] _abBuffer = new byte[BUFFER_SIZE];
+    private int _iBufferedBytes = 0;
+    /** If the byte order of 16-bit samples needs to be swapped. */
+    private final boolean _blnSwapBytes;
+    /** When swapping bytes, holds the first byte of a sample that was
+     * split between writes, otherwise -1. */
+    private int _iSplitSampleByte = -1;
+    private long _lngDataSize = 0;
 
     public AudioOutputFileWriter(@Nonnull String sFile, @Nonnull AudioFormat format,
                                  @Nonnull AudioFileFormat.Type eFileFormat)
@@ -88,107 +105,248 @@ public class AudioOutputFileWriter implements Runnable, Closeable {
                                  @Nonnull AudioFileFormat.Type eFileFormat)
              throws IOException
     {
-        // set everything up
         _format = format;
         _eFileFormat = eFileFormat;
         _outFile = file;
-        _threadInputStream = new PipedInputStream();
-        _feedStream = new PipedOutputStream(_threadInputStream);
-        _threadAudioStream = new AudioInputStream(_threadInputStream, format, AudioSystem.NOT_SPECIFIED);
 
-        _writingThread = new Thread(this, AudioOutputFileWriter.class.getSimpleName() + " " + _outFile);
-        // start the writing thread
-        _writingThread.start();
-        try {
-            synchronized (_threadInputStream) {
-
-                // wait until reading has started
-                // PipedInputStream _threadInputStream internally will notify
-                // the object when read is called
-                // the pending notify() will be devoured here
-                _threadInputStream.wait();
-                // the wait will end when the other thread is either
-                // waiting for data or there was an error
-
-                // check if there was an error
-                if (_writingError != null) {
-                    if (_writingError instanceof IOException)
-                        throw (IOException)_writingError;
-                    else
-                        throw new RuntimeException(_writingError);
-                }
-            }
-        } catch (InterruptedException ex) {
-            LOG.log(Level.SEVERE, null, ex);
-        }
-
-    }
-
-    public void run() {
-        try {
-            // start writing the audio file
-            // PipedInputStream _threadInputStream internally will notify
-            // the object when read is called
-            AudioSystem.write(_threadAudioStream, _eFileFormat, _outFile);
-        } catch (Throwable ex) {
-            // if there's an error, save it and notify the main thread
-            // in case it is waiting after startup
-            // XXX: If the PipedInputStream and AudioSystem.write()
-            //      implementations trigger the notify before the exception,
-            //      this could be a race condition
-            synchronized (_threadInputStream) {
-                _writingError = ex;
-                // fire the notification in case reading didn't call it
-                _threadInputStream.notifyAll();
+        _header = Header.create(format, eFileFormat);
+        if (_header != null) {
+            _tempFile = null;
+            _blnSwapBytes = format.isBigEndian() != _header.isBigEndian();
+            _file = new RandomAccessFile(file, "rw");
+            try {
+                _file.setLength(0);
+                _header.write(_file, 0);
+            } catch (IOException ex) {
+                IO.closeSilently(_file, LOG);
+                throw ex;
             }
-            LOG.log(Level.SEVERE, null, ex);
+        } else {
+            if (!AudioSystem.isFileTypeSupported(eFileFormat))
+                throw new IllegalArgumentException("Unsupported audio file type " + eFileFormat);
+            _tempFile = File.createTempFile(AudioOutputFileWriter.class.getSimpleName(), ".pcm");
+            _blnSwapBytes = false;
+            _file = new RandomAccessFile(_tempFile, "rw");
         }
     }
 
     public void write(@Nonnull byte[] abData, int iOffset, int iLength)
             throws IOException
     {
-        // check if there has been an error in the writing thread
-        synchronized (_threadInputStream) {
-            if (_writingError != null) {
-                if (_writingError instanceof IOException)
-                    throw (IOException)_writingError;
-                else
-                    throw new RuntimeException(_writingError);
+        _lngDataSize += iLength;
+        if (_blnSwapBytes && iLength > 0) {
+            if (_iSplitSampleByte >= 0) {
+                // finish the sample split by the last write
+                if (_iBufferedBytes == _abBuffer.length)
+                    flushBuffer();
+                _abBuffer[_iBufferedBytes++] = abData[iOffset];
+                _abBuffer[_iBufferedBytes++] = (byte)_iSplitSampleByte;
+                _iSplitSampleByte = -1;
+                iOffset++;
+                iLength--;
+            }
+            if ((iLength & 1) != 0) {
+                // hold onto the first half of a sample until the next write
+                iLength--;
+                _iSplitSampleByte = abData[iOffset + iLength] & 0xff;
             }
         }
-
-        _feedStream.write(abData, iOffset, iLength);
-
-        // again check if there has been an error in the writing thread
-        synchronized (_threadInputStream) {
-            if (_writingError != null) {
-                if (_writingError instanceof IOException)
-                    throw (IOException)_writingError;
-                else
-                    throw new RuntimeException(_writingError);
+        while (iLength > 0) {
+            if (_iBufferedBytes == _abBuffer.length)
+                flushBuffer();
+            // when swapping, the buffer always holds whole samples
+            int iCopy = Math.min(iLength, _abBuffer.length - _iBufferedBytes);
+            if (_blnSwapBytes) {
+                for (int i = 0; i < iCopy; i+=2) {
+                    _abBuffer[_iBufferedBytes + i    ] = abData[iOffset + i + 1];
+                    _abBuffer[_iBufferedBytes + i + 1] = abData[iOffset + i    ];
+                }
+            } else {
+                System.arraycopy(abData, iOffset, _abBuffer, _iBufferedBytes, iCopy);
             }
+            _iBufferedBytes += iCopy;
+            iOffset += iCopy;
+            iLength -= iCopy;
         }
     }
 
+    private void flushBuffer() throws IOException {
+        _file.write(_abBuffer, 0, _iBufferedBytes);
+        _iBufferedBytes = 0;
+    }
+
     public @Nonnull AudioFormat getFormat() {
         return _format;
     }
 
     public void close() throws IOException {
-
-        // flush out the rest of the data written before closing the stream
-        _feedStream.flush();
         try {
-            _feedStream.close(); // expose close exception
+            if (_iSplitSampleByte >= 0) {
+                // not a whole sample, but keep the data size honest
+                if (_iBufferedBytes == _abBuffer.length)
+                    flushBuffer();
+                _abBuffer[_iBufferedBytes++] = (byte)_iSplitSampleByte;
+                _iSplitSampleByte = -1;
+            }
+            flushBuffer();
+            if (_header != null) {
+                _file.seek(0);
+                _header.write(_file, _lngDataSize);
+            }
         } finally {
+            _file.close();
+        }
+
+        if (_tempFile != null) {
             try {
-                // important to wait until the writing thread is done in case
-                // System.exit() is called before the writer is completely finished
-                _writingThread.join();
-            } catch (InterruptedException ex) {
-                LOG.log(Level.SEVERE, null, ex);
+                FileInputStream tempIn = new FileInputStream(_tempFile);
+                try {
+                    AudioInputStream ais = new AudioInputStream(tempIn, _format,
+                            _lngDataSize / _format.getFrameSize());
+                    AudioSystem.write(ais, _eFileFormat, _outFile);
+                } finally {
+                    IO.closeSilently(tempIn, LOG);
+                }
+            } finally {
+                if (!_tempFile.delete())
+                    LOG.warning("Unable to delete temp file " + _tempFile);
             }
         }
     }
+
+    // =========================================================================
+
+    /** Writes the same header the Java sound system writes for
+     * signed 16-bit PCM audio. */
+    private static abstract class Header {
+
+        /** Returns the header for the audio format and container, or null
+         * if the audio will need to be written by the Java sound system. */
+        public static @CheckForNull Header create(@Nonnull AudioFormat format,
+                                                  @Nonnull AudioFileFormat.Type eFileFormat)
+        {
+            if (!AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding()) ||
+                format.getSampleSizeInBits() != 16 ||
+                format.getChannels() < 1 ||
+                format.getFrameSize() != format.getChannels() * 2 ||
+                format.getSampleRate() == AudioSystem.NOT_SPECIFIED)
+                return null;
+            if (AudioFileFormat.Type.WAVE.equals(eFileFormat))
+                return new Wave(format);
+            else if (AudioFileFormat.Type.AIFF.equals(eFileFormat))
+                return new Aiff(format);
+            else if (AudioFileFormat.Type.AU.equals(eFileFormat))
+                return new Au(format);
+            else
+                return null;
+        }
+
+        @Nonnull
+        protected final AudioFormat _format;
+
+        protected Header(@Nonnull AudioFormat format) {
+            _format = format;
+        }
+
+        abstract public boolean isBigEndian();
+        /** Writes the header at the current position of the file. */
+        abstract public void write(@Nonnull RandomAccessFile file, long lngDataSize)
+                throws IOException;
+    }
+
+    private static class Wave extends Header {
+        private static final int HEADER_SIZE = 44;
+
+        public Wave(@Nonnull AudioFormat format) {
+            super(format);
+        }
+
+        public boolean isBigEndian() {
+            return false;
+        }
+
+        public void write(@Nonnull RandomAccessFile file, long lngDataSize) throws IOException {
+            int iSampleRate = (int)_format.getSampleRate();
+            int iBlockAlign = _format.getFrameSize();
+            file.writeBytes("RIFF");
+            IO.writeInt32LE(file, lngDataSize + HEADER_SIZE - 8);
+            file.writeBytes("WAVE");
+            file.writeBytes("fmt ");
+            IO.writeInt32LE(file, 16);
+            IO.writeInt16LE(file, (short)1); // PCM
+            IO.writeInt16LE(file, (short)_format.getChannels());
+            IO.writeInt32LE(file, iSampleRate);
+            IO.writeInt32LE(file, iSampleRate * iBlockAlign);
+            IO.writeInt16LE(file, (short)iBlockAlign);
+            IO.writeInt16LE(file, (short)16);
+            file.writeBytes("data");
+            IO.writeInt32LE(file, lngDataSize);
+        }
+    }
+
+    private static class Aiff extends Header {
+        private static final int HEADER_SIZE = 54;
+
+        public Aiff(@Nonnull AudioFormat format) {
+            super(format);
+        }
+
+        public boolean isBigEndian() {
+            return true;
+        }
+
+        public void write(@Nonnull RandomAccessFile file, long lngDataSize) throws IOException {
+            file.writeBytes("FORM");
+            file.writeInt((int)(lngDataSize + HEADER_SIZE - 8));
+            file.writeBytes("AIFF");
+            file.writeBytes("COMM");
+            file.writeInt(18);
+            file.writeShort(_format.getChannels());
+            file.writeInt((int)(lngDataSize / _format.getFrameSize()));
+            file.writeShort(16);
+            writeIeeeExtended(file, _format.getSampleRate());
+            file.writeBytes("SSND");
+            file.writeInt((int)(lngDataSize + 8));
+            file.writeInt(0); // offset
+            file.writeInt(0); // block size
+        }
+
+        /** Writes the sample rate as an 80-bit IEEE 754 extended precision
+         * float, converting from a double the same way the Java sound
+         * system does (special cases and denormals aren't handled since
+         * they aren't useful sample rates). */
+        private static void writeIeeeExtended(@Nonnull RandomAccessFile file, float fSampleRate)
+                throws IOException
+        {
+            long lngDoubleBits = Double.doubleToLongBits(fSampleRate);
+            long lngSign     = lngDoubleBits >>> 63;
+            long lngExponent = (lngDoubleBits >> 52) & 0x7ff;
+            long lngMantissa = lngDoubleBits & 0x000fffffffffffffL;
+            file.writeShort((int)((lngSign << 15) | (lngExponent - 1023 + 16383)));
+            file.writeLong(0x8000000000000000L | (lngMantissa << 11));
+        }
+    }
+
+    private static class Au extends Header {
+        private static final int HEADER_SIZE = 24;
+        /** 16-bit linear PCM. */
+        private static final int ENCODING_LINEAR_16 = 3;
+
+        public Au(@Nonnull AudioFormat format) {
+            super(format);
+        }
+
+        public boolean isBigEndian() {
+            return true;
+        }
+
+        public void write(@Nonnull RandomAccessFile file, long lngDataSize) throws IOException {
+            file.writeBytes(".snd");
+            file.writeInt(HEADER_SIZE);
+            file.writeInt((int)lngDataSize);
+            file.writeInt(ENCODING_LINEAR_16);
+            file.writeInt((int)_format.getSampleRate());
+            file.writeInt(_format.getChannels());
+        }
+    }
 }
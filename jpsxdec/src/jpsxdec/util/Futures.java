@@ -0,0 +1,121 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.util;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import javax.annotation.Nonnull;
+
+/** Waits for tasks running on other threads. */
+public class Futures {
+
+    /** Waits for a task to finish, passing along any unchecked exception
+     * it threw. If the wait is interrupted, the task is canceled and the
+     * thread's interrupt status is restored. */
+    public static <T> T waitFor(@Nonnull Future<T> task) {
+        try {
+            return get(task);
+        } catch (ExecutionException ex) {
+            throw unwrap(ex);
+        }
+    }
+
+    /** Same as {@link #waitFor(Future)} but also passes along a checked
+     * exception the task may throw. */
+    public static <T, X extends Exception> T waitFor(@Nonnull Future<T> task,
+                                                     @Nonnull Class<X> thrown)
+            throws X
+    {
+        try {
+            return get(task);
+        } catch (ExecutionException ex) {
+            throw unwrap(ex, thrown);
+        }
+    }
+
+    /** Same as {@link #waitFor(Future)} but also passes along the two
+     * checked exceptions the task may throw. */
+    public static <T, X1 extends Exception, X2 extends Exception> T waitFor(
+                @Nonnull Future<T> task, @Nonnull Class<X1> thrown1, @Nonnull Class<X2> thrown2)
+            throws X1, X2
+    {
+        try {
+            return get(task);
+        } catch (ExecutionException ex) {
+            if (thrown2.isInstance(ex.getCause()))
+                throw thrown2.cast(ex.getCause());
+            throw unwrap(ex, thrown1);
+        }
+    }
+
+    private static <T> T get(@Nonnull Future<T> task) throws ExecutionException {
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a background task", ex);
+        }
+    }
+
+    /** Returns the exception to throw for a failed task: the unchecked
+     * exception it threw, or its checked exception wrapped in a
+     * {@link RuntimeException}. Errors are thrown directly. */
+    public static @Nonnull RuntimeException unwrap(@Nonnull ExecutionException ex) {
+        Throwable cause = ex.getCause();
+        if (cause instanceof RuntimeException)
+            return (RuntimeException)cause;
+        else if (cause instanceof Error)
+            throw (Error)cause;
+        else
+            return new RuntimeException(cause);
+    }
+
+    /** Same as {@link #unwrap(ExecutionException)} but throws the
+     * task's checked exception if it is the given type. */
+    public static @Nonnull <X extends Exception> RuntimeException unwrap(
+                @Nonnull ExecutionException ex, @Nonnull Class<X> thrown)
+            throws X
+    {
+        if (thrown.isInstance(ex.getCause()))
+            throw thrown.cast(ex.getCause());
+        return unwrap(ex);
+    }
+
+}
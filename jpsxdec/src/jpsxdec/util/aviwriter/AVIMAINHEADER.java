@@ -38,7 +38,7 @@
 package jpsxdec.util.aviwriter;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.OutputStream;
 import javax.annotation.Nonnull;
 import jpsxdec.util.IO;
 
@@ -67,23 +67,23 @@ class AVIMAINHEADER extends AVIstruct {
     public final /*DWORD */ int  dwReserved4            = 0;
     
     @Override
-    public void write(@Nonnull RandomAccessFile raf) throws IOException {
-        IO.writeInt32LE(raf, fcc                       );
-        IO.writeInt32LE(raf, cb                        );
-        IO.writeInt32LE(raf, (int)dwMicroSecPerFrame   );
-        IO.writeInt32LE(raf, (int)dwMaxBytesPerSec     );
-        IO.writeInt32LE(raf, (int)dwPaddingGranularity );
-        IO.writeInt32LE(raf, dwFlags                   );
-        IO.writeInt32LE(raf, (int)dwTotalFrames        );
-        IO.writeInt32LE(raf, (int)dwInitialFrames      );
-        IO.writeInt32LE(raf, (int)dwStreams            );
-        IO.writeInt32LE(raf, (int)dwSuggestedBufferSize);
-        IO.writeInt32LE(raf, (int)dwWidth              );
-        IO.writeInt32LE(raf, (int)dwHeight             );
-        IO.writeInt32LE(raf, dwReserved1               );
-        IO.writeInt32LE(raf, dwReserved2               );
-        IO.writeInt32LE(raf, dwReserved3               );
-        IO.writeInt32LE(raf, dwReserved4               );
+    public void write(@Nonnull OutputStream os) throws IOException {
+        IO.writeInt32LE(os, fcc                       );
+        IO.writeInt32LE(os, cb                        );
+        IO.writeInt32LE(os, (int)dwMicroSecPerFrame   );
+        IO.writeInt32LE(os, (int)dwMaxBytesPerSec     );
+        IO.writeInt32LE(os, (int)dwPaddingGranularity );
+        IO.writeInt32LE(os, dwFlags                   );
+        IO.writeInt32LE(os, (int)dwTotalFrames        );
+        IO.writeInt32LE(os, (int)dwInitialFrames      );
+        IO.writeInt32LE(os, (int)dwStreams            );
+        IO.writeInt32LE(os, (int)dwSuggestedBufferSize);
+        IO.writeInt32LE(os, (int)dwWidth              );
+        IO.writeInt32LE(os, (int)dwHeight             );
+        IO.writeInt32LE(os, dwReserved1               );
+        IO.writeInt32LE(os, dwReserved2               );
+        IO.writeInt32LE(os, dwReserved3               );
+        IO.writeInt32LE(os, dwReserved4               );
     }
     
     @Override
@@ -38,7 +38,7 @@
 package jpsxdec.util.aviwriter;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.OutputStream;
 import javax.annotation.Nonnull;
 import jpsxdec.util.IO;
 
@@ -57,11 +57,11 @@ class AVIOLDINDEX extends AVIstruct {
         public /*DWORD*/ int dwSize    = 0;
         
         @Override
-        public void write(@Nonnull RandomAccessFile raf) throws IOException {
-            IO.writeInt32LE(raf, dwChunkId);
-            IO.writeInt32LE(raf, dwFlags  );
-            IO.writeInt32LE(raf, dwOffset );
-            IO.writeInt32LE(raf, dwSize   );
+        public void write(@Nonnull OutputStream os) throws IOException {
+            IO.writeInt32LE(os, dwChunkId);
+            IO.writeInt32LE(os, dwFlags  );
+            IO.writeInt32LE(os, dwOffset );
+            IO.writeInt32LE(os, dwSize   );
         }
 
         @Override
@@ -91,11 +91,11 @@ class AVIOLDINDEX extends AVIstruct {
     }
     
     @Override
-    public void write(@Nonnull RandomAccessFile raf) throws IOException {
-        IO.writeInt32LE(raf, fcc);
-        IO.writeInt32LE(raf, cb );
+    public void write(@Nonnull OutputStream os) throws IOException {
+        IO.writeInt32LE(os, fcc);
+        IO.writeInt32LE(os, cb );
         for (AVIOLDINDEXENTRY e : aIndex) {
-            e.write(raf);
+            e.write(os);
         }
     }
 
@@ -0,0 +1,143 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.util.aviwriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.annotation.Nonnull;
+import jpsxdec.util.IO;
+
+/** Represents the OpenDML
+ * <a href="https://docs.microsoft.com/en-us/previous-versions/windows/desktop/api/avifmt/ns-avifmt-_avistdindex">AVISTDINDEX</a>
+ * C structure ('ix##' chunk). Entries are collected as chunks are written
+ * to the 'movi' list, then the index is written as its own chunk and
+ * cleared to be reused. The maximum number of entries is fixed, so the
+ * memory used doesn't grow with the length of the AVI. */
+class AVISTDINDEX extends AVIstruct {
+
+    public static final byte AVI_INDEX_OF_CHUNKS = 0x01;
+    /** Set in the size of an entry that is not a key frame. */
+    public static final int AVISTDINDEX_DELTAFRAME = 0x80000000;
+
+    public final /*FOURCC*/ int   fcc;
+    public final /*WORD  */ short wLongsPerEntry = 2;
+    public final /*BYTE  */ byte  bIndexSubType  = 0;
+    public final /*BYTE  */ byte  bIndexType     = AVI_INDEX_OF_CHUNKS;
+    public final /*DWORD */ int   dwChunkId;
+    public final /*DWORD */ int   dwReserved3    = 0;
+    /** Absolute file position of the data of each chunk (just after the
+     * chunk header). */
+    @Nonnull
+    private final long[] _alngDataOffset;
+    @Nonnull
+    private final /*DWORD*/ int[] _aiSize;
+    private int _iEntriesInUse = 0;
+    /** Frames or samples covered by the entries. */
+    private long _lngDuration = 0;
+
+    public AVISTDINDEX(@Nonnull String sIndexId, @Nonnull String sChunkId, int iMaxEntries) {
+        fcc = string2int(sIndexId);
+        dwChunkId = string2int(sChunkId);
+        _alngDataOffset = new long[iMaxEntries];
+        _aiSize = new int[iMaxEntries];
+    }
+
+    public int getEntriesInUse() {
+        return _iEntriesInUse;
+    }
+
+    public boolean isFull() {
+        return _iEntriesInUse >= _alngDataOffset.length;
+    }
+
+    public long getDuration() {
+        return _lngDuration;
+    }
+
+    public void add(long lngDataOffset, int iSize, long lngDuration) {
+        if (isFull())
+            throw new IllegalStateException("Standard index is full");
+        _alngDataOffset[_iEntriesInUse] = lngDataOffset;
+        _aiSize[_iEntriesInUse] = iSize;
+        _iEntriesInUse++;
+        _lngDuration += lngDuration;
+    }
+
+    public void clear() {
+        _iEntriesInUse = 0;
+        _lngDuration = 0;
+    }
+
+    /** qwBaseOffset is the lowest data offset in the index. Usually this is
+     * the first entry, except when a repeated frame points back to a frame
+     * written before the first entry. */
+    private long qwBaseOffset() {
+        long lngBase = Long.MAX_VALUE;
+        for (int i = 0; i < _iEntriesInUse; i++) {
+            if (_alngDataOffset[i] < lngBase)
+                lngBase = _alngDataOffset[i];
+        }
+        return lngBase;
+    }
+
+    @Override
+    public void write(@Nonnull OutputStream os) throws IOException {
+        long lngBase = qwBaseOffset();
+        IO.writeInt32LE(os, fcc           );
+        IO.writeInt32LE(os, sizeof() - 8  );
+        IO.writeInt16LE(os, wLongsPerEntry);
+        os.write(bIndexSubType);
+        os.write(bIndexType);
+        IO.writeInt32LE(os, _iEntriesInUse);
+        IO.writeInt32LE(os, dwChunkId     );
+        IO.writeInt32LE(os, lngBase       );
+        IO.writeInt32LE(os, lngBase >> 32 );
+        IO.writeInt32LE(os, dwReserved3   );
+        for (int i = 0; i < _iEntriesInUse; i++) {
+            IO.writeInt32LE(os, _alngDataOffset[i] - lngBase);
+            IO.writeInt32LE(os, _aiSize[i]);
+        }
+    }
+
+    @Override
+    public int sizeof() {
+        return 32 + _iEntriesInUse * 8;
+    }
+
+}
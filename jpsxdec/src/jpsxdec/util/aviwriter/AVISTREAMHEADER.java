@@ -38,7 +38,7 @@
 package jpsxdec.util.aviwriter;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.OutputStream;
 import javax.annotation.Nonnull;
 import jpsxdec.util.IO;
         
@@ -74,27 +74,27 @@ class AVISTREAMHEADER extends AVIstruct {
      //}  rcFrame    
     
     @Override
-    public void write(@Nonnull RandomAccessFile raf) throws IOException {
-        IO.writeInt32LE(raf, fcc);
-        IO.writeInt32LE(raf, cb);
-        IO.writeInt32LE(raf, fccType);
-        IO.writeInt32LE(raf, fccHandler);
-        IO.writeInt32LE(raf, dwFlags);
-        IO.writeInt16LE(raf, wPriority);
-        IO.writeInt16LE(raf, wLanguage);
-        IO.writeInt32LE(raf, (int)dwInitialFrames);
-        IO.writeInt32LE(raf, (int)dwScale);
-        IO.writeInt32LE(raf, (int)dwRate);
-        IO.writeInt32LE(raf, (int)dwStart);
-        IO.writeInt32LE(raf, (int)dwLength);
-        IO.writeInt32LE(raf, (int)dwSuggestedBufferSize);
-        IO.writeInt32LE(raf, (int)dwQuality);
-        IO.writeInt32LE(raf, (int)dwSampleSize);
+    public void write(@Nonnull OutputStream os) throws IOException {
+        IO.writeInt32LE(os, fcc);
+        IO.writeInt32LE(os, cb);
+        IO.writeInt32LE(os, fccType);
+        IO.writeInt32LE(os, fccHandler);
+        IO.writeInt32LE(os, dwFlags);
+        IO.writeInt16LE(os, wPriority);
+        IO.writeInt16LE(os, wLanguage);
+        IO.writeInt32LE(os, (int)dwInitialFrames);
+        IO.writeInt32LE(os, (int)dwScale);
+        IO.writeInt32LE(os, (int)dwRate);
+        IO.writeInt32LE(os, (int)dwStart);
+        IO.writeInt32LE(os, (int)dwLength);
+        IO.writeInt32LE(os, (int)dwSuggestedBufferSize);
+        IO.writeInt32LE(os, (int)dwQuality);
+        IO.writeInt32LE(os, (int)dwSampleSize);
         
-        IO.writeInt16LE(raf, left);
-        IO.writeInt16LE(raf, top);
-        IO.writeInt16LE(raf, right);
-        IO.writeInt16LE(raf, bottom);
+        IO.writeInt16LE(os, left);
+        IO.writeInt16LE(os, top);
+        IO.writeInt16LE(os, right);
+        IO.writeInt16LE(os, bottom);
         
     }
     
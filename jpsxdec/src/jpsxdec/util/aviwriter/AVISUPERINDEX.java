@@ -0,0 +1,121 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.util.aviwriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.annotation.Nonnull;
+import jpsxdec.util.IO;
+
+/** Represents the OpenDML
+ * <a href="https://docs.microsoft.com/en-us/previous-versions/windows/desktop/api/avifmt/ns-avifmt-_avisuperindex">AVISUPERINDEX</a>
+ * C structure ('indx' chunk). It is written as a placeholder with room for
+ * a fixed number of entries in the stream header, then filled in when
+ * the AVI is closed. Each entry points to an {@link AVISTDINDEX}. */
+class AVISUPERINDEX extends AVIstruct {
+
+    public static final byte AVI_INDEX_OF_INDEXES = 0x00;
+
+    public final /*FOURCC*/ int   fcc            = string2int("indx");
+    public final /*DWORD */ int   cb;
+    public final /*WORD  */ short wLongsPerEntry = 4;
+    public final /*BYTE  */ byte  bIndexSubType  = 0;
+    public final /*BYTE  */ byte  bIndexType     = AVI_INDEX_OF_INDEXES;
+    public       /*DWORD */ int   nEntriesInUse  = 0;
+    public final /*DWORD */ int   dwChunkId;
+    public final /*DWORD */ int   dwReserved1    = 0;
+    public final /*DWORD */ int   dwReserved2    = 0;
+    public final /*DWORD */ int   dwReserved3    = 0;
+    /** Absolute file position of each 'ix##' chunk. */
+    @Nonnull
+    private final /*QWORD*/ long[] _alngOffset;
+    /** Size of each 'ix##' chunk, including its header. */
+    @Nonnull
+    private final /*DWORD*/ int[] _aiSize;
+    /** Frames or samples covered by each 'ix##' chunk. */
+    @Nonnull
+    private final /*DWORD*/ int[] _aiDuration;
+
+    public AVISUPERINDEX(@Nonnull String sChunkId, int iMaxEntries) {
+        dwChunkId = string2int(sChunkId);
+        _alngOffset = new long[iMaxEntries];
+        _aiSize = new int[iMaxEntries];
+        _aiDuration = new int[iMaxEntries];
+        cb = sizeof() - 8;
+    }
+
+    public boolean isFull() {
+        return nEntriesInUse >= _alngOffset.length;
+    }
+
+    public void add(long lngOffset, int iSize, long lngDuration) {
+        if (isFull())
+            throw new IllegalStateException("Super index is full");
+        _alngOffset[nEntriesInUse] = lngOffset;
+        _aiSize[nEntriesInUse] = iSize;
+        _aiDuration[nEntriesInUse] = (int)lngDuration;
+        nEntriesInUse++;
+    }
+
+    @Override
+    public void write(@Nonnull OutputStream os) throws IOException {
+        IO.writeInt32LE(os, fcc           );
+        IO.writeInt32LE(os, cb            );
+        IO.writeInt16LE(os, wLongsPerEntry);
+        os.write(bIndexSubType);
+        os.write(bIndexType);
+        IO.writeInt32LE(os, nEntriesInUse );
+        IO.writeInt32LE(os, dwChunkId     );
+        IO.writeInt32LE(os, dwReserved1   );
+        IO.writeInt32LE(os, dwReserved2   );
+        IO.writeInt32LE(os, dwReserved3   );
+        for (int i = 0; i < _alngOffset.length; i++) {
+            IO.writeInt32LE(os, _alngOffset[i]      );
+            IO.writeInt32LE(os, _alngOffset[i] >> 32);
+            IO.writeInt32LE(os, _aiSize[i]          );
+            IO.writeInt32LE(os, _aiDuration[i]      );
+        }
+    }
+
+    @Override
+    public int sizeof() {
+        return 32 + _alngOffset.length * 16;
+    }
+
+}
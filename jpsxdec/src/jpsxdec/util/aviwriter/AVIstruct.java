@@ -37,8 +37,9 @@
 
 package jpsxdec.util.aviwriter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.OutputStream;
 import javax.annotation.Nonnull;
 import jpsxdec.util.IO;
 import jpsxdec.util.Misc;
@@ -55,21 +56,20 @@ abstract class AVIstruct {
         return IO.readSInt32LE(Misc.stringToAscii(s), 0);
     }
     
-    public abstract void write(@Nonnull RandomAccessFile raf) throws IOException;
+    public abstract void write(@Nonnull OutputStream os) throws IOException;
     public abstract int sizeof();
     
     private long _lngPlaceholder;
     
-    public void makePlaceholder(@Nonnull RandomAccessFile raf) throws IOException {
-        _lngPlaceholder = raf.getFilePointer();
-        raf.write(new byte[this.sizeof()]);
+    public void makePlaceholder(@Nonnull AviFileOutput out) throws IOException {
+        _lngPlaceholder = out.getFilePointer();
+        out.write(new byte[this.sizeof()]);
     }
     
-    public void goBackAndWrite(@Nonnull RandomAccessFile raf) throws IOException {
-        long lngCurPos = raf.getFilePointer(); // save this pos
-        raf.seek(_lngPlaceholder); // go back
-        this.write(raf); // write the data
-        raf.seek(lngCurPos); // return to current position
+    public void goBackAndWrite(@Nonnull AviFileOutput out) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(this.sizeof());
+        this.write(baos);
+        out.writeAt(_lngPlaceholder, baos.toByteArray());
     }
     
 }
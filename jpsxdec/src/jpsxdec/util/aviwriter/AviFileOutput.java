@@ -0,0 +1,169 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.util.aviwriter;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import javax.annotation.Nonnull;
+
+/** Buffered output to the AVI file that can still go back and fill in
+ * earlier parts of the file.
+ * <p>
+ * Writing every little header and size field straight to a
+ * {@link RandomAccessFile} turns into a huge number of tiny system calls.
+ * This collects the writes in a large buffer and sends it to the
+ * {@link FileChannel} in one go, gathering large frame data together with
+ * whatever is buffered. Going back to fill in an earlier location
+ * ({@link #writeAt(long, byte[])}) is done in the buffer if it is still
+ * there, otherwise with a positional write that doesn't disturb the buffer. */
+class AviFileOutput extends OutputStream {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    @Nonnull
+    private final RandomAccessFile _raf;
+    @Nonnull
+    private final FileChannel _channel;
+    @Nonnull
+    private final ByteBuffer _buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    /** File position of the start of {@link #_buffer}. */
+    private long _lngBufferStart = 0;
+
+    /** Creates or truncates the file. */
+    public AviFileOutput(@Nonnull File file) throws FileNotFoundException, IOException {
+        _raf = new RandomAccessFile(file, "rw");
+        try {
+            _raf.setLength(0);
+        } catch (IOException ex) {
+            _raf.close();
+            throw ex;
+        }
+        _channel = _raf.getChannel();
+    }
+
+    /** Current write position in the file. */
+    public long getFilePointer() {
+        return _lngBufferStart + _buffer.position();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!_buffer.hasRemaining())
+            flushBuffer();
+        _buffer.put((byte)b);
+    }
+
+    @Override
+    public void write(@Nonnull byte[] ab, int iOfs, int iLen) throws IOException {
+        if (iLen <= _buffer.remaining()) {
+            _buffer.put(ab, iOfs, iLen);
+        } else if (iLen < BUFFER_SIZE / 2) {
+            flushBuffer();
+            _buffer.put(ab, iOfs, iLen);
+        } else {
+            // big data (usually a whole frame) goes out together with
+            // what's already buffered, without copying it
+            _buffer.flip();
+            ByteBuffer[] aBuffers = { _buffer, ByteBuffer.wrap(ab, iOfs, iLen) };
+            long lngTotal = (long)_buffer.remaining() + iLen;
+            long lngWritten = 0;
+            while (lngWritten < lngTotal)
+                lngWritten += _channel.write(aBuffers);
+            _lngBufferStart += lngTotal;
+            _buffer.clear();
+        }
+    }
+
+    /** Writes the ASCII characters of the String. */
+    public void writeAscii(@Nonnull String s) throws IOException {
+        for (int i = 0; i < s.length(); i++)
+            write(s.charAt(i));
+    }
+
+    /** Writes the bytes at an earlier position in the file without changing
+     * the current write position.
+     * @throws IllegalArgumentException if it would extend past the current
+     *                                  write position. */
+    public void writeAt(long lngPosition, @Nonnull byte[] ab) throws IOException {
+        if (lngPosition < 0 || lngPosition + ab.length > getFilePointer())
+            throw new IllegalArgumentException("Can only write over existing data");
+
+        if (lngPosition < _lngBufferStart && lngPosition + ab.length > _lngBufferStart)
+            flushBuffer(); // straddles the buffer, simpler to just write it all out
+
+        if (lngPosition >= _lngBufferStart) {
+            int iBufferPos = (int)(lngPosition - _lngBufferStart);
+            for (int i = 0; i < ab.length; i++)
+                _buffer.put(iBufferPos + i, ab[i]);
+        } else {
+            ByteBuffer bb = ByteBuffer.wrap(ab);
+            long lngPos = lngPosition;
+            while (bb.hasRemaining())
+                lngPos += _channel.write(bb, lngPos);
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        _buffer.flip();
+        while (_buffer.hasRemaining())
+            _lngBufferStart += _channel.write(_buffer);
+        _buffer.clear();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+    }
+
+    /** Writes out anything buffered and closes the file. */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            _raf.close();
+        }
+    }
+
+}
@@ -41,7 +41,6 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -59,8 +58,12 @@ import jpsxdec.util.aviwriter.AVIOLDINDEX.AVIOLDINDEXENTRY;
 
 /**
  * Creates AVI files with audio and video without the need for JMF.
- * Subclasses should take care of codec handling. Note that this cannot
- * create AVI files larger than 4GB.
+ * Subclasses should take care of codec handling. Note that plain AVI files
+ * cannot be larger than 4GB (and many players have trouble past 1GB).
+ * Enable OpenDML (AVI 2.0) to write larger files: the movie is then split
+ * into 1GB 'RIFF' 'AVIX' segments and indexed with 'indx' super indexes and
+ * 'ix##' standard indexes. The first segment also keeps the old 'idx1'
+ * index so old players can at least play that part.
  * <p> 
  * This code is originally based on (but now hardly resembles) the 
  * <a href="http://rsb.info.nih.gov/ij">ImageJ</a> program.
@@ -92,6 +95,16 @@ public abstract class AviWriter implements Closeable {
     /** Enable logging of every chunk written to the AVI. */
     private static final boolean DEBUG = false;
 
+    /** OpenDML: A new 'RIFF' 'AVIX' segment is started before a segment
+     * would grow past this size. */
+    private static final long ODML_SEGMENT_SIZE = 1L << 30;
+    /** OpenDML: Space reserved in the header for the super index of each
+     * stream. Each entry points to one 'ix##' standard index. */
+    private static final int ODML_SUPER_INDEX_ENTRIES = 1024;
+    /** OpenDML: A standard index is written to the 'movi' list when it
+     * reaches this many entries (or at the end of each segment). */
+    private static final int ODML_STD_INDEX_ENTRIES = 16384;
+
     // -------------------------------------------------------------------------
     // -- Fields ---------------------------------------------------------------
     // -------------------------------------------------------------------------
@@ -127,6 +140,10 @@ public abstract class AviWriter implements Closeable {
     @Nonnull
     private final String _sFourCCcodec;
     private final int _iCompression;
+    /** Write an OpenDML (AVI 2.0) file. */
+    private final boolean _blnOpenDml;
+    /** OpenDML: Segment size limit, only changed for testing. */
+    private long _lngOdmlSegmentSize = ODML_SEGMENT_SIZE;
 
     // -------------------------------------------------------------------------
     // -- Properties -----------------------------------------------------------
@@ -155,6 +172,16 @@ public abstract class AviWriter implements Closeable {
         return _iHeight;
     }
 
+    public boolean isOpenDml() {
+        return _blnOpenDml;
+    }
+
+    /** OpenDML: Starts new segments at a smaller size than usual so tests
+     * don't need to write a gigabyte to get several segments. */
+    void setOdmlSegmentSize(long lngSegmentSize) {
+        _lngOdmlSegmentSize = lngSegmentSize;
+    }
+
     /** Number of frames written. */
     public long getVideoFramesWritten() {
         return _lngFrameCount;
@@ -180,7 +207,7 @@ public abstract class AviWriter implements Closeable {
     // -------------------------------------------------------------------------
 
     @CheckForNull
-    private RandomAccessFile _aviFile;
+    private AviFileOutput _aviFile;
     
     private Chunk _RIFF_chunk;
     private     Chunk _LIST_hdr1;
@@ -190,6 +217,7 @@ public abstract class AviWriter implements Closeable {
     private                 AVISTREAMHEADER _strh_vid;
     private                 BITMAPINFOHEADER _bif;
                         //strf_vid
+    private             AVISUPERINDEX _indx_vid; // OpenDML only
     private             Chunk _strn_vid;
                     //LIST_strl_vid
     private         Chunk _LIST_strl_aud;
@@ -197,7 +225,11 @@ public abstract class AviWriter implements Closeable {
     private                 AVISTREAMHEADER _strh_aud;
     private                 WAVEFORMATEX _wavfmt;
                         //strf_aud
+    private             AVISUPERINDEX _indx_aud; // OpenDML only
                     //LIST_strl_aud
+                    //LIST_odml      OpenDML only
+    private             ODMLExtendedAVIHeader _dmlh;
+                    //LIST_odml
                 //LIST_hdr1
                     //JUNK_writerId;
     private     Chunk LIST_movi;
@@ -205,10 +237,26 @@ public abstract class AviWriter implements Closeable {
                 //LIST_movi
     private     AVIOLDINDEX avioldidx;
             //RIFF_chunk
-    
-    /** Holds the 'idx' section index data. */
+    /** OpenDML: The current 'RIFF' 'AVIX' segment, or null while still
+     * writing the first 'RIFF' 'AVI ' chunk. */
+    @CheckForNull
+    private Chunk _RIFF_AVIX;
+                /* LIST_movi for each segment */
+
+    /** Holds the 'idx' section index data.
+     * With OpenDML, only holds the entries of the first 'RIFF' chunk. */
     @Nonnull
     private ArrayList<AVIOLDINDEXENTRY> _indexList;
+    /** OpenDML: Collects the 'ix00' video and 'ix01' audio index entries
+     * until they are written. */
+    private AVISTDINDEX _ix00, _ix01;
+    /** Number of frames in the first 'RIFF' chunk, set when it ends. */
+    private long _lngFirstRiffFrameCount;
+
+    /** Index entry of the last frame written, to repeat it. */
+    private AVIOLDINDEXENTRY _lastFrameIdxEntry;
+    /** File position of the data of the last frame written, to repeat it. */
+    private long _lngLastFrameDataOffset;
     
     
     // -------------------------------------------------------------------------
@@ -224,8 +272,25 @@ public abstract class AviWriter implements Closeable {
                         final @Nonnull String sFourCCcodec,
                         final int iBytes)
             throws FileNotFoundException, IOException
+    {
+        this(outputfile, iWidth, iHeight, lngFrames, lngPerSecond, audioFormat,
+             blnCompressedVideo, sFourCCcodec, iBytes, false);
+    }
+
+    /** Audio data must be signed 16-bit PCM in little-endian order.
+     * @param blnOpenDml Write an OpenDML (AVI 2.0) file. */
+    protected AviWriter(final @Nonnull File outputfile,
+                        final int iWidth, final int iHeight,
+                        final long lngFrames, final long lngPerSecond,
+                        final @CheckForNull AudioFormat audioFormat,
+                        final boolean blnCompressedVideo,
+                        final @Nonnull String sFourCCcodec,
+                        final int iBytes,
+                        final boolean blnOpenDml)
+            throws FileNotFoundException, IOException
     {
         _outputFile = outputfile;
+        _blnOpenDml = blnOpenDml;
 
         _blnCompressedVideo = blnCompressedVideo;
         _sFourCCcodec = sFourCCcodec;
@@ -261,11 +326,9 @@ public abstract class AviWriter implements Closeable {
         }
         _audioFormat = audioFormat;
 
-        _aviFile = new RandomAccessFile(outputfile, "rw");
+        _aviFile = new AviFileOutput(outputfile);
         try {
 
-        _aviFile.setLength(0); // trim the file to 0
-
         //----------------------------------------------------------------------
         // Setup the header structure. 
         // Actual values will be filled in when avi is closed.
@@ -288,9 +351,14 @@ public abstract class AviWriter implements Closeable {
                         _bif.makePlaceholder(_aviFile);
 
                     _strf_vid.endChunk(_aviFile);
+
+                    if (_blnOpenDml) {
+                        _indx_vid = new AVISUPERINDEX(videoChunkId(), ODML_SUPER_INDEX_ENTRIES);
+                        _indx_vid.makePlaceholder(_aviFile);
+                    }
                     
                     _strn_vid = new Chunk(_aviFile, "strn");
-                    _aviFile.writeBytes("jPSXdec AVI    \0");
+                    _aviFile.writeAscii("jPSXdec AVI    \0");
                     _strn_vid.endChunk(_aviFile);
                     
                 _LIST_strl_vid.endChunk(_aviFile);
@@ -308,15 +376,27 @@ public abstract class AviWriter implements Closeable {
 
                     _strf_aud.endChunk(_aviFile);
 
+                    if (_blnOpenDml) {
+                        _indx_aud = new AVISUPERINDEX("01wb", ODML_SUPER_INDEX_ENTRIES);
+                        _indx_aud.makePlaceholder(_aviFile);
+                    }
+
                 _LIST_strl_aud.endChunk(_aviFile);
                 }
 
+                if (_blnOpenDml) {
+                    Chunk LIST_odml = new Chunk(_aviFile, "LIST", "odml");
+                        _dmlh = new ODMLExtendedAVIHeader();
+                        _dmlh.makePlaceholder(_aviFile);
+                    LIST_odml.endChunk(_aviFile);
+                }
+
             _LIST_hdr1.endChunk(_aviFile);
             
             // some programs will use this to identify the program that wrote the avi
             Chunk JUNK_writerId = new Chunk(_aviFile, "JUNK");
                 String sVersion = String.format("jPSXdec: PSX media decoder (non-commercial) v%s", Version.Version);
-                _aviFile.writeBytes(sVersion);
+                _aviFile.writeAscii(sVersion);
                 _aviFile.write(0);
             JUNK_writerId.endChunk(_aviFile);
 
@@ -330,6 +410,18 @@ public abstract class AviWriter implements Closeable {
             
             // generate an index as we write 'movi' section
             _indexList = new ArrayList<AVIOLDINDEXENTRY>();
+            if (_blnOpenDml) {
+                _ix00 = new AVISTDINDEX("ix00", videoChunkId(), ODML_STD_INDEX_ENTRIES);
+                if (_audioFormat != null)
+                    _ix01 = new AVISTDINDEX("ix01", "01wb", ODML_STD_INDEX_ENTRIES);
+            }
+    }
+
+    private @Nonnull String videoChunkId() {
+        if (_blnCompressedVideo)
+            return "00dc";  // dc for compressed frame
+        else
+            return "00db";  // db for uncompressed frame
     }
 
     final protected void closeSilentlyDueToError() {
@@ -343,32 +435,16 @@ public abstract class AviWriter implements Closeable {
     /** Uses a special feature of AVI to duplicate a frame by referencing
      * it twice. This adds almost no extra size to the file.
      * @throws IllegalStateException If no frames have been written yet. */
-    public void repeatPreviousFrame() {
+    public void repeatPreviousFrame() throws IOException {
         if (_lngFrameCount < 1)
             throw new IllegalStateException("Unable to repeat a previous frame that doesn't exist.");
 
         if (DEBUG) {
-            try {
-                System.out.println("Frame DUPLICATE @" + _aviFile.getFilePointer());
-            } catch (IOException ex) {
-                throw new RuntimeException(ex);
-            }
+            System.out.println("Frame DUPLICATE @" + _aviFile.getFilePointer());
         }
 
-        int iIndex = _indexList.size() - 1;
-
-        // find the previous chunk that is a frame
-        final int VID_CHUNK_ID = AVIstruct.string2int("00d_") & 0x00FFFFFF;
-        while (true) {
-            int iChunkId = _indexList.get(iIndex).dwChunkId;
-            // does it start with '00d'?
-            if ((iChunkId & 0x00FFFFFF) == VID_CHUNK_ID)
-                break;
-            else
-                iIndex--;
-        }
-        // add the same reference in the list
-        _indexList.add(_indexList.get(iIndex));
+        // add the same reference in the index
+        addToIndex(_lastFrameIdxEntry, _lngLastFrameDataOffset, _ix00, _indx_vid, 1);
         _lngFrameCount++;
     }
 
@@ -384,6 +460,13 @@ public abstract class AviWriter implements Closeable {
         
         Chunk data_size;
 
+        long lngLength = audStream.getFrameLength();
+        if (lngLength == AudioSystem.NOT_SPECIFIED)
+            lngLength = 0;
+        startNewSegmentIfFull(lngLength * _audioFormat.getFrameSize());
+
+        long lngStartSampleCount = _lngSampleCount;
+
         AVIOLDINDEXENTRY idxentry = new AVIOLDINDEXENTRY();
         idxentry.dwOffset = (int)(_aviFile.getFilePointer() - (LIST_movi.getStart() + 4));
         
@@ -421,7 +504,8 @@ public abstract class AviWriter implements Closeable {
 
         // add this item to the index
         idxentry.dwSize = data_size.getSize();
-        _indexList.add(idxentry);
+        addToIndex(idxentry, data_size.getDataStart(), _ix01, _indx_aud,
+                   _lngSampleCount - lngStartSampleCount);
     }
 
     /** Audio data must be signed 16-bit PCM in little-endian order. */
@@ -443,6 +527,8 @@ public abstract class AviWriter implements Closeable {
         if (iLen % _audioFormat.getFrameSize() != 0)
             throw new IllegalArgumentException("Half an audio sample can't be processed.");
 
+        startNewSegmentIfFull(iLen);
+
         AVIOLDINDEXENTRY idxentry = new AVIOLDINDEXENTRY();
         idxentry.dwOffset = (int)(_aviFile.getFilePointer() - (LIST_movi.getStart() + 4));
         idxentry.dwChunkId = AVIstruct.string2int("01wb");
@@ -460,7 +546,8 @@ public abstract class AviWriter implements Closeable {
 
         // add the index to the list
         idxentry.dwSize = data_size.getSize();
-        _indexList.add(idxentry);
+        addToIndex(idxentry, data_size.getDataStart(), _ix01, _indx_aud,
+                   iLen / _audioFormat.getFrameSize());
     }
 
     public void writeSilentSamples(long lngSampleCount) throws AviIsClosedException, IOException {
@@ -478,13 +565,11 @@ public abstract class AviWriter implements Closeable {
             System.out.println("Frame " + _lngFrameCount + " @" + _aviFile.getFilePointer() + " " + md5(abData, iOfs, iLen));
         }
 
+        startNewSegmentIfFull(iLen);
+
         AVIOLDINDEXENTRY idxentry = new AVIOLDINDEXENTRY();
         idxentry.dwOffset = (int)(_aviFile.getFilePointer() - (LIST_movi.getStart() + 4));
-        String sChunkId;
-        if (_blnCompressedVideo)
-            sChunkId = "00dc";  // dc for compressed frame
-        else
-            sChunkId = "00db";  // db for uncompressed frame
+        String sChunkId = videoChunkId();
         idxentry.dwChunkId = AVIstruct.string2int(sChunkId);
         idxentry.dwFlags = AVIOLDINDEX.AVIIF_KEYFRAME; // Write the flags - select AVIIF_KEYFRAME
                                                        // AVIIF_KEYFRAME 0x00000010L
@@ -501,7 +586,86 @@ public abstract class AviWriter implements Closeable {
 
         // add the index to the list
         idxentry.dwSize = data_size.getSize();
-        _indexList.add(idxentry);
+        _lastFrameIdxEntry = idxentry;
+        _lngLastFrameDataOffset = data_size.getDataStart();
+        addToIndex(idxentry, _lngLastFrameDataOffset, _ix00, _indx_vid, 1);
+    }
+
+    /** Adds the chunk to the 'idx1' index if still in the first 'RIFF',
+     * and to the OpenDML standard index. */
+    private void addToIndex(@Nonnull AVIOLDINDEXENTRY idxentry, long lngDataOffset,
+                            @CheckForNull AVISTDINDEX ix, @CheckForNull AVISUPERINDEX indx,
+                            long lngDuration)
+            throws IOException
+    {
+        if (_RIFF_AVIX == null)
+            _indexList.add(idxentry);
+        if (ix != null) {
+            ix.add(lngDataOffset, idxentry.dwSize, lngDuration);
+            if (ix.isFull())
+                writeStdIndex(ix, indx);
+        }
+    }
+
+    /** Writes the OpenDML standard index as an 'ix##' chunk into the
+     * 'movi' list and adds it to the super index. */
+    private void writeStdIndex(@Nonnull AVISTDINDEX ix, @Nonnull AVISUPERINDEX indx)
+            throws IOException
+    {
+        if (ix.getEntriesInUse() == 0)
+            return;
+        if (indx.isFull())
+            throw new IOException("Too many OpenDML indexes");
+        indx.add(_aviFile.getFilePointer(), ix.sizeof(), ix.getDuration());
+        ix.write(_aviFile);
+        ix.clear();
+    }
+
+    /** OpenDML: If writing the next chunk would make the current segment
+     * too big, ends the segment and starts a new 'RIFF' 'AVIX' segment. */
+    private void startNewSegmentIfFull(long lngChunkDataSize) throws IOException {
+        if (!_blnOpenDml)
+            return;
+        // nothing in this segment yet, no point in starting another one
+        if (_aviFile.getFilePointer() == LIST_movi.getStart() + 8)
+            return;
+
+        Chunk riff = _RIFF_AVIX == null ? _RIFF_chunk : _RIFF_AVIX;
+        long lngSegmentSize = _aviFile.getFilePointer() - riff.getStart()
+                              + 8 + lngChunkDataSize + 3
+                              + _ix00.sizeof() + 8
+                              + (_ix01 == null ? 0 : _ix01.sizeof() + 8);
+        if (_RIFF_AVIX == null)
+            lngSegmentSize += 8 + (_indexList.size() + 1) * 16; // idx1
+        if (lngSegmentSize <= _lngOdmlSegmentSize)
+            return;
+
+        endSegment();
+        _RIFF_AVIX = new Chunk(_aviFile, "RIFF", "AVIX");
+        LIST_movi = new Chunk(_aviFile, "LIST", "movi");
+    }
+
+    /** Ends the 'movi' list and the 'RIFF' chunk it's in. */
+    private void endSegment() throws IOException {
+        if (_blnOpenDml) {
+            writeStdIndex(_ix00, _indx_vid);
+            if (_ix01 != null)
+                writeStdIndex(_ix01, _indx_aud);
+        }
+        LIST_movi.endChunk(_aviFile);
+
+        if (_RIFF_AVIX == null) {
+            // write idx
+            avioldidx = new AVIOLDINDEX(_indexList.toArray(new AVIOLDINDEXENTRY[_indexList.size()]));
+            avioldidx.write(_aviFile);
+            // /write idx
+            _indexList.clear();
+
+            _RIFF_chunk.endChunk(_aviFile);
+            _lngFirstRiffFrameCount = _lngFrameCount;
+        } else {
+            _RIFF_AVIX.endChunk(_aviFile);
+        }
     }
 
     /** Subclasses should implement writing of a simple blank frame. */
@@ -517,14 +681,7 @@ public abstract class AviWriter implements Closeable {
     public void close() throws AviIsClosedException, IOException {
         if (_aviFile == null) throw new AviIsClosedException();
         
-            LIST_movi.endChunk(_aviFile);
-            
-            // write idx
-            avioldidx = new AVIOLDINDEX(_indexList.toArray(new AVIOLDINDEXENTRY[_indexList.size()]));
-            avioldidx.write(_aviFile);
-            // /write idx
-            
-        _RIFF_chunk.endChunk(_aviFile);
+        endSegment();
         
         //######################################################################
         //## Fill the headers fields ###########################################
@@ -541,7 +698,8 @@ public abstract class AviWriter implements Closeable {
                                               // 10H AVIF_HASINDEX: The AVI file has an idx1 chunk containing
                                               // an index at the end of the file.  For good performance, all
                                               // AVI files should contain an index.                         
-        _avih.dwTotalFrames         = _lngFrameCount;  // total frame number
+        _avih.dwTotalFrames         = _lngFirstRiffFrameCount; // total frame number
+                                              // (OpenDML: only in the first RIFF)
         _avih.dwInitialFrames       = 0;      // Initial frame for interleaved files.
                                               // Noninterleaved files should specify 0.
         if (_audioFormat == null)
@@ -667,6 +825,17 @@ public abstract class AviWriter implements Closeable {
         //######################################################################
         //######################################################################
         
+        //######################################################################
+        // OpenDML
+
+        if (_blnOpenDml) {
+            _dmlh.dwTotalFrames = _lngFrameCount;
+        }
+
+        //######################################################################
+        //######################################################################
+        //######################################################################
+
         // go back and write the headers
         _avih.goBackAndWrite(_aviFile);
         _strh_vid.goBackAndWrite(_aviFile);
@@ -676,6 +845,13 @@ public abstract class AviWriter implements Closeable {
             _strh_aud.goBackAndWrite(_aviFile);
             _wavfmt.goBackAndWrite(_aviFile);
         }
+
+        if (_blnOpenDml) {
+            _indx_vid.goBackAndWrite(_aviFile);
+            if (_audioFormat != null)
+                _indx_aud.goBackAndWrite(_aviFile);
+            _dmlh.goBackAndWrite(_aviFile);
+        }
         
         // and we're done
         _aviFile.close();
@@ -693,8 +869,15 @@ public abstract class AviWriter implements Closeable {
                     _strf_aud = null;
                         _strh_aud = null;
                         _wavfmt = null;
+                    _indx_vid = null;
+                    _indx_aud = null;
+                    _dmlh = null;
             LIST_movi = null;
             avioldidx = null;
+        _RIFF_AVIX = null;
+        _ix00 = null;
+        _ix01 = null;
+        _lastFrameIdxEntry = null;
     }
 
     @Override
@@ -710,7 +893,7 @@ public abstract class AviWriter implements Closeable {
     // -------------------------------------------------------------------------
     
     /** Represents an AVI RIFF 'chunk'. When created, it saves the current
-     *  position in the AVI RandomAccessFile. When endChunk() is called,
+     *  position in the AVI file. When endChunk() is called,
      *  it temporarily jumps back to the start of the chunk and records how 
      *  many bytes have been written. */
     private static class Chunk {
@@ -720,36 +903,35 @@ public abstract class AviWriter implements Closeable {
         private final long _lngPos;
         private int _iSize = -1;
         
-        Chunk(@Nonnull RandomAccessFile raf, @Nonnull String sChunkName) throws IOException {
-            IO.writeInt32LE(raf, AVIstruct.string2int(sChunkName));
-            _lngPos = raf.getFilePointer();
-            raf.writeInt(0);
+        Chunk(@Nonnull AviFileOutput out, @Nonnull String sChunkName) throws IOException {
+            IO.writeInt32LE(out, AVIstruct.string2int(sChunkName));
+            _lngPos = out.getFilePointer();
+            IO.writeInt32LE(out, 0);
         }
         
-         Chunk(@Nonnull RandomAccessFile raf, @Nonnull String sChunkName, @Nonnull String sSubChunkName) throws IOException {
-            this(raf, sChunkName);
-            IO.writeInt32LE(raf, AVIstruct.string2int(sSubChunkName));
+         Chunk(@Nonnull AviFileOutput out, @Nonnull String sChunkName, @Nonnull String sSubChunkName) throws IOException {
+            this(out, sChunkName);
+            IO.writeInt32LE(out, AVIstruct.string2int(sSubChunkName));
         }
         
-        /** Jumps back to saved position in the RandomAccessFile and writes
-         *  how many bytes have passed since the position was saved, then
-         *  returns to the current position again. Pads to a 4 byte boundary. */
-        public void endChunk(@Nonnull RandomAccessFile raf) throws IOException {
-            long lngCurPos = raf.getFilePointer(); // save this pos
+        /** Goes back to saved position in the file and writes
+         *  how many bytes have passed since the position was saved.
+         *  Pads to a 4 byte boundary. */
+        public void endChunk(@Nonnull AviFileOutput out) throws IOException {
+            long lngCurPos = out.getFilePointer();
             _iSize = (int)(lngCurPos - (_lngPos + 4)); // calculate number of bytes since start of chunk
 
             // pad to 4 byte boundary
             int iNon4bytes = _iSize % 4;
             if (iNon4bytes > 0) {
                 int iBytesToPad = 4 - iNon4bytes;
-                raf.write(ZEROES3, 0, iBytesToPad);
+                out.write(ZEROES3, 0, iBytesToPad);
                 _iSize += iBytesToPad;
-                lngCurPos += iBytesToPad;
             }
 
-            raf.seek(_lngPos); // go back to where the header is
-            IO.writeInt32LE(raf, _iSize); // write the header size
-            raf.seek(lngCurPos); // return to current position
+            byte[] abSize = new byte[4];
+            IO.writeInt32LE(abSize, 0, _iSize);
+            out.writeAt(_lngPos, abSize); // write the header size
         }
 
         /** After endChunk() has been called, returns the size that was
@@ -763,6 +945,12 @@ public abstract class AviWriter implements Closeable {
         private long getStart() {
             return _lngPos;
         }
+
+        /** Returns the position of the data in the chunk (right after the
+         *  size). */
+        private long getDataStart() {
+            return _lngPos + 4;
+        }
     }
 
     /**
@@ -80,11 +80,23 @@ public class AviWriterDIB extends AviWriter {
                         final long lngFrames, final long lngPerSecond,
                         final @CheckForNull AudioFormat audioFormat)
             throws FileNotFoundException, IOException
+    {
+        this(outputfile, iWidth, iHeight, lngFrames, lngPerSecond, audioFormat, false);
+    }
+
+    /** Audio data must be signed 16-bit PCM in little-endian order.
+     * @param blnOpenDml Write an OpenDML (AVI 2.0) file. */
+    public AviWriterDIB(final @Nonnull File outputfile,
+                        final int iWidth, final int iHeight,
+                        final long lngFrames, final long lngPerSecond,
+                        final @CheckForNull AudioFormat audioFormat,
+                        final boolean blnOpenDml)
+            throws FileNotFoundException, IOException
     {
        // Write 'DIB ' for Microsoft Device Independent Bitmap.  Note: Unfortunately,
        // at least 3 other fourcc codes are sometimes used for uncompressed
        // AVI videos: 'RGB ', 'RAW ', 0x00000000
-        super(outputfile, iWidth, iHeight, lngFrames, lngPerSecond, audioFormat, true, "DIB ", BITMAPINFOHEADER.BI_RGB);
+        super(outputfile, iWidth, iHeight, lngFrames, lngPerSecond, audioFormat, true, "DIB ", BITMAPINFOHEADER.BI_RGB, blnOpenDml);
 
         int iLinePadding = (getWidth() * 3) & 3;
         if (iLinePadding != 0)
@@ -38,7 +38,7 @@
 package jpsxdec.util.aviwriter;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.OutputStream;
 import javax.annotation.Nonnull;
 import jpsxdec.util.IO;
 
@@ -61,18 +61,18 @@ class BITMAPINFOHEADER extends AVIstruct {
     public       /*DWORD*/ int   biClrImportant   = 0;
 
     @Override
-    public void write(@Nonnull RandomAccessFile raf) throws IOException {
-        /*DWORD*/ IO.writeInt32LE(raf, biSize         );
-        /*LONG */ IO.writeInt32LE(raf, biWidth        );
-        /*LONG */ IO.writeInt32LE(raf, biHeight       );
-        /*WORD */ IO.writeInt16LE(raf, biPlanes       );
-        /*WORD */ IO.writeInt16LE(raf, biBitCount     );
-        /*DWORD*/ IO.writeInt32LE(raf, biCompression  );
-        /*DWORD*/ IO.writeInt32LE(raf, biSizeImage    );
-        /*LONG */ IO.writeInt32LE(raf, biXPelsPerMeter);
-        /*LONG */ IO.writeInt32LE(raf, biYPelsPerMeter);
-        /*DWORD*/ IO.writeInt32LE(raf, biClrUsed      );
-        /*DWORD*/ IO.writeInt32LE(raf, biClrImportant );
+    public void write(@Nonnull OutputStream os) throws IOException {
+        /*DWORD*/ IO.writeInt32LE(os, biSize         );
+        /*LONG */ IO.writeInt32LE(os, biWidth        );
+        /*LONG */ IO.writeInt32LE(os, biHeight       );
+        /*WORD */ IO.writeInt16LE(os, biPlanes       );
+        /*WORD */ IO.writeInt16LE(os, biBitCount     );
+        /*DWORD*/ IO.writeInt32LE(os, biCompression  );
+        /*DWORD*/ IO.writeInt32LE(os, biSizeImage    );
+        /*LONG */ IO.writeInt32LE(os, biXPelsPerMeter);
+        /*LONG */ IO.writeInt32LE(os, biYPelsPerMeter);
+        /*DWORD*/ IO.writeInt32LE(os, biClrUsed      );
+        /*DWORD*/ IO.writeInt32LE(os, biClrImportant );
     }
 
     @Override
@@ -38,7 +38,7 @@
 package jpsxdec.util.aviwriter;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.OutputStream;
 import javax.annotation.Nonnull;
 import jpsxdec.util.IO;
 
@@ -59,14 +59,14 @@ class WAVEFORMATEX extends AVIstruct {
     //public /*WORD */ short cbSize          = 0; **
     
     
-    public void write(@Nonnull RandomAccessFile raf) throws IOException {
-        /*WORD */ IO.writeInt16LE(raf, wFormatTag     );
-        /*WORD */ IO.writeInt16LE(raf, nChannels      );
-        /*DWORD*/ IO.writeInt32LE(raf, nSamplesPerSec );
-        /*DWORD*/ IO.writeInt32LE(raf, nAvgBytesPerSec);
-        /*WORD */ IO.writeInt16LE(raf, nBlockAlign    );
-        /*WORD */ IO.writeInt16LE(raf, wBitsPerSample );
-        ///*WORD */ IO.writeInt16LE(raf, cbSize         ); **
+    public void write(@Nonnull OutputStream os) throws IOException {
+        /*WORD */ IO.writeInt16LE(os, wFormatTag     );
+        /*WORD */ IO.writeInt16LE(os, nChannels      );
+        /*DWORD*/ IO.writeInt32LE(os, nSamplesPerSec );
+        /*DWORD*/ IO.writeInt32LE(os, nAvgBytesPerSec);
+        /*WORD */ IO.writeInt16LE(os, nBlockAlign    );
+        /*WORD */ IO.writeInt16LE(os, wBitsPerSample );
+        ///*WORD */ IO.writeInt16LE(os, cbSize         ); **
     }
 
     public int sizeof() {
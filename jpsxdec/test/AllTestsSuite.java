@@ -44,26 +44,37 @@ import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
+    com.mortennobel.imagescaling.ResampleOpTest.class,
     jpsxdec.TestLog.class,
+    jpsxdec.adpcm.SoundUnitEncoderTest.class,
     jpsxdec.adpcm.SpuDecodeCorruption.class,
     jpsxdec.adpcm.XaDecodeCorruption.class,
     jpsxdec.cmdline.Command_StaticTest.class,
     jpsxdec.discitems.DiscItemTest.class,
     jpsxdec.discitems.SerializedDiscItemTest.class,
+    jpsxdec.indexing.BinaryIndexTest.class,
     jpsxdec.indexing.DiscIndexerXaAudioTest.class,
+    jpsxdec.indexing.DiscItemTreeTest.class,
     jpsxdec.modules.crusader.DiscIndexerCrusaderTest.class,
+    jpsxdec.modules.spu.SpuScannerTest.class,
+    jpsxdec.modules.tim.TimScannerTest.class,
     jpsxdec.modules.video.sectorbased.fps.Fps.class,
+    jpsxdec.modules.xa.DiscItemXaAudioStreamTest.class,
     jpsxdec.psxvideo.PsxYCbCr_intTest.class,
     jpsxdec.psxvideo.bitstreams.BitReader.class,
     jpsxdec.psxvideo.bitstreams.Iki.class,
+    jpsxdec.psxvideo.bitstreams.QscaleSearchTest.class,
     jpsxdec.psxvideo.bitstreams.STRv2.class,
     jpsxdec.psxvideo.bitstreams.STRv3.class,
+    jpsxdec.psxvideo.encode.MacroBlockEncoderTest.class,
+    jpsxdec.psxvideo.mdec.idct.SparsePsxMdecIDCT_doubleTest.class,
     jpsxdec.psxvideo.mdec.tojpeg.Mdec2JpegTest.class,
     jpsxdec.util.ArgParserTest.class,
     jpsxdec.util.DemuxPushInputStreamTest.class,
     jpsxdec.util.DemuxedDataTest.class,
     jpsxdec.util.IOTest.class,
     jpsxdec.util.MiscTest.class,
+    jpsxdec.util.aviwriter.AviWriterTest.class,
     jpsxdec.util.player.ClosableBoundedBlockingQueueTest.class
 })
 public class AllTestsSuite {
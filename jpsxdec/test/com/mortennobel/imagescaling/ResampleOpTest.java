@@ -0,0 +1,104 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.mortennobel.imagescaling;
+
+import java.util.Random;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/** {@link ResampleOp} keeps its sub-sampling data between calls, as long
+ * as the filter (by identity) and the source size are the same. */
+public class ResampleOpTest {
+
+    @Test
+    public void twoPlanesSameAsOnePlaneAcrossFilterChanges() {
+        ResampleFilter[] filters = {
+            ResampleFilters.getBiCubicFilter(),
+            ResampleFilters.getBiCubicFilter(),
+            ResampleFilters.getBellFilter(),
+            ResampleFilters.getMitchellFilter(),
+            ResampleFilters.getBSplineFilter(),
+            ResampleFilters.getLanczos3Filter(),
+            ResampleFilters.getHermiteFilter(),
+            ResampleFilters.getBiCubicFilter(),
+            ResampleFilters.getLanczos3Filter(),
+            ResampleFilters.getLanczos3Filter(),
+        };
+        int[][] aaiSizes = { {160, 120}, {8, 6} };
+
+        Random rand = new Random(24);
+        ResampleOp twoPlanes = new ResampleOp();
+        ResampleOp onePlane = new ResampleOp();
+        for (int[] aiSize : aaiSizes) {
+            int iW = aiSize[0], iH = aiSize[1];
+            for (ResampleFilter filter : filters) {
+                double[] adblSrc1 = new double[iW * iH], adblSrc2 = new double[iW * iH];
+                for (int i = 0; i < adblSrc1.length; i++) {
+                    adblSrc1[i] = rand.nextDouble() * 256 - 128;
+                    adblSrc2[i] = rand.nextDouble() * 256 - 128;
+                }
+
+                // a new ResampleOp has nothing left over from other calls
+                ResampleOp fresh = new ResampleOp();
+                fresh.setFilter(filter);
+                double[] adblExpected1 = new double[iW * iH * 4], adblExpected2 = new double[iW * iH * 4];
+                fresh.doFilter(adblSrc1, iW, iH, adblExpected1);
+                fresh = new ResampleOp();
+                fresh.setFilter(filter);
+                fresh.doFilter(adblSrc2, iW, iH, adblExpected2);
+
+                twoPlanes.setFilter(filter);
+                double[] adblOut1 = new double[iW * iH * 4], adblOut2 = new double[iW * iH * 4];
+                twoPlanes.doFilter(adblSrc1, adblSrc2, iW, iH, adblOut1, adblOut2);
+                assertArrayEquals(adblExpected1, adblOut1, 0);
+                assertArrayEquals(adblExpected2, adblOut2, 0);
+
+                onePlane.setFilter(filter);
+                onePlane.doFilter(adblSrc1, iW, iH, adblOut1);
+                onePlane.doFilter(adblSrc2, iW, iH, adblOut2);
+                assertArrayEquals(adblExpected1, adblOut1, 0);
+                assertArrayEquals(adblExpected2, adblOut2, 0);
+
+                // then a single plane with the same plan as the two planes
+                twoPlanes.doFilter(adblSrc2, iW, iH, adblOut1);
+                assertArrayEquals(adblExpected2, adblOut1, 0);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/** Shared harness for the *Benchmark classes. They are not unit tests:
+ * run a benchmark's main() directly.
+ * <p>
+ * Every {@link Case} is first run for a warmup pass so the JIT has settled,
+ * then run again for the measured pass. After the measured pass the rate
+ * of each case is printed, followed by its {@link Case#check()} text
+ * so any change in the output is obvious. */
+public class Benchmark {
+
+    /** One thing to measure. */
+    public static abstract class Case {
+        @Nonnull
+        private final String _sName;
+
+        public Case(@Nonnull String sName) {
+            _sName = sName;
+        }
+
+        /** Called before every {@link #run()}, and not timed. Prepares
+         * anything the run uses up. */
+        protected void setUp() throws Exception {
+        }
+
+        /** Does one round of work. Called repeatedly until the pass is over.
+         * @return how many items were processed, counted towards the rate. */
+        abstract protected long run() throws Exception;
+
+        /** Called once after the measured pass.
+         * @return text printed after the rate, or null to print nothing. */
+        protected @CheckForNull String check() throws Exception {
+            return null;
+        }
+    }
+
+    @Nonnull
+    private final String _sUnit;
+    private final double _dblWarmupSeconds;
+    private final double _dblMeasureSeconds;
+    private final List<Case> _cases = new ArrayList<Case>();
+
+    /** @param sUnit What {@link Case#run()} counts, printed as "<unit>/sec". */
+    public Benchmark(@Nonnull String sUnit, double dblWarmupSeconds, double dblMeasureSeconds) {
+        _sUnit = sUnit;
+        _dblWarmupSeconds = dblWarmupSeconds;
+        _dblMeasureSeconds = dblMeasureSeconds;
+    }
+
+    public @Nonnull Benchmark add(@Nonnull Case c) {
+        _cases.add(c);
+        return this;
+    }
+
+    /** Runs the warmup pass, then the measured pass, and prints the results. */
+    public void run() throws Exception {
+        int iNameWidth = 1;
+        for (Case c : _cases) {
+            iNameWidth = Math.max(iNameWidth, c._sName.length());
+        }
+
+        for (Case c : _cases) {
+            measure(c, _dblWarmupSeconds);
+        }
+        for (Case c : _cases) {
+            double dblRate = measure(c, _dblMeasureSeconds);
+            String sCheck = c.check();
+            System.out.format("%-" + iNameWidth + "s %12.1f %s/sec%s%n",
+                              c._sName, dblRate, _sUnit,
+                              sCheck == null ? "" : " (" + sCheck + ")");
+        }
+    }
+
+    /** @return items per second. */
+    private static double measure(@Nonnull Case c, double dblSeconds) throws Exception {
+        long lngDuration = (long)(dblSeconds * 1e9);
+        long lngItems = 0;
+        long lngElapsed = 0;
+        do {
+            c.setUp();
+            long lngStart = System.nanoTime();
+            lngItems += c.run();
+            lngElapsed += System.nanoTime() - lngStart;
+        } while (lngElapsed < lngDuration);
+        return lngItems / (lngElapsed / 1e9);
+    }
+
+    // .........................................................................
+
+    /** Generates the same image every time: smooth gradients with some noise,
+     * similar enough to a video frame for encoding and decoding. */
+    public static @Nonnull BufferedImage makeTestImage(int iWidth, int iHeight) {
+        BufferedImage bi = new BufferedImage(iWidth, iHeight, BufferedImage.TYPE_INT_RGB);
+        Random rand = new Random(1);
+        for (int y = 0; y < iHeight; y++) {
+            for (int x = 0; x < iWidth; x++) {
+                int r = (int)(127 + 100 * Math.sin(x / 13.0) * Math.cos(y / 17.0)) + rand.nextInt(16);
+                int g = (x + y) * 255 / (iWidth + iHeight) + rand.nextInt(16);
+                int b = (int)(127 + 100 * Math.sin((x + y) / 7.0)) + rand.nextInt(16);
+                bi.setRGB(x, y, (Math.min(r, 255) << 16) | (Math.min(g, 255) << 8) | Math.min(b, 255));
+            }
+        }
+        return bi;
+    }
+
+    /** Continues a checksum of some RGB (or any other int) values. */
+    public static long checksum(long lngCheck, @Nonnull int[] aiValues) {
+        for (int iValue : aiValues) {
+            lngCheck = lngCheck * 31 + iValue;
+        }
+        return lngCheck;
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.adpcm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.zip.CRC32;
+import javax.annotation.Nonnull;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+public class SoundUnitEncoderTest {
+
+    private static final IContextCopier CONTEXT = new IContextCopier() {
+        public @Nonnull Object copy() {
+            return this;
+        }
+    };
+
+    private static final SoundUnitEncoder.TelemetryListener IGNORE_TELEMETRY =
+            new SoundUnitEncoder.TelemetryListener() {
+        public void soundUnitEncoded(@Nonnull SoundUnitEncoder.Telemetry telemetry) {
+        }
+    };
+
+    @After
+    public void tearDown() {
+        SoundUnitEncoder.TELEMETRY_LISTENER = null;
+    }
+
+    /** The search that gives up on a filter and range early picks the same
+     * parameters and encodes the same samples as trying every filter and
+     * range to the end (which is done when telemetry is collected). */
+    @Test
+    public void earlyExitMatchesExhaustive() throws Exception {
+        compareSearches(4, K0K1Filter.XA);
+        compareSearches(8, K0K1Filter.XA);
+        compareSearches(4, K0K1Filter.SPU);
+    }
+
+    private static void compareSearches(int iBitsPerSample, @Nonnull K0K1Filter filters) throws Exception {
+        SoundUnitEncoder fast = new SoundUnitEncoder(iBitsPerSample, filters);
+        SoundUnitEncoder exhaustive = new SoundUnitEncoder(iBitsPerSample, filters);
+        short[] asiPcm = makeTestPcm(4000 * SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT, 1);
+        short[] asiSoundUnit = new short[SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT];
+        for (int iUnit = 0; iUnit < asiPcm.length / asiSoundUnit.length; iUnit++) {
+            System.arraycopy(asiPcm, iUnit * asiSoundUnit.length, asiSoundUnit, 0, asiSoundUnit.length);
+
+            SoundUnitEncoder.TELEMETRY_LISTENER = null;
+            SoundUnitEncoder.EncodedUnit fastUnit = fast.encodeSoundUnit(asiSoundUnit, CONTEXT);
+            SoundUnitEncoder.TELEMETRY_LISTENER = IGNORE_TELEMETRY;
+            SoundUnitEncoder.EncodedUnit exhaustiveUnit = exhaustive.encodeSoundUnit(asiSoundUnit, CONTEXT);
+            SoundUnitEncoder.TELEMETRY_LISTENER = null;
+
+            String sMsg = iBitsPerSample + " bits/sample unit " + iUnit;
+            assertEquals(sMsg, exhaustiveUnit.iFilterIndex, fastUnit.iFilterIndex);
+            assertEquals(sMsg, exhaustiveUnit.iRange, fastUnit.iRange);
+            assertEquals(sMsg, exhaustiveUnit.blnHadToClamp, fastUnit.blnHadToClamp);
+            assertArrayEquals(exhaustiveUnit.abEncodedAdpcm, fastUnit.abEncodedAdpcm);
+        }
+    }
+
+    /** The encoded XA audio is byte-for-byte what the encoder produced
+     * before the search was sped up. */
+    @Test
+    public void xaOutputIsUnchanged() throws Exception {
+        assertEquals(0x53bf0af3L, encodeXaCrc(4, 1));
+        assertEquals(0xdc030437L, encodeXaCrc(8, 1));
+        // encoding the channels on separate threads
+        assertEquals(0x53bf0af3L, encodeXaCrc(4, 2));
+        assertEquals(0xdc030437L, encodeXaCrc(8, 2));
+    }
+
+    private static long encodeXaCrc(int iBitsPerSample, int iThreads) throws Exception {
+        int iSectors = 20;
+        int iSampleFramesPerSector = iBitsPerSample == 4 ? 2016 : 1008;
+        short[] asiPcm = makeTestPcm(iSectors * iSampleFramesPerSector * 2, 2);
+        byte[] abPcm = new byte[asiPcm.length * 2];
+        for (int i = 0; i < asiPcm.length; i++) {
+            abPcm[i*2  ] = (byte)asiPcm[i];
+            abPcm[i*2+1] = (byte)(asiPcm[i] >> 8);
+        }
+        AudioInputStream ais = new AudioInputStream(new ByteArrayInputStream(abPcm),
+                new AudioFormat(37800, 16, 2, true, false), asiPcm.length / 2);
+
+        XaAdpcmEncoder encoder = new XaAdpcmEncoder(ais, iBitsPerSample, iThreads);
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            for (int i = 0; i < iSectors; i++)
+                encoder.encode1Sector(baos);
+            CRC32 crc = new CRC32();
+            crc.update(baos.toByteArray());
+            return crc.getValue();
+        } finally {
+            encoder.close();
+        }
+    }
+
+    /** Tones, noise, silence, and full scale square waves that have to be
+     * clamped, changing every few sound units. */
+    private static @Nonnull short[] makeTestPcm(int iSamples, long lngSeed) {
+        Random rand = new Random(lngSeed);
+        short[] asiPcm = new short[iSamples];
+        int iKind = 0;
+        for (int i = 0; i < iSamples; i++) {
+            if (i % (SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT * 5) == 0)
+                iKind = rand.nextInt(5);
+            int iSample;
+            switch (iKind) {
+                case 0: iSample = (int)(9000 * Math.sin(i / 9.0)) + rand.nextInt(1500) - 750; break;
+                case 1: iSample = rand.nextInt(65536) - 32768; break;
+                case 2: iSample = 0; break;
+                case 3: iSample = (i / 3) % 2 == 0 ? Short.MAX_VALUE : Short.MIN_VALUE; break;
+                default: iSample = (int)(200 * Math.sin(i / 40.0)) + rand.nextInt(20); break;
+            }
+            asiPcm[i] = (short)Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, iSample));
+        }
+        return asiPcm;
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.adpcm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import jpsxdec.Benchmark;
+
+/** Measures how many sectors per second the XA ADPCM decoder decodes
+ * through the stream API compared to decoding straight into a short[].
+ * <p>
+ * Covers 4 and 8 bits/sample, mono and stereo. The sectors are random
+ * ADPCM samples with valid (and agreeing) sound parameters, so no
+ * corruption is logged. Both ways are checked to produce the same samples. */
+public class XaDecodeBenchmark {
+
+    private static final int SECTORS = 75;
+
+    public static void main(String[] args) throws Exception {
+        Benchmark benchmark = new Benchmark("sectors", 2, 4);
+        for (int iBitsPerSample = 4; iBitsPerSample <= 8; iBitsPerSample += 4) {
+            for (boolean blnStereo : new boolean[] {false, true}) {
+                byte[][] aabSectors = makeSectors(iBitsPerSample, blnStereo);
+                check(aabSectors, iBitsPerSample, blnStereo);
+                String sFormat = iBitsPerSample + " bit " + (blnStereo ? "stereo" : "mono");
+                benchmark.add(new Decode(sFormat + " stream", aabSectors, iBitsPerSample, blnStereo, true));
+                benchmark.add(new Decode(sFormat + " short[]", aabSectors, iBitsPerSample, blnStereo, false));
+            }
+        }
+        benchmark.run();
+    }
+
+    private static byte[][] makeSectors(int iBitsPerSample, boolean blnStereo) {
+        Random rand = new Random(iBitsPerSample * 2 + (blnStereo ? 1 : 0));
+        byte[][] aabSectors = new byte[SECTORS][XaAdpcmDecoder.SIZEOF_ADPCM_SECTOR];
+        for (byte[] abSector : aabSectors) {
+            rand.nextBytes(abSector);
+            for (int iGroup = 0; iGroup < XaAdpcmDecoder.ADPCM_SOUND_GROUPS_PER_SECTOR; iGroup++) {
+                int iGroupOfs = iGroup * XaAdpcmDecoder.SIZEOF_SOUND_GROUP;
+                for (int iSoundUnit = 0; iSoundUnit < 8; iSoundUnit++) {
+                    byte bParam = (byte)((rand.nextInt(4) << 4) | rand.nextInt(13));
+                    if (iBitsPerSample == 4) {
+                        int iFirst = iGroupOfs + (iSoundUnit < 4 ? iSoundUnit : iSoundUnit + 4);
+                        abSector[iFirst] = abSector[iFirst + 4] = bParam;
+                    } else if (iSoundUnit < 4) {
+                        for (int i = iGroupOfs + iSoundUnit; i < iGroupOfs + 16; i += 4)
+                            abSector[i] = bParam;
+                    }
+                }
+            }
+        }
+        return aabSectors;
+    }
+
+    private static void check(byte[][] aabSectors, int iBitsPerSample, boolean blnStereo)
+            throws Exception
+    {
+        XaAdpcmDecoder streamDecoder = new XaAdpcmDecoder(iBitsPerSample, blnStereo, 1.0);
+        XaAdpcmDecoder arrayDecoder = new XaAdpcmDecoder(iBitsPerSample, blnStereo, 1.0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        short[] asiPcm = new short[arrayDecoder.getPcmSamplesPerSector()];
+        byte[] abPcm = new byte[asiPcm.length * 2];
+        for (byte[] abSector : aabSectors) {
+            out.reset();
+            streamDecoder.decode(new ByteArrayInputStream(abSector), out, -1);
+            arrayDecoder.decode(abSector, 0, asiPcm, 0, -1);
+            for (int i = 0; i < asiPcm.length; i++) {
+                abPcm[i*2  ] = (byte)asiPcm[i];
+                abPcm[i*2+1] = (byte)(asiPcm[i] >> 8);
+            }
+            if (!Arrays.equals(out.toByteArray(), abPcm))
+                throw new RuntimeException("Decoders disagree");
+        }
+    }
+
+    private static class Decode extends Benchmark.Case {
+        private final byte[][] _aabSectors;
+        private final boolean _blnStream;
+        private final XaAdpcmDecoder _decoder;
+        private final ByteArrayOutputStream _out = new ByteArrayOutputStream();
+        private final short[] _asiPcm;
+        private long _lngCheck = 0;
+
+        public Decode(String sName, byte[][] aabSectors,
+                      int iBitsPerSample, boolean blnStereo, boolean blnStream)
+        {
+            super(sName);
+            _aabSectors = aabSectors;
+            _blnStream = blnStream;
+            _decoder = new XaAdpcmDecoder(iBitsPerSample, blnStereo, 1.0);
+            _asiPcm = new short[_decoder.getPcmSamplesPerSector()];
+        }
+
+        @Override
+        protected long run() throws Exception {
+            for (byte[] abSector : _aabSectors) {
+                if (_blnStream) {
+                    _out.reset();
+                    _decoder.decode(new ByteArrayInputStream(abSector), _out, -1);
+                    _lngCheck += _out.size();
+                } else {
+                    _decoder.decode(abSector, 0, _asiPcm, 0, -1);
+                    _lngCheck += _asiPcm[0];
+                }
+            }
+            return _aabSectors.length;
+        }
+
+        @Override
+        protected String check() {
+            return String.valueOf(_lngCheck);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.indexing;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+import jpsxdec.Version;
+import jpsxdec.discitems.SerializedDiscItem;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+public class BinaryIndexTest {
+
+    private static final String CD_LINE =
+            "Filename:disc.bin|Sector size:2352|Sector count:2400|First sector offset:0";
+
+    private static final List<String> LINES = Arrays.asList(
+        "#:0|ID:?[0]|Sectors:0-2398|Type:Video|Dimensions:320x240|Frame Count:150|Sectors/Frame:16/1|Disc Speed:2",
+        "#:1|ID:?[0.0]|Sectors:7-2399|Type:XA|Channel:1|Stereo?:Yes|Samples/Sec:37800",
+        "#:2|Type:XA|ID:?[9]|Sectors:7-20|Channel:-1",
+        "#:3|ID:?[1]|Sectors:0-99999999999999999999|Type:Video|Dimensions:0320x240|Offset:-0",
+        "#:4|ID:?[2]|Sectors:5-6|Type:File|Path:DATA\\\u65E5\u672C.BIN|Range:1-|Ratio:/2",
+        "garbage line without fields"
+    );
+
+    private File _file;
+
+    @Before
+    public void setUp() throws IOException {
+        _file = File.createTempFile("binidx", DiscIndex.BINARY_INDEX_EXTENSION);
+    }
+
+    @After
+    public void tearDown() {
+        _file.delete();
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        BinaryIndex.write(_file, CD_LINE, LINES);
+        BinaryIndex bi = BinaryIndex.open(_file);
+        assertNotNull(bi);
+        assertEquals(Version.IndexHeader, bi.getHeader());
+        assertEquals(CD_LINE, bi.getSourceCdLine());
+        assertEquals(LINES.size(), bi.getItemCount());
+        for (int i = 0; i < LINES.size(); i++) {
+            assertEquals(LINES.get(i), bi.getItemLine(i));
+        }
+        for (int i = 0; i < LINES.size() - 1; i++) {
+            assertEquals(new SerializedDiscItem(LINES.get(i)), bi.getItem(i));
+        }
+    }
+
+    @Test
+    public void textIndexIsNotBinary() throws Exception {
+        FileOutputStream fos = new FileOutputStream(_file);
+        try {
+            fos.write((Version.IndexHeader + "\n" + CD_LINE + "\n").getBytes("UTF-8"));
+        } finally {
+            fos.close();
+        }
+        assertNull(BinaryIndex.open(_file));
+    }
+
+    @Test
+    public void truncated() throws Exception {
+        BinaryIndex.write(_file, CD_LINE, LINES);
+        RandomAccessFile raf = new RandomAccessFile(_file, "rw");
+        try {
+            raf.setLength(raf.length() / 2);
+        } finally {
+            raf.close();
+        }
+        try {
+            BinaryIndex.open(_file);
+            fail("Expected IOException");
+        } catch (IOException ex) {
+        }
+    }
+
+}
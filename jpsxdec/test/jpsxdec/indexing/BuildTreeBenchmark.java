@@ -0,0 +1,87 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.indexing;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+import jpsxdec.Benchmark;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.discitems.DiscItem;
+
+/** Measures how fast {@link DiscItemTree#build} builds the item hierarchy
+ * of a synthetic 100,000 item index: files, holding videos with audio,
+ * and lots of small TIMs.
+ * <p>
+ * {@link DiscItemTreeTest} checks the hierarchy is the same as comparing
+ * every item to every other item. */
+public class BuildTreeBenchmark {
+
+    private static final int ITEMS = 100000;
+
+    public static void main(String[] args) throws Exception {
+        File cdFile = File.createTempFile("buildtree", ".bin");
+        cdFile.deleteOnExit();
+        RandomAccessFile raf = new RandomAccessFile(cdFile, "rw");
+        raf.setLength(2048L * ITEMS * 10);
+        raf.close();
+        final CdFileSectorReader cd = new CdFileSectorReader(cdFile, 2048);
+        try {
+            new Benchmark("items", 2, 5)
+                .add(new Benchmark.Case("DiscItemTree.build") {
+                    private List<DiscItem> _items;
+
+                    @Override
+                    protected void setUp() {
+                        // building the tree fills in the items, so start fresh
+                        _items = DiscItemTreeTest.makeItems(cd, ITEMS);
+                    }
+
+                    @Override
+                    protected long run() {
+                        DiscItemTree.build(_items);
+                        return _items.size();
+                    }
+                })
+                .run();
+        } finally {
+            cd.close();
+        }
+    }
+
+}
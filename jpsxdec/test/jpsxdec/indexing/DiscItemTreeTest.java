@@ -0,0 +1,213 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.indexing;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import javax.annotation.Nonnull;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.discitems.DiscItem;
+import jpsxdec.discitems.DiscItemSaverBuilder;
+import jpsxdec.discitems.IndexId;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.i18n.UnlocalizedMessage;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+public class DiscItemTreeTest {
+
+    private static final int ITEMS = 5000;
+
+    private File _cdFile;
+    private CdFileSectorReader _cd;
+
+    @Before
+    public void setUp() throws Exception {
+        _cdFile = File.createTempFile("buildtree", ".bin");
+        RandomAccessFile raf = new RandomAccessFile(_cdFile, "rw");
+        raf.setLength(2048L * ITEMS * 10);
+        raf.close();
+        _cd = new CdFileSectorReader(_cdFile, 2048);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _cd.close();
+        _cdFile.delete();
+    }
+
+    @Test
+    public void sameAsComparingEveryItem() {
+        List<DiscItem> items = makeItems(_cd, ITEMS);
+        List<DiscItem> expected = makeItems(_cd, ITEMS);
+        List<DiscItem> roots = DiscItemTree.build(items);
+        List<DiscItem> expectedRoots = compareEveryItem(expected);
+        assertEquals(expectedRoots.size(), roots.size());
+        for (int i = 0; i < items.size(); i++) {
+            Item item = (Item)items.get(i), expectedItem = (Item)expected.get(i);
+            assertEquals(expectedItem.getIndexId(), item.getIndexId());
+            assertEquals(String.valueOf(expectedItem._parent), String.valueOf(item._parent));
+        }
+    }
+
+    /** How the tree was built before: rate every item as the parent of
+     * every other item. */
+    private static @Nonnull List<DiscItem> compareEveryItem(List<DiscItem> allItems) {
+        ArrayList<DiscItem> rootItems = new ArrayList<DiscItem>();
+        for (DiscItem child : allItems) {
+            DiscItem bestParent = null;
+            int iBestParentRating = 0;
+            for (DiscItem parent : allItems) {
+                int iRating = parent.getParentRating(child);
+                if (iRating > iBestParentRating) {
+                    bestParent = parent;
+                    iBestParentRating = iRating;
+                }
+            }
+            if (bestParent == null)
+                rootItems.add(child);
+            else
+                bestParent.addChild(child);
+        }
+        IndexId id = new IndexId(0);
+        for (DiscItem item : rootItems) {
+            if (item.setIndexId(id))
+                id = id.createNext();
+        }
+        return rootItems;
+    }
+
+    /** Lays out files one after another. Each holds a few videos with
+     * overlapping audio, and TIMs (sometimes several in the same sectors).
+     * Some items spill past the end of their file. */
+    static @Nonnull List<DiscItem> makeItems(CdFileSectorReader cd, int iCount) {
+        Random rand = new Random(iCount);
+        List<DiscItem> items = new ArrayList<DiscItem>(iCount);
+        int iSector = 0;
+        while (items.size() < iCount) {
+            int iFileLength = 50 + rand.nextInt(2000);
+            items.add(new Item(cd, Item.FILE, iSector, iSector + iFileLength - 1));
+            int iInFile = iSector;
+            while (iInFile < iSector + iFileLength && items.size() < iCount) {
+                if (rand.nextInt(200) == 0) {
+                    int iVideoLength = 20 + rand.nextInt(500);
+                    items.add(new Item(cd, Item.VIDEO, iInFile, iInFile + iVideoLength - 1));
+                    items.add(new Item(cd, Item.AUDIO, iInFile + rand.nextInt(10), iInFile + iVideoLength + rand.nextInt(10)));
+                    iInFile += iVideoLength;
+                } else {
+                    int iTimLength = 1 + rand.nextInt(20);
+                    items.add(new Item(cd, Item.TIM, iInFile, iInFile + iTimLength - 1));
+                    iInFile += rand.nextInt(iTimLength + 1);
+                }
+            }
+            iSector += iFileLength;
+        }
+        Collections.sort(items);
+        return items;
+    }
+
+    /** Rates parents like the real files, videos, audio, and TIMs. */
+    static class Item extends DiscItem {
+        public static final int FILE = 1, VIDEO = 2, AUDIO = 3, TIM = 4;
+
+        private final int _iType;
+        private final ArrayList<Item> _children = new ArrayList<Item>();
+        private Item _parent;
+
+        public Item(CdFileSectorReader cd, int iType, int iStartSector, int iEndSector) {
+            super(cd, iStartSector, iEndSector);
+            _iType = iType;
+        }
+
+        @Override
+        public int getParentRating(DiscItem child) {
+            int iChildType = ((Item)child)._iType;
+            if (_iType == FILE && iChildType != FILE)
+                return getOverlap(child)*100 / child.getSectorLength();
+            if (_iType == VIDEO && iChildType == AUDIO) {
+                int iOverlapPercent = child.getOverlap(this)*100 / child.getSectorLength();
+                if (iOverlapPercent > 0)
+                    iOverlapPercent += 100;
+                return iOverlapPercent;
+            }
+            return 0;
+        }
+
+        @Override
+        public boolean addChild(DiscItem child) {
+            if (getParentRating(child) == 0)
+                return false;
+            _children.add((Item)child);
+            ((Item)child)._parent = this;
+            return true;
+        }
+
+        @Override
+        public boolean setIndexId(IndexId id) {
+            super.setIndexId(id);
+            IndexId childId = id.createChild();
+            for (Item child : _children) {
+                if (child.setIndexId(childId))
+                    childId = childId.createNext();
+            }
+            return true;
+        }
+
+        @Override
+        public int compareTo(DiscItem other) {
+            if (getStartSector() != other.getStartSector())
+                return getStartSector() < other.getStartSector() ? -1 : 1;
+            return _iType - ((Item)other)._iType;
+        }
+
+        public String getSerializationTypeId() { return "Test"; }
+        public GeneralType getType() { return GeneralType.Image; }
+        public ILocalizedMessage getInterestingDescription() { return new UnlocalizedMessage("test"); }
+        public DiscItemSaverBuilder makeSaverBuilder() { throw new UnsupportedOperationException(); }
+
+        @Override
+        public String toString() {
+            return _iType + " " + getStartSector() + "-" + getEndSector() + " " + getIndexId();
+        }
+    }
+}
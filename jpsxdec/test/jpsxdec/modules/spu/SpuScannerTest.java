@@ -0,0 +1,272 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.modules.spu;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import javax.annotation.Nonnull;
+import jpsxdec.cdreaders.CdSector;
+import jpsxdec.cdreaders.CdSector2048;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/** {@link SpuScanner} must find the same sound clips, in the same order,
+ * as the search {@link DiscIndexerSpu} used before it. */
+public class SpuScannerTest {
+
+    private static final int SECTOR_SIZE = CdSector2048.SECTOR_SIZE_2048_ISO;
+
+    @Test
+    public void randomRuns() {
+        List<List<CdSector>> runs = makeRuns(new Random(22), 5000);
+        List<String> expected = searchTheOldWay(runs);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, searchWithScanner(runs));
+    }
+
+    @Test
+    public void clipsAcrossSectorsAndRuns() {
+        byte[] abRun1 = new byte[3 * SECTOR_SIZE];
+        // across the 1st sector boundary
+        writeClip(abRun1, SECTOR_SIZE - 4 * 16 - 4, 20);
+        // too short
+        writeClip(abRun1, SECTOR_SIZE + 100 * 16, 15);
+        // cut off by the end of the run
+        writeClip(abRun1, abRun1.length - 8 * 16, 20);
+        byte[] abRun2 = new byte[2 * SECTOR_SIZE];
+        // ends at the end of the run
+        writeClip(abRun2, abRun2.length - 16 * 16, 16);
+
+        List<List<CdSector>> runs = Arrays.asList(toRun(abRun1, 0), toRun(abRun2, 3));
+        List<String> expected = searchTheOldWay(runs);
+        assertEquals(Arrays.asList(
+                describe(0, SECTOR_SIZE - 4 * 16 - 4, 1, 16 * 16 - 4 - 1, 20),
+                describe(4, SECTOR_SIZE - 16 * 16, 4, SECTOR_SIZE - 1, 16)),
+                expected);
+        assertEquals(expected, searchWithScanner(runs));
+    }
+
+    /** Writes as many sound units as fit, with samples that aren't all 0.
+     * The last unit is flagged as the end. */
+    private static void writeClip(@Nonnull byte[] ab, int iPos, int iUnits) {
+        for (int iUnit = 0; iUnit < iUnits && iPos + 16 <= ab.length; iUnit++, iPos += 16) {
+            ab[iPos] = (byte)0x12;
+            ab[iPos + 1] = (byte)(iUnit == iUnits - 1 ? 1 : 0);
+            ab[iPos + 2] = (byte)(iUnit + 1);
+        }
+    }
+
+    /** Splits the data into a run of sectors.
+     * @param iFirstSector Number of the first sector, so runs can follow one another. */
+    private static @Nonnull List<CdSector> toRun(@Nonnull byte[] abRun, int iFirstSector) {
+        List<CdSector> run = new ArrayList<CdSector>();
+        for (int i = 0; i < abRun.length / SECTOR_SIZE; i++) {
+            run.add(new CdSector2048(iFirstSector + i, abRun, i * SECTOR_SIZE, 0));
+        }
+        return run;
+    }
+
+    // .........................................................................
+
+    /** Runs of sectors holding noise, silence, and sound clips: some
+     * silent, some too short, some broken. */
+    static @Nonnull List<List<CdSector>> makeRuns(@Nonnull Random rand, int iSectors) {
+        byte[] abDisc = new byte[iSectors * SECTOR_SIZE];
+        rand.nextBytes(abDisc);
+        // some silence
+        for (int i = 0; i < iSectors / 100; i++) {
+            int iPos = rand.nextInt(abDisc.length - 20000);
+            Arrays.fill(abDisc, iPos, iPos + rand.nextInt(20000), (byte)0);
+        }
+        // sound clips, some silent, some too short, some broken
+        for (int i = 0; i < iSectors / 10; i++) {
+            int iPos = rand.nextInt(abDisc.length - 20000) & ~3;
+            int iUnits = 1 + rand.nextInt(rand.nextBoolean() ? 20 : 1000);
+            boolean blnSilent = rand.nextInt(10) == 0;
+            boolean blnBroken = rand.nextInt(10) == 0;
+            for (int iUnit = 0; iUnit < iUnits; iUnit++, iPos += 16) {
+                abDisc[iPos] = (byte)((rand.nextInt(5) << 4) | rand.nextInt(13));
+                abDisc[iPos + 1] = (byte)(iUnit == iUnits - 1 ? 1 + rand.nextInt(2) * 2 : rand.nextInt(3) * 2);
+                if (blnBroken && iUnit == iUnits / 2)
+                    abDisc[iPos + 1] = (byte)0x80;
+                for (int j = 2; j < 16; j++)
+                    abDisc[iPos + j] = blnSilent ? 0 : (byte)rand.nextInt();
+            }
+        }
+
+        List<List<CdSector>> runs = new ArrayList<List<CdSector>>();
+        List<CdSector> run = new ArrayList<CdSector>();
+        for (int i = 0; i < iSectors; i++) {
+            run.add(new CdSector2048(i, abDisc, i * SECTOR_SIZE, 0));
+            if (rand.nextInt(1000) == 0) {
+                runs.add(run);
+                run = new ArrayList<CdSector>();
+            }
+        }
+        runs.add(run);
+        return runs;
+    }
+
+    private static @Nonnull String describe(int iStartSector, int iStartOffset,
+                                            int iEndSector, int iEndOffset,
+                                            int iSoundUnitCount)
+    {
+        return String.format("%d@%d-%d@%d %d units",
+                iStartSector, iStartOffset, iEndSector, iEndOffset, iSoundUnitCount);
+    }
+
+    // .........................................................................
+
+    static @Nonnull List<String> searchWithScanner(@Nonnull List<List<CdSector>> sectorRuns) {
+        final List<String> found = new ArrayList<String>();
+        SpuScanner scanner = new SpuScanner(new SpuScanner.Listener() {
+            public void soundUnitsFound(int iStartSector, int iStartOffset,
+                                        int iEndSector, int iEndOffset,
+                                        int iSoundUnitCount)
+            {
+                found.add(describe(iStartSector, iStartOffset, iEndSector, iEndOffset, iSoundUnitCount));
+            }
+        });
+        for (List<CdSector> run : sectorRuns) {
+            for (CdSector sector : run) {
+                scanner.addSector(sector);
+            }
+            scanner.endOfRun();
+        }
+        return found;
+    }
+
+    // .........................................................................
+
+    /** The search {@link DiscIndexerSpu} used before {@link SpuScanner}. */
+    static @Nonnull List<String> searchTheOldWay(@Nonnull List<List<CdSector>> sectorRuns) {
+        List<String> found = new ArrayList<String>();
+        SpuRun[] spuRuns = new SpuRun[4];
+        for (int i = 0; i < spuRuns.length; i++) {
+            spuRuns[i] = new SpuRun(found);
+        }
+        int iRunStart = 0;
+        for (List<CdSector> run : sectorRuns) {
+            for (CdSector cdSector : run) {
+                int iUserDataSize = cdSector.getCdUserDataSize();
+                int iSector = cdSector.getSectorIndexFromStart();
+                for (int iOfs = 0; iOfs < iUserDataSize; iOfs+=4) {
+                    int iQuad = cdSector.readSInt32BE(iOfs);
+                    int iRun = iRunStart;
+                    int iQuadIndex = 0;
+                    for (int i = 0; i < 4; i++) {
+                        spuRuns[iRun].addQuad(iQuadIndex, iQuad, iSector, iOfs);
+                        iRun = (iRun + 1) % spuRuns.length;
+                        iQuadIndex--;
+                        if (iQuadIndex < 0)
+                            iQuadIndex = spuRuns.length - 1;
+                    }
+                    iRunStart = (iRunStart + 1) % spuRuns.length;
+                }
+            }
+            for (SpuRun spuRun : spuRuns) {
+                spuRun._blnInRun = false;
+            }
+        }
+        return found;
+    }
+
+    private static class SpuRun {
+        private final List<String> _found;
+        private boolean _blnInRun = false;
+        private int _iStartSector;
+        private int _iStartOffset;
+        private int _iEndSector;
+        private int _iEndOffset;
+        private int _iSoundUnitCount;
+        private boolean _blnLastSoundUnit;
+        private boolean _blnOnlyZeroes;
+
+        public SpuRun(List<String> found) {
+            _found = found;
+        }
+
+        public void addQuad(int iQuadIndex, int iQuad, int iSector, int iOffset) {
+            if (iQuadIndex == 0) {
+                int iFilterRange = (iQuad >> 24) & 0xff;
+                int iFlagBits = (iQuad >> 16) & 0xff;
+
+                int iFilter = (iFilterRange >> 4) & 0xf;
+                int iRange = iFilterRange & 0xf;
+                boolean blnIsSpuHeader = iFilter <=4 && iRange <= 12 && iFlagBits <= 7;
+                boolean blnIsEnd = false;
+                if (blnIsSpuHeader) {
+                    blnIsEnd = (iFlagBits & 1) != 0;
+                }
+
+                if (_blnInRun) {
+                    if (!blnIsSpuHeader) {
+                        _blnInRun = false;
+                    } else if (blnIsEnd) {
+                        _blnLastSoundUnit = true;
+                    }
+                } else if (blnIsSpuHeader && iFilterRange != 0 && !blnIsEnd) {
+                    _iStartSector = iSector;
+                    _iStartOffset = iOffset;
+                    _iSoundUnitCount = 0;
+                    _blnInRun = true;
+                    _blnLastSoundUnit = false;
+                    _blnOnlyZeroes = (iQuad & 0xffff) == 0;
+                }
+            } else if (_blnInRun) {
+                _blnOnlyZeroes = _blnOnlyZeroes && iQuad == 0;
+                if (iQuadIndex == 3) {
+                    _iEndSector = iSector;
+                    _iEndOffset = iOffset + 3;
+                    _iSoundUnitCount++;
+                    if (_blnLastSoundUnit) {
+                        if (_iSoundUnitCount >= 16 && !_blnOnlyZeroes) {
+                            _found.add(describe(_iStartSector, _iStartOffset,
+                                                _iEndSector, _iEndOffset,
+                                                _iSoundUnitCount));
+                        }
+                        _blnInRun = false;
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.modules.tim;
+
+import java.util.List;
+import java.util.Random;
+import jpsxdec.Benchmark;
+import jpsxdec.cdreaders.CdSector2048;
+
+/** Measures how many sectors per second {@link TimScanner} searches for
+ * Tims, compared to checking every offset of a
+ * {@link jpsxdec.util.DemuxPushInputStream} (how {@link DiscIndexerTim}
+ * used to search), on synthetic runs of sectors holding noise, Tims, and
+ * things that almost look like Tims.
+ * <p>
+ * {@link TimScannerTest} checks both find the same Tims. */
+public class TimScannerBenchmark {
+
+    private static final int SECTORS = 20000;
+
+    public static void main(String[] args) throws Exception {
+        final List<List<CdSector2048>> sectorRuns = TimScannerTest.makeRuns(new Random(21), SECTORS);
+        new Benchmark("sectors", 2, 5)
+            .add(new Search("stream") {
+                @Override
+                protected List<String> search() throws Exception {
+                    return TimScannerTest.searchWithStream(sectorRuns);
+                }
+            })
+            .add(new Search("scanner") {
+                @Override
+                protected List<String> search() {
+                    return TimScannerTest.searchWithScanner(sectorRuns);
+                }
+            })
+            .run();
+    }
+
+    private static abstract class Search extends Benchmark.Case {
+        private int _iFound;
+
+        public Search(String sName) {
+            super(sName);
+        }
+
+        abstract protected List<String> search() throws Exception;
+
+        @Override
+        protected long run() throws Exception {
+            _iFound = search().size();
+            return SECTORS;
+        }
+
+        @Override
+        protected String check() {
+            return _iFound + " Tims found";
+        }
+    }
+
+}
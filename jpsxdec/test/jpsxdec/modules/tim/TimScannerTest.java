@@ -0,0 +1,266 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.modules.tim;
+
+import java.io.EOFException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import javax.annotation.Nonnull;
+import jpsxdec.cdreaders.CdSector2048;
+import jpsxdec.modules.CdSectorDemuxPiece;
+import jpsxdec.tim.Tim;
+import jpsxdec.tim.TimInfo;
+import jpsxdec.util.DemuxPushInputStream;
+import jpsxdec.util.DemuxedData;
+import jpsxdec.util.IO;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/** {@link TimScanner} must find the same Tims, after the same sector, as
+ * checking every offset of a {@link DemuxPushInputStream} with
+ * {@link Tim#isTim(java.io.InputStream)} (how {@link DiscIndexerTim}
+ * used to search). */
+public class TimScannerTest {
+
+    private static final int SECTOR_SIZE = CdSector2048.SECTOR_SIZE_2048_ISO;
+
+    @Test
+    public void randomRuns() throws Exception {
+        List<List<CdSector2048>> runs = makeRuns(new Random(21), 2000);
+        List<String> expected = searchWithStream(runs);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, searchWithScanner(runs));
+    }
+
+    @Test
+    public void timsStraddlingSectors() throws Exception {
+        byte[] abRun = new byte[8 * SECTOR_SIZE];
+        // only the tag in the 1st sector
+        writeTim(abRun, SECTOR_SIZE - 4, 2, 0, 0, 8, 4, false);
+        // header split inside the CLUT header
+        writeTim(abRun, 2 * SECTOR_SIZE - 12, 8 | 0, 16, 1, 4, 4, false);
+        // image data across 3 sectors, ending exactly at the end of one
+        int iSize = writeTim(abRun, 3 * SECTOR_SIZE - 20, 2, 0, 0, 64, 32, false);
+        assertEquals(5 * SECTOR_SIZE, 3 * SECTOR_SIZE - 20 + iSize);
+        // the whole header except the tag in the next sector
+        writeTim(abRun, 6 * SECTOR_SIZE - 4, 8 | 1, 256, 2, 8, 8, false);
+
+        List<List<CdSector2048>> runs = Arrays.asList(toRun(abRun, 0));
+        List<String> expected = searchWithStream(runs);
+        assertEquals(4, expected.size());
+        assertEquals(expected, searchWithScanner(runs));
+    }
+
+    @Test
+    public void truncatedHeadersAtEndOfRun() throws Exception {
+        List<List<CdSector2048>> runs = new ArrayList<List<CdSector2048>>();
+        int iSector = 0;
+        // cut anywhere from after the tag to inside the image data
+        for (int iCut = 4; iCut <= 64; iCut += 4) {
+            for (int iFlags : new int[] {2, 8 | 0}) {
+                byte[] abRun = new byte[2 * SECTOR_SIZE];
+                writeTim(abRun, 0, 2, 0, 0, 8, 4, false);
+                writeTim(abRun, abRun.length - iCut, iFlags, 16, 1, 8, 8, false);
+                runs.add(toRun(abRun, iSector));
+                iSector += 2;
+            }
+        }
+        List<String> expected = searchWithStream(runs);
+        // only the Tim at the start of every run is complete
+        assertEquals(runs.size(), expected.size());
+        assertEquals(expected, searchWithScanner(runs));
+    }
+
+    // .........................................................................
+
+    /** Runs of sectors holding noise and Tim headers: valid, too big for
+     * the run, and broken. */
+    static @Nonnull List<List<CdSector2048>> makeRuns(@Nonnull Random rand, int iSectors) {
+        List<List<CdSector2048>> runs = new ArrayList<List<CdSector2048>>();
+        byte[] abDisc = new byte[iSectors * SECTOR_SIZE];
+        rand.nextBytes(abDisc);
+        for (int i = 0; i < iSectors / 4; i++) {
+            int iPos = rand.nextInt(abDisc.length - 64) & ~3;
+            writeTim(abDisc, iPos, rand);
+        }
+        List<CdSector2048> run = new ArrayList<CdSector2048>();
+        for (int i = 0; i < iSectors; i++) {
+            run.add(new CdSector2048(i, abDisc, i * SECTOR_SIZE, 0));
+            if (rand.nextInt(500) == 0) {
+                runs.add(run);
+                run = new ArrayList<CdSector2048>();
+            }
+        }
+        runs.add(run);
+        return runs;
+    }
+
+    private static void writeTim(@Nonnull byte[] abDisc, int iPos, @Nonnull Random rand) {
+        int iFlags = rand.nextInt(4) | (rand.nextBoolean() ? 8 : 0);
+        int iClutW = 16 << rand.nextInt(5), iClutH = 1 + rand.nextInt(4);
+        int iW = 1 + rand.nextInt(rand.nextInt(10) == 0 ? 2000 : 64), iH = 1 + rand.nextInt(64);
+        writeTim(abDisc, iPos, iFlags, iClutW, iClutH, iW, iH, rand.nextInt(8) == 0);
+    }
+
+    /** Writes as much of a Tim as fits.
+     * @param iW Width in 16-bit units.
+     * @param blnBroken Writes a bad CLUT size and a height of 0.
+     * @return Size of the whole Tim. */
+    private static int writeTim(@Nonnull byte[] abDisc, int iPos, int iFlags,
+                                int iClutW, int iClutH, int iW, int iH, boolean blnBroken)
+    {
+        byte[] abTim = new byte[8 + 12 + iClutW * iClutH * 2 + 12 + iW * iH * 2];
+        int i = 0;
+        abTim[i] = 0x10; i += 4;
+        abTim[i] = (byte)iFlags; i += 4;
+        if ((iFlags & 8) != 0) {
+            IO.writeInt32LE(abTim, i, iClutW * iClutH * 2 + 12 + (blnBroken ? 2 : 0));
+            IO.writeInt16LE(abTim, i + 8, (short)iClutW);
+            IO.writeInt16LE(abTim, i + 10, (short)iClutH);
+            i += 12 + iClutW * iClutH * 2;
+        }
+        IO.writeInt32LE(abTim, i, iW * iH * 2 + 12);
+        IO.writeInt16LE(abTim, i + 8, (short)iW);
+        IO.writeInt16LE(abTim, i + 10, (short)(blnBroken ? 0 : iH));
+        i += 12 + iW * iH * 2;
+        System.arraycopy(abTim, 0, abDisc, iPos, Math.min(i, abDisc.length - iPos));
+        return i;
+    }
+
+    /** Splits the data into a run of sectors.
+     * @param iFirstSector Number of the first sector, so runs can follow one another. */
+    private static @Nonnull List<CdSector2048> toRun(@Nonnull byte[] abRun, int iFirstSector) {
+        List<CdSector2048> run = new ArrayList<CdSector2048>();
+        for (int i = 0; i < abRun.length / SECTOR_SIZE; i++) {
+            run.add(new CdSector2048(iFirstSector + i, abRun, i * SECTOR_SIZE, 0));
+        }
+        return run;
+    }
+
+    private static @Nonnull String describe(int iPieceCount,
+                                            @Nonnull DemuxedData<CdSectorDemuxPiece> demux,
+                                            @Nonnull TimInfo tim)
+    {
+        return String.format("after %d: %d-%d@%d %dx%d %dbpp %d pal",
+                iPieceCount, demux.getStartSector(), demux.getEndSector(),
+                demux.getStartDataOffset(), tim.iPixelWidth, tim.iPixelHeight,
+                tim.iBitsPerPixel, tim.iPaletteCount);
+    }
+
+    // .........................................................................
+
+    static @Nonnull List<String> searchWithScanner(@Nonnull List<List<CdSector2048>> sectorRuns) {
+        final List<String> found = new ArrayList<String>();
+        final int[] aiPieceCount = {0};
+        TimScanner scanner = new TimScanner(new TimScanner.Listener() {
+            public void timFound(@Nonnull DemuxedData<CdSectorDemuxPiece> demux, @Nonnull TimInfo tim) {
+                found.add(describe(aiPieceCount[0], demux, tim));
+            }
+        });
+        for (List<CdSector2048> run : sectorRuns) {
+            for (CdSector2048 sector : run) {
+                aiPieceCount[0]++;
+                scanner.addPiece(new CdSectorDemuxPiece(sector));
+            }
+            scanner.endOfRun();
+        }
+        return found;
+    }
+
+    /** The search {@link DiscIndexerTim} used before {@link TimScanner}. */
+    static @Nonnull List<String> searchWithStream(@Nonnull List<List<CdSector2048>> sectorRuns)
+            throws Exception
+    {
+        List<String> found = new ArrayList<String>();
+        int iPieceCount = 0;
+        for (List<CdSector2048> run : sectorRuns) {
+            DemuxPushInputStream<CdSectorDemuxPiece> stream = null;
+            for (CdSector2048 sector : run) {
+                iPieceCount++;
+                CdSectorDemuxPiece piece = new CdSectorDemuxPiece(sector);
+                if (stream == null)
+                    stream = new DemuxPushInputStream<CdSectorDemuxPiece>(piece);
+                else
+                    stream.addPiece(piece);
+
+                while (stream.available() > Tim.MINIMUM_TIM_SIZE) {
+                    stream.mark(Integer.MAX_VALUE);
+                    try {
+                        TimInfo ti = Tim.isTim(stream);
+                        if (ti != null)
+                            found.add(describe(iPieceCount, stream.getMarkToReadDemux(), ti));
+                    } catch (DemuxPushInputStream.NeedsMoreData ex) {
+                        stream.reset();
+                        break;
+                    }
+                    stream.reset();
+                    stream.mark(4);
+                    try {
+                        IO.skip(stream, 4);
+                    } catch (DemuxPushInputStream.NeedsMoreData ex) {
+                        stream.reset();
+                        break;
+                    }
+                }
+            }
+            if (stream == null)
+                continue;
+
+            stream.close();
+            while (stream.available() > 2) {
+                stream.mark(Integer.MAX_VALUE);
+                try {
+                    TimInfo ti = Tim.isTim(stream);
+                    if (ti != null)
+                        found.add(describe(iPieceCount, stream.getMarkToReadDemux(), ti));
+                } catch (EOFException ex) {
+                }
+                stream.reset();
+                try {
+                    IO.skip(stream, 4);
+                } catch (EOFException ex) {
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+}
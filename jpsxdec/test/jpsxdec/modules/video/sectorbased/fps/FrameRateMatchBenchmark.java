@@ -0,0 +1,128 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.modules.video.sectorbased.fps;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Random;
+import jpsxdec.Benchmark;
+
+/** Measures how many short video clips per second {@link StrFrameRateCalc}
+ * can find the frame rate of, like when indexing a disc full of short
+ * STR clips.
+ * <p>
+ * The clips are cut from random places in the sample sequences (the .dat
+ * resources), so every clip matches at least 1 inconsistent sequence. */
+public class FrameRateMatchBenchmark {
+
+    private static final String[] SEQUENCES = {
+        "20FPS_A8.dat",
+        "NTSC20_A8-SB.dat",
+        "NTSC15_A8-100,999.dat",
+        "LUNAR2_24FPS_A16(S43).dat",
+        "DREDD15FPS.dat",
+    };
+    private static final int CLIPS = 500;
+    private static final int MAX_CLIP_FRAMES = 150;
+
+    public static void main(String[] args) throws Exception {
+        final int[][][] aaaiClips = makeClips();
+        new Benchmark("clips", 2, 4)
+            .add(new Benchmark.Case("StrFrameRateCalc") {
+                private int _iMatched;
+
+                @Override
+                protected long run() {
+                    _iMatched = 0;
+                    for (int[][] aaiClip : aaaiClips) {
+                        StrFrameRateCalc calc = new StrFrameRateCalc(aaiClip[0][0], aaiClip[0][1]);
+                        for (int i = 1; i < aaiClip.length; i++) {
+                            calc.addFrame(aaiClip[i][0], aaiClip[i][1]);
+                        }
+                        if (calc.getSectorsPerFrame() != null)
+                            _iMatched++;
+                    }
+                    return aaaiClips.length;
+                }
+
+                @Override
+                protected String check() {
+                    return _iMatched + " of " + aaaiClips.length + " matched";
+                }
+            })
+            .run();
+    }
+
+    /** @return [clip][frame][start sector, end sector] */
+    private static int[][][] makeClips() throws IOException {
+        Random rand = new Random(1);
+        int[][][] aaaiClips = new int[CLIPS][][];
+        for (int iClip = 0; iClip < CLIPS; iClip++) {
+            ArrayList<int[]> frames = readFrames(SEQUENCES[iClip % SEQUENCES.length]);
+            int iFrameCount = Math.min(2 + rand.nextInt(MAX_CLIP_FRAMES), frames.size());
+            int iFirst = rand.nextInt(frames.size() - iFrameCount + 1);
+            int iSectorOfs = frames.get(iFirst)[0];
+            aaaiClips[iClip] = new int[iFrameCount][];
+            for (int i = 0; i < iFrameCount; i++) {
+                int[] aiFrame = frames.get(iFirst + i);
+                aaaiClips[iClip][i] = new int[] {aiFrame[0] - iSectorOfs, aiFrame[1] - iSectorOfs};
+            }
+        }
+        return aaaiClips;
+    }
+
+    private static ArrayList<int[]> readFrames(String sResource) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                FrameRateMatchBenchmark.class.getResourceAsStream(sResource)));
+        try {
+            reader.readLine(); // skip header
+            ArrayList<int[]> frames = new ArrayList<int[]>();
+            String sLine;
+            while ((sLine = reader.readLine()) != null) {
+                InconsistentFrameSequence.LineParse lp = new InconsistentFrameSequence.LineParse(sLine);
+                frames.add(new int[] {lp.iFrameStartSector, lp.iFrameEndSector});
+            }
+            return frames;
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.modules.xa;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import javax.annotation.Nonnull;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import jpsxdec.adpcm.XaAdpcmEncoder;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.cdreaders.CdSector;
+import jpsxdec.cdreaders.SectorErrorCorrection;
+import jpsxdec.discitems.DiscItem;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.i18n.log.ProgressLogger;
+import jpsxdec.indexing.DiscIndex;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+public class DiscItemXaAudioStreamTest {
+
+    /** Channels interleaved on the test disc, so each has a stride of 8. */
+    private static final int CHANNELS = 8;
+    private static final int SECTORS_PER_CHANNEL = 4;
+    private static final int REPLACED_CHANNEL = 1;
+    /** 37800 Hz stereo 4 bits/sample. */
+    private static final int SAMPLE_FRAMES_PER_SECTOR = 2016;
+    private static final AudioFormat FORMAT = new AudioFormat(37800, 16, 2, true, false);
+
+    private File _discFile, _wavFile;
+
+    private static final ProgressLogger LOG = new ProgressLogger("test", new PrintStream(new ByteArrayOutputStream())) {
+        protected void handleProgressStart() {}
+        protected void handleProgressUpdate(double dblPercentComplete) {}
+        protected void handleProgressEnd() {}
+        public boolean isSeekingEvent() { return false; }
+        public void event(@Nonnull ILocalizedMessage msg) {}
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        _discFile = File.createTempFile("xareplace", ".bin");
+        _wavFile = File.createTempFile("xareplace", ".wav");
+    }
+
+    @After
+    public void tearDown() {
+        _discFile.delete();
+        _wavFile.delete();
+    }
+
+    /** -replacexa with an audio file patches the stream's sectors with
+     * exactly what the encoder produces for the file, and leaves the
+     * other channels alone. */
+    @Test
+    public void replaceWithAudioFile() throws Exception {
+        byte[][] aabOriginal = writeDisc();
+        writeWav(_wavFile, 2);
+        byte[] abExpected = encode(makePcm(SECTORS_PER_CHANNEL * SAMPLE_FRAMES_PER_SECTOR, 2),
+                                   SECTORS_PER_CHANNEL);
+
+        replace(1);
+
+        byte[][] aabPatched = readAudioSectors();
+        for (int iSector = 0; iSector < aabPatched.length; iSector++) {
+            byte[] abSector = aabPatched[iSector];
+            if (iSector % CHANNELS == REPLACED_CHANNEL) {
+                int iOffset = (iSector / CHANNELS) * XA_AUDIO_SIZE;
+                assertArrayEquals(Arrays.copyOfRange(abExpected, iOffset, iOffset + XA_AUDIO_SIZE), abSector);
+            } else {
+                assertArrayEquals(aabOriginal[iSector], abSector);
+            }
+        }
+    }
+
+    /** Encoding the channels on separate threads patches the same bytes. */
+    @Test
+    public void replaceWithThreads() throws Exception {
+        writeDisc();
+        writeWav(_wavFile, 3);
+
+        replace(1);
+        byte[][] aabOneThread = readAudioSectors();
+        replace(2);
+        byte[][] aabTwoThreads = readAudioSectors();
+
+        for (int i = 0; i < aabOneThread.length; i++)
+            assertArrayEquals(aabOneThread[i], aabTwoThreads[i]);
+    }
+
+    // -------------------------------------------------------------------------
+
+    /** Encoded XA audio in each sector, not including the last 20 bytes. */
+    private static final int XA_AUDIO_SIZE = 2304;
+
+    private void replace(int iThreads) throws Exception {
+        CdFileSectorReader cd = new CdFileSectorReader(_discFile, true);
+        try {
+            DiscIndex index = new DiscIndex(cd, LOG);
+            DiscItemXaAudioStream xa = null;
+            for (DiscItem item : index) {
+                if (item instanceof DiscItemXaAudioStream &&
+                    ((DiscItemXaAudioStream)item).getChannel() == REPLACED_CHANNEL)
+                    xa = (DiscItemXaAudioStream)item;
+            }
+            assertNotNull(xa);
+            cd.beginPatching();
+            xa.replaceXa(LOG, _wavFile, iThreads);
+            cd.applyPatches(LOG);
+        } finally {
+            cd.close();
+        }
+    }
+
+    /** Writes the disc with every channel's audio, and returns the encoded
+     * audio of each sector. */
+    private byte[][] writeDisc() throws Exception {
+        byte[][] aabChannelAudio = new byte[CHANNELS][];
+        for (int iChannel = 0; iChannel < CHANNELS; iChannel++) {
+            short[] asiPcm = makePcm(SECTORS_PER_CHANNEL * SAMPLE_FRAMES_PER_SECTOR, 100 + iChannel);
+            aabChannelAudio[iChannel] = encode(asiPcm, SECTORS_PER_CHANNEL);
+        }
+
+        byte[][] aabAudio = new byte[CHANNELS * SECTORS_PER_CHANNEL][];
+        FileOutputStream fos = new FileOutputStream(_discFile);
+        try {
+            for (int iSector = 0; iSector < aabAudio.length; iSector++) {
+                int iChannel = iSector % CHANNELS;
+                int iOffset = (iSector / CHANNELS) * XA_AUDIO_SIZE;
+                aabAudio[iSector] = Arrays.copyOfRange(aabChannelAudio[iChannel],
+                                                       iOffset, iOffset + XA_AUDIO_SIZE);
+                fos.write(makeXaSector(iSector, iChannel, aabAudio[iSector]));
+            }
+        } finally {
+            fos.close();
+        }
+        return aabAudio;
+    }
+
+    private byte[][] readAudioSectors() throws Exception {
+        CdFileSectorReader cd = new CdFileSectorReader(_discFile);
+        try {
+            byte[][] aabAudio = new byte[cd.getSectorCount()][];
+            for (int i = 0; i < aabAudio.length; i++) {
+                CdSector sector = cd.getSector(i);
+                aabAudio[i] = new byte[XA_AUDIO_SIZE];
+                sector.getCdUserDataCopy(0, aabAudio[i], 0, XA_AUDIO_SIZE);
+            }
+            return aabAudio;
+        } finally {
+            cd.close();
+        }
+    }
+
+    private static @Nonnull byte[] makeXaSector(int iSector, int iChannel, @Nonnull byte[] abAudio) {
+        byte[] abSector = new byte[CdSector.SECTOR_SIZE_2352_BIN];
+        for (int i = 1; i <= 10; i++)
+            abSector[i] = (byte)0xff;
+        int iAddress = iSector + 150;
+        abSector[12] = toBcd(iAddress / (75 * 60));
+        abSector[13] = toBcd((iAddress / 75) % 60);
+        abSector[14] = toBcd(iAddress % 75);
+        abSector[15] = 2; // mode 2
+        for (int i = 16; i < 24; i += 4) {
+            abSector[i  ] = 1; // file
+            abSector[i+1] = (byte)iChannel;
+            abSector[i+2] = 0x64; // real-time | form 2 | audio
+            abSector[i+3] = 0x01; // 37800 Hz stereo 4 bits/sample
+        }
+        System.arraycopy(abAudio, 0, abSector, 24, abAudio.length);
+        SectorErrorCorrection.rebuildErrorCorrection(abSector, 2);
+        return abSector;
+    }
+
+    private static byte toBcd(int i) {
+        return (byte)(((i / 10) << 4) | (i % 10));
+    }
+
+    /** Stereo tones with a little noise. */
+    private static @Nonnull short[] makePcm(int iSampleFrames, int iSeed) {
+        short[] asiPcm = new short[iSampleFrames * 2];
+        int iNoise = iSeed;
+        for (int i = 0; i < iSampleFrames; i++) {
+            iNoise = iNoise * 1103515245 + 12345;
+            asiPcm[i*2  ] = (short)(8000 * Math.sin(i / (10.0 + iSeed % 7)) + ((iNoise >> 16) % 1000));
+            asiPcm[i*2+1] = (short)(6000 * Math.cos(i / (17.0 + iSeed % 5)) - ((iNoise >> 20) % 800));
+        }
+        return asiPcm;
+    }
+
+    private static @Nonnull AudioInputStream toStream(@Nonnull short[] asiPcm) {
+        byte[] abPcm = new byte[asiPcm.length * 2];
+        for (int i = 0; i < asiPcm.length; i++) {
+            abPcm[i*2  ] = (byte)asiPcm[i];
+            abPcm[i*2+1] = (byte)(asiPcm[i] >> 8);
+        }
+        return new AudioInputStream(new ByteArrayInputStream(abPcm), FORMAT, asiPcm.length / 2);
+    }
+
+    private static @Nonnull byte[] encode(@Nonnull short[] asiPcm, int iSectors) throws Exception {
+        XaAdpcmEncoder encoder = new XaAdpcmEncoder(toStream(asiPcm), 4);
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            for (int i = 0; i < iSectors; i++)
+                encoder.encode1Sector(baos);
+            return baos.toByteArray();
+        } finally {
+            encoder.close();
+        }
+    }
+
+    private static void writeWav(@Nonnull File file, int iSeed) throws IOException {
+        short[] asiPcm = makePcm(SECTORS_PER_CHANNEL * SAMPLE_FRAMES_PER_SECTOR, iSeed);
+        AudioSystem.write(toStream(asiPcm), AudioFileFormat.Type.WAVE, file);
+    }
+
+}
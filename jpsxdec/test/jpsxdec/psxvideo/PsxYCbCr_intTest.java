@@ -37,6 +37,8 @@
 
 package jpsxdec.psxvideo;
 
+import java.util.Random;
+import jpsxdec.formats.RGB;
 import org.junit.*;
 import static org.junit.Assert.*;
 
@@ -82,4 +84,40 @@ public class PsxYCbCr_intTest {
 
     }
 
+    @Test
+    public void rowConversionMatchesToRgb() {
+        final int W = 15; // odd width
+        Random rand = new Random(12345);
+        int[] aiLuma = new int[W*2], aiCb = new int[(W+1)/2], aiCr = new int[aiCb.length];
+        int[] aiRed = new int[W], aiGreen = new int[W], aiBlue = new int[W];
+        int[] aiRow = new int[W*2];
+        PsxYCbCr_int psxycc = new PsxYCbCr_int();
+        RGB rgb1 = new RGB(), rgb2 = new RGB(), rgb3 = new RGB(), rgb4 = new RGB();
+
+        for (int iTest = 0; iTest < 2000; iTest++) {
+            // mostly normal range, but sometimes way out of range
+            int iRange = iTest % 10 == 0 ? 100000 : 400;
+            for (int i = 0; i < aiLuma.length; i++)
+                aiLuma[i] = rand.nextInt(iRange) - iRange/2;
+            for (int i = 0; i < aiCb.length; i++) {
+                aiCb[i] = rand.nextInt(iRange) - iRange/2;
+                aiCr[i] = rand.nextInt(iRange) - iRange/2;
+            }
+
+            PsxYCbCr_int.chromaRow(aiCb, aiCr, 0, aiRed, aiGreen, aiBlue, W);
+            PsxYCbCr_int.toRgbRow(aiLuma, 0, aiRed, aiGreen, aiBlue, aiRow, 0, W);
+            PsxYCbCr_int.toRgbRow(aiLuma, W, aiRed, aiGreen, aiBlue, aiRow, W, W);
+
+            for (int iX = 0; iX < W; iX++) {
+                psxycc.cb = aiCb[iX/2];
+                psxycc.cr = aiCr[iX/2];
+                psxycc.y1 = aiLuma[iX];
+                psxycc.y3 = aiLuma[W + iX];
+                psxycc.toRgb(rgb1, rgb2, rgb3, rgb4);
+                assertEquals(rgb1.toInt(), aiRow[iX]);
+                assertEquals(rgb3.toInt(), aiRow[W + iX]);
+            }
+        }
+    }
+
 }
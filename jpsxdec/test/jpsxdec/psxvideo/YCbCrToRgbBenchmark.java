@@ -0,0 +1,175 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.psxvideo;
+
+import java.util.Random;
+import jpsxdec.Benchmark;
+import jpsxdec.formats.RGB;
+
+/** Compares the speed of converting YCbCr planes to RGB one 2x2 block at a
+ * time through {@link PsxYCbCr_int#toRgb(RGB, RGB, RGB, RGB)} and
+ * {@link PsxYCbCr#toRgb(double, double, double, RGB)} against the row
+ * conversions {@link PsxYCbCr_int#toRgbRow} and {@link PsxYCbCr#toRgbRow}.
+ * <p>
+ * The planes are random values in the normal range. The RGB of both ways
+ * is compared so any difference in the output is obvious. */
+public class YCbCrToRgbBenchmark {
+
+    private static final int W = 320, H = 240, CW = W/2, CH = H/2;
+
+    public static void main(String[] args) throws Exception {
+        Random rand = new Random(1);
+        int[] aiLuma = new int[W*H], aiCb = new int[CW*CH], aiCr = new int[CW*CH];
+        double[] adblLuma = new double[W*H], adblCb = new double[W*H], adblCr = new double[W*H];
+        for (int i = 0; i < aiLuma.length; i++) {
+            aiLuma[i] = rand.nextInt(300) - 150;
+            adblLuma[i] = aiLuma[i] + rand.nextDouble();
+            adblCb[i] = rand.nextDouble() * 300 - 150;
+            adblCr[i] = rand.nextDouble() * 300 - 150;
+        }
+        for (int i = 0; i < aiCb.length; i++) {
+            aiCb[i] = rand.nextInt(300) - 150;
+            aiCr[i] = rand.nextInt(300) - 150;
+        }
+
+        System.out.println(W + "x" + H + " frames");
+        new Benchmark("frames", 2, 5)
+            .add(new IntBlocks(aiLuma, aiCb, aiCr))
+            .add(new IntRows(aiLuma, aiCb, aiCr))
+            .add(new DoublePixels(adblLuma, adblCb, adblCr))
+            .add(new DoubleRows(adblLuma, adblCb, adblCr))
+            .run();
+    }
+
+    private static abstract class Conversion extends Benchmark.Case {
+        private final int[] _aiRgb = new int[W*H];
+
+        public Conversion(String sName) {
+            super(sName);
+        }
+
+        abstract void convert(int[] aiRgb);
+
+        @Override
+        protected long run() {
+            convert(_aiRgb);
+            return 1;
+        }
+
+        @Override
+        protected String check() {
+            return String.format("%016x", Benchmark.checksum(0, _aiRgb));
+        }
+    }
+
+    /** How {@code MdecDecoder_int} used to convert. */
+    private static class IntBlocks extends Conversion {
+        private final int[] _aiLuma, _aiCb, _aiCr;
+        public IntBlocks(int[] aiLuma, int[] aiCb, int[] aiCr) {
+            super("IntBlocks");
+            _aiLuma = aiLuma; _aiCb = aiCb; _aiCr = aiCr;
+        }
+        void convert(int[] aiRgb) {
+            PsxYCbCr_int psxycc = new PsxYCbCr_int();
+            RGB rgb1 = new RGB(), rgb2 = new RGB(), rgb3 = new RGB(), rgb4 = new RGB();
+            for (int iCY = 0; iCY < CH; iCY++) {
+                int iLumaOfs1 = iCY*2*W, iLumaOfs2 = iLumaOfs1 + W;
+                for (int iCX = 0, iChromaOfs = iCY*CW; iCX < CW; iCX++, iChromaOfs++) {
+                    psxycc.cb = _aiCb[iChromaOfs];
+                    psxycc.cr = _aiCr[iChromaOfs];
+                    psxycc.y1 = _aiLuma[iLumaOfs1];
+                    psxycc.y2 = _aiLuma[iLumaOfs1+1];
+                    psxycc.y3 = _aiLuma[iLumaOfs2];
+                    psxycc.y4 = _aiLuma[iLumaOfs2+1];
+                    psxycc.toRgb(rgb1, rgb2, rgb3, rgb4);
+                    aiRgb[iLumaOfs1++] = rgb1.toInt();
+                    aiRgb[iLumaOfs1++] = rgb2.toInt();
+                    aiRgb[iLumaOfs2++] = rgb3.toInt();
+                    aiRgb[iLumaOfs2++] = rgb4.toInt();
+                }
+            }
+        }
+    }
+
+    private static class IntRows extends Conversion {
+        private final int[] _aiLuma, _aiCb, _aiCr;
+        private final int[] _aiRed = new int[W], _aiGreen = new int[W], _aiBlue = new int[W];
+        public IntRows(int[] aiLuma, int[] aiCb, int[] aiCr) {
+            super("IntRows");
+            _aiLuma = aiLuma; _aiCb = aiCb; _aiCr = aiCr;
+        }
+        void convert(int[] aiRgb) {
+            for (int iY = 0; iY < H; iY++) {
+                if ((iY & 1) == 0)
+                    PsxYCbCr_int.chromaRow(_aiCb, _aiCr, (iY/2)*CW, _aiRed, _aiGreen, _aiBlue, W);
+                PsxYCbCr_int.toRgbRow(_aiLuma, iY*W, _aiRed, _aiGreen, _aiBlue, aiRgb, iY*W, W);
+            }
+        }
+    }
+
+    /** How {@code MdecDecoder_double} used to convert. */
+    private static class DoublePixels extends Conversion {
+        private final double[] _adblLuma, _adblCb, _adblCr;
+        public DoublePixels(double[] adblLuma, double[] adblCb, double[] adblCr) {
+            super("DoublePixels");
+            _adblLuma = adblLuma; _adblCb = adblCb; _adblCr = adblCr;
+        }
+        void convert(int[] aiRgb) {
+            RGB rgb = new RGB();
+            for (int i = 0; i < aiRgb.length; i++) {
+                PsxYCbCr.toRgb(_adblLuma[i], _adblCb[i], _adblCr[i], rgb);
+                aiRgb[i] = rgb.toInt();
+            }
+        }
+    }
+
+    private static class DoubleRows extends Conversion {
+        private final double[] _adblLuma, _adblCb, _adblCr;
+        public DoubleRows(double[] adblLuma, double[] adblCb, double[] adblCr) {
+            super("DoubleRows");
+            _adblLuma = adblLuma; _adblCb = adblCb; _adblCr = adblCr;
+        }
+        void convert(int[] aiRgb) {
+            for (int iY = 0; iY < H; iY++) {
+                PsxYCbCr.toRgbRow(_adblLuma, _adblCb, _adblCr, iY*W, aiRgb, iY*W, W);
+            }
+        }
+    }
+
+}
@@ -331,6 +331,24 @@ public class BitReader {
         }
     }
 
+    @Test
+    public void testPeekMatchesRead() throws MdecException.EndOfStream {
+        final Random rand = new Random(7);
+        byte[] abTest = new byte[10];
+        rand.nextBytes(abTest);
+
+        for (int iSkip = 0; iSkip < abTest.length * 8; iSkip++) {
+            for (int iCount = 1; iCount < 32; iCount++) {
+                ArrayBitReader abr = new ArrayBitReader(abTest, abTest.length, true, 0);
+                abr.skipBits(iSkip);
+                int iPeek = abr.peekUnsignedBits(iCount);
+                int iBitsRemaining = abr.getBitsRemaining();
+                assertEquals(iPeek, abr.readUnsignedBits(iCount));
+                assertEquals(Math.max(iBitsRemaining - iCount, 0), abr.getBitsRemaining());
+            }
+        }
+    }
+
     private static class PostCheckModSkip extends ArrayBitReader {
         public PostCheckModSkip(byte[] abData, int iDataSize, boolean blnLittleEndian, int iReadStart) {
             super(abData, iDataSize, blnLittleEndian, iReadStart);
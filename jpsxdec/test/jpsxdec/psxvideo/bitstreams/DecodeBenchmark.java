@@ -0,0 +1,188 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.psxvideo.bitstreams;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import jpsxdec.Benchmark;
+import jpsxdec.psxvideo.encode.MdecEncoder;
+import jpsxdec.psxvideo.encode.PsxYCbCrImage;
+import jpsxdec.psxvideo.mdec.Calc;
+import jpsxdec.psxvideo.mdec.MdecCode;
+import jpsxdec.psxvideo.mdec.MdecContext;
+import jpsxdec.psxvideo.mdec.MdecException;
+import jpsxdec.util.IO;
+
+/** Measures how many frames per second the bitstream uncompressor decodes.
+ * <p>
+ * Frames are encoded from a generated 320x240 image (smooth gradients
+ * with some noise) as STR v2 and v3 at several quantization scales. The v2 frames are also
+ * decoded the old way (17 bit peek, 3 level {@link ZeroRunLengthAcLookup#lookup(int)},
+ * then copying the {@link MdecCode} from the {@link ZeroRunLengthAc})
+ * to compare against, and to check both produce the same codes. */
+public class DecodeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int iWidth = 320, iHeight = 240;
+        BufferedImage bi = Benchmark.makeTestImage(iWidth, iHeight);
+        final int iMacroBlocks = Calc.macroblocks(iWidth, iHeight);
+
+        final List<byte[]> v2Frames = new ArrayList<byte[]>();
+        final List<byte[]> v3Frames = new ArrayList<byte[]>();
+        for (int iQscale : new int[] {2, 4, 8, 16}) {
+            MdecEncoder enc = new MdecEncoder(new PsxYCbCrImage(bi), iWidth, iHeight);
+            int[] aiQscales = {iQscale, iQscale, iQscale, iQscale, iQscale, iQscale};
+            v2Frames.add(new BitStreamUncompressor_STRv2.BitStreamCompressor_STRv2(iMacroBlocks)
+                                 .compress(enc.getStream(aiQscales, aiQscales)));
+            v3Frames.add(new BitStreamUncompressor_STRv3.BitStreamCompressor_STRv3(iMacroBlocks)
+                                 .compress(enc.getStream(aiQscales, aiQscales)));
+        }
+
+        for (byte[] abFrame : v2Frames) {
+            if (decode(abFrame, iMacroBlocks) != decodeOldWay(abFrame, iMacroBlocks))
+                throw new RuntimeException("Decoders disagree");
+        }
+
+        System.out.println(iWidth + "x" + iHeight + " frames");
+        new Benchmark("frames", 2, 5)
+            .add(new Decode("STRv2 old lookup", v2Frames, iMacroBlocks) {
+                protected long decodeFrame(byte[] abFrame) throws Exception {
+                    return decodeOldWay(abFrame, iMacroBlocks);
+                }
+            })
+            .add(new Decode("STRv2 packed lookup", v2Frames, iMacroBlocks))
+            .add(new Decode("STRv3 packed lookup", v3Frames, iMacroBlocks))
+            .run();
+    }
+
+    private static class Decode extends Benchmark.Case {
+        private final List<byte[]> _frames;
+        private final int _iMacroBlocks;
+        private long _lngCheck = 0;
+
+        public Decode(String sName, List<byte[]> frames, int iMacroBlocks) {
+            super(sName);
+            _frames = frames;
+            _iMacroBlocks = iMacroBlocks;
+        }
+
+        protected long decodeFrame(byte[] abFrame) throws Exception {
+            return decode(abFrame, _iMacroBlocks);
+        }
+
+        @Override
+        protected long run() throws Exception {
+            for (byte[] abFrame : _frames) {
+                _lngCheck += decodeFrame(abFrame);
+            }
+            return _frames.size();
+        }
+
+        @Override
+        protected String check() {
+            return String.valueOf(_lngCheck);
+        }
+    }
+
+    /** @return sum of the MDEC codes so the work can't be optimized away. */
+    private static long decode(byte[] abFrame, int iMacroBlocks) throws Exception {
+        BitStreamUncompressor bsu = BitStreamUncompressor.identifyUncompressor(abFrame);
+        MdecCode code = new MdecCode();
+        long lngSum = 0;
+        for (int iBlock = 0; iBlock < iMacroBlocks * 6; iBlock++) {
+            boolean blnEndOfBlock;
+            do {
+                blnEndOfBlock = bsu.readMdecCode(code);
+                lngSum += code.getTop6Bits() * 1024 + code.getBottom10Bits();
+            } while (!blnEndOfBlock);
+        }
+        return lngSum;
+    }
+
+    /** How {@link BitStreamUncompressor#readMdecCode(jpsxdec.psxvideo.mdec.MdecCode)}
+     * decoded STR v2 frames before the packed lookup. */
+    private static long decodeOldWay(byte[] abFrame, int iMacroBlocks)
+            throws MdecException.EndOfStream, MdecException.ReadCorruption
+    {
+        int iQscale = IO.readSInt16LE(abFrame, 4);
+        ArrayBitReader bitReader = BitStreamUncompressor_STRv2.makeStrBitReader(abFrame, abFrame.length);
+        ZeroRunLengthAcLookup table = ZeroRunLengthAcLookup_STR.AC_VARIABLE_LENGTH_CODES_MPEG1;
+        MdecContext context = new MdecContext();
+        MdecCode code = new MdecCode();
+        long lngSum = 0;
+        while (context.getTotalMacroBlocksRead() < iMacroBlocks) {
+            if (context.atStartOfBlock()) {
+                code.setTop6Bits(iQscale);
+                code.setBottom10Bits(bitReader.readSignedBits(10));
+                context.nextCode();
+            } else {
+                int i17bits = oldPeek(bitReader, BitStreamCode.LONGEST_BITSTREAM_CODE_17BITS);
+                ZeroRunLengthAc bitCode = table.lookup(i17bits);
+                bitReader.skipBits(bitCode.getBitLength());
+                if (bitCode.isIsEndOfBlock()) {
+                    code.setToEndOfData();
+                    context.nextCodeEndBlock();
+                } else {
+                    if (bitCode.isIsEscapeCode())
+                        code.set(bitReader.readUnsignedBits(16));
+                    else
+                        bitCode.getMdecCode(code);
+                    context.nextCode();
+                }
+            }
+            lngSum += code.getTop6Bits() * 1024 + code.getBottom10Bits();
+        }
+        return lngSum;
+    }
+
+    /** The old {@link ArrayBitReader#peekUnsignedBits(int)}: a full read, then restore. */
+    private static int oldPeek(ArrayBitReader bitReader, int iBits) throws MdecException.EndOfStream {
+        int iSaveOffs = bitReader._iByteOffset;
+        int iSaveBitsLeft = bitReader._iBitsLeft;
+        short siSaveCurrentWord = bitReader._siCurrentWord;
+        try {
+            return bitReader.readUnsignedBits(iBits);
+        } finally {
+            bitReader._iByteOffset = iSaveOffs;
+            bitReader._iBitsLeft = iSaveBitsLeft;
+            bitReader._siCurrentWord = siSaveCurrentWord;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.psxvideo.bitstreams;
+
+import javax.annotation.Nonnull;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+public class QscaleSearchTest {
+
+    /** Frame size goes down as the step goes up. */
+    private static class Sizes implements QscaleSearch.Trial<Integer> {
+        private final int _iMaxSize;
+        public int iAttempts = 0;
+
+        public Sizes(int iMaxSize) {
+            _iMaxSize = iMaxSize;
+        }
+
+        public synchronized @Nonnull Integer attempt(int iStep) {
+            iAttempts++;
+            return 10000 / iStep;
+        }
+
+        public boolean fits(int iStep, @Nonnull Integer attempted) {
+            return attempted <= _iMaxSize;
+        }
+    }
+
+    /** The lowest step that fits, trying every step in order. */
+    private static int lowestFit(int iFirst, int iLast, int iMaxSize) {
+        for (int iStep = iFirst; iStep <= iLast; iStep++) {
+            if (10000 / iStep <= iMaxSize)
+                return iStep;
+        }
+        return -1;
+    }
+
+    @Test
+    public void sameAsTryingEveryStep() throws Exception {
+        for (int iThreads = 1; iThreads <= 4; iThreads++) {
+            QscaleSearch search = new QscaleSearch(iThreads, true);
+            try {
+                for (int iFirst = 1; iFirst <= 3; iFirst++) {
+                    for (int iMaxSize = 100; iMaxSize <= 12000; iMaxSize += 37) {
+                        int iExpected = lowestFit(iFirst, 63, iMaxSize);
+                        for (int iGuess = iFirst; iGuess <= 63; iGuess += 5) {
+                            Sizes sizes = new Sizes(iMaxSize);
+                            Integer found = search.search(iFirst, 63, iGuess, sizes);
+                            if (iExpected < 0)
+                                assertNull(found);
+                            else
+                                assertEquals(Integer.valueOf(10000 / iExpected), found);
+                        }
+                    }
+                }
+            } finally {
+                search.close();
+            }
+        }
+    }
+
+    @Test
+    public void fewerAttempts() throws Exception {
+        for (int iMaxSize = 160; iMaxSize <= 10000; iMaxSize += 13) {
+            Sizes sizes = new Sizes(iMaxSize);
+            QscaleSearch.SINGLE_THREAD.search(1, 63, 1, sizes);
+            assertTrue(sizes.iAttempts <= 12);
+        }
+    }
+
+    @Test
+    public void emptyRange() throws Exception {
+        Sizes sizes = new Sizes(10000);
+        assertNull(QscaleSearch.SINGLE_THREAD.search(0, -1, 0, sizes));
+        assertEquals(0, sizes.iAttempts);
+    }
+
+}
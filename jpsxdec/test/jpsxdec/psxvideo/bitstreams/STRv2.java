@@ -305,6 +305,37 @@ public class STRv2 {
         }
     }
 
+    @Test
+    public void packedLookupMatchesLookup() throws Exception {
+        ZeroRunLengthAcLookup table = ZeroRunLengthAcLookup_STR.AC_VARIABLE_LENGTH_CODES_MPEG1;
+        MdecCode expected = new MdecCode();
+        MdecCode actual = new MdecCode();
+        for (int i17bits = 0; i17bits < (1 << BitStreamCode.LONGEST_BITSTREAM_CODE_17BITS); i17bits++) {
+            ZeroRunLengthAc zrlac;
+            try {
+                zrlac = table.lookup(i17bits);
+            } catch (MdecException.ReadCorruption ex) {
+                try {
+                    table.lookupPacked(i17bits);
+                    fail("Expected exception for " + i17bits);
+                } catch (MdecException.ReadCorruption ex2) {
+                    // expected fail
+                }
+                continue;
+            }
+            int iPacked = table.lookupPacked(i17bits);
+            assertEquals(zrlac.getBitLength(), (iPacked >> ZeroRunLengthAcLookup.PACKED_BIT_LENGTH_SHIFT)
+                                               & ZeroRunLengthAcLookup.PACKED_BIT_LENGTH_MASK);
+            assertEquals(zrlac.isIsEscapeCode(), (iPacked & ZeroRunLengthAcLookup.PACKED_ESCAPE_CODE) != 0);
+            assertEquals(zrlac.isIsEndOfBlock(), (iPacked & ZeroRunLengthAcLookup.PACKED_END_OF_BLOCK) != 0);
+            if (!zrlac.isIsEscapeCode() && !zrlac.isIsEndOfBlock()) {
+                zrlac.getMdecCode(expected);
+                actual.set(iPacked & ZeroRunLengthAcLookup.PACKED_MDEC_CODE_MASK);
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
 
 
 
@@ -50,7 +50,6 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.zip.GZIPInputStream;
 import javax.imageio.ImageIO;
-import jpsxdec.psxvideo.encode.MacroBlockEncoder;
 import jpsxdec.psxvideo.encode.MdecEncoder;
 import jpsxdec.psxvideo.encode.PsxYCbCrImage;
 import jpsxdec.psxvideo.mdec.Calc;
@@ -252,13 +251,10 @@ public class STRv3 {
         PsxYCbCrImage yuv = new PsxYCbCrImage(bi);
         MdecEncoder enc = new MdecEncoder(yuv, bi.getWidth(), bi.getHeight());
         int[] aiQscales = {1,1,1,1,1,1};
-        for (MacroBlockEncoder mbenc : enc) {
-            mbenc.setToFullEncode(aiQscales);
-        }
         BitStreamUncompressor_STRv3.BitStreamCompressor_STRv3 comp =
                 new BitStreamUncompressor_STRv3.BitStreamCompressor_STRv3(
                         Calc.macroblocks(bi.getWidth(), bi.getHeight()));
-        byte[] abBs = comp.compress(enc.getStream());
+        byte[] abBs = comp.compress(enc.getStream(aiQscales, aiQscales));
         byte[] abExpected = IO.readEntireStream(getClass().getResourceAsStream("testmax-EXPECTED.bs"));
         assertArrayEquals(abExpected, abBs);
     }
@@ -0,0 +1,84 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.psxvideo.encode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+public class MacroBlockEncoderTest {
+
+    /** {@link MacroBlockEncoder#zeroAtQscale(double)} must agree with
+     * quantizing the value at every quantization scale. */
+    @Test
+    public void zeroAtQscaleMatchesRounding() {
+        List<Double> values = new ArrayList<Double>();
+        values.add(0.0);
+        values.add(-0.0);
+        values.add(1000.0);
+        values.add(-1000.0);
+        // exactly half of every quantization scale, where Math.round()
+        // rounds positive values away from 0 but negative values to 0
+        for (int iQscale = 1; iQscale < 64; iQscale++) {
+            double dblHalf = iQscale / 2.0;
+            for (double dbl : new double[] {dblHalf, -dblHalf}) {
+                values.add(dbl);
+                values.add(Math.nextUp(dbl));
+                values.add(Math.nextAfter(dbl, Double.NEGATIVE_INFINITY));
+            }
+        }
+        Random rand = new Random(25);
+        for (int i = 0; i < 10000; i++) {
+            values.add(rand.nextDouble() * 80 - 40);
+        }
+
+        for (double dblValue : values) {
+            int iZeroAt = MacroBlockEncoder.zeroAtQscale(dblValue);
+            assertTrue(iZeroAt >= 1 && iZeroAt <= 64);
+            for (int iQscale = 1; iQscale < 64; iQscale++) {
+                assertEquals(dblValue + " / " + iQscale,
+                             Math.round(dblValue / iQscale) == 0,
+                             iQscale >= iZeroAt);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.psxvideo.encode;
+
+import jpsxdec.Benchmark;
+import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor_STRv2;
+import jpsxdec.psxvideo.mdec.Calc;
+import jpsxdec.psxvideo.mdec.MdecCode;
+import jpsxdec.psxvideo.mdec.MdecInputStream;
+
+/** Measures the parts of replacing a frame: the forward DCT of every block
+ * (creating the {@link MdecEncoder}), quantizing the blocks with every
+ * quantization scale, and compressing the result into a bitstream.
+ * <p>
+ * A checksum of the MDEC codes for every quantization scale is printed
+ * so any change in the output is obvious. */
+public class MdecEncodeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int iWidth = 320, iHeight = 240;
+        final PsxYCbCrImage ycbcr = new PsxYCbCrImage(Benchmark.makeTestImage(iWidth, iHeight));
+        final MdecEncoder encoder = new MdecEncoder(ycbcr, iWidth, iHeight);
+        final int iMacroBlocks = Calc.macroblocks(iWidth, iHeight);
+
+        System.out.println(iWidth + "x" + iHeight + " frames");
+        new Benchmark("frames", 2, 5)
+            .add(new Benchmark.Case("DCT (new MdecEncoder)") {
+                @Override
+                protected long run() {
+                    new MdecEncoder(ycbcr, iWidth, iHeight);
+                    return 1;
+                }
+            })
+            .add(new Benchmark.Case("quantize all 63 qscales") {
+                private long _lngCheck;
+
+                @Override
+                protected long run() throws Exception {
+                    _lngCheck = 0;
+                    for (int iQscale = 1; iQscale < 64; iQscale++)
+                        _lngCheck = _lngCheck * 31 + drain(encoder, iQscale, iMacroBlocks);
+                    return 1;
+                }
+
+                @Override
+                protected String check() {
+                    return String.format("MDEC code checksum %016x", _lngCheck);
+                }
+            })
+            .add(new Benchmark.Case("quantize + STRv2 compress 63 times") {
+                @Override
+                protected long run() throws Exception {
+                    for (int iQscale = 1; iQscale < 64; iQscale++) {
+                        int[] aiQscales = {iQscale, iQscale, iQscale, iQscale, iQscale, iQscale};
+                        new BitStreamUncompressor_STRv2.BitStreamCompressor_STRv2(iMacroBlocks)
+                                .compress(encoder.getStream(aiQscales, aiQscales));
+                    }
+                    return 1;
+                }
+            })
+            .run();
+    }
+
+    /** @return checksum of the MDEC codes. */
+    private static long drain(MdecEncoder encoder, int iQscale, int iMacroBlocks) throws Exception {
+        int[] aiQscales = {iQscale, iQscale, iQscale, iQscale, iQscale, iQscale};
+        MdecInputStream mis = encoder.getStream(aiQscales, aiQscales);
+        MdecCode code = new MdecCode();
+        long lngCheck = 0;
+        for (int iBlock = 0; iBlock < iMacroBlocks * 6; iBlock++) {
+            boolean blnEndOfBlock;
+            do {
+                blnEndOfBlock = mis.readMdecCode(code);
+                lngCheck = lngCheck * 31 + code.toMdecWord();
+            } while (!blnEndOfBlock);
+        }
+        return lngCheck;
+    }
+
+}
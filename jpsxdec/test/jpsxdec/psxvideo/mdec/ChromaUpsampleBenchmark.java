@@ -0,0 +1,92 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.psxvideo.mdec;
+
+import java.awt.image.BufferedImage;
+import jpsxdec.Benchmark;
+import jpsxdec.psxvideo.encode.MdecEncoder;
+import jpsxdec.psxvideo.encode.PsxYCbCrImage;
+import jpsxdec.psxvideo.mdec.idct.SparsePsxMdecIDCT_double;
+
+/** Measures how many frames per second {@link MdecDecoder_double} converts
+ * to RGB with each {@link ChromaUpsample} method.
+ * <p>
+ * A generated 320x240 image is encoded and decoded once, then only
+ * {@link MdecDecoder_double#readDecodedRgb(int, int, int[])} is measured.
+ * A checksum of the RGB is printed for each method so any change in the
+ * output is obvious. */
+public class ChromaUpsampleBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int iWidth = 320, iHeight = 240;
+        BufferedImage bi = Benchmark.makeTestImage(iWidth, iHeight);
+
+        MdecEncoder enc = new MdecEncoder(new PsxYCbCrImage(bi), iWidth, iHeight);
+        int[] aiQscales = {2, 2, 2, 2, 2, 2};
+        final MdecDecoder_double decoder = new MdecDecoder_double(new SparsePsxMdecIDCT_double(), iWidth, iHeight);
+        decoder.decode(enc.getStream(aiQscales, aiQscales));
+
+        final int[] aiRgb = new int[iWidth * iHeight];
+        System.out.println(iWidth + "x" + iHeight + " frames");
+        Benchmark benchmark = new Benchmark("frames", 1, 3);
+        for (final ChromaUpsample upsample : ChromaUpsample.values()) {
+            benchmark.add(new Benchmark.Case(upsample.name()) {
+                @Override
+                protected void setUp() {
+                    decoder.setUpsampler(upsample);
+                }
+
+                @Override
+                protected long run() {
+                    decoder.readDecodedRgb(iWidth, iHeight, aiRgb);
+                    return 1;
+                }
+
+                @Override
+                protected String check() {
+                    decoder.setUpsampler(upsample);
+                    decoder.readDecodedRgb(iWidth, iHeight, aiRgb);
+                    return String.format("%016x", Benchmark.checksum(0, aiRgb));
+                }
+            });
+        }
+        benchmark.run();
+    }
+
+}
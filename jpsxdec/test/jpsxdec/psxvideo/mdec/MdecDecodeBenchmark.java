@@ -0,0 +1,154 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.psxvideo.mdec;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import jpsxdec.Benchmark;
+import jpsxdec.psxvideo.encode.MdecEncoder;
+import jpsxdec.psxvideo.encode.PsxYCbCrImage;
+import jpsxdec.psxvideo.mdec.idct.PsxMdecIDCT_double;
+import jpsxdec.psxvideo.mdec.idct.PsxMdecIDCT_int;
+import jpsxdec.psxvideo.mdec.idct.SimpleIDCT;
+import jpsxdec.psxvideo.mdec.idct.SparsePsxMdecIDCT_double;
+
+/** Measures how many frames per second the MDEC decoders decode.
+ * <p>
+ * A generated 320x240 image (smooth gradients with some noise) is encoded
+ * at several quantization scales, and the MDEC codes are recorded
+ * so only the decoders are measured, not the bitstream uncompressor.
+ * A checksum of the decoded RGB is printed for each decoder so
+ * any change in the output is obvious. */
+public class MdecDecodeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int iWidth = 320, iHeight = 240;
+        BufferedImage bi = Benchmark.makeTestImage(iWidth, iHeight);
+
+        List<RecordedFrame> frames = new ArrayList<RecordedFrame>();
+        for (int iQscale : new int[] {1, 2, 4, 8, 16}) {
+            MdecEncoder enc = new MdecEncoder(new PsxYCbCrImage(bi), iWidth, iHeight);
+            int[] aiQscales = {iQscale, iQscale, iQscale, iQscale, iQscale, iQscale};
+            frames.add(new RecordedFrame(enc.getStream(aiQscales, aiQscales), Calc.macroblocks(iWidth, iHeight)));
+        }
+
+        System.out.println(iWidth + "x" + iHeight + " frames");
+        new Benchmark("frames", 2, 5)
+            .add(new Decode("int SimpleIDCT", new MdecDecoder_int(new SimpleIDCT(), iWidth, iHeight), frames, iWidth, iHeight))
+            .add(new Decode("int PsxMdecIDCT_int", new MdecDecoder_int(new PsxMdecIDCT_int(), iWidth, iHeight), frames, iWidth, iHeight))
+            .add(new Decode("double PsxMdecIDCT_double", new MdecDecoder_double(new PsxMdecIDCT_double(), iWidth, iHeight), frames, iWidth, iHeight))
+            .add(new Decode("double SparsePsxMdecIDCT_double", new MdecDecoder_double(new SparsePsxMdecIDCT_double(), iWidth, iHeight), frames, iWidth, iHeight))
+            .run();
+    }
+
+    private static class Decode extends Benchmark.Case {
+        private final MdecDecoder _decoder;
+        private final List<RecordedFrame> _frames;
+        private final int _iWidth, _iHeight;
+
+        public Decode(String sName, MdecDecoder decoder, List<RecordedFrame> frames,
+                      int iWidth, int iHeight)
+        {
+            super(sName);
+            _decoder = decoder;
+            _frames = frames;
+            _iWidth = iWidth;
+            _iHeight = iHeight;
+        }
+
+        @Override
+        protected long run() throws Exception {
+            for (RecordedFrame frame : _frames) {
+                frame.reset();
+                _decoder.decode(frame);
+            }
+            return _frames.size();
+        }
+
+        @Override
+        protected String check() throws Exception {
+            long lngCheck = 0;
+            int[] aiRgb = new int[_iWidth * _iHeight];
+            for (RecordedFrame frame : _frames) {
+                frame.reset();
+                _decoder.decode(frame);
+                _decoder.readDecodedRgb(_iWidth, _iHeight, aiRgb);
+                lngCheck = Benchmark.checksum(lngCheck, aiRgb);
+            }
+            return String.format("%016x", lngCheck);
+        }
+    }
+
+    /** Replays MDEC codes that were read once from another stream. */
+    private static class RecordedFrame implements MdecInputStream {
+        private final int[] _aiMdecWords;
+        private final boolean[] _ablnEndOfBlock;
+        private int _iPos;
+
+        public RecordedFrame(MdecInputStream source, int iMacroBlocks) throws Exception {
+            List<MdecCode> codes = new ArrayList<MdecCode>();
+            List<Boolean> eobs = new ArrayList<Boolean>();
+            MdecCode code = new MdecCode();
+            for (int iBlock = 0; iBlock < iMacroBlocks * 6; iBlock++) {
+                boolean blnEndOfBlock;
+                do {
+                    blnEndOfBlock = source.readMdecCode(code);
+                    codes.add(code.copy());
+                    eobs.add(Boolean.valueOf(blnEndOfBlock));
+                } while (!blnEndOfBlock);
+            }
+            _aiMdecWords = new int[codes.size()];
+            _ablnEndOfBlock = new boolean[codes.size()];
+            for (int i = 0; i < _aiMdecWords.length; i++) {
+                _aiMdecWords[i] = codes.get(i).toMdecWord();
+                _ablnEndOfBlock[i] = eobs.get(i).booleanValue();
+            }
+        }
+
+        public void reset() {
+            _iPos = 0;
+        }
+
+        public boolean readMdecCode(MdecCode code) {
+            code.set(_aiMdecWords[_iPos]);
+            return _ablnEndOfBlock[_iPos++];
+        }
+    }
+}
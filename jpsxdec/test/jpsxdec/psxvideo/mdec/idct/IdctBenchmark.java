@@ -0,0 +1,143 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.psxvideo.mdec.idct;
+
+import java.util.Random;
+import jpsxdec.Benchmark;
+import jpsxdec.psxvideo.mdec.MdecInputStream;
+
+/** Compares the speed of the IDCTs on blocks shaped like those found in
+ * PlayStation videos: most hold only a few low frequency coefficients.
+ * <p>
+ * The largest difference between the output of each double IDCT and
+ * {@link PsxMdecIDCT_double} is printed so any change is obvious.
+ * {@link SimpleIDCT} works on integers so it is only timed. */
+public class IdctBenchmark {
+
+    private static final int BLOCKS = 4096;
+
+    public static void main(String[] args) throws Exception {
+        Random rand = new Random(1);
+        final double[][] aadblBlocks = new double[BLOCKS][];
+        final int[][] aaiBlocks = new int[BLOCKS][];
+        final int[] aiNonZeroCounts = new int[BLOCKS];
+        final int[] aiLastNonZeroPos = new int[BLOCKS];
+        for (int iBlock = 0; iBlock < BLOCKS; iBlock++) {
+            double[] adblBlock = new double[64];
+            int[] aiBlock = new int[64];
+            // mostly short runs of coefficients, a few long ones
+            int iLastZigZag = rand.nextInt(4) == 0 ? rand.nextInt(64) : rand.nextInt(10);
+            for (int iZigZag = 0; iZigZag <= iLastZigZag; iZigZag++) {
+                if (iZigZag == iLastZigZag || rand.nextBoolean()) {
+                    int iPos = MdecInputStream.REVERSE_ZIG_ZAG_LOOKUP_LIST[iZigZag];
+                    int iValue = rand.nextInt(1024) - 512;
+                    if (iValue == 0)
+                        iValue = 1;
+                    aiBlock[iPos] = iValue;
+                    adblBlock[iPos] = iValue;
+                    aiNonZeroCounts[iBlock]++;
+                    aiLastNonZeroPos[iBlock] = iPos;
+                }
+            }
+            aadblBlocks[iBlock] = adblBlock;
+            aaiBlocks[iBlock] = aiBlock;
+        }
+
+        Benchmark benchmark = new Benchmark("blocks", 2, 5);
+        IDCT_double[] doubleIdcts = {
+            new PsxMdecIDCT_double(),
+            new StephensIDCT(),
+            new SparsePsxMdecIDCT_double(),
+        };
+        for (final IDCT_double idct : doubleIdcts) {
+            benchmark.add(new Benchmark.Case("double " + idct.getClass().getSimpleName()) {
+                private final double[] _adblOut = new double[64];
+
+                @Override
+                protected long run() {
+                    for (int iBlock = 0; iBlock < BLOCKS; iBlock++) {
+                        if (aiNonZeroCounts[iBlock] == 1)
+                            idct.IDCT_1NonZero(aadblBlocks[iBlock], aiLastNonZeroPos[iBlock], 0, _adblOut);
+                        else
+                            idct.IDCT(aadblBlocks[iBlock], 0, _adblOut);
+                    }
+                    return BLOCKS;
+                }
+
+                @Override
+                protected String check() {
+                    return String.format("max diff %g", maxDifference(idct, aadblBlocks));
+                }
+            });
+        }
+
+        final SimpleIDCT simple = new SimpleIDCT();
+        benchmark.add(new Benchmark.Case("int SimpleIDCT") {
+            private final int[] _aiOut = new int[64];
+
+            @Override
+            protected long run() {
+                for (int iBlock = 0; iBlock < BLOCKS; iBlock++) {
+                    if (aiNonZeroCounts[iBlock] == 1)
+                        simple.IDCT_1NonZero(aaiBlocks[iBlock], aiLastNonZeroPos[iBlock], 0, 8, _aiOut);
+                    else
+                        simple.IDCT(aaiBlocks[iBlock], 0, 8, _aiOut);
+                }
+                return BLOCKS;
+            }
+        });
+
+        benchmark.run();
+    }
+
+    private static double maxDifference(IDCT_double idct, double[][] aadblBlocks) {
+        PsxMdecIDCT_double reference = new PsxMdecIDCT_double();
+        double[] adblExpected = new double[64];
+        double[] adblActual = new double[64];
+        double dblMaxDiff = 0;
+        for (double[] adblBlock : aadblBlocks) {
+            reference.IDCT(adblBlock, 0, adblExpected);
+            idct.IDCT(adblBlock, 0, adblActual);
+            for (int i = 0; i < 64; i++)
+                dblMaxDiff = Math.max(dblMaxDiff, Math.abs(adblExpected[i] - adblActual[i]));
+        }
+        return dblMaxDiff;
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.psxvideo.mdec.idct;
+
+import java.util.Random;
+import jpsxdec.psxvideo.mdec.MdecInputStream;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+public class SparsePsxMdecIDCT_doubleTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    private final Random _rand = new Random(23);
+    private final PsxMdecIDCT_double _full = new PsxMdecIDCT_double();
+    private final SparsePsxMdecIDCT_double _sparse = new SparsePsxMdecIDCT_double();
+
+    @Test
+    public void emptyBlock() {
+        assertSame(new double[64]);
+    }
+
+    @Test
+    public void oneCoefficient() {
+        for (int iPos = 0; iPos < 64; iPos++) {
+            double[] adblBlock = new double[64];
+            adblBlock[iPos] = randomCoefficient();
+            assertSame(adblBlock);
+
+            double[] adblExpected = new double[64];
+            _full.IDCT(adblBlock, 0, adblExpected);
+            double[] adblActual = new double[64];
+            _sparse.IDCT_1NonZero(adblBlock, iPos, 0, adblActual);
+            assertArrayEquals(adblExpected, adblActual, TOLERANCE);
+        }
+    }
+
+    @Test
+    public void shapes() {
+        for (int i = 0; i < 100; i++) {
+            // first row only
+            assertSame(randomBlock(1, 8));
+            // first column only
+            assertSame(randomBlock(8, 1));
+            // top-left 4x4
+            assertSame(randomBlock(4, 4));
+            assertSame(randomBlock(8, 8));
+        }
+    }
+
+    @Test
+    public void zigZagRuns() {
+        for (int iLast = 0; iLast < 64; iLast++) {
+            for (int i = 0; i < 20; i++) {
+                double[] adblBlock = new double[64];
+                for (int iZigZag = 0; iZigZag <= iLast; iZigZag++) {
+                    if (iZigZag == iLast || _rand.nextBoolean())
+                        adblBlock[MdecInputStream.REVERSE_ZIG_ZAG_LOOKUP_LIST[iZigZag]] = randomCoefficient();
+                }
+                assertSame(adblBlock);
+            }
+        }
+    }
+
+    @Test
+    public void inPlaceWithOffset() {
+        double[] adblBlock = randomBlock(3, 5);
+        double[] adblExpected = new double[64];
+        _full.IDCT(adblBlock, 0, adblExpected);
+
+        double[] adblOffset = new double[80];
+        _sparse.IDCT(adblBlock, 16, adblOffset);
+        for (int i = 0; i < 64; i++)
+            assertEquals(adblExpected[i], adblOffset[16 + i], TOLERANCE);
+
+        _sparse.IDCT(adblBlock, 0, adblBlock);
+        assertArrayEquals(adblExpected, adblBlock, TOLERANCE);
+    }
+
+    private void assertSame(double[] adblBlock) {
+        double[] adblExpected = new double[64];
+        _full.IDCT(adblBlock, 0, adblExpected);
+        double[] adblActual = new double[64];
+        _sparse.IDCT(adblBlock, 0, adblActual);
+        assertArrayEquals(adblExpected, adblActual, TOLERANCE);
+    }
+
+    private double[] randomBlock(int iRows, int iCols) {
+        double[] adblBlock = new double[64];
+        for (int iRow = 0; iRow < iRows; iRow++) {
+            for (int iCol = 0; iCol < iCols; iCol++) {
+                if (_rand.nextInt(3) != 0)
+                    adblBlock[iCol + iRow * 8] = randomCoefficient();
+            }
+        }
+        return adblBlock;
+    }
+
+    /** Range of a dequantized coefficient. */
+    private double randomCoefficient() {
+        return (_rand.nextInt(1023) - 511) * _rand.nextInt(64) * (1 + _rand.nextInt(63)) / 8.0;
+    }
+
+}
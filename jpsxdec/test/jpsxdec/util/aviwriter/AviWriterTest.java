@@ -0,0 +1,359 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2019  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jpsxdec.util.aviwriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import javax.sound.sampled.AudioFormat;
+import jpsxdec.util.IO;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/** Writes small AVIs and walks their chunks, checking the offsets and
+ * sizes in the 'idx1' index, and with OpenDML the 'indx' super indexes
+ * and 'ix##' standard indexes of every 'RIFF' segment. */
+public class AviWriterTest {
+
+    /** Small enough that the test AVI has several segments. */
+    private static final int SEGMENT_SIZE = 64 * 1024;
+    private static final AudioFormat FORMAT = new AudioFormat(44100, 16, 2, true, false);
+    private static final int FRAMES = 600;
+    /** Bigger than half of {@link AviFileOutput}'s buffer, and the segment. */
+    private static final int BIG_FRAME = 50;
+
+    private File _file;
+
+    @Before
+    public void setUp() throws IOException {
+        _file = File.createTempFile("aviwriter", ".avi");
+    }
+
+    @After
+    public void tearDown() {
+        _file.delete();
+    }
+
+    /** A chunk found walking the file. */
+    private static class Chunk {
+        public final String sId;
+        /** Position of the chunk id. */
+        public final int iStart;
+        public final int iSize;
+
+        public Chunk(byte[] abAvi, int iStart) {
+            sId = fourcc(abAvi, iStart);
+            this.iStart = iStart;
+            iSize = IO.readSInt32LE(abAvi, iStart + 4);
+        }
+
+        public int dataStart() {
+            return iStart + 8;
+        }
+
+        public int end() {
+            return iStart + 8 + iSize;
+        }
+    }
+
+    /** What was written to the AVI, in order. */
+    private static class Written {
+        public final ArrayList<byte[]> frames = new ArrayList<byte[]>();
+        /** If the frame with the same index was repeated. */
+        public final ArrayList<Boolean> repeated = new ArrayList<Boolean>();
+        public final ArrayList<byte[]> audio = new ArrayList<byte[]>();
+        public int iFrameCount = 0;
+        public long lngSampleCount = 0;
+    }
+
+    @Test
+    public void openDmlSegmentsAndIndexes() throws IOException {
+        AviWriterMJPG avi = new AviWriterMJPG(_file, 16, 16, 15, 1, -1, FORMAT, true);
+        avi.setOdmlSegmentSize(SEGMENT_SIZE);
+        Written written = write(avi);
+        byte[] abAvi = IO.readFile(_file);
+
+        // RIFF 'AVI ' then RIFF 'AVIX' segments
+        List<Chunk> riffs = children(abAvi, 0, abAvi.length);
+        assertTrue(riffs.size() > 4);
+        ArrayList<Chunk> movis = new ArrayList<Chunk>();
+        for (int i = 0; i < riffs.size(); i++) {
+            Chunk riff = riffs.get(i);
+            assertEquals("RIFF", riff.sId);
+            assertEquals(i == 0 ? "AVI " : "AVIX", fourcc(abAvi, riff.dataStart()));
+            List<Chunk> segment = listChildren(abAvi, riff);
+            Chunk movi = segment.get(i == 0 ? 2 : 0);
+            assertEquals("LIST", movi.sId);
+            assertEquals("movi", fourcc(abAvi, movi.dataStart()));
+            movis.add(movi);
+            // only a segment with one big frame is bigger than the limit
+            if (riff.iSize + 8 > SEGMENT_SIZE)
+                assertEquals(1, dataChunks(abAvi, movi).size());
+        }
+
+        // hdrl
+        List<Chunk> first = listChildren(abAvi, riffs.get(0));
+        assertEquals(4, first.size());
+        assertEquals("JUNK", first.get(1).sId);
+        assertEquals("idx1", first.get(3).sId);
+        List<Chunk> hdrl = listChildren(abAvi, first.get(0));
+        assertEquals("avih", hdrl.get(0).sId);
+        List<Chunk> strlVid = listChildren(abAvi, hdrl.get(1));
+        List<Chunk> strlAud = listChildren(abAvi, hdrl.get(2));
+        List<Chunk> odml = listChildren(abAvi, hdrl.get(3));
+        assertEquals("odml", fourcc(abAvi, hdrl.get(3).dataStart()));
+        assertEquals("dmlh", odml.get(0).sId);
+        assertEquals("strh", strlVid.get(0).sId);
+        assertEquals("indx", strlVid.get(2).sId);
+        assertEquals("strh", strlAud.get(0).sId);
+        assertEquals("indx", strlAud.get(2).sId);
+
+        // every chunk the indexes should point to, in the order written
+        ArrayList<Chunk> videoIndex = new ArrayList<Chunk>();
+        ArrayList<Chunk> audioIndex = new ArrayList<Chunk>();
+        ArrayList<Chunk> firstRiffIndex = new ArrayList<Chunk>();
+        HashMap<Integer, Chunk> stdIndexes = new HashMap<Integer, Chunk>();
+        ByteArrayOutputStream video = new ByteArrayOutputStream();
+        ByteArrayOutputStream audio = new ByteArrayOutputStream();
+        int iFrame = 0;
+        for (int i = 0; i < movis.size(); i++) {
+            for (Chunk chunk : children(abAvi, movis.get(i).dataStart() + 4, movis.get(i).end())) {
+                ArrayList<Chunk> entries = new ArrayList<Chunk>();
+                if (chunk.sId.equals("00dc")) {
+                    byte[] abFrame = written.frames.get(iFrame);
+                    assertEquals((abFrame.length + 3) & ~3, chunk.iSize);
+                    video.write(abAvi, chunk.dataStart(), abFrame.length);
+                    entries.add(chunk);
+                    if (written.repeated.get(iFrame))
+                        entries.add(chunk);
+                    videoIndex.addAll(entries);
+                    iFrame++;
+                } else if (chunk.sId.equals("01wb")) {
+                    audio.write(abAvi, chunk.dataStart(), chunk.iSize);
+                    entries.add(chunk);
+                    audioIndex.add(chunk);
+                } else if (chunk.sId.equals("ix00") || chunk.sId.equals("ix01")) {
+                    stdIndexes.put(Integer.valueOf(chunk.iStart), chunk);
+                } else {
+                    fail("Unexpected chunk " + chunk.sId);
+                }
+                if (i == 0)
+                    firstRiffIndex.addAll(entries);
+            }
+        }
+        assertEquals(written.frames.size(), iFrame);
+        assertArrayEquals(concat(written.frames), video.toByteArray());
+        assertArrayEquals(concat(written.audio), audio.toByteArray());
+        assertEquals(written.iFrameCount, videoIndex.size());
+
+        // idx1 offsets are from the 'movi' id of the first segment
+        Chunk idx1 = first.get(3);
+        assertEquals(firstRiffIndex.size() * 16, idx1.iSize);
+        int iMoviId = movis.get(0).dataStart();
+        for (int i = 0; i < firstRiffIndex.size(); i++) {
+            int iEntry = idx1.dataStart() + i * 16;
+            Chunk expected = firstRiffIndex.get(i);
+            assertEquals(fourcc(abAvi, expected.iStart), fourcc(abAvi, iEntry));
+            assertEquals(iMoviId + IO.readSInt32LE(abAvi, iEntry + 8), expected.iStart);
+            assertEquals(expected.iSize, IO.readSInt32LE(abAvi, iEntry + 12));
+        }
+
+        checkSuperIndex(abAvi, strlVid.get(2), "00dc", stdIndexes, videoIndex, null);
+        checkSuperIndex(abAvi, strlAud.get(2), "01wb", stdIndexes, audioIndex, FORMAT);
+        assertTrue("Not every 'ix##' is in a super index", stdIndexes.isEmpty());
+
+        // frame counts and lengths
+        int iFirstRiffFrames = 0;
+        for (Chunk chunk : firstRiffIndex) {
+            if (chunk.sId.equals("00dc"))
+                iFirstRiffFrames++;
+        }
+        assertEquals(iFirstRiffFrames, IO.readSInt32LE(abAvi, hdrl.get(0).dataStart() + 16));
+        assertEquals(written.iFrameCount, IO.readSInt32LE(abAvi, odml.get(0).dataStart()));
+        assertEquals(written.iFrameCount, IO.readSInt32LE(abAvi, strlVid.get(0).dataStart() + 32));
+        assertEquals(written.lngSampleCount, IO.readSInt32LE(abAvi, strlAud.get(0).dataStart() + 32));
+    }
+
+    /** Checks each 'indx' entry points to an 'ix##' chunk, and that the
+     * entries of those chunks are the expected chunks in order. */
+    private static void checkSuperIndex(byte[] abAvi, Chunk indx, String sChunkId,
+                                        HashMap<Integer, Chunk> stdIndexes,
+                                        List<Chunk> expected, AudioFormat audioFormat)
+    {
+        int iData = indx.dataStart();
+        assertEquals(4, IO.readSInt16LE(abAvi, iData));
+        assertEquals(0, abAvi[iData + 3]); // AVI_INDEX_OF_INDEXES
+        int iEntriesInUse = IO.readSInt32LE(abAvi, iData + 4);
+        assertTrue(iEntriesInUse > 4);
+        assertEquals(sChunkId, fourcc(abAvi, iData + 8));
+
+        int iExpected = 0;
+        for (int i = 0; i < iEntriesInUse; i++) {
+            int iEntry = iData + 24 + i * 16;
+            long lngOffset = IO.readSInt32LE(abAvi, iEntry) & 0xffffffffL |
+                             (long)IO.readSInt32LE(abAvi, iEntry + 4) << 32;
+            Chunk ix = stdIndexes.remove(Integer.valueOf((int)lngOffset));
+            assertNotNull("No 'ix##' at " + lngOffset, ix);
+            assertEquals(ix.iSize + 8, IO.readSInt32LE(abAvi, iEntry + 8));
+
+            int iIx = ix.dataStart();
+            assertEquals(2, IO.readSInt16LE(abAvi, iIx));
+            assertEquals(1, abAvi[iIx + 3]); // AVI_INDEX_OF_CHUNKS
+            int iCount = IO.readSInt32LE(abAvi, iIx + 4);
+            assertEquals(24 + iCount * 8, ix.iSize);
+            assertEquals(sChunkId, fourcc(abAvi, iIx + 8));
+            long lngBase = IO.readSInt32LE(abAvi, iIx + 12) & 0xffffffffL |
+                           (long)IO.readSInt32LE(abAvi, iIx + 16) << 32;
+            long lngDuration = 0;
+            for (int j = 0; j < iCount; j++) {
+                Chunk chunk = expected.get(iExpected++);
+                int iIxEntry = iIx + 24 + j * 8;
+                assertEquals(chunk.dataStart(), lngBase + IO.readSInt32LE(abAvi, iIxEntry));
+                assertEquals(chunk.iSize, IO.readSInt32LE(abAvi, iIxEntry + 4));
+                lngDuration += audioFormat == null ? 1 : chunk.iSize / audioFormat.getFrameSize();
+            }
+            assertEquals(lngDuration, IO.readSInt32LE(abAvi, iEntry + 12));
+        }
+        assertEquals(expected.size(), iExpected);
+    }
+
+    @Test
+    public void plainAviHasOneRiff() throws IOException {
+        AviWriterMJPG avi = new AviWriterMJPG(_file, 16, 16, 15, 1, FORMAT);
+        Written written = write(avi);
+        byte[] abAvi = IO.readFile(_file);
+
+        List<Chunk> riffs = children(abAvi, 0, abAvi.length);
+        assertEquals(1, riffs.size());
+        List<Chunk> first = listChildren(abAvi, riffs.get(0));
+        assertEquals(4, first.size());
+        List<Chunk> hdrl = listChildren(abAvi, first.get(0));
+        assertEquals(3, hdrl.size());
+        assertEquals(3, listChildren(abAvi, hdrl.get(1)).size()); // no 'indx'
+        assertEquals(2, listChildren(abAvi, hdrl.get(2)).size());
+
+        List<Chunk> data = dataChunks(abAvi, first.get(2));
+        assertEquals(written.frames.size() + written.audio.size(), data.size());
+        for (Chunk chunk : data)
+            assertFalse(chunk.sId.startsWith("ix"));
+        Chunk idx1 = first.get(3);
+        assertEquals("idx1", idx1.sId);
+        assertEquals((written.iFrameCount + written.audio.size()) * 16, idx1.iSize);
+        assertEquals(written.iFrameCount, IO.readSInt32LE(abAvi, hdrl.get(0).dataStart() + 16));
+    }
+
+    /** Writes frames of random sizes, some repeated, each followed by
+     * some audio. */
+    private static Written write(AviWriterMJPG avi) throws IOException {
+        Random rand = new Random(11);
+        Written written = new Written();
+        try {
+            for (int i = 0; i < FRAMES; i++) {
+                // odd sizes need padding, the frame data doesn't have to be a jpeg
+                byte[] abFrame = new byte[i == BIG_FRAME ? 600 * 1024 : 1 + rand.nextInt(3000)];
+                rand.nextBytes(abFrame);
+                avi.writeFrame(abFrame, 0, abFrame.length);
+                written.frames.add(abFrame);
+                written.iFrameCount++;
+                boolean blnRepeat = i % 7 == 0;
+                if (blnRepeat) {
+                    avi.repeatPreviousFrame();
+                    written.iFrameCount++;
+                }
+                written.repeated.add(Boolean.valueOf(blnRepeat));
+
+                byte[] abAudio = new byte[FORMAT.getFrameSize() * (1 + rand.nextInt(300))];
+                rand.nextBytes(abAudio);
+                avi.writeAudio(abAudio);
+                written.audio.add(abAudio);
+                written.lngSampleCount += abAudio.length / FORMAT.getFrameSize();
+            }
+        } finally {
+            avi.close();
+        }
+        return written;
+    }
+
+    private static List<Chunk> children(byte[] abAvi, int iStart, int iEnd) {
+        ArrayList<Chunk> chunks = new ArrayList<Chunk>();
+        while (iStart < iEnd) {
+            Chunk chunk = new Chunk(abAvi, iStart);
+            assertTrue(chunk.sId + " at " + iStart + " runs past its parent", chunk.end() <= iEnd);
+            chunks.add(chunk);
+            iStart = chunk.end();
+        }
+        assertEquals(iEnd, iStart);
+        return chunks;
+    }
+
+    /** Children of a 'RIFF' or 'LIST' chunk, which start after its type. */
+    private static List<Chunk> listChildren(byte[] abAvi, Chunk list) {
+        return children(abAvi, list.dataStart() + 4, list.end());
+    }
+
+    /** Chunks of a 'movi' list that aren't standard indexes. */
+    private static List<Chunk> dataChunks(byte[] abAvi, Chunk movi) {
+        ArrayList<Chunk> data = new ArrayList<Chunk>();
+        for (Chunk chunk : listChildren(abAvi, movi)) {
+            if (!chunk.sId.startsWith("ix"))
+                data.add(chunk);
+        }
+        return data;
+    }
+
+    private static String fourcc(byte[] abAvi, int iPos) {
+        char[] ac = new char[4];
+        for (int i = 0; i < 4; i++)
+            ac[i] = (char)abAvi[iPos + i];
+        return new String(ac);
+    }
+
+    private static byte[] concat(List<byte[]> list) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        for (byte[] ab : list)
+            baos.write(ab, 0, ab.length);
+        return baos.toByteArray();
+    }
+
+}